@@ -77,16 +77,25 @@ internal sealed class Decompressor(private val outputSizeLimit: Long?) {
 
 }
 
-private fun getEntryFile(outputDir: Path, entry: Decompressor.Entry): Path {
-  val independentEntryName = entry.name.replace("\\", "/")
+internal fun getEntryFile(outputDir: Path, entry: Decompressor.Entry): Path = getEntryFile(outputDir, entry.name)
+
+/**
+ * Resolves the entry [name] against [outputDir], rejecting names that point outside of it.
+ */
+internal fun getEntryFile(outputDir: Path, name: String): Path {
+  val independentEntryName = name.replace("\\", "/")
   val parts = independentEntryName.split("/")
   if (parts.any { it.contains("..") }) {
-    throw IOException("Invalid relative entry name: ${entry.name}")
+    throw IOException("Invalid relative entry name: $name")
   }
   if (parts.any { it.length > Decompressor.FILE_NAME_LENGTH_LIMIT }) {
-    throw IOException("Entry name is too long: ${entry.name}")
+    throw IOException("Entry name is too long: $name")
+  }
+  val entryFile = outputDir.resolve(independentEntryName)
+  if (!entryFile.normalize().startsWith(outputDir.normalize())) {
+    throw IOException("Invalid relative entry name: $name")
   }
-  return outputDir.resolve(independentEntryName)
+  return entryFile
 }
 
 internal class ZipDecompressor(private val zipFile: Path, sizeLimit: Long?) : Decompressor(sizeLimit) {
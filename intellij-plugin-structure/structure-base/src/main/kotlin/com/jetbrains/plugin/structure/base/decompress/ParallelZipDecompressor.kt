@@ -0,0 +1,159 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.plugin.structure.base.decompress
+
+import com.jetbrains.plugin.structure.base.plugin.Settings
+import com.jetbrains.plugin.structure.base.utils.closeOnException
+import com.jetbrains.plugin.structure.base.utils.createDir
+import com.jetbrains.plugin.structure.base.utils.createParentDirs
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry
+import org.apache.commons.compress.archivers.zip.ZipFile
+import java.io.InputStream
+import java.io.OutputStream
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+import java.util.zip.ZipException
+
+/**
+ * Extracts zip archives inflating independent entries in parallel.
+ *
+ * Unlike [ZipDecompressor], which reads the archive as a stream, this decompressor reads the central directory
+ * and the data of each entry with positional reads of a [FileChannel], so entries do not wait for each other.
+ * Entry names are validated before anything is written, and the [outputSizeLimit] applies to all entries together.
+ */
+internal class ParallelZipDecompressor(
+  private val zipFile: Path,
+  private val outputSizeLimit: Long?
+) {
+
+  companion object {
+    private const val BUFFER_SIZE = 64 * 1024
+
+    private val threadsCounter = AtomicInteger()
+
+    /**
+     * Threads shared by all extractions, which are idle most of the time.
+     */
+    private val executor: ExecutorService by lazy {
+      Executors.newFixedThreadPool(Settings.DECOMPRESS_PARALLELISM.getAsInt(), ThreadFactory { runnable ->
+        Thread(runnable, "zip-decompressor-" + threadsCounter.incrementAndGet()).apply { isDaemon = true }
+      })
+    }
+  }
+
+  private val actualSizeLimit = outputSizeLimit ?: Long.MAX_VALUE
+
+  private val remainingSize = AtomicLong(actualSizeLimit)
+
+  @Volatile
+  private var aborted = false
+
+  fun extract(outputDir: Path) {
+    val zipArchive = try {
+      FileChannel.open(zipFile, StandardOpenOption.READ).closeOnException { ZipFile(it) }
+    } catch (e: ZipException) {
+      //The central directory is missing or broken. Such archives may still be readable as a stream.
+      ZipDecompressor(zipFile, outputSizeLimit).extract(outputDir)
+      return
+    }
+    zipArchive.use { zip ->
+      //The last of entries with the same name wins, as it does when the archive is read as a stream.
+      val fileEntries = linkedMapOf<Path, ZipArchiveEntry>()
+      for (entry in zip.entriesInPhysicalOrder) {
+        val outputFile = getEntryFile(outputDir, entry.name)
+        if (entry.isDirectory) {
+          outputFile.createDir()
+        } else {
+          outputFile.createParentDirs()
+          fileEntries[outputFile] = entry
+        }
+      }
+      val declaredSize = fileEntries.values.sumOf { it.size.coerceAtLeast(0) }
+      if (declaredSize > actualSizeLimit) {
+        //Fail fast, the actual size is checked during inflating anyway.
+        throw DecompressorSizeLimitExceededException(actualSizeLimit)
+      }
+
+      val futures = fileEntries.map { (outputFile, entry) ->
+        executor.submit(Callable { extractEntry(zip, entry, outputFile) })
+      }
+      waitAll(futures)
+    }
+  }
+
+  private fun waitAll(futures: List<Future<*>>) {
+    try {
+      for (future in futures) {
+        future.get()
+      }
+    } catch (e: Throwable) {
+      //Do not let remaining entries be written to a directory the caller is going to delete.
+      aborted = true
+      awaitTermination(futures)
+      throw if (e is ExecutionException) e.cause ?: e else e
+    }
+  }
+
+  /**
+   * Waits until aborted tasks stop, so that none of them writes after the extraction fails.
+   * Tasks stop quickly, as they check [aborted] before reading each buffer.
+   */
+  private fun awaitTermination(futures: List<Future<*>>) {
+    var interrupted = false
+    for (future in futures) {
+      while (true) {
+        try {
+          future.get()
+          break
+        } catch (e: ExecutionException) {
+          break
+        } catch (e: InterruptedException) {
+          interrupted = true
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt()
+    }
+  }
+
+  private fun extractEntry(zip: ZipFile, entry: ZipArchiveEntry, outputFile: Path) {
+    if (aborted) {
+      return
+    }
+    //Opening a stream may read the local file header, which is not thread-safe.
+    val entryStream = synchronized(zip) { zip.getInputStream(entry) }
+    entryStream.use { input ->
+      Files.newOutputStream(outputFile).buffered().use { copyEntry(input, it) }
+    }
+  }
+
+  private fun copyEntry(input: InputStream, output: OutputStream) {
+    val buffer = ByteArray(BUFFER_SIZE)
+    while (true) {
+      if (aborted || Thread.interrupted()) {
+        throw InterruptedException()
+      }
+      val read = input.read(buffer)
+      if (read < 0) {
+        break
+      }
+      if (remainingSize.addAndGet(-read.toLong()) < 0) {
+        throw DecompressorSizeLimitExceededException(actualSizeLimit)
+      }
+      output.write(buffer, 0, read)
+    }
+  }
+}
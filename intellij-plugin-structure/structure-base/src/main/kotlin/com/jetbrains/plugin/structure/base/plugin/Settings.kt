@@ -11,6 +11,9 @@ import java.nio.file.Paths
 
 enum class Settings(private val key: String, private val defaultValue: () -> String) {
   EXTRACT_DIRECTORY("intellij.structure.temp.dir", { Paths.get(FileUtils.getTempDirectory().absolutePath).resolve("extracted-plugins").toString() }),
+  JAR_FILE_INDEX_DIRECTORY("intellij.structure.jar.index.dir", { "" }),
+  JDK_IMAGE_INDEX_DIRECTORY("intellij.structure.jdk.index.dir", { "" }),
+  JDK_CLASS_CACHE_SIZE("intellij.structure.jdk.class.cache.size", { (FileUtils.ONE_MB * 64).toString() }),
   INTELLIJ_PLUGIN_SIZE_LIMIT("intellij.structure.intellij.plugin.size.limit", { FileUtils.ONE_GB.toString() }),
   FLEET_PLUGIN_SIZE_LIMIT("intellij.structure.fleet.plugin.size.limit", { FileUtils.ONE_GB.toString() }),
   TEAM_CITY_PLUGIN_SIZE_LIMIT("intellij.structure.team.city.plugin.size.limit", { FileUtils.ONE_GB.toString() }),
@@ -18,7 +21,9 @@ enum class Settings(private val key: String, private val defaultValue: () -> Str
   HUB_PLUGIN_SIZE_LIMIT("intellij.structure.hub.plugin.size.limit", { (FileUtils.ONE_MB * 30).toString() }),
   HUB_PLUGIN_MAX_FILES_NUMBER("intellij.structure.hub.plugin.max.files.number", { 1000.toString() }),
   EDU_PLUGIN_SIZE_LIMIT("intellij.structure.edu.plugin.size.limit", { FileUtils.ONE_GB.toString() }),
-  KTOR_FEATURE_SIZE_LIMIT("intellij.structure.edu.plugin.size.limit", { FileUtils.ONE_GB.toString() });
+  KTOR_FEATURE_SIZE_LIMIT("intellij.structure.edu.plugin.size.limit", { FileUtils.ONE_GB.toString() }),
+  DECOMPRESS_PARALLELISM("intellij.structure.decompress.parallelism", { Runtime.getRuntime().availableProcessors().coerceAtMost(8).toString() }),
+  VIRTUAL_THREADS("intellij.structure.virtual.threads", { (Runtime.version().feature() >= 21).toString() });
 
   fun get(): String = System.getProperty(key) ?: defaultValue()
 
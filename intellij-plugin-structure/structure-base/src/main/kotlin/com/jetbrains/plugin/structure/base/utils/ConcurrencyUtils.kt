@@ -4,17 +4,57 @@
 
 package com.jetbrains.plugin.structure.base.utils
 
+import com.jetbrains.plugin.structure.base.plugin.Settings
 import java.io.Closeable
 import java.util.concurrent.*
 import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.locks.ReentrantLock
 
+/**
+ * Executes tasks concurrently and reports [progress] of each finished task on the calling thread.
+ *
+ * Tasks are run on a fixed pool of [concurrentWorkers] platform threads or,
+ * if [Settings.VIRTUAL_THREADS] are enabled and supported by the JVM, each task is run on its own virtual thread.
+ * In the latter mode at most [concurrentWorkers] tasks run at once, and a task is started only
+ * if [memoryPerTask] bytes of the heap are available for it and for each running task, see [MemoryAwareSemaphore].
+ */
 class ExecutorWithProgress<T>(
   executorName: String,
   concurrentWorkers: Int,
   private val failFastOnException: Boolean,
+  memoryPerTask: Long = 0,
   private val progress: (ProgressData<T>) -> Unit
 ) : Closeable {
 
+  companion object {
+    /**
+     * Returns `true` if tasks will be executed on virtual threads.
+     */
+    @JvmStatic
+    fun isVirtualThreadsModeEnabled(): Boolean =
+      Settings.VIRTUAL_THREADS.get().toBoolean() && virtualThreadFactoryBuilder != null
+
+    /**
+     * Creates factories of named virtual threads, if the JVM supports them.
+     * The project is compiled for Java 11, so the JDK 21 API is accessed reflectively.
+     */
+    private val virtualThreadFactoryBuilder: ((String) -> ThreadFactory)? by lazy {
+      try {
+        val ofVirtual = Thread::class.java.getMethod("ofVirtual")
+        val builderClass = Class.forName("java.lang.Thread\$Builder")
+        val nameMethod = builderClass.getMethod("name", String::class.java, Long::class.javaPrimitiveType)
+        val factoryMethod = builderClass.getMethod("factory")
+        val builder: (String) -> ThreadFactory = { prefix ->
+          val threadBuilder = nameMethod.invoke(ofVirtual.invoke(null), prefix, 1L)
+          factoryMethod.invoke(threadBuilder) as ThreadFactory
+        }
+        builder
+      } catch (e: ReflectiveOperationException) {
+        null
+      }
+    }
+  }
+
   data class ProgressData<T>(
     val task: Task<T>,
     val finishedNumber: Int,
@@ -31,10 +71,28 @@ class ExecutorWithProgress<T>(
 
   private val nameCounter = AtomicInteger()
 
-  private val executor = Executors.newFixedThreadPool(concurrentWorkers) { r ->
-    Thread(r).apply {
-      isDaemon = true
-      name = executorName + "_" + nameCounter.incrementAndGet().toString()
+  private val semaphore: MemoryAwareSemaphore?
+
+  private val executor: ExecutorService
+
+  init {
+    val virtualThreadFactory = if (Settings.VIRTUAL_THREADS.get().toBoolean()) {
+      virtualThreadFactoryBuilder?.invoke(executorName + "_")
+    } else {
+      null
+    }
+    if (virtualThreadFactory != null) {
+      semaphore = MemoryAwareSemaphore(concurrentWorkers, memoryPerTask)
+      //A new thread for each task: virtual threads are cheap and are not supposed to be pooled.
+      executor = ThreadPoolExecutor(0, Int.MAX_VALUE, 0, TimeUnit.SECONDS, SynchronousQueue(), virtualThreadFactory)
+    } else {
+      semaphore = null
+      executor = Executors.newFixedThreadPool(concurrentWorkers) { r ->
+        Thread(r).apply {
+          isDaemon = true
+          name = executorName + "_" + nameCounter.incrementAndGet().toString()
+        }
+      }
     }
   }
 
@@ -44,13 +102,13 @@ class ExecutorWithProgress<T>(
 
   @Throws(InterruptedException::class)
   fun executeTasks(tasks: List<Task<T>>): List<T> {
-    val completionService = ExecutorCompletionService<TimedResult<T>>(executor)
-    val futures = arrayListOf<Future<TimedResult<T>>>()
+    val finishedTasks = LinkedBlockingQueue<TimedResult<T>>()
+    val futures = arrayListOf<Future<*>>()
     try {
       for (task in tasks) {
         val timedCallable = TimedCallable(task)
         val future = try {
-          completionService.submit(timedCallable)
+          executor.submit(Runnable { finishedTasks.put(runTask(timedCallable)) })
         } catch (e: RejectedExecutionException) {
           if (executor.isShutdown) {
             throw InterruptedException()
@@ -59,7 +117,7 @@ class ExecutorWithProgress<T>(
         }
         futures.add(future)
       }
-      return waitAllFutures(futures.size, completionService)
+      return waitAllTasks(futures.size, finishedTasks)
     } catch (e: Throwable) {
       for (worker in futures) {
         worker.cancel(true)
@@ -68,43 +126,45 @@ class ExecutorWithProgress<T>(
     }
   }
 
-  private fun waitAllFutures(futuresNumber: Int, completionService: ExecutorCompletionService<TimedResult<T>>): List<T> {
+  private fun runTask(timedCallable: TimedCallable<T>): TimedResult<T> {
+    if (semaphore == null) {
+      return timedCallable.call()
+    }
+    try {
+      semaphore.acquire()
+    } catch (e: InterruptedException) {
+      return TimedResult(timedCallable.task, null, e, 0, timedCallable.task.presentableName)
+    }
+    try {
+      return timedCallable.call()
+    } finally {
+      semaphore.release()
+    }
+  }
+
+  /**
+   * Waits for the tasks, which put their results to [finishedTasks] as soon as they finish,
+   * so progress is reported without delay.
+   */
+  private fun waitAllTasks(tasksNumber: Int, finishedTasks: BlockingQueue<TimedResult<T>>): List<T> {
     val results = arrayListOf<T>()
     val exceptions = arrayListOf<Throwable>()
-    for (finished in 1..futuresNumber) {
-      while (true) {
-        checkIfInterrupted()
-        val future = completionService.poll(100, TimeUnit.MILLISECONDS)
-        if (future != null) {
-          val timedResult = try {
-            future.get()
-          } catch (e: InterruptedException) {
-            throw e
-          } catch (e: CancellationException) {
-            throw InterruptedException("Worker has been cancelled")
-          } catch (e: ExecutionException) {
-            val workerException = e.cause!!
-            if (workerException is InterruptedException) {
-              throw InterruptedException("Worker has been interrupted")
-            }
-            throw e.cause!!
-          }
+    for (finished in 1..tasksNumber) {
+      checkIfInterrupted()
+      val timedResult = finishedTasks.take()
 
-          val exception = timedResult.exception
-          if (exception != null) {
-            if (failFastOnException) {
-              throw RuntimeException("Worker '${timedResult.presentableTaskName}' finished with error", exception)
-            } else {
-              exceptions += exception
-              progress(ProgressData(timedResult.task, finished, futuresNumber, null, exception, timedResult.elapsedTime))
-            }
-          } else {
-            val result = timedResult.result!!
-            progress(ProgressData(timedResult.task, finished, futuresNumber, result, null, timedResult.elapsedTime))
-            results += result
-          }
-          break
+      val exception = timedResult.exception
+      if (exception != null) {
+        if (failFastOnException) {
+          throw RuntimeException("Worker '${timedResult.presentableTaskName}' finished with error", exception)
+        } else {
+          exceptions += exception
+          progress(ProgressData(timedResult.task, finished, tasksNumber, null, exception, timedResult.elapsedTime))
         }
+      } else {
+        val result = timedResult.result!!
+        progress(ProgressData(timedResult.task, finished, tasksNumber, result, null, timedResult.elapsedTime))
+        results += result
       }
     }
     check(exceptions.isEmpty() || !failFastOnException)
@@ -124,7 +184,7 @@ class ExecutorWithProgress<T>(
     val presentableTaskName: String
   )
 
-  private class TimedCallable<T>(private val task: Task<T>) : Callable<TimedResult<T>> {
+  private class TimedCallable<T>(val task: Task<T>) : Callable<TimedResult<T>> {
     override fun call(): TimedResult<T> {
       val start = System.nanoTime()
       var result: T? = null
@@ -139,4 +199,64 @@ class ExecutorWithProgress<T>(
     }
   }
 
-}
\ No newline at end of file
+}
+
+/**
+ * Limits the number of concurrently running tasks by [maxPermits] and by the free heap memory.
+ *
+ * A task is started only if at least [memoryPerTask] bytes of the heap are available in addition to [memoryPerTask] bytes
+ * reserved for each running task, or if no other task is running, so that at least one task always makes progress.
+ * Memory is reserved for running tasks because tasks that have just started have not allocated their memory yet.
+ * The used heap includes garbage not collected yet, so the estimate is conservative. As memory may be freed by GC
+ * without any task finishing, the memory is rechecked periodically while tasks wait for it.
+ *
+ * [availableMemory] returns the number of bytes of the heap that are not used.
+ */
+class MemoryAwareSemaphore(
+  private val maxPermits: Int,
+  private val memoryPerTask: Long,
+  private val availableMemory: () -> Long = ::getAvailableHeapMemory
+) {
+
+  private val lock = ReentrantLock()
+
+  private val released = lock.newCondition()
+
+  private var running = 0
+
+  @Throws(InterruptedException::class)
+  fun acquire() {
+    lock.lockInterruptibly()
+    try {
+      while (running >= maxPermits || running > 0 && availableMemory() - running * memoryPerTask < memoryPerTask) {
+        if (running >= maxPermits) {
+          released.await()
+        } else {
+          released.await(MEMORY_RECHECK_PERIOD_MS, TimeUnit.MILLISECONDS)
+        }
+      }
+      running++
+    } finally {
+      lock.unlock()
+    }
+  }
+
+  fun release() {
+    lock.lock()
+    try {
+      running--
+      released.signalAll()
+    } finally {
+      lock.unlock()
+    }
+  }
+
+  private companion object {
+    const val MEMORY_RECHECK_PERIOD_MS = 100L
+  }
+}
+
+private fun getAvailableHeapMemory(): Long {
+  val runtime = Runtime.getRuntime()
+  return runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory())
+}
@@ -4,29 +4,46 @@
 
 package com.jetbrains.plugin.structure.base.utils
 
+import com.jetbrains.plugin.structure.base.decompress.ParallelZipDecompressor
 import com.jetbrains.plugin.structure.base.decompress.TarDecompressor
 import com.jetbrains.plugin.structure.base.decompress.ZipCompressor
 import com.jetbrains.plugin.structure.base.decompress.ZipDecompressor
+import com.jetbrains.plugin.structure.base.plugin.Settings
 import java.nio.file.Path
 
+/**
+ * Extracts the zip [pluginFile] to [destination].
+ * Entries are inflated in parallel unless [Settings.DECOMPRESS_PARALLELISM] is set to 1.
+ */
 fun extractZip(pluginFile: Path, destination: Path, outputSizeLimit: Long? = null): Path {
   destination.createDir()
-  ZipDecompressor(pluginFile, outputSizeLimit).extract(destination)
+  extractZipEntries(pluginFile, destination, outputSizeLimit)
   return destination
 }
 
 fun Path.extractTo(destination: Path, outputSizeLimit: Long? = null): Path {
-  val decompressor = when {
-    simpleName.endsWith(".zip") || simpleName.endsWith(".sit") -> ZipDecompressor(this, outputSizeLimit)
-    simpleName.endsWith(".tar.gz") -> TarDecompressor(this, outputSizeLimit)
-    else -> throw IllegalArgumentException("Unknown type archive type: ${destination.fileName}")
+  val isZip = simpleName.endsWith(".zip") || simpleName.endsWith(".sit")
+  if (!isZip && !simpleName.endsWith(".tar.gz")) {
+    throw IllegalArgumentException("Unknown type archive type: ${destination.fileName}")
   }
 
   destination.createDir()
-  decompressor.extract(destination)
+  if (isZip) {
+    extractZipEntries(this, destination, outputSizeLimit)
+  } else {
+    TarDecompressor(this, outputSizeLimit).extract(destination)
+  }
   return destination
 }
 
+private fun extractZipEntries(zipFile: Path, destination: Path, outputSizeLimit: Long?) {
+  if (Settings.DECOMPRESS_PARALLELISM.getAsInt() > 1) {
+    ParallelZipDecompressor(zipFile, outputSizeLimit).extract(destination)
+  } else {
+    ZipDecompressor(zipFile, outputSizeLimit).extract(destination)
+  }
+}
+
 fun Path.archiveDirectoryTo(destination: Path) {
   require(destination.extension == "zip" || destination.extension == "jar" || destination.extension == "nupkg")
   destination.forceDeleteIfExists()
@@ -11,16 +11,31 @@ import org.objectweb.asm.tree.ClassNode
 import java.util.*
 import java.util.concurrent.ExecutionException
 
-class CacheResolver(
+/**
+ * [Resolver] that caches up to [cacheSize] classes and property bundles resolved by [delegate].
+ *
+ * The cache is thread-safe, so a single [CacheResolver] may be shared by concurrent verifications.
+ * If [recordStatistics] is set, hits and misses of the classes cache are counted, see [statistics].
+ */
+class CacheResolver @JvmOverloads constructor(
   private val delegate: Resolver,
-  cacheSize: Int = DEFAULT_CACHE_SIZE
+  cacheSize: Int = DEFAULT_CACHE_SIZE,
+  recordStatistics: Boolean = false
 ) : Resolver() {
 
   private data class BundleCacheKey(val baseName: String, val locale: Locale)
 
+  data class Statistics(val hitCount: Long, val missCount: Long) {
+    val requestCount: Long
+      get() = hitCount + missCount
+
+    override fun toString() = "$hitCount hits, $missCount misses"
+  }
+
   private val classCache: LoadingCache<String, ResolutionResult<ClassNode>> =
     CacheBuilder.newBuilder()
       .maximumSize(cacheSize.toLong())
+      .apply { if (recordStatistics) recordStats() }
       .build(object : CacheLoader<String, ResolutionResult<ClassNode>>() {
         override fun load(key: String) = delegate.resolveClass(key)
       })
@@ -32,6 +47,12 @@ class CacheResolver(
         override fun load(key: BundleCacheKey) = delegate.resolveExactPropertyResourceBundle(key.baseName, key.locale)
       })
 
+  /**
+   * Hits and misses of the classes cache. Both are zero unless the statistics are recorded.
+   */
+  val statistics: Statistics
+    get() = classCache.stats().let { Statistics(it.hitCount(), it.missCount()) }
+
   override val allClasses
     get() = delegate.allClasses
 
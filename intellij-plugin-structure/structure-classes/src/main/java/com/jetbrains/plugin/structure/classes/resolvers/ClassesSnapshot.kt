@@ -0,0 +1,200 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.plugin.structure.classes.resolvers
+
+import com.jetbrains.plugin.structure.base.utils.inputStream
+import com.jetbrains.plugin.structure.base.utils.outputStream
+import com.jetbrains.plugin.structure.classes.utils.AsmUtil
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+import java.nio.file.StandardOpenOption
+
+/**
+ * Binary snapshot of the classes and resources of a jar file, read by [SnapshotResolver].
+ *
+ * Opening a jar requires reading its central directory and inflating every entry that is read.
+ * A snapshot starts with an index of all its entries, followed by their uncompressed contents,
+ * so opening it reads only the index, and an entry is read with a single positional read.
+ *
+ * The layout is:
+ * - magic number and format version
+ * - length of the index, and the index: names and lengths of the classes, then of the resources
+ * - contents of the classes and the resources in the order of the index
+ */
+object ClassesSnapshot {
+
+  private const val MAGIC = 0x50565353 // "PVSS"
+
+  private const val FORMAT_VERSION = 1
+
+  private const val PREFIX_LENGTH = 12
+
+  /**
+   * Position and length of an entry's content in a snapshot file.
+   */
+  internal class Entry(val position: Long, val length: Int)
+
+  internal class Index(val classes: Map<String, Entry>, val resources: Map<String, Entry>)
+
+  /**
+   * Returns `true` if [path] is a file starting with the snapshot's magic number.
+   */
+  @JvmStatic
+  fun isSnapshot(path: Path): Boolean {
+    if (!Files.isRegularFile(path)) {
+      return false
+    }
+    return DataInputStream(path.inputStream()).use { input ->
+      try {
+        input.readInt() == MAGIC
+      } catch (e: IOException) {
+        false
+      }
+    }
+  }
+
+  /**
+   * Reads content of the resource with path [resourceName] from the snapshot [snapshotPath],
+   * or returns `null` if there is no such resource.
+   *
+   * @throws IOException if the snapshot cannot be read
+   */
+  @JvmStatic
+  fun readResource(snapshotPath: Path, resourceName: String): ByteArray? =
+    FileChannel.open(snapshotPath, StandardOpenOption.READ).use { channel ->
+      val entry = readIndex(channel, snapshotPath).resources[resourceName] ?: return null
+      readFully(channel, entry.position, entry.length)
+    }
+
+  /**
+   * Writes the snapshot of all classes and resources of [jarPath] to [snapshotPath].
+   * Class files are checked to be readable, so that the snapshot is not created from a broken jar.
+   *
+   * @throws InvalidClassFileException if a class file of the jar is invalid
+   */
+  @JvmStatic
+  fun compile(jarPath: Path, snapshotPath: Path) {
+    JarFileSystemsPool.checkIsJar(jarPath)
+    val classes = linkedMapOf<String, ByteArray>()
+    val resources = linkedMapOf<String, ByteArray>()
+    MappedZipFile(jarPath).use { jarFile ->
+      for (entryName in jarFile.entryNames.sorted()) {
+        if (entryName.endsWith("/")) {
+          continue
+        }
+        val content = jarFile.readEntry(entryName) { bytes, length -> bytes.copyOf(length) } ?: continue
+        if (entryName.endsWith(JarFileIndex.CLASS_SUFFIX)) {
+          val className = entryName.removeSuffix(JarFileIndex.CLASS_SUFFIX)
+          AsmUtil.readClassNode(className, content, content.size, false)
+          classes[className] = content
+        } else {
+          resources[entryName] = content
+        }
+      }
+    }
+    write(snapshotPath, classes, resources)
+  }
+
+  private fun write(snapshotPath: Path, classes: Map<String, ByteArray>, resources: Map<String, ByteArray>) {
+    val index = ByteArrayOutputStream()
+    DataOutputStream(index).use { output ->
+      output.writeEntries(classes)
+      output.writeEntries(resources)
+    }
+
+    val directory = snapshotPath.toAbsolutePath().parent
+    Files.createDirectories(directory)
+    val tempFile = Files.createTempFile(directory, snapshotPath.fileName.toString(), ".tmp")
+    try {
+      DataOutputStream(tempFile.outputStream().buffered()).use { output ->
+        output.writeInt(MAGIC)
+        output.writeInt(FORMAT_VERSION)
+        output.writeInt(index.size())
+        index.writeTo(output)
+        classes.values.forEach { output.write(it) }
+        resources.values.forEach { output.write(it) }
+      }
+      Files.move(tempFile, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+    } finally {
+      Files.deleteIfExists(tempFile)
+    }
+  }
+
+  private fun DataOutputStream.writeEntries(entries: Map<String, ByteArray>) {
+    writeInt(entries.size)
+    for ((name, content) in entries) {
+      writeUTF(name)
+      writeInt(content.size)
+    }
+  }
+
+  /**
+   * Reads the index of the snapshot open in [channel].
+   *
+   * @throws IOException if the file is not a snapshot, or it is of another format version, or it is truncated
+   */
+  internal fun readIndex(channel: FileChannel, snapshotPath: Path): Index {
+    val prefix = readFully(channel, 0, PREFIX_LENGTH)
+    val prefixBuffer = ByteBuffer.wrap(prefix)
+    if (prefixBuffer.int != MAGIC) {
+      throw IOException("$snapshotPath is not a classes snapshot")
+    }
+    val formatVersion = prefixBuffer.int
+    if (formatVersion != FORMAT_VERSION) {
+      throw IOException("Snapshot $snapshotPath is of unsupported format version $formatVersion. Compile it again.")
+    }
+    val indexLength = prefixBuffer.int
+    val indexBytes = readFully(channel, PREFIX_LENGTH.toLong(), indexLength)
+
+    var position = PREFIX_LENGTH.toLong() + indexLength
+    return DataInputStream(ByteArrayInputStream(indexBytes)).use { input ->
+      val classes = input.readEntries(position)
+      position += classes.values.sumOf { it.length.toLong() }
+      val resources = input.readEntries(position)
+      position += resources.values.sumOf { it.length.toLong() }
+      if (position != channel.size()) {
+        throw IOException("Snapshot $snapshotPath is truncated or corrupted")
+      }
+      Index(classes, resources)
+    }
+  }
+
+  private fun DataInputStream.readEntries(startPosition: Long): Map<String, Entry> {
+    val size = readInt()
+    val entries = HashMap<String, Entry>(size * 2)
+    var position = startPosition
+    repeat(size) {
+      val name = readUTF()
+      val length = readInt()
+      entries[name] = Entry(position, length)
+      position += length
+    }
+    return entries
+  }
+
+  /**
+   * Reads [length] bytes at [position]. Positional reads do not change the channel's position,
+   * so they may be performed concurrently.
+   */
+  internal fun readFully(channel: FileChannel, position: Long, length: Int): ByteArray {
+    val bytes = ByteArray(length)
+    val buffer = ByteBuffer.wrap(bytes)
+    while (buffer.hasRemaining()) {
+      val read = channel.read(buffer, position + buffer.position())
+      if (read < 0) {
+        throw IOException("Unexpected end of snapshot file")
+      }
+    }
+    return bytes
+  }
+}
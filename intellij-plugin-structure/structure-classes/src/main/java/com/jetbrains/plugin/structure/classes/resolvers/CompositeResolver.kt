@@ -44,8 +44,7 @@ class CompositeResolver private constructor(
     }
   }
 
-  override val allClasses
-    get() = resolvers.flatMapTo(hashSetOf()) { it.allClasses }
+  override val allClasses: Set<String> = AllClassesSet()
 
   override val allBundleNameSet: ResourceBundleNameSet
     get() = ResourceBundleNameSet(fullBundleNames)
@@ -99,6 +98,27 @@ class CompositeResolver private constructor(
     resolvers.closeAll()
   }
 
+  /**
+   * View of classes of all the [resolvers] that does not copy their names.
+   * A class contained in several resolvers is listed once, for the first of them.
+   */
+  private inner class AllClassesSet : kotlin.collections.AbstractSet<String>() {
+
+    override val size: Int by lazy { iterator().asSequence().count() }
+
+    override fun contains(element: String) = containsClass(element)
+
+    override fun iterator(): Iterator<String> =
+      resolvers.asSequence()
+        .flatMap { resolver -> resolver.allClasses.asSequence().filter { className -> isFirstResolverOfClass(resolver, className) } }
+        .iterator()
+
+    private fun isFirstResolverOfClass(resolver: Resolver, className: String): Boolean {
+      val packageResolvers = packageToResolvers[getPackageName(className)] ?: return false
+      return packageResolvers.firstOrNull { it.containsClass(className) } === resolver
+    }
+  }
+
   override fun toString() = "Union of ${resolvers.size} resolver" + (if (resolvers.size != 1) "s" else "")
 
   companion object {
@@ -115,10 +135,10 @@ class CompositeResolver private constructor(
       if (list.size == 1) {
         return list.first()
       }
-      val readMode = if (list.all { it.readMode == ReadMode.FULL }) {
-        ReadMode.FULL
-      } else {
-        ReadMode.SIGNATURES
+      val readMode = when {
+        list.all { it.readMode == ReadMode.FULL } -> ReadMode.FULL
+        list.none { it.readMode == ReadMode.SIGNATURES } -> ReadMode.FULL_LAZY_CODE
+        else -> ReadMode.SIGNATURES
       }
       return CompositeResolver(list, readMode)
     }
@@ -25,9 +25,10 @@ class DirectoryResolver(
 
   private val bundleNames = hashMapOf<String, MutableSet<String>>()
 
-  private val packageSet = PackageSet()
+  private val packages: SortedNameSet
 
   init {
+    val packageSet = PackageSet()
     Files.walk(root).use { fileStream ->
       fileStream.forEach { file ->
         if (file.extension == "class") {
@@ -46,6 +47,7 @@ class DirectoryResolver(
         }
       }
     }
+    packages = SortedNameSet.of(packageSet.getAllPackages())
   }
 
   private fun getClassRoot(classFile: Path, className: String): Path? {
@@ -64,7 +66,7 @@ class DirectoryResolver(
 
   private fun readClass(className: String, classFile: Path): ResolutionResult<ClassNode> =
     try {
-      val classNode = AsmUtil.readClassFromFile(className, classFile, readMode == ReadMode.FULL)
+      val classNode = AsmUtil.readClassFromFile(className, classFile, readMode)
       ResolutionResult.Found(classNode, fileOrigin)
     } catch (e: InvalidClassFileException) {
       ResolutionResult.Invalid(e.message)
@@ -92,7 +94,7 @@ class DirectoryResolver(
   }
 
   override val allPackages
-    get() = packageSet.getAllPackages()
+    get() = packages
 
   override val allBundleNameSet: ResourceBundleNameSet
     get() = ResourceBundleNameSet(bundleNames)
@@ -102,7 +104,7 @@ class DirectoryResolver(
 
   override fun containsClass(className: String) = className in classNameToFile
 
-  override fun containsPackage(packageName: String) = packageSet.containsPackage(packageName)
+  override fun containsPackage(packageName: String) = packageName in packages
 
   override fun close() = Unit
 
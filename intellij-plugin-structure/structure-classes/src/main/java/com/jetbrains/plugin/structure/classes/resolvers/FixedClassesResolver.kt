@@ -30,12 +30,14 @@ class FixedClassesResolver private constructor(
     )
   }
 
-  private val packageSet = PackageSet()
+  private val packages: SortedNameSet
 
   init {
+    val packageSet = PackageSet()
     for (className in classes.keys) {
       packageSet.addPackagesOfClass(className)
     }
+    packages = SortedNameSet.of(packageSet.getAllPackages())
   }
 
   override fun processAllClasses(processor: (ResolutionResult<ClassNode>) -> Boolean) =
@@ -67,11 +69,11 @@ class FixedClassesResolver private constructor(
     )
 
   override val allPackages: Set<String>
-    get() = packageSet.getAllPackages()
+    get() = packages
 
   override fun containsClass(className: String) = className in classes
 
-  override fun containsPackage(packageName: String) = packageSet.containsPackage(packageName)
+  override fun containsPackage(packageName: String) = packageName in packages
 
   override fun close() = Unit
 
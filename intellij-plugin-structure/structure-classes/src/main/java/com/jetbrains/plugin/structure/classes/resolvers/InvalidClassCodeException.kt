@@ -0,0 +1,18 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.plugin.structure.classes.resolvers
+
+import com.jetbrains.plugin.structure.classes.utils.LazyClassNode
+
+/**
+ * An exception thrown when the methods' code of a class read in the [Resolver.ReadMode.FULL_LAZY_CODE] mode
+ * cannot be read using the ASM Java Bytecode engineering library. It is thrown by [LazyClassNode.loadCode],
+ * because the class file is read only partially when it is resolved.
+ */
+class InvalidClassCodeException(val className: String, private val asmError: String) : RuntimeException() {
+
+  override val message
+    get() = "Unable to read code of class '$className' using the ASM Java Bytecode engineering library. The internal ASM error: $asmError."
+}
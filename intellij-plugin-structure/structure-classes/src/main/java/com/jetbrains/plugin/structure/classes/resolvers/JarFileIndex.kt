@@ -0,0 +1,64 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.plugin.structure.classes.resolvers
+
+import com.jetbrains.plugin.structure.classes.utils.getBundleBaseName
+import com.jetbrains.plugin.structure.classes.utils.getBundleNameByBundlePath
+
+/**
+ * Names contained in a jar file that [JarFileResolver] needs to answer queries
+ * without opening the jar: binary class names, packages, resource bundle names
+ * and `META-INF/services` providers.
+ *
+ * The index is either built from the jar's central directory, or loaded from [JarFileIndexStorage].
+ */
+internal class JarFileIndex(
+  val classes: SortedNameSet,
+  val packages: SortedNameSet,
+  val bundleNames: Map<String, Set<String>>,
+  val serviceProviders: Map<String, Set<String>>
+) {
+
+  companion object {
+    const val CLASS_SUFFIX = ".class"
+
+    private const val PROPERTIES_SUFFIX = ".properties"
+
+    private const val SERVICE_PROVIDERS_PREFIX = "META-INF/services/"
+
+    fun build(jarFile: MappedZipFile): JarFileIndex {
+      val classes = arrayListOf<String>()
+      val packageSet = PackageSet()
+      val bundleNames = hashMapOf<String, MutableSet<String>>()
+      val serviceProviders = hashMapOf<String, Set<String>>()
+
+      for (entryName in jarFile.entryNames) {
+        when {
+          entryName.endsWith("/") -> Unit
+          entryName.endsWith(CLASS_SUFFIX) -> {
+            val className = entryName.substringBeforeLast(CLASS_SUFFIX)
+            classes.add(className)
+            packageSet.addPackagesOfClass(className)
+          }
+          entryName.endsWith(PROPERTIES_SUFFIX) -> {
+            val fullBundleName = getBundleNameByBundlePath(entryName)
+            bundleNames.getOrPut(getBundleBaseName(fullBundleName)) { hashSetOf() } += fullBundleName
+          }
+          entryName.startsWith(SERVICE_PROVIDERS_PREFIX) && entryName.count { it == '/' } == 2 -> {
+            val serviceProvider = entryName.substringAfter(SERVICE_PROVIDERS_PREFIX)
+            serviceProviders[serviceProvider] = readServiceImplementationNames(entryName, jarFile)
+          }
+        }
+      }
+      return JarFileIndex(SortedNameSet.of(classes), SortedNameSet.of(packageSet.getAllPackages()), bundleNames, serviceProviders)
+    }
+
+    private fun readServiceImplementationNames(entryName: String, jarFile: MappedZipFile): Set<String> {
+      val content = jarFile.readEntry(entryName) { bytes, length -> String(bytes, 0, length, Charsets.UTF_8) }
+        ?: return emptySet()
+      return content.lineSequence().map { it.substringBefore("#").trim() }.filterNotTo(hashSetOf()) { it.isEmpty() }
+    }
+  }
+}
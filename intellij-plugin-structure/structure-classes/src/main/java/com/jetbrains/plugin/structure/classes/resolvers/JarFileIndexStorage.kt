@@ -0,0 +1,190 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.plugin.structure.classes.resolvers
+
+import com.google.common.hash.Hashing
+import com.google.common.io.MoreFiles
+import com.jetbrains.plugin.structure.base.plugin.Settings
+import com.jetbrains.plugin.structure.base.utils.*
+import org.slf4j.LoggerFactory
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.IOException
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Persistent storage of [JarFileIndex]es, so that [JarFileResolver] does not need
+ * to walk the same jar file every time it is opened.
+ *
+ * Indexes are keyed by SHA-256 of the jar's content. Content hashes are memoized
+ * by the jar's path, size and modification time, so a jar is hashed once per process
+ * unless it changes on disk.
+ *
+ * Every index file starts with a format version. Files of other versions, and files
+ * that cannot be read, are deleted and rebuilt from the jar.
+ */
+class JarFileIndexStorage(private val directory: Path) {
+
+  companion object {
+    private val LOG = LoggerFactory.getLogger(JarFileIndexStorage::class.java)
+
+    private const val MAGIC = 0x4A464958 // "JFIX"
+
+    private const val FORMAT_VERSION = 1
+
+    private const val INDEX_SUFFIX = ".idx"
+
+    /**
+     * Storage located in [Settings.JAR_FILE_INDEX_DIRECTORY], or `null` if the directory is not set.
+     *
+     * Persistent indexes are disabled by default, because a jar is hashed in full the first time it is opened
+     * in a process, which pays off only for big jars that are opened by many runs, such as jars of the platform.
+     */
+    @JvmStatic
+    val DEFAULT: JarFileIndexStorage? by lazy {
+      val directory = Settings.JAR_FILE_INDEX_DIRECTORY.get()
+      if (directory.isBlank()) null else JarFileIndexStorage(Settings.JAR_FILE_INDEX_DIRECTORY.getAsPath())
+    }
+  }
+
+  private data class JarFingerprint(val size: Long, val lastModified: Long, val contentHash: String)
+
+  private val fingerprints = ConcurrentHashMap<Path, JarFingerprint>()
+
+  /**
+   * Loads the index of [jarPath] from the storage, or builds it with [builder] and saves it.
+   * Failures of the storage never fail the caller: the index is built from the jar instead.
+   */
+  internal fun getOrBuild(jarPath: Path, builder: () -> JarFileIndex): JarFileIndex {
+    val contentHash = try {
+      getContentHash(jarPath)
+    } catch (e: Exception) {
+      e.rethrowIfInterrupted()
+      LOG.warn("Unable to compute content hash of $jarPath", e)
+      return builder()
+    }
+    val indexFile = getIndexFile(contentHash)
+    val loaded = load(indexFile, contentHash)
+    if (loaded != null) {
+      return loaded
+    }
+    val index = builder()
+    save(indexFile, contentHash, index)
+    return index
+  }
+
+  /**
+   * Deletes the stored index of [jarPath], if any.
+   */
+  fun invalidate(jarPath: Path) {
+    val fingerprint = fingerprints.remove(jarPath.toAbsolutePath()) ?: return
+    getIndexFile(fingerprint.contentHash).deleteLogged()
+  }
+
+  /**
+   * Deletes all the stored indexes.
+   */
+  fun clear() {
+    fingerprints.clear()
+    directory.listFiles()
+      .filter { it.simpleName.endsWith(INDEX_SUFFIX) }
+      .forEach { it.deleteLogged() }
+  }
+
+  private fun getIndexFile(contentHash: String): Path = directory.resolve(contentHash + INDEX_SUFFIX)
+
+  private fun getContentHash(jarPath: Path): String {
+    val absolutePath = jarPath.toAbsolutePath()
+    val size = Files.size(absolutePath)
+    val lastModified = Files.getLastModifiedTime(absolutePath).toMillis()
+    val cached = fingerprints[absolutePath]
+    if (cached != null && cached.size == size && cached.lastModified == lastModified) {
+      return cached.contentHash
+    }
+    val contentHash = MoreFiles.asByteSource(absolutePath).hash(Hashing.sha256()).toString()
+    fingerprints[absolutePath] = JarFingerprint(size, lastModified, contentHash)
+    return contentHash
+  }
+
+  private fun load(indexFile: Path, contentHash: String): JarFileIndex? {
+    if (!indexFile.exists()) {
+      return null
+    }
+    return try {
+      DataInputStream(indexFile.inputStream().buffered()).use { input ->
+        if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION || input.readUTF() != contentHash) {
+          throw IOException("Index file is of unsupported format or belongs to another jar")
+        }
+        val classes = SortedNameSet.of(input.readStrings())
+        val packages = SortedNameSet.of(input.readStrings())
+        val bundleNames = input.readStringsMap()
+        val serviceProviders = input.readStringsMap()
+        if (input.read() != -1) {
+          throw IOException("Unexpected trailing data")
+        }
+        JarFileIndex(classes, packages, bundleNames, serviceProviders)
+      }
+    } catch (e: Exception) {
+      e.rethrowIfInterrupted()
+      LOG.info("Jar file index $indexFile is corrupted and will be rebuilt: ${e.message}")
+      indexFile.deleteLogged()
+      null
+    }
+  }
+
+  private fun save(indexFile: Path, contentHash: String, index: JarFileIndex) {
+    try {
+      directory.createDir()
+      val tempFile = Files.createTempFile(directory, contentHash, ".tmp")
+      try {
+        DataOutputStream(tempFile.outputStream().buffered()).use { output ->
+          output.writeInt(MAGIC)
+          output.writeInt(FORMAT_VERSION)
+          output.writeUTF(contentHash)
+          output.writeStrings(index.classes)
+          output.writeStrings(index.packages)
+          output.writeStringsMap(index.bundleNames)
+          output.writeStringsMap(index.serviceProviders)
+        }
+        Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+      } finally {
+        Files.deleteIfExists(tempFile)
+      }
+    } catch (e: Exception) {
+      e.rethrowIfInterrupted()
+      LOG.warn("Unable to save jar file index $indexFile", e)
+    }
+  }
+
+  private fun DataOutputStream.writeStrings(strings: Set<String>) {
+    writeInt(strings.size)
+    strings.forEach { writeUTF(it) }
+  }
+
+  private fun DataOutputStream.writeStringsMap(map: Map<String, Set<String>>) {
+    writeInt(map.size)
+    for ((key, values) in map) {
+      writeUTF(key)
+      writeStrings(values)
+    }
+  }
+
+  private fun DataInputStream.readStrings(): Set<String> {
+    val size = readInt()
+    val result = HashSet<String>(size * 2)
+    repeat(size) { result += readUTF() }
+    return result
+  }
+
+  private fun DataInputStream.readStringsMap(): Map<String, Set<String>> {
+    val size = readInt()
+    val result = HashMap<String, Set<String>>(size * 2)
+    repeat(size) { result[readUTF()] = readStrings() }
+    return result
+  }
+}
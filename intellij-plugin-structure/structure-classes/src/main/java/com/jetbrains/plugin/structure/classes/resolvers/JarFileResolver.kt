@@ -6,139 +6,79 @@ package com.jetbrains.plugin.structure.classes.resolvers
 
 import com.jetbrains.plugin.structure.base.utils.*
 import com.jetbrains.plugin.structure.classes.utils.AsmUtil
-import com.jetbrains.plugin.structure.classes.utils.getBundleBaseName
-import com.jetbrains.plugin.structure.classes.utils.getBundleNameByBundlePath
 import org.objectweb.asm.tree.ClassNode
-import java.nio.file.*
-import java.nio.file.attribute.BasicFileAttributes
+import java.io.ByteArrayInputStream
+import java.nio.file.Path
 import java.util.*
 import java.util.concurrent.atomic.AtomicBoolean
 
 class JarFileResolver(
   private val jarPath: Path,
   override val readMode: ReadMode,
-  private val fileOrigin: FileOrigin
+  private val fileOrigin: FileOrigin,
+  indexStorage: JarFileIndexStorage? = JarFileIndexStorage.DEFAULT
 ) : Resolver() {
 
-  private companion object {
-    private const val CLASS_SUFFIX = ".class"
-
-    private const val PROPERTIES_SUFFIX = ".properties"
-
-    private const val SERVICE_PROVIDERS_PREFIX = "META-INF/services/"
-  }
-
-  private val classes: MutableSet<String> = hashSetOf()
-
-  private val packageSet = PackageSet()
-
-  private val bundleNames = hashMapOf<String, MutableSet<String>>()
-
-  private val serviceProviders: MutableMap<String, Set<String>> = hashMapOf()
+  private val index: JarFileIndex
 
   private val isClosed = AtomicBoolean()
 
   init {
     JarFileSystemsPool.checkIsJar(jarPath)
-    JarFileSystemsPool.perform(jarPath) { jarFs ->
-      readClassNamesAndServiceProviders(jarFs)
+    index = if (indexStorage != null) {
+      indexStorage.getOrBuild(jarPath) { buildIndex() }
+    } else {
+      buildIndex()
     }
   }
 
-  private fun readClassNamesAndServiceProviders(jarFs: FileSystem) {
-    val jarRoot = jarFs.rootDirectories.single()
-    val visitedDirs = hashSetOf<Path>()
-    Files.walkFileTree(jarRoot, object : SimpleFileVisitor<Path>() {
-      override fun preVisitDirectory(dir: Path, attrs: BasicFileAttributes?): FileVisitResult {
-        if (!visitedDirs.add(dir)) {
-          return FileVisitResult.SKIP_SUBTREE
-        }
-        return FileVisitResult.CONTINUE
-      }
-
-      override fun visitFile(file: Path, attrs: BasicFileAttributes?): FileVisitResult {
-        val entryName = getPathInJar(file)
-        when {
-          entryName.endsWith(CLASS_SUFFIX) -> {
-            val className = entryName.substringBeforeLast(CLASS_SUFFIX)
-            classes.add(className)
-            packageSet.addPackagesOfClass(className)
-          }
-          entryName.endsWith(PROPERTIES_SUFFIX) -> {
-            val fullBundleName = getBundleNameByBundlePath(entryName)
-            bundleNames.getOrPut(getBundleBaseName(fullBundleName)) { hashSetOf() } += fullBundleName
-          }
-          entryName.startsWith(SERVICE_PROVIDERS_PREFIX) && entryName.count { it == '/' } == 2 -> {
-            val serviceProvider = entryName.substringAfter(SERVICE_PROVIDERS_PREFIX)
-            serviceProviders[serviceProvider] = readServiceImplementationNames(serviceProvider, jarFs)
-          }
-        }
-        return FileVisitResult.CONTINUE
-      }
-    })
-  }
-
-  private fun getPathInJar(entry: Path): String =
-    entry.toString().trimStart('/').toSystemIndependentName()
-
-  private fun readServiceImplementationNames(serviceProvider: String, jarFs: FileSystem): Set<String> {
-    val entry = SERVICE_PROVIDERS_PREFIX + serviceProvider
-    val entryPath = jarFs.getPath(entry)
-    if (!entryPath.exists()) {
-      return emptySet()
-    }
-    return entryPath.readLines().map { it.substringBefore("#").trim() }.filterNotTo(hashSetOf()) { it.isEmpty() }
-  }
+  private fun buildIndex(): JarFileIndex =
+    JarFileSystemsPool.perform(jarPath) { jarFs -> JarFileIndex.build(jarFs) }
 
   val implementedServiceProviders: Map<String, Set<String>>
-    get() = serviceProviders
+    get() = index.serviceProviders
 
   override val allPackages
-    get() = packageSet.getAllPackages()
+    get() = index.packages
 
   override val allBundleNameSet: ResourceBundleNameSet
-    get() = ResourceBundleNameSet(bundleNames)
+    get() = ResourceBundleNameSet(index.bundleNames)
 
   override val allClasses
-    get() = classes
+    get() = index.classes
 
   override fun processAllClasses(processor: (ResolutionResult<ClassNode>) -> Boolean): Boolean {
     checkIsOpen()
-    return JarFileSystemsPool.perform(jarPath) { jarFs ->
-      Files.walk(jarFs.rootDirectories.single()).use { stream ->
-        for (jarEntry in stream.filter { it.simpleName.endsWith(CLASS_SUFFIX) }) {
-          val className = getPathInJar(jarEntry).removeSuffix(CLASS_SUFFIX)
-          val result = readClass(className, jarEntry)
+    return JarFileSystemsPool.perform(jarPath) { jarFile ->
+      for (entryName in jarFile.entryNames) {
+        if (entryName.endsWith(JarFileIndex.CLASS_SUFFIX)) {
+          val className = entryName.removeSuffix(JarFileIndex.CLASS_SUFFIX)
+          val result = readClass(className, jarFile) ?: continue
           if (!processor(result)) {
-            return@use false
+            return@perform false
           }
         }
-        return@use true
       }
+      true
     }
   }
 
-  override fun containsClass(className: String) = className in classes
+  override fun containsClass(className: String) = className in index.classes
 
-  override fun containsPackage(packageName: String) = packageSet.containsPackage(packageName)
+  override fun containsPackage(packageName: String) = packageName in index.packages
 
   override fun resolveClass(className: String): ResolutionResult<ClassNode> {
     checkIsOpen()
-    if (className !in classes) {
+    if (className !in index.classes) {
       return ResolutionResult.NotFound
     }
-    return JarFileSystemsPool.perform(jarPath) { jarFs ->
-      val classPath = jarFs.getPath(className + CLASS_SUFFIX)
-      if (classPath.exists()) {
-        readClass(className, classPath)
-      } else {
-        ResolutionResult.NotFound
-      }
+    return JarFileSystemsPool.perform(jarPath) { jarFile ->
+      readClass(className, jarFile) ?: ResolutionResult.NotFound
     }
   }
 
   override fun resolveExactPropertyResourceBundle(baseName: String, locale: Locale): ResolutionResult<PropertyResourceBundle> {
-    if (baseName !in bundleNames) {
+    if (baseName !in index.bundleNames) {
       return ResolutionResult.NotFound
     }
 
@@ -164,21 +104,18 @@ class JarFileResolver(
 
   private fun readPropertyResourceBundle(bundleResourceName: String): PropertyResourceBundle? {
     checkIsOpen()
-    return JarFileSystemsPool.perform(jarPath) { jarFs ->
-      val path = jarFs.getPath(bundleResourceName)
-      if (path.exists()) {
-        path.inputStream().use { PropertyResourceBundle(it) }
-      } else {
-        null
+    return JarFileSystemsPool.perform(jarPath) { jarFile ->
+      jarFile.readEntry(bundleResourceName) { bytes, length ->
+        PropertyResourceBundle(ByteArrayInputStream(bytes, 0, length))
       }
     }
   }
 
-  private fun readClass(className: String, classPath: Path): ResolutionResult<ClassNode> {
+  private fun readClass(className: String, jarFile: MappedZipFile): ResolutionResult<ClassNode>? {
     return try {
-      val classNode = classPath.inputStream().use {
-        AsmUtil.readClassNode(className, it, readMode == ReadMode.FULL)
-      }
+      val classNode = jarFile.readEntry(className + JarFileIndex.CLASS_SUFFIX) { bytes, length ->
+        AsmUtil.readClassNode(className, bytes, length, readMode)
+      } ?: return null
       ResolutionResult.Found(classNode, fileOrigin)
     } catch (e: InvalidClassFileException) {
       ResolutionResult.Invalid(e.message)
@@ -189,7 +126,7 @@ class JarFileResolver(
   }
 
   private fun checkIsOpen() {
-    check(!isClosed.get()) { "Jar file system must be open for $this" }
+    check(!isClosed.get()) { "Jar file must be open for $this" }
   }
 
   override fun close() {
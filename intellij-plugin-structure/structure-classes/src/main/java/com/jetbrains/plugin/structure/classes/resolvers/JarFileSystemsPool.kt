@@ -4,83 +4,156 @@ import com.jetbrains.plugin.structure.base.utils.closeLogged
 import com.jetbrains.plugin.structure.base.utils.exists
 import com.jetbrains.plugin.structure.base.utils.simpleName
 import com.jetbrains.plugin.structure.classes.resolvers.JarFileSystemsPool.MAX_OPEN_JAR_FILE_SYSTEMS
-import java.nio.file.FileSystem
-import java.nio.file.FileSystems
 import java.nio.file.Path
-import java.time.Clock
-import java.time.Instant
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
 
 /**
- * Application-level object managing open jar file systems.
+ * Application-level object managing open jar files, which are read with [MappedZipFile].
  *
  * No more than [MAX_OPEN_JAR_FILE_SYSTEMS] will be open in the running application simultaneously.
+ *
+ * The pool does not take locks on the read path: open jar files are kept in a concurrent map
+ * and each of them counts its users. When the number of open jar files exceeds the limit,
+ * the least recently used files having no users are closed asynchronously.
  */
 internal object JarFileSystemsPool {
   private const val MAX_OPEN_JAR_FILE_SYSTEMS = 256
 
   private const val UNUSED_JAR_FILE_SYSTEMS_TO_CLOSE = 64
 
-  private val openJarFileSystems = hashMapOf<Path, FSHandler>()
+  private val openJarFileSystems = ConcurrentHashMap<Path, FSHandler>()
+
+  private val evictionScheduled = AtomicBoolean()
 
-  private val clock = Clock.systemUTC()
+  private val evictionExecutor = Executors.newSingleThreadExecutor { r ->
+    Thread(r).apply {
+      isDaemon = true
+      name = "jar-files-pool-eviction"
+    }
+  }
 
   fun checkIsJar(jarPath: Path) {
     require(jarPath.exists()) { "File does not exist: $jarPath" }
     require(jarPath.simpleName.endsWith(".jar") || jarPath.simpleName.endsWith(".zip")) { "File is neither a .jar nor .zip archive: $jarPath" }
   }
 
-  fun <T> perform(jarPath: Path, action: (FileSystem) -> T): T {
+  fun <T> perform(jarPath: Path, action: (MappedZipFile) -> T): T {
     checkIsJar(jarPath)
-    val fsHandler = getOrOpenFsHandler(jarPath)
-    check(fsHandler.jarFs.isOpen)
+    val fsHandler = acquireFsHandler(jarPath)
+    check(fsHandler.jarFile.isOpen)
     try {
-      return action(fsHandler.jarFs)
+      return action(fsHandler.jarFile)
     } finally {
-      release(fsHandler)
+      fsHandler.release()
+    }
+  }
+
+  private fun acquireFsHandler(jarPath: Path): FSHandler {
+    while (true) {
+      val fsHandler = openJarFileSystems[jarPath] ?: openFsHandler(jarPath)
+      if (fsHandler.tryAcquire()) {
+        if (openJarFileSystems.size > MAX_OPEN_JAR_FILE_SYSTEMS) {
+          scheduleEviction()
+        }
+        return fsHandler
+      }
+      //The handler has just been closed by eviction or by close(). Forget it and open the file again.
+      openJarFileSystems.remove(jarPath, fsHandler)
     }
   }
 
-  @Synchronized
-  private fun getOrOpenFsHandler(jarPath: Path): FSHandler {
-    val fsHandler = openJarFileSystems.getOrPut(jarPath) {
-      val jarFs = FileSystems.newFileSystem(jarPath, JarFileSystemsPool::class.java.classLoader)
-      FSHandler(jarFs, clock.instant(), 0)
+  /**
+   * Opens the jar file outside of the map, so that opening a big file does not block access to other files.
+   * If another thread has opened the same file meanwhile, its handler is used and this one is closed.
+   */
+  private fun openFsHandler(jarPath: Path): FSHandler {
+    val fsHandler = FSHandler(MappedZipFile(jarPath))
+    val concurrentHandler = openJarFileSystems.putIfAbsent(jarPath, fsHandler)
+    if (concurrentHandler != null) {
+      fsHandler.jarFile.closeLogged()
+      return concurrentHandler
     }
+    return fsHandler
+  }
 
-    fsHandler.users++
-    fsHandler.lastAccessTime = clock.instant()
-
-    if (openJarFileSystems.size > MAX_OPEN_JAR_FILE_SYSTEMS) {
-      val toCloseEntries = openJarFileSystems.entries
-        .filter { it.value.users == 0 }
-        .sortedBy { it.value.lastAccessTime }
-        .take(UNUSED_JAR_FILE_SYSTEMS_TO_CLOSE)
-      toCloseEntries.forEach { (path, fsHandler) ->
-        fsHandler.jarFs.closeLogged()
-        openJarFileSystems.remove(path)
+  private fun scheduleEviction() {
+    if (evictionScheduled.compareAndSet(false, true)) {
+      evictionExecutor.execute {
+        try {
+          closeUnusedFileSystems()
+        } finally {
+          evictionScheduled.set(false)
+        }
       }
     }
+  }
 
-    return fsHandler
+  private fun closeUnusedFileSystems() {
+    //Access times are captured before sorting because they keep changing while readers use the files.
+    val toCloseEntries = openJarFileSystems.entries
+      .filter { it.value.users == 0 }
+      .map { Triple(it.key, it.value, it.value.lastAccessTime) }
+      .sortedBy { it.third }
+      .take(UNUSED_JAR_FILE_SYSTEMS_TO_CLOSE)
+    for ((path, fsHandler) in toCloseEntries) {
+      if (fsHandler.tryClose()) {
+        openJarFileSystems.remove(path, fsHandler)
+      }
+    }
   }
 
-  @Synchronized
   fun close(jarPath: Path) {
     val fsHandler = openJarFileSystems[jarPath] ?: return
-    if (fsHandler.users == 0) {
-      fsHandler.jarFs.closeLogged()
-      openJarFileSystems.remove(jarPath)
+    if (fsHandler.tryClose()) {
+      openJarFileSystems.remove(jarPath, fsHandler)
     }
   }
 
-  @Synchronized
-  private fun release(fsHandler: FSHandler) {
-    fsHandler.users--
-  }
+  /**
+   * Open jar file with a counter of its users.
+   * The counter is set to [CLOSED] once the file is closed, after which the handler cannot be acquired.
+   */
+  private class FSHandler(val jarFile: MappedZipFile) {
+
+    private companion object {
+      const val CLOSED = -1
+    }
+
+    private val usersCounter = AtomicInteger()
+
+    @Volatile
+    var lastAccessTime: Long = System.nanoTime()
+      private set
+
+    val users: Int
+      get() = usersCounter.get()
+
+    fun tryAcquire(): Boolean {
+      while (true) {
+        val current = usersCounter.get()
+        if (current == CLOSED) {
+          return false
+        }
+        if (usersCounter.compareAndSet(current, current + 1)) {
+          lastAccessTime = System.nanoTime()
+          return true
+        }
+      }
+    }
+
+    fun release() {
+      usersCounter.decrementAndGet()
+    }
 
-  private data class FSHandler(
-    val jarFs: FileSystem,
-    var lastAccessTime: Instant,
-    var users: Int
-  )
-}
\ No newline at end of file
+    fun tryClose(): Boolean {
+      if (usersCounter.compareAndSet(0, CLOSED)) {
+        jarFile.closeLogged()
+        return true
+      }
+      return false
+    }
+  }
+}
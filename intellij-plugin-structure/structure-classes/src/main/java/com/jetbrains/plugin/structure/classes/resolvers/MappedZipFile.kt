@@ -0,0 +1,326 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.plugin.structure.classes.resolvers
+
+import java.io.Closeable
+import java.io.EOFException
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.MappedByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.zip.DataFormatException
+import java.util.zip.Inflater
+
+/**
+ * Read-only zip file reader that maps the central directory of [zipPath] into memory
+ * and keeps entries in a compact table of name → (local header offset, sizes, method).
+ *
+ * Entries are read with positional reads of the file channel and inflated into
+ * reusable buffers taken from a small shared pool, so reading an entry usually does not allocate anything.
+ * Pooled buffers grow only up to [MAX_POOLED_BUFFER_SIZE], larger entries are read into buffers of their own.
+ * This avoids the path objects, provider locks and stream wrappers of the JDK zip file system.
+ *
+ * Only "stored" and "deflated" entries are supported, which is what jar tools produce.
+ * ZIP64 archives are supported.
+ */
+internal class MappedZipFile(private val zipPath: Path) : Closeable {
+
+  private companion object {
+    const val LOCAL_HEADER_SIGNATURE = 0x04034b50
+    const val LOCAL_HEADER_SIZE = 30
+
+    const val CENTRAL_HEADER_SIGNATURE = 0x02014b50
+    const val CENTRAL_HEADER_SIZE = 46
+
+    const val END_SIGNATURE = 0x06054b50
+    const val END_SIZE = 22
+    const val MAX_COMMENT_SIZE = 0xFFFF
+
+    const val ZIP64_LOCATOR_SIGNATURE = 0x07064b50
+    const val ZIP64_LOCATOR_SIZE = 20
+    const val ZIP64_END_SIGNATURE = 0x06064b50
+    const val ZIP64_END_SIZE = 56
+    const val ZIP64_EXTRA_ID = 0x0001
+
+    const val METHOD_STORED = 0
+    const val METHOD_DEFLATED = 8
+
+    const val MAX_ENTRY_SIZE = Int.MAX_VALUE - 8
+
+    const val INITIAL_BUFFER_SIZE = 64 * 1024
+    const val MAX_POOLED_BUFFER_SIZE = 1024 * 1024
+
+    private val entryBuffersPool = ArrayBlockingQueue<EntryBuffers>(Runtime.getRuntime().availableProcessors() * 2)
+
+    private fun acquireBuffers(): EntryBuffers = entryBuffersPool.poll() ?: EntryBuffers()
+
+    private fun releaseBuffers(buffers: EntryBuffers) {
+      if (!entryBuffersPool.offer(buffers)) {
+        buffers.inflater.end()
+      }
+    }
+  }
+
+  private class EntryBuffers {
+    val localHeader: ByteBuffer = ByteBuffer.allocate(LOCAL_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+    private var compressed = ByteArray(INITIAL_BUFFER_SIZE)
+    private var uncompressed = ByteArray(INITIAL_BUFFER_SIZE)
+    val inflater = Inflater(true)
+
+    fun getCompressed(size: Int): ByteArray {
+      if (compressed.size < size) {
+        if (size > MAX_POOLED_BUFFER_SIZE) {
+          return ByteArray(size)
+        }
+        compressed = ByteArray(size)
+      }
+      return compressed
+    }
+
+    fun getUncompressed(size: Int): ByteArray {
+      if (uncompressed.size < size) {
+        if (size > MAX_POOLED_BUFFER_SIZE) {
+          return ByteArray(size)
+        }
+        uncompressed = ByteArray(size)
+      }
+      return uncompressed
+    }
+  }
+
+  private val channel: FileChannel = FileChannel.open(zipPath, StandardOpenOption.READ)
+
+  private class EntryTable(size: Int) {
+    val names = Array(size) { "" }
+    val localHeaderOffsets = LongArray(size)
+    val compressedSizes = LongArray(size)
+    val uncompressedSizes = LongArray(size)
+    val methods = ShortArray(size)
+    val nameToIndex = HashMap<String, Int>(size * 2)
+  }
+
+  private val table: EntryTable = try {
+    readEntryTable()
+  } catch (e: Throwable) {
+    channel.close()
+    throw e
+  }
+
+  private fun readEntryTable(): EntryTable {
+    val centralDirectory = mapCentralDirectory()
+    val table = EntryTable(centralDirectory.entriesNumber)
+    val buffer = centralDirectory.buffer
+    var nameBytes = ByteArray(256)
+    for (i in 0 until centralDirectory.entriesNumber) {
+      val position = buffer.position()
+      if (buffer.remaining() < CENTRAL_HEADER_SIZE || buffer.getInt(position) != CENTRAL_HEADER_SIGNATURE) {
+        throw IOException("Invalid central directory header of entry #$i in $zipPath")
+      }
+      val method = buffer.getShort(position + 10)
+      var compressedSize = buffer.getInt(position + 20).toUnsignedLong()
+      var uncompressedSize = buffer.getInt(position + 24).toUnsignedLong()
+      val nameLength = buffer.getShort(position + 28).toUnsignedInt()
+      val extraLength = buffer.getShort(position + 30).toUnsignedInt()
+      val commentLength = buffer.getShort(position + 32).toUnsignedInt()
+      var localHeaderOffset = buffer.getInt(position + 42).toUnsignedLong()
+
+      if (nameBytes.size < nameLength) {
+        nameBytes = ByteArray(nameLength)
+      }
+      buffer.position(position + CENTRAL_HEADER_SIZE)
+      buffer.get(nameBytes, 0, nameLength)
+
+      if (uncompressedSize == 0xFFFFFFFFL || compressedSize == 0xFFFFFFFFL || localHeaderOffset == 0xFFFFFFFFL) {
+        var extraPosition = buffer.position()
+        val extraEnd = extraPosition + extraLength
+        while (extraPosition + 4 <= extraEnd) {
+          val headerId = buffer.getShort(extraPosition).toUnsignedInt()
+          val dataSize = buffer.getShort(extraPosition + 2).toUnsignedInt()
+          if (headerId == ZIP64_EXTRA_ID) {
+            var valuePosition = extraPosition + 4
+            if (uncompressedSize == 0xFFFFFFFFL) {
+              uncompressedSize = buffer.getLong(valuePosition)
+              valuePosition += 8
+            }
+            if (compressedSize == 0xFFFFFFFFL) {
+              compressedSize = buffer.getLong(valuePosition)
+              valuePosition += 8
+            }
+            if (localHeaderOffset == 0xFFFFFFFFL) {
+              localHeaderOffset = buffer.getLong(valuePosition)
+            }
+            break
+          }
+          extraPosition += 4 + dataSize
+        }
+      }
+      buffer.position(buffer.position() + extraLength + commentLength)
+
+      val name = normalizeEntryName(String(nameBytes, 0, nameLength, Charsets.UTF_8))
+      table.names[i] = name
+      table.localHeaderOffsets[i] = localHeaderOffset
+      table.compressedSizes[i] = compressedSize
+      table.uncompressedSizes[i] = uncompressedSize
+      table.methods[i] = method
+      table.nameToIndex.putIfAbsent(name, i)
+    }
+    return table
+  }
+
+  private class CentralDirectory(val buffer: MappedByteBuffer, val entriesNumber: Int)
+
+  private fun mapCentralDirectory(): CentralDirectory {
+    val fileSize = channel.size()
+    if (fileSize < END_SIZE) {
+      throw IOException("File is too short to be a zip archive: $zipPath")
+    }
+    val tailSize = minOf(fileSize, (END_SIZE + MAX_COMMENT_SIZE).toLong()).toInt()
+    val tailStart = fileSize - tailSize
+    val tail = channel.map(FileChannel.MapMode.READ_ONLY, tailStart, tailSize.toLong()).order(ByteOrder.LITTLE_ENDIAN)
+
+    var endPosition = tailSize - END_SIZE
+    while (endPosition >= 0 && tail.getInt(endPosition) != END_SIGNATURE) {
+      endPosition--
+    }
+    if (endPosition < 0) {
+      throw IOException("End of central directory record is not found in $zipPath")
+    }
+
+    var entriesNumber = tail.getShort(endPosition + 10).toUnsignedInt().toLong()
+    var centralDirectorySize = tail.getInt(endPosition + 12).toUnsignedLong()
+    var centralDirectoryOffset = tail.getInt(endPosition + 16).toUnsignedLong()
+
+    val locatorPosition = tailStart + endPosition - ZIP64_LOCATOR_SIZE
+    if (locatorPosition >= 0 && (entriesNumber == 0xFFFFL || centralDirectorySize == 0xFFFFFFFFL || centralDirectoryOffset == 0xFFFFFFFFL)) {
+      val locator = readFully(locatorPosition, ZIP64_LOCATOR_SIZE)
+      if (locator.getInt(0) == ZIP64_LOCATOR_SIGNATURE) {
+        val zip64End = readFully(locator.getLong(8), ZIP64_END_SIZE)
+        if (zip64End.getInt(0) != ZIP64_END_SIGNATURE) {
+          throw IOException("Invalid ZIP64 end of central directory record in $zipPath")
+        }
+        entriesNumber = zip64End.getLong(32)
+        centralDirectorySize = zip64End.getLong(40)
+        centralDirectoryOffset = zip64End.getLong(48)
+      }
+    }
+
+    if (entriesNumber > Int.MAX_VALUE || centralDirectorySize > Int.MAX_VALUE || centralDirectoryOffset + centralDirectorySize > fileSize) {
+      throw IOException("Invalid central directory of $zipPath")
+    }
+    val buffer = channel.map(FileChannel.MapMode.READ_ONLY, centralDirectoryOffset, centralDirectorySize)
+    buffer.order(ByteOrder.LITTLE_ENDIAN)
+    return CentralDirectory(buffer, entriesNumber.toInt())
+  }
+
+  private fun readFully(position: Long, size: Int): ByteBuffer {
+    val buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN)
+    readFully(buffer, position)
+    return buffer
+  }
+
+  private fun readFully(buffer: ByteBuffer, position: Long) {
+    var offset = position
+    while (buffer.hasRemaining()) {
+      val read = channel.read(buffer, offset)
+      if (read < 0) {
+        throw EOFException("Unexpected end of $zipPath")
+      }
+      offset += read
+    }
+  }
+
+  private fun normalizeEntryName(name: String): String = name.replace('\\', '/').trimStart('/')
+
+  val isOpen: Boolean
+    get() = channel.isOpen
+
+  /**
+   * Names of all the entries, including directories, which end with `/`.
+   */
+  val entryNames: List<String>
+    get() = table.names.asList()
+
+  fun containsEntry(name: String): Boolean = name in table.nameToIndex
+
+  /**
+   * Reads uncompressed content of entry [name] and passes it to [consumer]
+   * as a buffer and the content's length, or returns `null` if there is no such entry.
+   *
+   * The buffer is reused by subsequent reads,
+   * so it must not escape the [consumer].
+   */
+  fun <T> readEntry(name: String, consumer: (ByteArray, Int) -> T): T? {
+    val index = table.nameToIndex[name] ?: return null
+    val compressedSize = table.compressedSizes[index]
+    val uncompressedSize = table.uncompressedSizes[index]
+    if (compressedSize > MAX_ENTRY_SIZE || uncompressedSize > MAX_ENTRY_SIZE) {
+      throw IOException("Entry $name of $zipPath is too large")
+    }
+
+    val buffers = acquireBuffers()
+    try {
+      return readEntry(name, index, buffers, consumer)
+    } finally {
+      releaseBuffers(buffers)
+    }
+  }
+
+  private fun <T> readEntry(name: String, index: Int, buffers: EntryBuffers, consumer: (ByteArray, Int) -> T): T {
+    val compressedSize = table.compressedSizes[index].toInt()
+    val uncompressedSize = table.uncompressedSizes[index].toInt()
+    val localHeader = buffers.localHeader
+    localHeader.clear()
+    readFully(localHeader, table.localHeaderOffsets[index])
+    if (localHeader.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+      throw IOException("Invalid local header of entry $name in $zipPath")
+    }
+    val dataOffset = table.localHeaderOffsets[index] + LOCAL_HEADER_SIZE +
+      localHeader.getShort(26).toUnsignedInt() + localHeader.getShort(28).toUnsignedInt()
+
+    val compressed = buffers.getCompressed(compressedSize)
+    readFully(ByteBuffer.wrap(compressed, 0, compressedSize), dataOffset)
+
+    return when (table.methods[index].toInt()) {
+      METHOD_STORED -> consumer(compressed, compressedSize)
+      METHOD_DEFLATED -> {
+        val uncompressed = buffers.getUncompressed(uncompressedSize)
+        val inflater = buffers.inflater
+        inflater.reset()
+        inflater.setInput(compressed, 0, compressedSize)
+        var length = 0
+        try {
+          while (length < uncompressedSize && !inflater.finished()) {
+            val inflated = inflater.inflate(uncompressed, length, uncompressedSize - length)
+            if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+              break
+            }
+            length += inflated
+          }
+        } catch (e: DataFormatException) {
+          throw IOException("Invalid compressed data of entry $name in $zipPath: ${e.message}", e)
+        }
+        if (length != uncompressedSize) {
+          throw IOException("Entry $name of $zipPath is truncated")
+        }
+        consumer(uncompressed, length)
+      }
+      else -> throw IOException("Unsupported compression method ${table.methods[index]} of entry $name in $zipPath")
+    }
+  }
+
+  override fun close() {
+    channel.close()
+  }
+
+  override fun toString() = zipPath.toString()
+
+  private fun Int.toUnsignedLong(): Long = toLong() and 0xFFFFFFFFL
+
+  private fun Short.toUnsignedInt(): Int = toInt() and 0xFFFF
+}
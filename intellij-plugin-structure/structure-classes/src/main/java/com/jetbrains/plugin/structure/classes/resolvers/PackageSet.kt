@@ -9,6 +9,8 @@ package com.jetbrains.plugin.structure.classes.resolvers
  *
  * For example, if one adds a package `com/example/utils` into [PackageSet],
  * then packages `com`, `com/example` and `com/example/utils` will be added, too.
+ *
+ * Resolvers use it to collect packages of their classes and then keep them in a compact [SortedNameSet].
  */
 class PackageSet {
 
@@ -20,17 +22,14 @@ class PackageSet {
    * If the class has default package, list `[""]` is added.
    */
   fun addPackagesOfClass(className: String) {
-    val superPackage = StringBuilder()
-    var defaultPackage = true
-    for (c in className) {
-      if (c == '/') {
-        defaultPackage = false
-        packages.add(superPackage.toString())
-      }
-      superPackage.append(c)
-    }
-    if (defaultPackage) {
+    var packageEnd = className.lastIndexOf('/')
+    if (packageEnd < 0) {
       packages.add("")
+      return
+    }
+    //Super-packages of an already added package have been added, too.
+    while (packageEnd > 0 && packages.add(className.substring(0, packageEnd))) {
+      packageEnd = className.lastIndexOf('/', packageEnd - 1)
     }
   }
 
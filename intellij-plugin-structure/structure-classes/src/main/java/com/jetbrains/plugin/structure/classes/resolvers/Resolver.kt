@@ -19,7 +19,17 @@ abstract class Resolver : Closeable {
    * including methods' code, debug frames, or only classes' signatures.
    */
   enum class ReadMode {
-    FULL, SIGNATURES
+    FULL,
+
+    /**
+     * Classes are read fully, but methods' code is read only when it is requested
+     * with [com.jetbrains.plugin.structure.classes.utils.LazyClassNode.loadCode].
+     * Suitable for consumers that look at the code of few resolved classes, such as platform classes during verification.
+     * Invalid code is reported by [InvalidClassCodeException] when the code is requested.
+     */
+    FULL_LAZY_CODE,
+
+    SIGNATURES
   }
 
   /**
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.plugin.structure.classes.resolvers
+
+import com.jetbrains.plugin.structure.base.utils.closeOnException
+import com.jetbrains.plugin.structure.base.utils.rethrowIfInterrupted
+import com.jetbrains.plugin.structure.classes.utils.AsmUtil
+import com.jetbrains.plugin.structure.classes.utils.getBundleBaseName
+import com.jetbrains.plugin.structure.classes.utils.getBundleNameByBundlePath
+import org.objectweb.asm.tree.ClassNode
+import java.io.ByteArrayInputStream
+import java.nio.channels.FileChannel
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
+import java.util.*
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * [Resolver] of classes and resource bundles stored in a [ClassesSnapshot].
+ *
+ * Only the index of the snapshot is read when the resolver is created.
+ * Classes are parsed when they are resolved, the same way as by [JarFileResolver].
+ */
+class SnapshotResolver(
+  private val snapshotPath: Path,
+  override val readMode: ReadMode,
+  private val fileOrigin: FileOrigin
+) : Resolver() {
+
+  private companion object {
+    const val PROPERTIES_SUFFIX = ".properties"
+  }
+
+  private val channel: FileChannel = FileChannel.open(snapshotPath, StandardOpenOption.READ)
+
+  private val index: ClassesSnapshot.Index = channel.closeOnException { ClassesSnapshot.readIndex(it, snapshotPath) }
+
+  private val classes: SortedNameSet
+
+  private val packages: SortedNameSet
+
+  private val bundleNames = hashMapOf<String, MutableSet<String>>()
+
+  private val isClosed = AtomicBoolean()
+
+  init {
+    classes = SortedNameSet.of(index.classes.keys)
+    val packageSet = PackageSet()
+    index.classes.keys.forEach { packageSet.addPackagesOfClass(it) }
+    packages = SortedNameSet.of(packageSet.getAllPackages())
+    for (resourceName in index.resources.keys) {
+      if (resourceName.endsWith(PROPERTIES_SUFFIX)) {
+        val fullBundleName = getBundleNameByBundlePath(resourceName)
+        bundleNames.getOrPut(getBundleBaseName(fullBundleName)) { hashSetOf() } += fullBundleName
+      }
+    }
+  }
+
+  override val allClasses: Set<String>
+    get() = classes
+
+  override val allPackages: Set<String>
+    get() = packages
+
+  override val allBundleNameSet: ResourceBundleNameSet
+    get() = ResourceBundleNameSet(bundleNames)
+
+  override fun containsClass(className: String) = className in index.classes
+
+  override fun containsPackage(packageName: String) = packageName in packages
+
+  override fun resolveClass(className: String): ResolutionResult<ClassNode> {
+    val entry = index.classes[className] ?: return ResolutionResult.NotFound
+    return readClass(className, entry)
+  }
+
+  override fun processAllClasses(processor: (ResolutionResult<ClassNode>) -> Boolean): Boolean {
+    for (className in classes) {
+      if (!processor(readClass(className, index.classes.getValue(className)))) {
+        return false
+      }
+    }
+    return true
+  }
+
+  override fun resolveExactPropertyResourceBundle(baseName: String, locale: Locale): ResolutionResult<PropertyResourceBundle> {
+    if (baseName !in bundleNames) {
+      return ResolutionResult.NotFound
+    }
+
+    val control = ResourceBundle.Control.getControl(ResourceBundle.Control.FORMAT_PROPERTIES)
+    val bundleName = control.toBundleName(baseName, locale)
+
+    val resourceName = control.toResourceName(bundleName, "properties")
+    val propertyResourceBundle = try {
+      readResource(resourceName)?.let { PropertyResourceBundle(ByteArrayInputStream(it)) }
+    } catch (e: IllegalArgumentException) {
+      return ResolutionResult.Invalid(e.message ?: e.javaClass.name)
+    } catch (e: Exception) {
+      e.rethrowIfInterrupted()
+      return ResolutionResult.FailedToRead(e.message ?: e.javaClass.name)
+    }
+
+    if (propertyResourceBundle != null) {
+      return ResolutionResult.Found(propertyResourceBundle, fileOrigin)
+    }
+
+    return ResolutionResult.NotFound
+  }
+
+  /**
+   * Returns content of the resource with path [resourceName] inside the original jar, or `null` if there is no such resource.
+   */
+  fun readResource(resourceName: String): ByteArray? {
+    val entry = index.resources[resourceName] ?: return null
+    checkIsOpen()
+    return ClassesSnapshot.readFully(channel, entry.position, entry.length)
+  }
+
+  private fun readClass(className: String, entry: ClassesSnapshot.Entry): ResolutionResult<ClassNode> {
+    checkIsOpen()
+    return try {
+      val bytes = ClassesSnapshot.readFully(channel, entry.position, entry.length)
+      ResolutionResult.Found(AsmUtil.readClassNode(className, bytes, bytes.size, readMode), fileOrigin)
+    } catch (e: InvalidClassFileException) {
+      ResolutionResult.Invalid(e.message)
+    } catch (e: Exception) {
+      e.rethrowIfInterrupted()
+      ResolutionResult.FailedToRead(e.message ?: e.javaClass.name)
+    }
+  }
+
+  private fun checkIsOpen() {
+    check(!isClosed.get()) { "Snapshot must be open for $this" }
+  }
+
+  override fun close() {
+    if (isClosed.compareAndSet(false, true)) {
+      channel.close()
+    }
+  }
+
+  override fun toString() = snapshotPath.toAbsolutePath().toString()
+}
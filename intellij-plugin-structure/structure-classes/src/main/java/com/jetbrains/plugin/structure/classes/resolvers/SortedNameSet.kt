@@ -0,0 +1,208 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.plugin.structure.classes.resolvers
+
+/**
+ * Immutable sorted set of names, such as binary class names or package names,
+ * stored with front coding in a single char array.
+ *
+ * Names are split into blocks of [BLOCK_SIZE]. The first name of a block is stored in full,
+ * and each next name is stored as the length of its common prefix with the previous name plus the rest of it.
+ * Names of classes and packages share long prefixes, so the set takes a fraction of the memory of a `HashSet`.
+ *
+ * [contains] runs a binary search over the blocks and scans one block without allocating.
+ * Iteration decodes names one by one and does not copy the set.
+ */
+class SortedNameSet private constructor(
+  private val data: CharArray,
+  private val blockOffsets: IntArray,
+  override val size: Int
+) : AbstractSet<String>() {
+
+  companion object {
+    private const val BLOCK_SIZE = 16
+
+    @JvmField
+    val EMPTY = SortedNameSet(CharArray(0), IntArray(0), 0)
+
+    @JvmStatic
+    fun of(names: Collection<String>): SortedNameSet {
+      if (names.isEmpty()) {
+        return EMPTY
+      }
+      if (names is SortedNameSet) {
+        return names
+      }
+      val sorted = names.toTypedArray()
+      sorted.sort()
+
+      val blockOffsets = IntArray((sorted.size + BLOCK_SIZE - 1) / BLOCK_SIZE)
+      val builder = StringBuilder()
+      var size = 0
+      var previous: String? = null
+      for (name in sorted) {
+        require(name.length <= Char.MAX_VALUE.toInt()) { "Name is too long: ${name.take(100)}..." }
+        if (name == previous) {
+          continue
+        }
+        if (size % BLOCK_SIZE == 0) {
+          blockOffsets[size / BLOCK_SIZE] = builder.length
+          builder.append(name.length.toChar())
+          builder.append(name)
+        } else {
+          val prefixLength = commonPrefixLength(previous!!, name)
+          builder.append(prefixLength.toChar())
+          builder.append((name.length - prefixLength).toChar())
+          builder.append(name, prefixLength, name.length)
+        }
+        previous = name
+        size++
+      }
+      val blocksNumber = (size + BLOCK_SIZE - 1) / BLOCK_SIZE
+      return SortedNameSet(builder.toCharArray(), blockOffsets.copyOf(blocksNumber), size)
+    }
+
+    private fun commonPrefixLength(one: String, two: String): Int {
+      val length = minOf(one.length, two.length)
+      var i = 0
+      while (i < length && one[i] == two[i]) {
+        i++
+      }
+      return i
+    }
+
+    private fun StringBuilder.toCharArray(): CharArray {
+      val array = CharArray(length)
+      getChars(0, length, array, 0)
+      return array
+    }
+  }
+
+  override fun contains(element: String): Boolean {
+    val block = findBlock(element)
+    if (block < 0) {
+      return false
+    }
+    var offset = blockOffsets[block]
+    val headLength = data[offset].toInt()
+    offset++
+    //Length of the common prefix of the element and the last decoded name, which is less than the element.
+    var matched = matchLength(element, 0, offset, headLength)
+    if (matched == headLength && matched == element.length) {
+      return true
+    }
+    offset += headLength
+
+    val blockEnd = minOf(size, (block + 1) * BLOCK_SIZE)
+    for (index in block * BLOCK_SIZE + 1 until blockEnd) {
+      val prefixLength = data[offset].toInt()
+      val suffixLength = data[offset + 1].toInt()
+      offset += 2
+      if (prefixLength < matched) {
+        //The name is greater than the previous one at a position where the previous one is equal to the element.
+        return false
+      }
+      if (prefixLength == matched) {
+        val suffixMatched = matchLength(element, matched, offset, suffixLength)
+        val nameMatched = matched + suffixMatched
+        if (suffixMatched < suffixLength) {
+          if (nameMatched == element.length || data[offset + suffixMatched] > element[nameMatched]) {
+            return false
+          }
+        } else if (nameMatched == element.length) {
+          return true
+        }
+        matched = nameMatched
+      }
+      //If the name shares a longer prefix with the previous name, it is less than the element, too.
+      offset += suffixLength
+    }
+    return false
+  }
+
+  /**
+   * Returns index of the last block whose first name is not greater than [element], or -1.
+   */
+  private fun findBlock(element: String): Int {
+    var low = 0
+    var high = blockOffsets.size - 1
+    var result = -1
+    while (low <= high) {
+      val middle = (low + high) ushr 1
+      if (compareHead(middle, element) <= 0) {
+        result = middle
+        low = middle + 1
+      } else {
+        high = middle - 1
+      }
+    }
+    return result
+  }
+
+  private fun compareHead(block: Int, element: String): Int {
+    val offset = blockOffsets[block]
+    val headLength = data[offset].toInt()
+    val matched = matchLength(element, 0, offset + 1, headLength)
+    if (matched < headLength && matched < element.length) {
+      return data[offset + 1 + matched] - element[matched]
+    }
+    return headLength - element.length
+  }
+
+  /**
+   * Returns the number of equal chars of [element] starting at [elementStart]
+   * and of the [length] chars stored at [offset].
+   */
+  private fun matchLength(element: String, elementStart: Int, offset: Int, length: Int): Int {
+    val maxLength = minOf(element.length - elementStart, length)
+    var i = 0
+    while (i < maxLength && data[offset + i] == element[elementStart + i]) {
+      i++
+    }
+    return i
+  }
+
+  override fun iterator(): Iterator<String> = NamesIterator()
+
+  private inner class NamesIterator : Iterator<String> {
+    private var index = 0
+
+    private var offset = 0
+
+    private var current = CharArray(64)
+
+    override fun hasNext() = index < size
+
+    override fun next(): String {
+      if (index >= size) {
+        throw NoSuchElementException()
+      }
+      val length: Int
+      if (index % BLOCK_SIZE == 0) {
+        length = data[offset].toInt()
+        offset++
+        ensureCapacity(length)
+        System.arraycopy(data, offset, current, 0, length)
+        offset += length
+      } else {
+        val prefixLength = data[offset].toInt()
+        val suffixLength = data[offset + 1].toInt()
+        offset += 2
+        length = prefixLength + suffixLength
+        ensureCapacity(length)
+        System.arraycopy(data, offset, current, prefixLength, suffixLength)
+        offset += suffixLength
+      }
+      index++
+      return String(current, 0, length)
+    }
+
+    private fun ensureCapacity(length: Int) {
+      if (current.size < length) {
+        current = current.copyOf(maxOf(length, current.size * 2))
+      }
+    }
+  }
+}
@@ -6,6 +6,7 @@ package com.jetbrains.plugin.structure.classes.utils;
 
 import com.jetbrains.plugin.structure.base.utils.FileUtilKt;
 import com.jetbrains.plugin.structure.classes.resolvers.InvalidClassFileException;
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver;
 import org.jetbrains.annotations.NotNull;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.Opcodes;
@@ -16,19 +17,27 @@ import java.io.InputStream;
 import java.nio.file.ClosedFileSystemException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
 
 public class AsmUtil {
 
   public static final int ASM_API_LEVEL = Opcodes.ASM9;
 
+  private static final int SIGNATURES_PARSING_OPTIONS = ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES;
+
+  /**
+   * Reads the class from the stream.
+   * <p>
+   * If {@code fully} is {@code true}, the returned node contains the methods' code and debug information.
+   * Otherwise, the node has no code and debug information.
+   */
   @NotNull
   public static ClassNode readClassNode(@NotNull String className,
                                         @NotNull InputStream inputStream,
                                         boolean fully) throws InvalidClassFileException, IOException {
     try {
       ClassNode node = new ClassNode();
-      int parsingOptions = fully ? 0 : (ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
-      new ClassReader(inputStream).accept(node, parsingOptions);
+      new ClassReader(inputStream).accept(node, getParsingOptions(fully));
       return node;
     } catch (ClosedFileSystemException e) {
       throw e;
@@ -38,15 +47,54 @@ public class AsmUtil {
   }
 
   @NotNull
-  public static ClassNode readClassNode(@NotNull String className, @NotNull InputStream inputStream) throws InvalidClassFileException, IOException {
-    return readClassNode(className, inputStream, true);
+  public static ClassNode readClassNode(@NotNull String className,
+                                        @NotNull byte[] classBytes,
+                                        int length,
+                                        boolean fully) throws InvalidClassFileException {
+    try {
+      ClassNode node = new ClassNode();
+      new ClassReader(classBytes, 0, length).accept(node, getParsingOptions(fully));
+      return node;
+    } catch (RuntimeException e) {
+      throw new InvalidClassFileException(className, getAsmErrorMessage(e));
+    }
+  }
+
+  /**
+   * Reads the class in the {@code readMode}.
+   * <p>
+   * In the {@link Resolver.ReadMode#FULL_LAZY_CODE} mode, the returned node is a {@link LazyClassNode},
+   * whose methods' code is read on demand by {@link LazyClassNode#loadCode}.
+   */
+  @NotNull
+  public static ClassNode readClassNode(@NotNull String className,
+                                        @NotNull byte[] classBytes,
+                                        int length,
+                                        @NotNull Resolver.ReadMode readMode) throws InvalidClassFileException {
+    if (readMode != Resolver.ReadMode.FULL_LAZY_CODE) {
+      return readClassNode(className, classBytes, length, readMode == Resolver.ReadMode.FULL);
+    }
+    try {
+      return LazyClassNode.read(className, Arrays.copyOf(classBytes, length));
+    } catch (RuntimeException e) {
+      throw new InvalidClassFileException(className, getAsmErrorMessage(e));
+    }
+  }
+
+  private static int getParsingOptions(boolean fully) {
+    return fully ? 0 : SIGNATURES_PARSING_OPTIONS;
   }
 
-  private static String getAsmErrorMessage(RuntimeException e) {
+  static String getAsmErrorMessage(RuntimeException e) {
     String message = e.getLocalizedMessage();
     return e.getClass().getName() + (message != null ? ": " + message : "");
   }
 
+  @NotNull
+  public static ClassNode readClassNode(@NotNull String className, @NotNull InputStream inputStream) throws InvalidClassFileException, IOException {
+    return readClassNode(className, inputStream, true);
+  }
+
   @NotNull
   public static String readClassName(@NotNull Path classFile) throws InvalidClassFileException, IOException {
     try (InputStream is = Files.newInputStream(classFile)) {
@@ -72,6 +120,17 @@ public class AsmUtil {
     }
   }
 
+  @NotNull
+  public static ClassNode readClassFromFile(@NotNull String className,
+                                            @NotNull Path classFile,
+                                            @NotNull Resolver.ReadMode readMode) throws IOException, InvalidClassFileException {
+    if (readMode != Resolver.ReadMode.FULL_LAZY_CODE) {
+      return readClassFromFile(className, classFile, readMode == Resolver.ReadMode.FULL);
+    }
+    byte[] classBytes = Files.readAllBytes(classFile);
+    return readClassNode(className, classBytes, classBytes.length, readMode);
+  }
+
   @NotNull
   public static ClassNode readClassFromFile(@NotNull String className, @NotNull Path classFile) throws IOException, InvalidClassFileException {
     return readClassFromFile(className, classFile, true);
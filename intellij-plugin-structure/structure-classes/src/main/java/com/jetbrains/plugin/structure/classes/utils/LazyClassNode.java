@@ -0,0 +1,152 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.plugin.structure.classes.utils;
+
+import com.jetbrains.plugin.structure.classes.resolvers.InvalidClassCodeException;
+import org.jetbrains.annotations.NotNull;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.util.List;
+
+/**
+ * Class node whose header, fields, methods' signatures and annotations are read eagerly,
+ * while the methods' code is read only when it is requested for the first time with {@link #loadCode(MethodNode)}.
+ * <p>
+ * Most of the classes resolved during verification are platform classes that are used only to look up
+ * their members and hierarchy, so their method bodies are never decoded.
+ * <p>
+ * The code is read for all methods of the class at once, because the code of one method is
+ * rarely requested without the others. The class file bytes are kept only until then.
+ * <p>
+ * Until the code is loaded, the methods' {@code instructions}, {@code tryCatchBlocks}
+ * and {@code localVariables} are empty, so the code must be requested before those fields are accessed.
+ * Visiting the class or its methods with {@code accept} loads the code first.
+ * Such nodes are returned only by resolvers opened in the {@code FULL_LAZY_CODE} read mode.
+ * <p>
+ * If the code cannot be read, {@link #loadCode} throws {@link InvalidClassCodeException}, and so does every later request.
+ */
+public final class LazyClassNode extends ClassNode {
+
+  private final String className;
+
+  private byte[] classBytes;
+
+  private volatile boolean codeLoaded;
+
+  private InvalidClassCodeException codeError;
+
+  private LazyClassNode(@NotNull String className, @NotNull byte[] classBytes) {
+    super(AsmUtil.ASM_API_LEVEL);
+    this.className = className;
+    this.classBytes = classBytes;
+  }
+
+  /**
+   * Reads the class skeleton from {@code classBytes}, which must not be modified afterwards.
+   *
+   * @throws RuntimeException if the class file is invalid
+   */
+  @NotNull
+  static LazyClassNode read(@NotNull String className, @NotNull byte[] classBytes) {
+    LazyClassNode node = new LazyClassNode(className, classBytes);
+    new ClassReader(classBytes).accept(node, ClassReader.SKIP_CODE);
+    return node;
+  }
+
+  @Override
+  public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+    LazyMethodNode method = new LazyMethodNode(this, access, name, descriptor, signature, exceptions);
+    methods.add(method);
+    return method;
+  }
+
+  @Override
+  public void accept(ClassVisitor classVisitor) {
+    loadCode();
+    super.accept(classVisitor);
+  }
+
+  /**
+   * Loads the code of the {@code method}, if the method belongs to a lazily read class and its code has not been loaded yet.
+   * Does nothing for other method nodes.
+   *
+   * @throws InvalidClassCodeException if the code of the class cannot be read
+   */
+  public static void loadCode(@NotNull MethodNode method) {
+    if (method instanceof LazyMethodNode) {
+      ((LazyMethodNode) method).owner.loadCode();
+    }
+  }
+
+  /**
+   * Returns {@code true} if the {@code method} belongs to a lazily read class, so its code is read only by {@link #loadCode(MethodNode)}.
+   */
+  public static boolean isLazy(@NotNull MethodNode method) {
+    return method instanceof LazyMethodNode;
+  }
+
+  private void loadCode() {
+    if (!codeLoaded) {
+      synchronized (this) {
+        if (!codeLoaded) {
+          try {
+            ClassNode fullNode = new ClassNode();
+            new ClassReader(classBytes).accept(fullNode, 0);
+            copyCode(fullNode.methods, methods);
+          } catch (RuntimeException e) {
+            codeError = new InvalidClassCodeException(className, AsmUtil.getAsmErrorMessage(e));
+          }
+          classBytes = null;
+          codeLoaded = true;
+        }
+      }
+    }
+    if (codeError != null) {
+      throw codeError;
+    }
+  }
+
+  private static void copyCode(@NotNull List<MethodNode> from, @NotNull List<MethodNode> to) {
+    if (from.size() != to.size()) {
+      throw new IllegalStateException("Different number of methods: " + from.size() + " and " + to.size());
+    }
+    for (int i = 0; i < from.size(); i++) {
+      MethodNode source = from.get(i);
+      MethodNode target = to.get(i);
+      target.instructions = source.instructions;
+      target.tryCatchBlocks = source.tryCatchBlocks;
+      target.localVariables = source.localVariables;
+      target.visibleLocalVariableAnnotations = source.visibleLocalVariableAnnotations;
+      target.invisibleLocalVariableAnnotations = source.invisibleLocalVariableAnnotations;
+      target.maxStack = source.maxStack;
+      target.maxLocals = source.maxLocals;
+    }
+  }
+
+  private static final class LazyMethodNode extends MethodNode {
+    private final LazyClassNode owner;
+
+    LazyMethodNode(@NotNull LazyClassNode owner, int access, String name, String descriptor, String signature, String[] exceptions) {
+      super(AsmUtil.ASM_API_LEVEL, access, name, descriptor, signature, exceptions);
+      this.owner = owner;
+    }
+
+    @Override
+    public void accept(ClassVisitor classVisitor) {
+      owner.loadCode();
+      super.accept(classVisitor);
+    }
+
+    @Override
+    public void accept(MethodVisitor methodVisitor) {
+      owner.loadCode();
+      super.accept(methodVisitor);
+    }
+  }
+}
@@ -17,10 +17,18 @@ import java.nio.file.Path
 
 object IdeResolverCreator {
 
+  /**
+   * Creates resolver of classes of the sonar-plugin-api jar, or of its [ClassesSnapshot] compiled beforehand.
+   */
   @JvmStatic
-  fun createIdeResolver(sonarPluginApi: SonarPluginApi): Resolver {
-    val fileOrigin = JarOrZipFileOrigin(sonarPluginApi.idePath.simpleName, IdeFileOrigin.IdeLibDirectory(sonarPluginApi))
-    return JarFileResolver(sonarPluginApi.idePath, Resolver.ReadMode.FULL, fileOrigin)
+  @JvmOverloads
+  fun createIdeResolver(sonarPluginApi: SonarPluginApi, readMode: Resolver.ReadMode = Resolver.ReadMode.FULL): Resolver {
+    val idePath = sonarPluginApi.idePath
+    val fileOrigin = JarOrZipFileOrigin(idePath.simpleName, IdeFileOrigin.IdeLibDirectory(sonarPluginApi))
+    if (ClassesSnapshot.isSnapshot(idePath)) {
+      return SnapshotResolver(idePath, readMode, fileOrigin)
+    }
+    return JarFileResolver(idePath, readMode, fileOrigin)
   }
 
   @JvmStatic
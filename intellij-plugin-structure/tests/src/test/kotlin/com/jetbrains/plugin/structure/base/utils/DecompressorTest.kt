@@ -60,4 +60,33 @@ class DecompressorTest {
       zipFile.extractTo(tempFolder.newFolder().toPath())
     }
   }
-}
\ No newline at end of file
+
+  @Test
+  fun `contains file with absolute path`() {
+    Assert.assertThrows(IOException::class.java) {
+      val zipFile = tempFolder.newFile("broken.zip").toPath()
+      ZipOutputStream(Files.newOutputStream(zipFile)).use {
+        it.putNextEntry(ZipEntry("/absolute.txt"))
+        it.write("42".toByteArray())
+        it.closeEntry()
+      }
+
+      zipFile.extractTo(tempFolder.newFolder().toPath())
+    }
+  }
+
+  @Test
+  fun `many entries are extracted`() {
+    val zipFile = buildZipFile(tempFolder.newFile("many.zip").toPath()) {
+      dir("plugin") {
+        dir("lib") {
+          (0 until 100).forEach { file("file$it.txt", "content $it") }
+        }
+      }
+    }
+    val destination = tempFolder.newFolder().toPath()
+    extractZip(zipFile, destination)
+    val libDirectory = destination.resolve("plugin").resolve("lib")
+    assertEquals(100, libDirectory.listFiles().size)
+    (0 until 100).forEach { assertEquals("content $it", libDirectory.resolve("file$it.txt").readText()) }
+  }}
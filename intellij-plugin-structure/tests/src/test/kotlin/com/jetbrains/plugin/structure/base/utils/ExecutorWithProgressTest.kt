@@ -0,0 +1,62 @@
+package com.jetbrains.plugin.structure.base.utils
+
+import com.jetbrains.plugin.structure.base.plugin.Settings
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+import java.util.concurrent.atomic.AtomicInteger
+
+@RunWith(Parameterized::class)
+class ExecutorWithProgressTest(private val virtualThreads: Boolean) {
+
+  companion object {
+    @JvmStatic
+    @Parameterized.Parameters(name = "virtualThreads={0}")
+    fun parameters() = listOf(arrayOf(false), arrayOf(true))
+  }
+
+  private val previousSetting = System.getProperty("intellij.structure.virtual.threads")
+
+  @After
+  fun restoreSetting() {
+    if (previousSetting == null) {
+      System.clearProperty("intellij.structure.virtual.threads")
+    } else {
+      System.setProperty("intellij.structure.virtual.threads", previousSetting)
+    }
+  }
+
+  @Test
+  fun `all tasks are executed and progress is reported for each of them`() {
+    Settings.VIRTUAL_THREADS.set(virtualThreads.toString())
+    val running = AtomicInteger()
+    val maxRunning = AtomicInteger()
+    val finishedNumbers = arrayListOf<Int>()
+    val tasks = (1..50).map { number ->
+      ExecutorWithProgress.Task("task $number") {
+        maxRunning.accumulateAndGet(running.incrementAndGet()) { a, b -> maxOf(a, b) }
+        Thread.sleep(5)
+        running.decrementAndGet()
+        number
+      }
+    }
+    val results = ExecutorWithProgress<Int>("test", 4, true, 1024) { progressData ->
+      finishedNumbers += progressData.finishedNumber
+      assertEquals(50, progressData.totalNumber)
+    }.use { it.executeTasks(tasks) }
+
+    assertEquals((1..50).toSet(), results.toSet())
+    assertEquals((1..50).toList(), finishedNumbers)
+    assertTrue(maxRunning.get() <= 4)
+  }
+
+  @Test(expected = RuntimeException::class)
+  fun `failing task fails execution`() {
+    Settings.VIRTUAL_THREADS.set(virtualThreads.toString())
+    val tasks = listOf(ExecutorWithProgress.Task<Int>("failing") { throw IllegalStateException() })
+    ExecutorWithProgress<Int>("test", 2, true) { }.use { it.executeTasks(tasks) }
+  }
+}
@@ -0,0 +1,41 @@
+package com.jetbrains.plugin.structure.base.utils
+
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class MemoryAwareSemaphoreTest {
+
+  private fun acquireInBackground(semaphore: MemoryAwareSemaphore): CountDownLatch {
+    val acquired = CountDownLatch(1)
+    Thread {
+      semaphore.acquire()
+      acquired.countDown()
+    }.apply { isDaemon = true }.start()
+    return acquired
+  }
+
+  @Test
+  fun `memory is reserved for running tasks`() {
+    val semaphore = MemoryAwareSemaphore(10, 100) { 300 }
+    repeat(3) { semaphore.acquire() }
+
+    val acquired = acquireInBackground(semaphore)
+    assertFalse(acquired.await(300, TimeUnit.MILLISECONDS))
+    semaphore.release()
+    assertTrue(acquired.await(10, TimeUnit.SECONDS))
+  }
+
+  @Test
+  fun `single task is started regardless of memory`() {
+    val semaphore = MemoryAwareSemaphore(10, 100) { 0 }
+    semaphore.acquire()
+
+    val acquired = acquireInBackground(semaphore)
+    assertFalse(acquired.await(300, TimeUnit.MILLISECONDS))
+    semaphore.release()
+    assertTrue(acquired.await(10, TimeUnit.SECONDS))
+  }
+}
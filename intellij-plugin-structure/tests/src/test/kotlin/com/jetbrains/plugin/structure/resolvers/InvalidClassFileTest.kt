@@ -3,11 +3,15 @@ package com.jetbrains.plugin.structure.resolvers
 import com.jetbrains.plugin.structure.base.utils.contentBuilder.buildDirectory
 import com.jetbrains.plugin.structure.base.utils.contentBuilder.buildZipFile
 import com.jetbrains.plugin.structure.classes.resolvers.*
+import com.jetbrains.plugin.structure.classes.utils.LazyClassNode
+import org.junit.Assert.assertEquals
 import org.junit.Assert.assertTrue
 import org.junit.Assert.fail
 import org.junit.Rule
 import org.junit.Test
 import org.junit.rules.TemporaryFolder
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Opcodes
 
 /**
  * Tests that [InvalidClassFileException] is thrown on attempts to read invalid class files.
@@ -47,4 +51,63 @@ class InvalidClassFileTest {
       assertTrue(invalidResult.message.startsWith("Unable to read class 'invalid' using the ASM Java Bytecode engineering library. The internal ASM error: java.lang.ArrayIndexOutOfBoundsException"))
     }
   }
-}
\ No newline at end of file
+
+  /**
+   * Class `invalid/Code` whose only method has an unknown opcode instead of `sipush`.
+   */
+  private fun classWithInvalidCode(): ByteArray {
+    val writer = ClassWriter(0)
+    writer.visit(Opcodes.V11, Opcodes.ACC_PUBLIC, "invalid/Code", null, "java/lang/Object", null)
+    val method = writer.visitMethod(Opcodes.ACC_PUBLIC or Opcodes.ACC_STATIC, "method", "()V", null, null)
+    method.visitCode()
+    method.visitIntInsn(Opcodes.SIPUSH, 0x1234)
+    method.visitInsn(Opcodes.POP)
+    method.visitInsn(Opcodes.RETURN)
+    method.visitMaxs(1, 0)
+    method.visitEnd()
+    writer.visitEnd()
+    val bytes = writer.toByteArray()
+    val offset = (0 until bytes.size - 2).first {
+      bytes[it] == Opcodes.SIPUSH.toByte() && bytes[it + 1] == 0x12.toByte() && bytes[it + 2] == 0x34.toByte()
+    }
+    bytes[offset] = 0xFF.toByte()
+    return bytes
+  }
+
+  @Test
+  fun `invalid code is reported in the full mode`() {
+    val jarFile = buildZipFile(temporaryFolder.newFile("invalid.jar").toPath()) {
+      dir("invalid") {
+        file("Code.class", classWithInvalidCode())
+      }
+    }
+
+    JarFileResolver(jarFile, Resolver.ReadMode.FULL, InvalidFileOrigin).use { jarResolver ->
+      val invalidResult = jarResolver.resolveClass("invalid/Code") as ResolutionResult.Invalid
+      assertTrue(invalidResult.message.startsWith("Unable to read class 'invalid/Code'"))
+    }
+  }
+
+  @Test
+  fun `invalid code is reported when lazily read code is requested`() {
+    val jarFile = buildZipFile(temporaryFolder.newFile("invalid.jar").toPath()) {
+      dir("invalid") {
+        file("Code.class", classWithInvalidCode())
+      }
+    }
+
+    JarFileResolver(jarFile, Resolver.ReadMode.FULL_LAZY_CODE, InvalidFileOrigin).use { jarResolver ->
+      val classNode = (jarResolver.resolveClass("invalid/Code") as ResolutionResult.Found).value
+      val method = classNode.methods.single()
+      repeat(2) {
+        try {
+          LazyClassNode.loadCode(method)
+          fail()
+        } catch (e: InvalidClassCodeException) {
+          assertEquals("invalid/Code", e.className)
+          assertTrue(e.message.startsWith("Unable to read code of class 'invalid/Code'"))
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package com.jetbrains.plugin.structure.resolvers
+
+import com.jetbrains.plugin.structure.base.utils.contentBuilder.buildZipFile
+import com.jetbrains.plugin.structure.base.utils.listFiles
+import com.jetbrains.plugin.structure.base.utils.writeText
+import com.jetbrains.plugin.structure.classes.resolvers.FileOrigin
+import com.jetbrains.plugin.structure.classes.resolvers.JarFileIndexStorage
+import com.jetbrains.plugin.structure.classes.resolvers.JarFileResolver
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.nio.file.Path
+
+class JarFileIndexStorageTest {
+
+  @Rule
+  @JvmField
+  val temporaryFolder = TemporaryFolder()
+
+  private object TestFileOrigin : FileOrigin {
+    override val parent: FileOrigin? = null
+  }
+
+  private fun buildJar(): Path = buildZipFile(temporaryFolder.newFile("some.jar").toPath()) {
+    dir("com") {
+      dir("example") {
+        file("A.class", "a")
+        file("B.class", "b")
+        file("messages.properties", "key=value")
+      }
+    }
+    dir("META-INF") {
+      dir("services") {
+        file("com.example.Service", "com.example.A # comment\n\ncom.example.B")
+      }
+    }
+  }
+
+  private fun JarFileResolver.assertIndexContent() {
+    assertEquals(setOf("com/example/A", "com/example/B"), allClasses)
+    assertEquals(setOf("com", "com/example"), allPackages)
+    assertEquals(setOf("com.example.messages"), allBundleNameSet.baseBundleNames)
+    assertEquals(mapOf("com.example.Service" to setOf("com.example.A", "com.example.B")), implementedServiceProviders)
+  }
+
+  @Test
+  fun `index is saved on first open and reused afterwards`() {
+    val jar = buildJar()
+    val storageDirectory = temporaryFolder.newFolder().toPath()
+    val storage = JarFileIndexStorage(storageDirectory)
+
+    JarFileResolver(jar, Resolver.ReadMode.FULL, TestFileOrigin, storage).use { it.assertIndexContent() }
+    assertEquals(1, storageDirectory.listFiles().size)
+
+    JarFileResolver(jar, Resolver.ReadMode.FULL, TestFileOrigin, storage).use { it.assertIndexContent() }
+    assertEquals(1, storageDirectory.listFiles().size)
+  }
+
+  @Test
+  fun `corrupted index is rebuilt from the jar`() {
+    val jar = buildJar()
+    val storageDirectory = temporaryFolder.newFolder().toPath()
+    val storage = JarFileIndexStorage(storageDirectory)
+
+    JarFileResolver(jar, Resolver.ReadMode.FULL, TestFileOrigin, storage).close()
+    val indexFile = storageDirectory.listFiles().single()
+    indexFile.writeText("corrupted")
+
+    JarFileResolver(jar, Resolver.ReadMode.FULL, TestFileOrigin, storage).use { it.assertIndexContent() }
+  }
+
+  @Test
+  fun `invalidated index is deleted`() {
+    val jar = buildJar()
+    val storageDirectory = temporaryFolder.newFolder().toPath()
+    val storage = JarFileIndexStorage(storageDirectory)
+
+    JarFileResolver(jar, Resolver.ReadMode.FULL, TestFileOrigin, storage).close()
+    storage.invalidate(jar)
+    assertTrue(storageDirectory.listFiles().isEmpty())
+  }
+}
@@ -0,0 +1,114 @@
+package com.jetbrains.plugin.structure.resolvers
+
+import com.jetbrains.plugin.structure.base.utils.contentBuilder.buildZipFile
+import com.jetbrains.plugin.structure.classes.resolvers.FileOrigin
+import com.jetbrains.plugin.structure.classes.resolvers.JarFileResolver
+import com.jetbrains.plugin.structure.classes.resolvers.ResolutionResult
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import com.jetbrains.plugin.structure.classes.utils.LazyClassNode
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.objectweb.asm.tree.ClassNode
+import java.util.*
+
+class JarFileResolverTest {
+
+  @Rule
+  @JvmField
+  val temporaryFolder = TemporaryFolder()
+
+  private object TestFileOrigin : FileOrigin {
+    override val parent: FileOrigin? = null
+  }
+
+  private val classBytes: ByteArray
+    get() = JarFileResolverTest::class.java.getResourceAsStream("JarFileResolverTest.class")!!.use { it.readBytes() }
+
+  @Test
+  fun `classes and bundles are read from jar`() {
+    val jarFile = buildZipFile(temporaryFolder.newFile("some.jar").toPath()) {
+      dir("com") {
+        dir("jetbrains") {
+          dir("plugin") {
+            dir("structure") {
+              dir("resolvers") {
+                file("JarFileResolverTest.class", classBytes)
+              }
+            }
+          }
+        }
+      }
+      dir("messages") {
+        file("Bundle.properties", "key=value")
+      }
+    }
+
+    val className = "com/jetbrains/plugin/structure/resolvers/JarFileResolverTest"
+    JarFileResolver(jarFile, Resolver.ReadMode.FULL, TestFileOrigin, null).use { resolver ->
+      val found = resolver.resolveClass(className) as ResolutionResult.Found
+      assertEquals(className, found.value.name)
+      assertEquals(ResolutionResult.NotFound, resolver.resolveClass("com/jetbrains/Unknown"))
+
+      val bundle = resolver.resolveExactPropertyResourceBundle("messages.Bundle", Locale.ROOT) as ResolutionResult.Found
+      assertEquals("value", bundle.value.getString("key"))
+
+      val processed = arrayListOf<String>()
+      resolver.processAllClasses { result ->
+        processed += (result as ResolutionResult.Found).value.name
+        true
+      }
+      assertEquals(listOf(className), processed)
+    }
+  }
+
+  @Test
+  fun `method code is loaded on demand`() {
+    val jarFile = buildZipFile(temporaryFolder.newFile("some.jar").toPath()) {
+      file("JarFileResolverTest.class", classBytes)
+    }
+
+    JarFileResolver(jarFile, Resolver.ReadMode.FULL_LAZY_CODE, TestFileOrigin, null).use { resolver ->
+      val classNode = (resolver.resolveClass("JarFileResolverTest") as ResolutionResult.Found).value
+      assertTrue(classNode is LazyClassNode)
+      val method = classNode.methods.first { it.name == "method code is loaded on demand" }
+      assertEquals(0, method.instructions.size())
+
+      LazyClassNode.loadCode(method)
+      assertTrue(method.instructions.size() > 0)
+      assertTrue(method.localVariables.any { it.name == "jarFile" })
+    }
+  }
+
+  @Test
+  fun `method code is read eagerly in the full mode`() {
+    val jarFile = buildZipFile(temporaryFolder.newFile("some.jar").toPath()) {
+      file("JarFileResolverTest.class", classBytes)
+    }
+
+    JarFileResolver(jarFile, Resolver.ReadMode.FULL, TestFileOrigin, null).use { resolver ->
+      val classNode = (resolver.resolveClass("JarFileResolverTest") as ResolutionResult.Found).value
+      assertFalse(classNode is LazyClassNode)
+      val method = classNode.methods.first { it.name == "method code is read eagerly in the full mode" }
+      assertTrue(method.instructions.size() > 0)
+    }
+  }
+
+  @Test
+  fun `lazily read code is visited by accept`() {
+    val jarFile = buildZipFile(temporaryFolder.newFile("some.jar").toPath()) {
+      file("JarFileResolverTest.class", classBytes)
+    }
+
+    JarFileResolver(jarFile, Resolver.ReadMode.FULL_LAZY_CODE, TestFileOrigin, null).use { resolver ->
+      val classNode = (resolver.resolveClass("JarFileResolverTest") as ResolutionResult.Found).value
+      val copy = ClassNode()
+      classNode.accept(copy)
+      val method = copy.methods.first { it.name == "lazily read code is visited by accept" }
+      assertTrue(method.instructions.size() > 0)
+    }
+  }
+}
@@ -37,6 +37,19 @@ class ResolverTest {
     assertTrue(cacheResolver.containsPackage(""))
   }
 
+  @Test
+  fun `cache counts hits and misses`() {
+    val classNode = ClassNode().apply { name = "a" }
+    val fileOrigin = object : FileOrigin {
+      override val parent: FileOrigin? = null
+    }
+    val cacheResolver = CacheResolver(FixedClassesResolver.create(listOf(classNode), fileOrigin), 16, true)
+    cacheResolver.resolveClass("a")
+    cacheResolver.resolveClass("a")
+    cacheResolver.resolveClass("b")
+    assertEquals(CacheResolver.Statistics(1, 2), cacheResolver.statistics)
+  }
+
   @Test
   fun `composite resolver search order is equal to class-path`() {
     val commonPackage = "some/package"
@@ -0,0 +1,88 @@
+package com.jetbrains.plugin.structure.resolvers
+
+import com.jetbrains.plugin.structure.base.utils.contentBuilder.buildZipFile
+import com.jetbrains.plugin.structure.classes.resolvers.ClassesSnapshot
+import com.jetbrains.plugin.structure.classes.resolvers.FileOrigin
+import com.jetbrains.plugin.structure.classes.resolvers.ResolutionResult
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import com.jetbrains.plugin.structure.classes.resolvers.SnapshotResolver
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.IOException
+import java.nio.file.Files
+import java.util.*
+
+class SnapshotResolverTest {
+
+  @Rule
+  @JvmField
+  val temporaryFolder = TemporaryFolder()
+
+  private object TestFileOrigin : FileOrigin {
+    override val parent: FileOrigin? = null
+  }
+
+  private val classBytes: ByteArray
+    get() = SnapshotResolverTest::class.java.getResourceAsStream("SnapshotResolverTest.class")!!.use { it.readBytes() }
+
+  @Test
+  fun `snapshot contains the same classes and resources as jar`() {
+    val jarFile = buildZipFile(temporaryFolder.newFile("some.jar").toPath()) {
+      dir("com") {
+        dir("jetbrains") {
+          dir("plugin") {
+            dir("structure") {
+              dir("resolvers") {
+                file("SnapshotResolverTest.class", classBytes)
+              }
+            }
+          }
+        }
+      }
+      dir("messages") {
+        file("Bundle.properties", "key=value")
+      }
+      file("version.txt", "1.0")
+    }
+    val snapshotFile = temporaryFolder.root.toPath().resolve("some.snapshot")
+    ClassesSnapshot.compile(jarFile, snapshotFile)
+
+    assertTrue(ClassesSnapshot.isSnapshot(snapshotFile))
+    assertFalse(ClassesSnapshot.isSnapshot(jarFile))
+    assertArrayEquals("1.0".toByteArray(), ClassesSnapshot.readResource(snapshotFile, "version.txt"))
+    assertNull(ClassesSnapshot.readResource(snapshotFile, "unknown.txt"))
+
+    val className = "com/jetbrains/plugin/structure/resolvers/SnapshotResolverTest"
+    SnapshotResolver(snapshotFile, Resolver.ReadMode.FULL, TestFileOrigin).use { resolver ->
+      assertEquals(setOf(className), resolver.allClasses)
+      assertEquals(setOf("com", "com/jetbrains", "com/jetbrains/plugin", "com/jetbrains/plugin/structure", "com/jetbrains/plugin/structure/resolvers"), resolver.allPackages)
+      assertTrue(resolver.containsPackage("com/jetbrains/plugin"))
+
+      val found = resolver.resolveClass(className) as ResolutionResult.Found
+      assertEquals(className, found.value.name)
+      assertEquals(ResolutionResult.NotFound, resolver.resolveClass("com/jetbrains/Unknown"))
+
+      val bundle = resolver.resolveExactPropertyResourceBundle("messages.Bundle", Locale.ROOT) as ResolutionResult.Found
+      assertEquals("value", bundle.value.getString("key"))
+    }
+  }
+
+  @Test(expected = IOException::class)
+  fun `truncated snapshot is rejected`() {
+    val jarFile = buildZipFile(temporaryFolder.newFile("some.jar").toPath()) {
+      file("SnapshotResolverTest.class", classBytes)
+    }
+    val snapshotFile = temporaryFolder.root.toPath().resolve("some.snapshot")
+    ClassesSnapshot.compile(jarFile, snapshotFile)
+    val bytes = Files.readAllBytes(snapshotFile)
+    Files.write(snapshotFile, bytes.copyOf(bytes.size - 1))
+
+    SnapshotResolver(snapshotFile, Resolver.ReadMode.FULL, TestFileOrigin).close()
+  }
+}
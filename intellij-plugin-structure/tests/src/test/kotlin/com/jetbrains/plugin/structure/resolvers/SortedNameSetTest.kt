@@ -0,0 +1,51 @@
+package com.jetbrains.plugin.structure.resolvers
+
+import com.jetbrains.plugin.structure.classes.resolvers.PackageSet
+import com.jetbrains.plugin.structure.classes.resolvers.SortedNameSet
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.*
+
+class SortedNameSetTest {
+
+  @Test
+  fun `set contains the same names as a hash set`() {
+    val random = Random(42)
+    val segments = listOf("com", "org", "example", "a", "ab", "abc", "Util", "Util\$1", "Util\$Inner", "b-c", "")
+    val names = hashSetOf<String>()
+    repeat(3000) {
+      names += (0..random.nextInt(4)).joinToString("/") { segments[random.nextInt(segments.size)] }
+    }
+
+    val nameSet = SortedNameSet.of(names)
+    assertEquals(names.size, nameSet.size)
+    assertEquals(names.sorted(), nameSet.toList())
+    assertEquals(names, nameSet)
+
+    repeat(3000) {
+      val query = (0..random.nextInt(5)).joinToString("/") { segments[random.nextInt(segments.size)] }
+      assertEquals(query, query in names, query in nameSet)
+    }
+    for (name in names) {
+      assertTrue(name in nameSet)
+      assertEquals(name + "x" in names, name + "x" in nameSet)
+    }
+  }
+
+  @Test
+  fun `empty set and default package`() {
+    assertTrue(SortedNameSet.of(emptyList()).isEmpty())
+    assertFalse("" in SortedNameSet.of(emptyList()))
+
+    val packageSet = PackageSet()
+    packageSet.addPackagesOfClass("Default")
+    packageSet.addPackagesOfClass("com/example/A")
+    packageSet.addPackagesOfClass("com/example/utils/B")
+    val packages = SortedNameSet.of(packageSet.getAllPackages())
+    assertEquals(listOf("", "com", "com/example", "com/example/utils"), packages.toList())
+    assertTrue("" in packages)
+    assertFalse("com/ex" in packages)
+  }
+}
@@ -1,8 +1,10 @@
 package com.jetbrains.plugin.structure.zipBombs
 
 import com.jetbrains.plugin.structure.base.decompress.DecompressorSizeLimitExceededException
+import com.jetbrains.plugin.structure.base.plugin.Settings
 import com.jetbrains.plugin.structure.base.utils.contentBuilder.buildZipFile
 import com.jetbrains.plugin.structure.base.utils.extractTo
+import com.jetbrains.plugin.structure.base.utils.extractZip
 import org.junit.Assert
 import org.junit.Rule
 import org.junit.Test
@@ -33,4 +35,34 @@ class DecompressorSizeLimitTest {
     val zipFile = generateZipFileOfSizeAtLeast(tempDirectory.resolve("big.zip").toPath(), 1001)
     zipFile.extractTo(tempDirectory.toPath().resolve("extracted"), 1000)
   }
-}
\ No newline at end of file
+
+  private fun <T> withParallelExtraction(action: () -> T): T {
+    val parallelism = Settings.DECOMPRESS_PARALLELISM.get()
+    Settings.DECOMPRESS_PARALLELISM.set("4")
+    try {
+      return action()
+    } finally {
+      Settings.DECOMPRESS_PARALLELISM.set(parallelism)
+    }
+  }
+
+  @Test(expected = DecompressorSizeLimitExceededException::class)
+  fun `limit is set for parallel extraction`() {
+    val tempDirectory = tempFolder.newFolder()
+    val zipFile = generateZipFileOfSizeAtLeast(tempDirectory.resolve("big.zip").toPath(), 1001)
+    withParallelExtraction { extractZip(zipFile, tempDirectory.toPath().resolve("extracted"), 1000) }
+  }
+
+  @Test
+  fun `nested jars count towards the limit by their own size`() {
+    val tempDirectory = tempFolder.newFolder()
+    val zipFile = buildZipFile(tempDirectory.resolve("plugin.zip").toPath()) {
+      zip("lib.jar") {
+        (0 until 4).forEach { file("Class$it.class", ByteArray(4000)) }
+      }
+    }
+    //The jar is compressed well below the limit, while its classes together exceed the limit.
+    val extracted = withParallelExtraction { extractZip(zipFile, tempDirectory.toPath().resolve("extracted"), 10000) }
+    Assert.assertTrue(Files.size(extracted.resolve("lib.jar")) < 10000)
+  }
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.benchmarks.generator
+
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Opcodes.*
+import org.objectweb.asm.Type
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.util.*
+import java.util.jar.JarEntry
+import java.util.jar.JarOutputStream
+
+/**
+ * Generates the jars used by the benchmarks, so that they need neither network nor real IDE builds.
+ *
+ * - `jdk.jar` contains a few classes of the running JDK, which are parents of all other classes.
+ * - `platform/platform-<N>.jar` contain packages with an interface, an abstract base class implementing it
+ * and a chain of classes extending either the base class or the end of a chain of an earlier package,
+ * so lookups in the hierarchy go through several packages and jars.
+ * - `plugin.jar` contains classes extending platform classes and calling their methods and fields.
+ * A small part of the references points to missing classes and methods to exercise the problem reporting.
+ *
+ * The content depends only on the arguments: `<output directory> [platform jars] [classes per jar] [plugin classes]`.
+ */
+object SyntheticJarsGenerator {
+
+  private const val SEED = 42L
+
+  private const val CHAIN_LENGTH = 5
+
+  private const val SERVICE_METHODS = 5
+
+  private const val BASE_METHODS = 5
+
+  private const val BASE_FIELDS = 3
+
+  private const val OBJECT = "java/lang/Object"
+
+  private val JDK_CLASSES = listOf(
+    OBJECT,
+    "java/lang/String",
+    "java/lang/Class",
+    "java/lang/Throwable",
+    "java/lang/Exception",
+    "java/lang/RuntimeException",
+    "java/lang/Runnable",
+    "java/io/Serializable",
+    "java/lang/Comparable",
+    "java/lang/CharSequence"
+  )
+
+  private class PlatformPackage(val name: String, val chainClasses: List<String>) {
+    val service = "$name/Service"
+    val base = "$name/Base"
+  }
+
+  @JvmStatic
+  fun main(args: Array<String>) {
+    val outputDir = Paths.get(args[0])
+    val platformJars = args.getOrNull(1)?.toInt() ?: 4
+    val classesPerJar = args.getOrNull(2)?.toInt() ?: 2000
+    val pluginClasses = args.getOrNull(3)?.toInt() ?: 500
+    generate(outputDir, platformJars, classesPerJar, pluginClasses)
+  }
+
+  fun generate(outputDir: Path, platformJars: Int, classesPerJar: Int, pluginClasses: Int) {
+    Files.createDirectories(outputDir.resolve("platform"))
+    writeJdkJar(outputDir.resolve("jdk.jar"))
+
+    val random = Random(SEED)
+    val packagesPerJar = maxOf(1, classesPerJar / (CHAIN_LENGTH + 2))
+    val allPackages = arrayListOf<PlatformPackage>()
+    for (jarIndex in 0 until platformJars) {
+      val classes = linkedMapOf<String, ByteArray>()
+      for (packageIndex in 0 until packagesPerJar) {
+        val platformPackage = PlatformPackage(
+          "bench/platform/jar$jarIndex/p$packageIndex",
+          (0 until CHAIN_LENGTH).map { "bench/platform/jar$jarIndex/p$packageIndex/Impl$it" }
+        )
+        //Half of the chains continue a chain of an earlier package, possibly from an earlier jar.
+        val chainParent = if (allPackages.isEmpty() || random.nextBoolean()) {
+          platformPackage.base
+        } else {
+          allPackages[random.nextInt(allPackages.size)].chainClasses.last()
+        }
+        classes[platformPackage.service] = generateService(platformPackage)
+        classes[platformPackage.base] = generateBase(platformPackage)
+        var superName = chainParent
+        for ((chainIndex, className) in platformPackage.chainClasses.withIndex()) {
+          classes[className] = generateChainClass(className, superName, chainIndex)
+          superName = className
+        }
+        allPackages += platformPackage
+      }
+      writeJar(outputDir.resolve("platform").resolve("platform-$jarIndex.jar"), classes)
+    }
+
+    val plugin = linkedMapOf<String, ByteArray>()
+    for (index in 0 until pluginClasses) {
+      val className = "bench/plugin/p${index % 10}/PluginClass$index"
+      plugin[className] = generatePluginClass(className, allPackages, random)
+    }
+    writeJar(outputDir.resolve("plugin.jar"), plugin)
+  }
+
+  private fun generateService(platformPackage: PlatformPackage): ByteArray {
+    val writer = ClassWriter(ClassWriter.COMPUTE_MAXS)
+    writer.visit(V11, ACC_PUBLIC or ACC_ABSTRACT or ACC_INTERFACE, platformPackage.service, null, OBJECT, null)
+    for (i in 0 until SERVICE_METHODS) {
+      writer.visitMethod(ACC_PUBLIC or ACC_ABSTRACT, "s$i", "(I)V", null, null).visitEnd()
+    }
+    writer.visitEnd()
+    return writer.toByteArray()
+  }
+
+  private fun generateBase(platformPackage: PlatformPackage): ByteArray {
+    val writer = ClassWriter(ClassWriter.COMPUTE_MAXS)
+    writer.visit(V11, ACC_PUBLIC or ACC_ABSTRACT or ACC_SUPER, platformPackage.base, null, OBJECT, arrayOf(platformPackage.service))
+    for (i in 0 until BASE_FIELDS) {
+      writer.visitField(ACC_PROTECTED, "f$i", "I", null, null).visitEnd()
+    }
+    writeConstructor(writer, OBJECT)
+    for (i in 0 until SERVICE_METHODS) {
+      val method = writer.visitMethod(ACC_PUBLIC, "s$i", "(I)V", null, null)
+      method.visitCode()
+      method.visitVarInsn(ALOAD, 0)
+      method.visitVarInsn(ILOAD, 1)
+      method.visitFieldInsn(PUTFIELD, platformPackage.base, "f${i % BASE_FIELDS}", "I")
+      method.visitInsn(RETURN)
+      method.visitMaxs(0, 0)
+      method.visitEnd()
+    }
+    for (i in 0 until BASE_METHODS) {
+      val method = writer.visitMethod(ACC_PUBLIC, "b$i", "()Ljava/lang/String;", null, null)
+      method.visitCode()
+      method.visitLdcInsn("b$i")
+      method.visitInsn(ARETURN)
+      method.visitMaxs(0, 0)
+      method.visitEnd()
+    }
+    writer.visitEnd()
+    return writer.toByteArray()
+  }
+
+  private fun generateChainClass(className: String, superName: String, chainIndex: Int): ByteArray {
+    val writer = ClassWriter(ClassWriter.COMPUTE_MAXS)
+    writer.visit(V11, ACC_PUBLIC or ACC_SUPER, className, null, superName, null)
+    writeConstructor(writer, superName)
+    val method = writer.visitMethod(ACC_PUBLIC, "c$chainIndex", "(Ljava/lang/Object;)Ljava/lang/String;", null, null)
+    method.visitCode()
+    method.visitVarInsn(ALOAD, 0)
+    method.visitMethodInsn(INVOKEVIRTUAL, className, "b${chainIndex % BASE_METHODS}", "()Ljava/lang/String;", false)
+    method.visitInsn(ARETURN)
+    method.visitMaxs(0, 0)
+    method.visitEnd()
+    writer.visitEnd()
+    return writer.toByteArray()
+  }
+
+  private fun generatePluginClass(className: String, platformPackages: List<PlatformPackage>, random: Random): ByteArray {
+    val parentPackage = platformPackages[random.nextInt(platformPackages.size)]
+    val superName = parentPackage.chainClasses.last()
+    val implemented = platformPackages[random.nextInt(platformPackages.size)].service
+
+    val writer = ClassWriter(ClassWriter.COMPUTE_MAXS)
+    writer.visit(V11, ACC_PUBLIC or ACC_SUPER, className, null, superName, arrayOf(implemented, "java/lang/Runnable"))
+    writer.visitField(ACC_PRIVATE, "helper", "L$superName;", null, null).visitEnd()
+    writeConstructor(writer, superName)
+
+    val run = writer.visitMethod(ACC_PUBLIC, "run", "()V", null, null)
+    run.visitCode()
+    repeat(20) {
+      val target = platformPackages[random.nextInt(platformPackages.size)]
+      val targetClass = target.chainClasses[random.nextInt(CHAIN_LENGTH)]
+      when (random.nextInt(6)) {
+        0 -> {
+          //Virtual call of a method declared in the base class.
+          run.visitTypeInsn(NEW, targetClass)
+          run.visitInsn(DUP)
+          run.visitMethodInsn(INVOKESPECIAL, targetClass, "<init>", "()V", false)
+          run.visitMethodInsn(INVOKEVIRTUAL, targetClass, "b${random.nextInt(BASE_METHODS)}", "()Ljava/lang/String;", false)
+          run.visitInsn(POP)
+        }
+        1 -> {
+          //Interface call.
+          run.visitVarInsn(ALOAD, 0)
+          run.visitTypeInsn(CHECKCAST, target.service)
+          run.visitInsn(ICONST_1)
+          run.visitMethodInsn(INVOKEINTERFACE, target.service, "s${random.nextInt(SERVICE_METHODS)}", "(I)V", true)
+        }
+        2 -> {
+          //Inherited method and field of the class itself.
+          run.visitVarInsn(ALOAD, 0)
+          run.visitInsn(ICONST_2)
+          run.visitMethodInsn(INVOKEVIRTUAL, className, "s${random.nextInt(SERVICE_METHODS)}", "(I)V", false)
+          run.visitVarInsn(ALOAD, 0)
+          run.visitFieldInsn(GETFIELD, className, "f${random.nextInt(BASE_FIELDS)}", "I")
+          run.visitInsn(POP)
+        }
+        3 -> {
+          run.visitLdcInsn(Type.getObjectType(targetClass))
+          run.visitInsn(POP)
+          run.visitVarInsn(ALOAD, 0)
+          run.visitFieldInsn(GETFIELD, className, "helper", "L$superName;")
+          run.visitInsn(ACONST_NULL)
+          run.visitMethodInsn(INVOKEVIRTUAL, superName, "c${CHAIN_LENGTH - 1}", "(Ljava/lang/Object;)Ljava/lang/String;", false)
+          run.visitInsn(POP)
+        }
+        4 -> {
+          run.visitVarInsn(ALOAD, 0)
+          run.visitMethodInsn(INVOKEVIRTUAL, OBJECT, "hashCode", "()I", false)
+          run.visitInsn(POP)
+        }
+        else -> if (random.nextInt(10) == 0) {
+          //Rare references to removed API.
+          run.visitTypeInsn(NEW, "${target.name}/Removed")
+          run.visitInsn(POP)
+          run.visitVarInsn(ALOAD, 0)
+          run.visitMethodInsn(INVOKEVIRTUAL, targetClass, "removed", "()V", false)
+        } else {
+          run.visitVarInsn(ALOAD, 0)
+          run.visitMethodInsn(INVOKEVIRTUAL, className, "b0", "()Ljava/lang/String;", false)
+          run.visitInsn(POP)
+        }
+      }
+    }
+    run.visitInsn(RETURN)
+    run.visitMaxs(0, 0)
+    run.visitEnd()
+
+    writer.visitEnd()
+    return writer.toByteArray()
+  }
+
+  private fun writeConstructor(writer: ClassWriter, superName: String) {
+    val constructor = writer.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null)
+    constructor.visitCode()
+    constructor.visitVarInsn(ALOAD, 0)
+    constructor.visitMethodInsn(INVOKESPECIAL, superName, "<init>", "()V", false)
+    constructor.visitInsn(RETURN)
+    constructor.visitMaxs(0, 0)
+    constructor.visitEnd()
+  }
+
+  private fun writeJdkJar(jarPath: Path) {
+    val classes = linkedMapOf<String, ByteArray>()
+    for (className in JDK_CLASSES) {
+      val stream = ClassLoader.getSystemResourceAsStream("$className.class")
+        ?: throw IllegalStateException("Class $className is not found in the running JDK")
+      classes[className] = stream.use { it.readBytes() }
+    }
+    writeJar(jarPath, classes)
+  }
+
+  private fun writeJar(jarPath: Path, classes: Map<String, ByteArray>) {
+    JarOutputStream(Files.newOutputStream(jarPath)).use { jar ->
+      for ((className, bytes) in classes) {
+        val entry = JarEntry("$className.class")
+        //Fixed time makes the jars byte-to-byte reproducible.
+        entry.time = 0
+        jar.putNextEntry(entry)
+        jar.write(bytes)
+        jar.closeEntry()
+      }
+    }
+  }
+}
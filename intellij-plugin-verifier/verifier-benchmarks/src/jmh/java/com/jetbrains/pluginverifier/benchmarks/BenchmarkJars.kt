@@ -0,0 +1,63 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.benchmarks
+
+import com.jetbrains.plugin.structure.classes.resolvers.CompositeResolver
+import com.jetbrains.plugin.structure.classes.resolvers.FileOrigin
+import com.jetbrains.plugin.structure.classes.resolvers.JarFileResolver
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.util.stream.Collectors
+import java.util.zip.ZipFile
+
+/**
+ * Jars generated by `SyntheticJarsGenerator` before the benchmarks are run.
+ * Their directory is passed in the `verifier.benchmarks.jars` system property.
+ */
+object BenchmarkJars {
+
+  private object BenchmarkFileOrigin : FileOrigin {
+    override val parent: FileOrigin? = null
+  }
+
+  private val directory: Path by lazy {
+    val path = System.getProperty("verifier.benchmarks.jars")
+      ?: throw IllegalStateException("Directory of the benchmark jars is not set in 'verifier.benchmarks.jars' property")
+    Paths.get(path)
+  }
+
+  val jdkJar: Path
+    get() = directory.resolve("jdk.jar")
+
+  val pluginJar: Path
+    get() = directory.resolve("plugin.jar")
+
+  val platformJars: List<Path>
+    get() = Files.list(directory.resolve("platform")).use { paths -> paths.sorted().collect(Collectors.toList()) }
+
+  /**
+   * Creates a resolver of classes of [jar]. The index of the jar is not stored on disk, so that runs are independent.
+   */
+  fun createJarResolver(jar: Path): Resolver =
+    JarFileResolver(jar, Resolver.ReadMode.FULL, BenchmarkFileOrigin, null)
+
+  /**
+   * Creates a resolver of the platform classes and the JDK classes, the same way as for an IDE.
+   */
+  fun createPlatformResolver(): Resolver =
+    CompositeResolver.create(platformJars.map { createJarResolver(it) } + createJarResolver(jdkJar))
+
+  /**
+   * Reads bytes of all classes of [jar].
+   */
+  fun readClasses(jar: Path): Map<String, ByteArray> =
+    ZipFile(jar.toFile()).use { zipFile ->
+      zipFile.entries().asSequence()
+        .filter { it.name.endsWith(".class") }
+        .associate { entry -> entry.name.removeSuffix(".class") to zipFile.getInputStream(entry).use { it.readBytes() } }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.benchmarks
+
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import com.jetbrains.pluginverifier.results.problems.CompatibilityProblem
+import com.jetbrains.pluginverifier.usages.ApiUsageProcessor
+import com.jetbrains.pluginverifier.verifiers.ProblemRegistrar
+import com.jetbrains.pluginverifier.verifiers.VerificationContext
+import com.jetbrains.pluginverifier.verifiers.hierarchy.ClassHierarchyCache
+import com.jetbrains.pluginverifier.verifiers.packages.DefaultPackageFilter
+import com.jetbrains.pluginverifier.verifiers.packages.PackageFilter
+import com.jetbrains.pluginverifier.verifiers.resolution.MemberResolutionCache
+import com.jetbrains.pluginverifier.warnings.CompatibilityWarning
+import com.jetbrains.pluginverifier.warnings.WarningRegistrar
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Verification context that collects problems like the context of a plugin verification,
+ * without the IntelliJ-specific API usage processors.
+ */
+class BenchmarkVerificationContext(
+  override val classResolver: Resolver,
+  withCaches: Boolean
+) : VerificationContext, ProblemRegistrar, WarningRegistrar {
+
+  val problems: MutableSet<CompatibilityProblem> = ConcurrentHashMap.newKeySet()
+
+  val warnings: MutableSet<CompatibilityWarning> = ConcurrentHashMap.newKeySet()
+
+  override val externalClassesPackageFilter: PackageFilter = DefaultPackageFilter(emptyList())
+
+  override val problemRegistrar: ProblemRegistrar
+    get() = this
+
+  override val warningRegistrar: WarningRegistrar
+    get() = this
+
+  override val apiUsageProcessors: List<ApiUsageProcessor> = emptyList()
+
+  override val memberResolutionCache: MemberResolutionCache? = if (withCaches) MemberResolutionCache() else null
+
+  override val classHierarchyCache: ClassHierarchyCache? = if (withCaches) ClassHierarchyCache(classResolver) else null
+
+  override fun registerProblem(problem: CompatibilityProblem) {
+    problems += problem
+  }
+
+  override fun registerCompatibilityWarning(warning: CompatibilityWarning) {
+    warnings += warning
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.benchmarks
+
+import com.jetbrains.plugin.structure.classes.resolvers.CacheResolver
+import com.jetbrains.plugin.structure.classes.resolvers.ResolutionResult
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import org.objectweb.asm.tree.ClassNode
+import org.openjdk.jmh.annotations.*
+import java.util.*
+import java.util.concurrent.TimeUnit
+
+/**
+ * Lookup of classes by name in a single jar, in all platform jars and in all platform jars behind a cache.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+open class ClassLookupBenchmark {
+
+  @Param("jar", "composite", "cached-composite")
+  lateinit var resolverKind: String
+
+  private lateinit var resolver: Resolver
+
+  private lateinit var classNames: Array<String>
+
+  private var nextClass = 0
+
+  @Setup(Level.Trial)
+  fun setUp() {
+    resolver = when (resolverKind) {
+      "jar" -> BenchmarkJars.createJarResolver(BenchmarkJars.platformJars.first())
+      "composite" -> BenchmarkJars.createPlatformResolver()
+      "cached-composite" -> CacheResolver(BenchmarkJars.createPlatformResolver())
+      else -> throw IllegalArgumentException(resolverKind)
+    }
+    classNames = resolver.allClasses.toTypedArray()
+    //Shuffled with a fixed seed, so that consecutive lookups do not hit neighbouring entries.
+    classNames.shuffle(Random(42))
+  }
+
+  @TearDown(Level.Trial)
+  fun tearDown() {
+    resolver.close()
+  }
+
+  private fun nextClassName(): String {
+    val className = classNames[nextClass]
+    nextClass = (nextClass + 1) % classNames.size
+    return className
+  }
+
+  @Benchmark
+  fun resolveClass(): ResolutionResult<ClassNode> = resolver.resolveClass(nextClassName())
+
+  @Benchmark
+  fun containsClass(): Boolean = resolver.containsClass(nextClassName())
+
+  @Benchmark
+  fun resolveMissingClass(): ResolutionResult<ClassNode> = resolver.resolveClass(nextClassName() + "Missing")
+}
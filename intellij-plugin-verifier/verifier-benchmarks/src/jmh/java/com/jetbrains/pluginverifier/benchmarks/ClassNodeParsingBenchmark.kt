@@ -0,0 +1,79 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.benchmarks
+
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import com.jetbrains.plugin.structure.classes.utils.AsmUtil
+import com.jetbrains.plugin.structure.classes.utils.LazyClassNode
+import org.objectweb.asm.tree.ClassNode
+import org.openjdk.jmh.annotations.*
+import java.util.concurrent.TimeUnit
+
+/**
+ * Parsing of class files into [ClassNode]s as resolvers do it.
+ * Each operation parses one class file of the plugin or of the platform.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+open class ClassNodeParsingBenchmark {
+
+  @Param("plugin", "platform")
+  lateinit var classes: String
+
+  private lateinit var classNames: Array<String>
+
+  private lateinit var classBytes: Array<ByteArray>
+
+  private var nextClass = 0
+
+  @Setup(Level.Trial)
+  fun setUp() {
+    val jar = if (classes == "plugin") BenchmarkJars.pluginJar else BenchmarkJars.platformJars.first()
+    val classFiles = BenchmarkJars.readClasses(jar)
+    classNames = classFiles.keys.toTypedArray()
+    classBytes = classNames.map { classFiles.getValue(it) }.toTypedArray()
+  }
+
+  private fun parseNextClass(readMode: Resolver.ReadMode): ClassNode {
+    val index = nextClass
+    nextClass = (nextClass + 1) % classNames.size
+    val bytes = classBytes[index]
+    return AsmUtil.readClassNode(classNames[index], bytes, bytes.size, readMode)
+  }
+
+  /**
+   * Reads the class header, fields and methods, leaving the code to be read on demand,
+   * as resolvers of platform classes do.
+   */
+  @Benchmark
+  fun readClassNode(): ClassNode = parseNextClass(Resolver.ReadMode.FULL_LAZY_CODE)
+
+  /**
+   * Reads the class and the code of all its methods at once, as resolvers of plugin classes do.
+   */
+  @Benchmark
+  fun readClassNodeWithCode(): ClassNode = parseNextClass(Resolver.ReadMode.FULL)
+
+  /**
+   * Reads the class skeleton and then the code of all its methods on demand.
+   */
+  @Benchmark
+  fun readClassNodeWithLazyCode(): ClassNode {
+    val classNode = parseNextClass(Resolver.ReadMode.FULL_LAZY_CODE)
+    for (method in classNode.methods) {
+      LazyClassNode.loadCode(method)
+    }
+    return classNode
+  }
+
+  /**
+   * Reads only the class header, as indexing of packages does.
+   */
+  @Benchmark
+  fun readClassHeader(): ClassNode = parseNextClass(Resolver.ReadMode.SIGNATURES)
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.benchmarks
+
+import com.jetbrains.pluginverifier.filtering.IgnoreCondition
+import com.jetbrains.pluginverifier.filtering.IgnoredProblemsFilter
+import org.openjdk.jmh.annotations.*
+import java.util.*
+import java.util.concurrent.TimeUnit
+
+/**
+ * Lookup of the ignore condition of a problem among many conditions,
+ * by checking the conditions one by one and by [IgnoredProblemsFilter].
+ *
+ * A tenth of the conditions is specific to a plugin, and about a tenth of the problems is ignored.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+open class IgnoredProblemsFilterBenchmark {
+
+  private companion object {
+    val PROBLEM_TEMPLATES = listOf(
+      "Access to unresolved class org.vendor%d.api.Service%d",
+      "Invocation of unresolved method org.vendor%d.api.Service%d.run()",
+      "Abstract method org.vendor%d.api.Service%d.run() is not implemented",
+      "Illegal access to a private field org.vendor%d.api.Service%d.state"
+    )
+
+    const val PLUGINS = 50
+  }
+
+  @Param("100", "1000", "5000")
+  var conditionsNumber: Int = 0
+
+  private lateinit var ignoreConditions: List<IgnoreCondition>
+
+  private lateinit var filter: IgnoredProblemsFilter
+
+  private lateinit var descriptions: Array<String>
+
+  private var nextDescription = 0
+
+  @Setup(Level.Trial)
+  fun setUp() {
+    val random = Random(42)
+    //Ignoring lines cannot contain ':', which separates the plugin ID from the pattern.
+    ignoreConditions = (0 until conditionsNumber).map { index ->
+      val template = PROBLEM_TEMPLATES[index % PROBLEM_TEMPLATES.size]
+      val pattern = template.format(index, index % 100).replace(".", "\\.").replace("(", "\\(").replace(")", "\\)") + ".*"
+      val line = if (index % 10 == 0) "plugin${random.nextInt(PLUGINS)}:$pattern" else pattern
+      IgnoreCondition.parseCondition(line)
+    }
+    filter = IgnoredProblemsFilter(ignoreConditions)
+    descriptions = Array(10_000) {
+      //Vendors beyond the number of conditions are never ignored.
+      val vendor = random.nextInt(conditionsNumber * 10)
+      PROBLEM_TEMPLATES[vendor % PROBLEM_TEMPLATES.size].format(vendor, vendor % 100)
+    }
+  }
+
+  private fun nextDescription(): String {
+    val description = descriptions[nextDescription]
+    nextDescription = (nextDescription + 1) % descriptions.size
+    return description
+  }
+
+  /**
+   * The lookup of [IgnoredProblemsFilter] before conditions were compiled.
+   */
+  @Benchmark
+  fun linearScan(): IgnoreCondition? {
+    val description = nextDescription()
+    val pluginId = "plugin${nextDescription % PLUGINS}"
+    for (condition in ignoreConditions) {
+      if ((condition.pluginId == null || condition.pluginId == pluginId) && condition.version == null && description.matches(condition.pattern)) {
+        return condition
+      }
+    }
+    return null
+  }
+
+  @Benchmark
+  fun compiledConditions(): IgnoreCondition? {
+    val description = nextDescription()
+    return filter.findIgnoreCondition(description, "plugin${nextDescription % PLUGINS}", "1.0")
+  }
+}
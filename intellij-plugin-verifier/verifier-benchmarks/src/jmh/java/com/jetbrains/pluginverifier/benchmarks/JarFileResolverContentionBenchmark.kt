@@ -0,0 +1,59 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.benchmarks
+
+import com.jetbrains.plugin.structure.classes.resolvers.ResolutionResult
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import org.objectweb.asm.tree.ClassNode
+import org.openjdk.jmh.annotations.*
+import java.util.*
+import java.util.concurrent.TimeUnit
+
+/**
+ * Lookup of classes in platform jars shared by many threads, which is what happens
+ * when several plugins are verified concurrently against the same platform.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(Threads.MAX)
+open class JarFileResolverContentionBenchmark {
+
+  private lateinit var resolvers: List<Resolver>
+
+  private lateinit var classNames: List<Array<String>>
+
+  @State(Scope.Thread)
+  open class ThreadState {
+    var nextClass = 0
+
+    @Setup(Level.Trial)
+    fun setUp() {
+      //Threads start at different classes, so that they do not read the same entries in lockstep.
+      nextClass = Random().nextInt(Int.MAX_VALUE / 2)
+    }
+  }
+
+  @Setup(Level.Trial)
+  fun setUp() {
+    resolvers = BenchmarkJars.platformJars.map { BenchmarkJars.createJarResolver(it) }
+    classNames = resolvers.map { it.allClasses.toTypedArray() }
+  }
+
+  @TearDown(Level.Trial)
+  fun tearDown() {
+    resolvers.forEach { it.close() }
+  }
+
+  @Benchmark
+  fun resolveClass(threadState: ThreadState): ResolutionResult<ClassNode> {
+    val index = threadState.nextClass++
+    val jarIndex = index % resolvers.size
+    val jarClassNames = classNames[jarIndex]
+    return resolvers[jarIndex].resolveClass(jarClassNames[index / resolvers.size % jarClassNames.size])
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.benchmarks
+
+import com.jetbrains.plugin.structure.classes.resolvers.ResolutionResult
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import com.jetbrains.pluginverifier.verifiers.resolution.ClassFile
+import com.jetbrains.pluginverifier.verifiers.resolution.ClassFileAsm
+import org.objectweb.asm.tree.ClassNode
+import org.openjdk.jmh.annotations.*
+import org.openjdk.jmh.infra.Blackhole
+import java.util.concurrent.TimeUnit
+
+/**
+ * Reading of the members of a plugin class, the way verifiers and usage processors read them:
+ * each of [VIEW_READS] passes reads the location, annotations, parameters and instructions of every method
+ * and the location and annotations of every field. Each operation reads one class.
+ *
+ * With `newClassFile`, the class file is wrapped anew for every operation, so the cost of creating the views is included.
+ * Allocations per operation are reported by the `gc` profiler.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+open class MemberViewsBenchmark {
+
+  private companion object {
+    const val VIEW_READS = 4
+
+    const val ANNOTATION_NAME = "org/jetbrains/annotations/ApiStatus\$Internal"
+  }
+
+  @Param("true", "false")
+  var newClassFile: Boolean = false
+
+  private lateinit var resolver: Resolver
+
+  private lateinit var classNodes: List<ResolutionResult.Found<ClassNode>>
+
+  private lateinit var classFiles: List<ClassFile>
+
+  private var nextClass = 0
+
+  @Setup(Level.Trial)
+  fun setUp() {
+    resolver = BenchmarkJars.createJarResolver(BenchmarkJars.pluginJar)
+    classNodes = resolver.allClasses.sorted().mapNotNull { resolver.resolveClass(it) as? ResolutionResult.Found }
+    classFiles = classNodes.map { ClassFileAsm(it.value, it.fileOrigin) }
+  }
+
+  @TearDown(Level.Trial)
+  fun tearDown() {
+    resolver.close()
+  }
+
+  @Benchmark
+  fun readMembers(blackhole: Blackhole) {
+    val classFile = if (newClassFile) {
+      val found = classNodes[nextClass]
+      ClassFileAsm(found.value, found.fileOrigin)
+    } else {
+      classFiles[nextClass]
+    }
+    nextClass = (nextClass + 1) % classFiles.size
+
+    repeat(VIEW_READS) {
+      blackhole.consume(classFile.location)
+      blackhole.consume(classFile.findAnnotation(ANNOTATION_NAME))
+      for (method in classFile.methods) {
+        blackhole.consume(method.location)
+        blackhole.consume(method.annotations)
+        blackhole.consume(method.findAnnotation(ANNOTATION_NAME))
+        blackhole.consume(method.methodParameters)
+        for (instruction in method.instructions) {
+          blackhole.consume(instruction)
+        }
+      }
+      for (field in classFile.fields) {
+        blackhole.consume(field.location)
+        blackhole.consume(field.findAnnotation(ANNOTATION_NAME))
+      }
+    }
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.benchmarks
+
+import com.jetbrains.plugin.structure.classes.resolvers.CompositeResolver
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import com.jetbrains.pluginverifier.results.instruction.Instruction
+import com.jetbrains.pluginverifier.results.reference.MethodReference
+import com.jetbrains.pluginverifier.verifiers.resolution.ClassFile
+import com.jetbrains.pluginverifier.verifiers.resolution.Method
+import com.jetbrains.pluginverifier.verifiers.resolution.MethodResolver
+import com.jetbrains.pluginverifier.verifiers.resolution.resolveClassOrNull
+import org.objectweb.asm.Opcodes
+import org.objectweb.asm.tree.MethodInsnNode
+import org.openjdk.jmh.annotations.*
+import java.util.concurrent.TimeUnit
+
+/**
+ * Resolution of methods invoked by the plugin classes, as done for every `invoke*` instruction.
+ * Each operation resolves one method reference. With caches, the lookups are shared during an iteration,
+ * like they are shared during verification of one plugin.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+open class MethodResolutionBenchmark {
+
+  private class MethodCall(
+    val ownerClass: ClassFile,
+    val methodReference: MethodReference,
+    val instruction: Instruction,
+    val callerMethod: Method
+  )
+
+  @Param("true", "false")
+  var withCaches: Boolean = false
+
+  private lateinit var resolver: Resolver
+
+  private lateinit var methodCalls: List<MethodCall>
+
+  private lateinit var context: BenchmarkVerificationContext
+
+  private val methodResolver = MethodResolver()
+
+  private var nextCall = 0
+
+  @Setup(Level.Trial)
+  fun setUp() {
+    val pluginResolver = BenchmarkJars.createJarResolver(BenchmarkJars.pluginJar)
+    resolver = CompositeResolver.create(pluginResolver, BenchmarkJars.createPlatformResolver())
+    val calls = arrayListOf<MethodCall>()
+    for (className in pluginResolver.allClasses.sorted()) {
+      val classFile = resolver.resolveClassOrNull(className) ?: continue
+      for (method in classFile.methods) {
+        for (insn in method.instructions) {
+          if (insn !is MethodInsnNode) continue
+          val ownerClass = resolver.resolveClassOrNull(insn.owner) ?: continue
+          val instruction = when (insn.opcode) {
+            Opcodes.INVOKEVIRTUAL -> Instruction.INVOKE_VIRTUAL
+            Opcodes.INVOKEINTERFACE -> Instruction.INVOKE_INTERFACE
+            Opcodes.INVOKESTATIC -> Instruction.INVOKE_STATIC
+            else -> Instruction.INVOKE_SPECIAL
+          }
+          calls += MethodCall(ownerClass, MethodReference(insn.owner, insn.name, insn.desc), instruction, method)
+        }
+      }
+    }
+    methodCalls = calls
+  }
+
+  @TearDown(Level.Trial)
+  fun tearDown() {
+    resolver.close()
+  }
+
+  @Setup(Level.Iteration)
+  fun createContext() {
+    context = BenchmarkVerificationContext(resolver, withCaches)
+  }
+
+  @Benchmark
+  fun resolveMethod(): Method? {
+    val call = methodCalls[nextCall]
+    nextCall = (nextCall + 1) % methodCalls.size
+    return methodResolver.resolveMethod(call.ownerClass, call.methodReference, call.instruction, call.callerMethod, context)
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.benchmarks
+
+import com.jetbrains.plugin.structure.classes.resolvers.CacheResolver
+import com.jetbrains.plugin.structure.classes.resolvers.CompositeResolver
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import com.jetbrains.pluginverifier.verifiers.BytecodeVerifier
+import org.openjdk.jmh.annotations.*
+import java.util.concurrent.TimeUnit
+
+/**
+ * Verification of all classes of the synthetic plugin against the platform, as done for one plugin and one IDE.
+ * Each operation verifies the whole plugin with a new context, so caches of the context start empty.
+ * Platform classes are resolved through a [CacheResolver], like classes of an IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+open class PluginVerificationBenchmark {
+
+  @Param("true", "false")
+  var withCaches: Boolean = false
+
+  @Param("1", "4")
+  var concurrentWorkers: Int = 1
+
+  private lateinit var resolver: Resolver
+
+  private lateinit var classesToCheck: Set<String>
+
+  private lateinit var bytecodeVerifier: BytecodeVerifier
+
+  @Setup(Level.Trial)
+  fun setUp() {
+    val pluginResolver = BenchmarkJars.createJarResolver(BenchmarkJars.pluginJar)
+    resolver = CompositeResolver.create(pluginResolver, CacheResolver(BenchmarkJars.createPlatformResolver()))
+    classesToCheck = pluginResolver.allClasses.toSortedSet()
+    bytecodeVerifier = BytecodeVerifier(concurrentWorkers = concurrentWorkers)
+  }
+
+  @TearDown(Level.Trial)
+  fun tearDown() {
+    resolver.close()
+  }
+
+  @Benchmark
+  fun verifyPlugin(): Int {
+    val context = BenchmarkVerificationContext(resolver, withCaches)
+    bytecodeVerifier.verify(classesToCheck, context) { }
+    return context.problems.size
+  }
+}
@@ -27,6 +27,7 @@ import com.jetbrains.pluginverifier.tasks.checkPlugin.CheckPluginRunner
 import com.jetbrains.pluginverifier.tasks.checkPluginApi.CheckPluginApiRunner
 import com.jetbrains.pluginverifier.tasks.checkSonarPluginApi.CheckSonarPluginApiRunner
 import com.jetbrains.pluginverifier.tasks.checkTrunkApi.CheckTrunkApiRunner
+import com.jetbrains.pluginverifier.tasks.compileSonarPluginApi.CompileSonarPluginApiRunner
 import com.jetbrains.pluginverifier.tasks.processAllPlugins.ProcessAllPluginsCommand
 import com.sampullara.cli.Args
 import org.apache.commons.io.FileUtils
@@ -46,6 +47,7 @@ object PluginVerifierMain {
     CheckSonarPluginApiRunner(),
     CheckTrunkApiRunner(),
     CheckPluginApiRunner(),
+    CompileSonarPluginApiRunner(),
     ProcessAllPluginsCommand()
   )
 
@@ -60,14 +60,21 @@ object OptionsParser {
   }
 
   fun createSonarPluginApiDescriptor(ide: String, opts: CmdOpts): SonarPluginApiDescriptor {
+    val sonarPluginApiFile = getSonarPluginApiFile(ide)
+    LOG.info("Reading sonar-plugin-api from $sonarPluginApiFile")
+    return createSonarPluginApiDescriptor(sonarPluginApiFile, opts)
+  }
+
+  /**
+   * Returns the sonar-plugin-api file [ide], or downloads the sonar-plugin-api jar of version [ide] if there is no such file.
+   */
+  fun getSonarPluginApiFile(ide: String): Path {
     val path = Paths.get(ide)
-    val sonarPluginApiFile = if (!Files.exists(path)) {
+    return if (!Files.exists(path)) {
       downloadSonarPluginApiJar(ide)
     } else {
       path
     }
-    LOG.info("Reading sonar-plugin-api from $sonarPluginApiFile")
-    return createSonarPluginApiDescriptor(sonarPluginApiFile, opts)
   }
 
   fun createSonarPluginApiDescriptor(sonarPluginApiFilePath: Path, opts: CmdOpts): SonarPluginApiDescriptor {
@@ -0,0 +1,21 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.tasks.compileSonarPluginApi
+
+import com.jetbrains.pluginverifier.tasks.TaskParameters
+import java.nio.file.Path
+
+class CompileSonarPluginApiParams(
+  val sonarPluginApiJar: Path,
+  val snapshotFile: Path
+) : TaskParameters {
+
+  override val presentableText
+    get() = "Compile $sonarPluginApiJar into snapshot $snapshotFile"
+
+  override fun createTask() = CompileSonarPluginApiTask(this)
+
+  override fun close() = Unit
+}
@@ -0,0 +1,24 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.tasks.compileSonarPluginApi
+
+import com.jetbrains.pluginverifier.options.CmdOpts
+import com.jetbrains.pluginverifier.options.OptionsParser
+import com.jetbrains.pluginverifier.tasks.TaskParametersBuilder
+import java.nio.file.Paths
+
+class CompileSonarPluginApiParamsBuilder : TaskParametersBuilder {
+
+  override fun build(opts: CmdOpts, freeArgs: List<String>): CompileSonarPluginApiParams {
+    require(freeArgs.size == 2) { "You have to specify the plugin-api to compile and the snapshot file. Usage:\n" +
+        "   \"java -jar verifier.jar compile-sonar-plugin-api ~/plugin-api/build/libs/sonar-plugin-api-9.15-SNAPSHOT.jar sonar-plugin-api-9.15.snapshot\"\n" +
+        "   \"java -jar verifier.jar compile-sonar-plugin-api 9.14.0.375 sonar-plugin-api-9.14.snapshot\"\n" +
+        "\n" +
+        "The snapshot can then be passed to check-sonar-plugin-api and check-trunk-api instead of the jar"
+    }
+    val sonarPluginApiJar = OptionsParser.getSonarPluginApiFile(freeArgs[0])
+    return CompileSonarPluginApiParams(sonarPluginApiJar, Paths.get(freeArgs[1]))
+  }
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.tasks.compileSonarPluginApi
+
+import com.jetbrains.pluginverifier.plugin.PluginDetailsCache
+import com.jetbrains.pluginverifier.reporting.PluginVerificationReportage
+import com.jetbrains.pluginverifier.repository.PluginRepository
+import com.jetbrains.pluginverifier.tasks.CommandRunner
+
+/**
+ * `compile-sonar-plugin-api` command compiles a sonar-plugin-api jar into a snapshot,
+ * which can be passed to other commands instead of the jar and is opened without reading the jar.
+ *
+ * ```java -jar verifier.jar compile-sonar-plugin-api <sonar-plugin-api jar or version> <snapshot file>```
+ */
+class CompileSonarPluginApiRunner : CommandRunner {
+  override val commandName: String = "compile-sonar-plugin-api"
+
+  override fun getParametersBuilder(
+    pluginRepository: PluginRepository,
+    pluginDetailsCache: PluginDetailsCache,
+    reportage: PluginVerificationReportage
+  ) = CompileSonarPluginApiParamsBuilder()
+
+}
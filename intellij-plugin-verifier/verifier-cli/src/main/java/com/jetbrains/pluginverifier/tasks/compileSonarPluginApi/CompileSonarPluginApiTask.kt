@@ -0,0 +1,43 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.tasks.compileSonarPluginApi
+
+import com.jetbrains.plugin.structure.base.utils.formatDuration
+import com.jetbrains.plugin.structure.classes.resolvers.ClassesSnapshot
+import com.jetbrains.pluginverifier.output.OutputOptions
+import com.jetbrains.pluginverifier.plugin.PluginDetailsCache
+import com.jetbrains.pluginverifier.reporting.PluginVerificationReportage
+import com.jetbrains.pluginverifier.repository.PluginRepository
+import com.jetbrains.pluginverifier.tasks.Task
+import com.jetbrains.pluginverifier.tasks.TaskResult
+import com.jetbrains.pluginverifier.tasks.TaskResultPrinter
+import java.nio.file.Files
+import java.nio.file.Path
+import java.time.Duration
+
+class CompileSonarPluginApiTask(private val params: CompileSonarPluginApiParams) : Task {
+
+  override fun execute(reportage: PluginVerificationReportage, pluginDetailsCache: PluginDetailsCache): TaskResult {
+    reportage.logVerificationStage("Compiling ${params.sonarPluginApiJar} into ${params.snapshotFile}")
+    val start = System.nanoTime()
+    ClassesSnapshot.compile(params.sonarPluginApiJar, params.snapshotFile)
+    val duration = Duration.ofNanos(System.nanoTime() - start)
+    return CompileSonarPluginApiResult(params.snapshotFile, Files.size(params.snapshotFile), duration)
+  }
+}
+
+class CompileSonarPluginApiResult(
+  private val snapshotFile: Path,
+  private val snapshotSize: Long,
+  private val duration: Duration
+) : TaskResult {
+
+  override fun createTaskResultsPrinter(pluginRepository: PluginRepository): TaskResultPrinter =
+    object : TaskResultPrinter {
+      override fun printResults(taskResult: TaskResult, outputOptions: OutputOptions) {
+        println("Snapshot of $snapshotSize bytes has been saved to $snapshotFile in ${duration.formatDuration()}")
+      }
+    }
+}
@@ -2,12 +2,13 @@ package com.jetbrains.pluginverifier.tasks.processAllPlugins
 
 import com.fasterxml.jackson.module.kotlin.jacksonObjectMapper
 import com.jetbrains.plugin.structure.base.plugin.PluginProblem
-import com.jetbrains.plugin.structure.base.utils.ExecutorWithProgress
 import com.jetbrains.plugin.structure.intellij.plugin.IdePluginContentDescriptor
-import com.jetbrains.pluginverifier.getConcurrencyLevel
+import com.jetbrains.pluginverifier.PluginProcessingPipeline
+import com.jetbrains.pluginverifier.VERIFICATION_MEMORY_ESTIMATE
 import com.jetbrains.pluginverifier.output.OutputOptions
 import com.jetbrains.pluginverifier.plugin.PluginDetailsCache
 import com.jetbrains.pluginverifier.reporting.PluginVerificationReportage
+import com.jetbrains.pluginverifier.repository.PluginInfo
 import com.jetbrains.pluginverifier.repository.PluginRepository
 import com.jetbrains.pluginverifier.tasks.Task
 import com.jetbrains.pluginverifier.tasks.TaskResult
@@ -35,26 +36,11 @@ class CountUsagesOfExtensionPointsTask(private val params: CountUsagesOfExtensio
     }
 
     val extensionPointUsages = ConcurrentHashMap(ideAndPluginsExtensionPoints.map { it.extensionPointName }.associateWith { 0 })
-    val tasks = params.compatiblePluginsList.map { plugin ->
-      ExecutorWithProgress.Task("$plugin") {
-        pluginDetailsCache.getPluginDetailsCacheEntry(plugin).use { cacheResult ->
-          when (cacheResult) {
-            is PluginDetailsCache.Result.Provided -> {
-              for ((extensionPointName, elements) in cacheResult.pluginDetails.idePlugin.extensions) {
-                extensionPointUsages.compute(extensionPointName) { _, count ->
-                  if (count == null) null /* Count only IDE extension points */ else count + elements.size
-                }
-              }
-              ProcessingOutcome.Success
-            }
-            is PluginDetailsCache.Result.Failed -> ProcessingOutcome.Failed(cacheResult.reason)
-            is PluginDetailsCache.Result.FileNotFound -> ProcessingOutcome.Failed(cacheResult.reason)
-            is PluginDetailsCache.Result.InvalidPlugin -> ProcessingOutcome.Failed("Invalid plugin: " + cacheResult.pluginErrors.filter { it.level == PluginProblem.Level.ERROR }.joinToString { it.message })
-          }
-        }
-      }
-    }
-    val executor = ExecutorWithProgress<ProcessingOutcome>("processAllPlugins [countUsagesOfExtensionPoints]", getConcurrencyLevel(), false) { progressData ->
+    val pipeline = PluginProcessingPipeline<PluginInfo, ProcessingOutcome>(
+      "processAllPlugins [countUsagesOfExtensionPoints]",
+      false,
+      memoryPerItem = VERIFICATION_MEMORY_ESTIMATE
+    ) { progressData ->
       val message = buildString {
         append("Finished #${progressData.finishedNumber} of ${progressData.totalNumber}: ")
         if (progressData.exception != null) {
@@ -65,11 +51,30 @@ class CountUsagesOfExtensionPointsTask(private val params: CountUsagesOfExtensio
             is ProcessingOutcome.Failed -> append("[bad plugin] [${result.reason}]")
           }
         }
-        append(progressData.task.presentableName)
+        append(progressData.item)
       }
       reportage.logVerificationStage(message)
     }
-    executor.executeTasks(tasks)
+    pipeline.execute(
+      params.compatiblePluginsList,
+      { plugin -> pluginDetailsCache.prefetchPluginFile(plugin) },
+      { plugin, prefetchResult -> pluginDetailsCache.getPluginDetailsCacheEntry(plugin, prefetchResult) },
+      { _, cacheResult ->
+        when (cacheResult) {
+          is PluginDetailsCache.Result.Provided -> {
+            for ((extensionPointName, elements) in cacheResult.pluginDetails.idePlugin.extensions) {
+              extensionPointUsages.compute(extensionPointName) { _, count ->
+                if (count == null) null /* Count only IDE extension points */ else count + elements.size
+              }
+            }
+            ProcessingOutcome.Success
+          }
+          is PluginDetailsCache.Result.Failed -> ProcessingOutcome.Failed(cacheResult.reason)
+          is PluginDetailsCache.Result.FileNotFound -> ProcessingOutcome.Failed(cacheResult.reason)
+          is PluginDetailsCache.Result.InvalidPlugin -> ProcessingOutcome.Failed("Invalid plugin: " + cacheResult.pluginErrors.filter { it.level == PluginProblem.Level.ERROR }.joinToString { it.message })
+        }
+      }
+    )
     return CountUsagesOfExtensionPointsTaskResult(extensionPointUsages, params.outputJson)
   }
 }
@@ -7,7 +7,6 @@ package com.jetbrains.pluginverifier.results.location
 import com.jetbrains.plugin.structure.classes.resolvers.FileOrigin
 import com.jetbrains.pluginverifier.results.modifiers.Modifiers
 import com.jetbrains.pluginverifier.results.presentation.*
-import java.util.*
 
 sealed class Location {
   abstract val presentableLocation: String
@@ -29,7 +28,7 @@ data class ClassLocation(
   val packageName
     get() = className.substringBeforeLast('/', "")
 
-  override fun equals(other: Any?) = other is ClassLocation && className == other.className
+  override fun equals(other: Any?) = this === other || other is ClassLocation && className == other.className
 
   override fun hashCode() = className.hashCode()
 
@@ -58,12 +57,15 @@ data class FieldLocation(
   val modifiers: Modifiers
 ) : Location() {
 
-  override fun equals(other: Any?) = other is FieldLocation
+  private val hash = 31 * (31 * hostClass.hashCode() + fieldName.hashCode()) + fieldDescriptor.hashCode()
+
+  override fun equals(other: Any?) = this === other || other is FieldLocation
+    && hash == other.hash
     && hostClass == other.hostClass
     && fieldName == other.fieldName
     && fieldDescriptor == other.fieldDescriptor
 
-  override fun hashCode() = Objects.hash(hostClass, fieldName, fieldDescriptor)
+  override fun hashCode() = hash
 
   override val presentableLocation
     get() = formatFieldLocation(HostClassOption.FULL_HOST_WITH_SIGNATURE, FieldTypeOption.SIMPLE_TYPE)
@@ -84,12 +86,15 @@ data class MethodLocation(
   val modifiers: Modifiers
 ) : Location() {
 
-  override fun equals(other: Any?) = other is MethodLocation
+  private val hash = 31 * (31 * hostClass.hashCode() + methodName.hashCode()) + methodDescriptor.hashCode()
+
+  override fun equals(other: Any?) = this === other || other is MethodLocation
+    && hash == other.hash
     && hostClass == other.hostClass
     && methodName == other.methodName
     && methodDescriptor == other.methodDescriptor
 
-  override fun hashCode() = Objects.hash(hostClass, methodName, methodDescriptor)
+  override fun hashCode() = hash
 
   override val presentableLocation
     get() = formatMethodLocation(HostClassOption.FULL_HOST_WITH_SIGNATURE, MethodParameterTypeOption.SIMPLE_PARAM_CLASS_NAME, MethodReturnTypeOption.SIMPLE_RETURN_TYPE_CLASS_NAME, MethodParameterNameOption.WITH_PARAM_NAMES_IF_AVAILABLE)
@@ -5,8 +5,7 @@
 package com.jetbrains.pluginverifier.results.presentation
 
 import com.jetbrains.pluginverifier.results.signatures.FormatOptions
-import com.jetbrains.pluginverifier.results.signatures.SigVisitor
-import org.objectweb.asm.signature.SignatureReader
+import com.jetbrains.pluginverifier.results.signatures.SignatureCache
 
 object JvmDescriptorsPresentation {
 
@@ -60,34 +59,23 @@ object JvmDescriptorsPresentation {
    */
   fun convertMethodSignature(signature: String, binaryNameConverter: String.() -> String): Pair<List<String>, String> {
     require(signature.isNotEmpty()) { "Empty signature is not expected here" }
-    val visitor = runSignatureVisitor(signature)
-    val methodSignature = visitor.getMethodSignature()
+    val methodSignature = SignatureCache.getMethodSignature(signature)
     val formatOptions = FormatOptions(internalNameConverter = binaryNameConverter)
     val returnType = methodSignature.result.format(formatOptions)
     val parameters = methodSignature.parameterSignatures.map { it.format(formatOptions) }
     return parameters to returnType
   }
 
-  private fun runSignatureVisitor(signature: String): SigVisitor {
-    require(signature.isNotEmpty())
-    val visitor = SigVisitor()
-    SignatureReader(signature).accept(visitor)
-    return visitor
-  }
-
   fun convertClassSignature(signature: String, binaryNameConverter: String.() -> String): String {
     require(signature.isNotEmpty()) { "Empty signature is not expected here" }
-    val visitor = runSignatureVisitor(signature)
-    val classSignature = visitor.getClassSignature()
+    val classSignature = SignatureCache.getClassSignature(signature)
     val formatOptions = FormatOptions(internalNameConverter = binaryNameConverter)
     return classSignature.format(formatOptions)
   }
 
   fun convertTypeSignature(typeSignature: String, binaryNameConverter: String.() -> String): String {
     require(typeSignature.isNotEmpty()) { "Empty signature is not expected here" }
-    val visitor = SigVisitor()
-    SignatureReader(typeSignature).acceptType(visitor)
-    val fieldSignature = visitor.getFieldSignature()
+    val fieldSignature = SignatureCache.getFieldSignature(typeSignature)
     val formatOptions = FormatOptions(internalNameConverter = binaryNameConverter)
     return fieldSignature.format(formatOptions)
   }
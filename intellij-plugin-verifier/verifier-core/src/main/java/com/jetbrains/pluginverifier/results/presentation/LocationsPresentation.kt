@@ -50,17 +50,25 @@ val toFullJavaClassName: (String) -> String = { binaryName -> binaryName.replace
  */
 val toSimpleJavaClassName: (String) -> String = { binaryName -> binaryName.substringAfterLast("/").convertSimpleClassName() }
 
+/**
+ * Generic signatures are read from the verified class files and may be malformed.
+ * Such locations are presented without generics, as if they had no signature.
+ */
+private inline fun <T> formatSignatureOrNull(format: () -> T): T? =
+  try {
+    format()
+  } catch (e: IllegalArgumentException) {
+    null
+  }
+
 private fun FieldLocation.toFieldType(fieldTypeOption: FieldTypeOption): String {
   val descriptorConverter = when (fieldTypeOption) {
     FieldTypeOption.NO_TYPE -> return ""
     FieldTypeOption.SIMPLE_TYPE -> toSimpleJavaClassName
     FieldTypeOption.FULL_TYPE -> toFullJavaClassName
   }
-  return if (signature != null) {
-    convertTypeSignature(signature, descriptorConverter)
-  } else {
-    convertJvmDescriptorToNormalPresentation(fieldDescriptor, descriptorConverter)
-  }
+  return signature?.let { formatSignatureOrNull { convertTypeSignature(it, descriptorConverter) } }
+    ?: convertJvmDescriptorToNormalPresentation(fieldDescriptor, descriptorConverter)
 }
 
 fun ClassLocation.formatClassLocation(
@@ -71,14 +79,11 @@ fun ClassLocation.formatClassLocation(
     ClassOption.SIMPLE_NAME -> toSimpleJavaClassName
     ClassOption.FULL_NAME -> toFullJavaClassName
   }
-  return if (signature != null) {
-    when (classTypeSignatureOption) {
-      ClassGenericsSignatureOption.NO_GENERICS -> converter(className)
-      ClassGenericsSignatureOption.WITH_GENERICS -> converter(className) + JvmDescriptorsPresentation.convertClassSignature(signature, toSimpleJavaClassName)
-    }
-  } else {
-    converter(className)
+  val formattedSignature = when (classTypeSignatureOption) {
+    ClassGenericsSignatureOption.NO_GENERICS -> null
+    ClassGenericsSignatureOption.WITH_GENERICS -> signature?.let { formatSignatureOrNull { JvmDescriptorsPresentation.convertClassSignature(it, toSimpleJavaClassName) } }
   }
+  return converter(className) + formattedSignature.orEmpty()
 }
 
 private fun ClassLocation.formatHostClass(hostClassOption: HostClassOption): String = when (hostClassOption) {
@@ -140,12 +145,11 @@ private fun MethodLocation.methodParametersWithNamesAndReturnType(
     MethodReturnTypeOption.FULL_RETURN_TYPE_CLASS_NAME -> toFullJavaClassName
     MethodReturnTypeOption.NO_RETURN_TYPE -> toSimpleJavaClassName
   }
-  val (parametersTypes, returnType) = if (signature != null) {
-    JvmDescriptorsPresentation.convertMethodSignature(signature, paramsConverter)
-  } else {
-    val (paramsTs, returnT) = splitMethodDescriptorOnRawParametersAndReturnTypes(methodDescriptor)
-    (paramsTs.map { convertJvmDescriptorToNormalPresentation(it, paramsConverter) }) to (convertJvmDescriptorToNormalPresentation(returnT, returnConverter))
-  }
+  val (parametersTypes, returnType) = signature?.let { formatSignatureOrNull { JvmDescriptorsPresentation.convertMethodSignature(it, paramsConverter) } }
+    ?: run {
+      val (paramsTs, returnT) = splitMethodDescriptorOnRawParametersAndReturnTypes(methodDescriptor)
+      (paramsTs.map { convertJvmDescriptorToNormalPresentation(it, paramsConverter) }) to (convertJvmDescriptorToNormalPresentation(returnT, returnConverter))
+    }
   return when (methodParameterNameOption) {
     MethodParameterNameOption.NO_PARAMETER_NAMES -> parametersTypes to returnType
     MethodParameterNameOption.WITH_PARAM_NAMES_IF_AVAILABLE -> zipWithNamesIfPossible(parametersTypes) to returnType
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.results.signatures
+
+/**
+ * Cache of parsed generic signatures of presented locations.
+ *
+ * A signature of a platform class or method is presented for every problem and usage referring to it,
+ * so it is parsed by [SignatureParser] once and kept among [MAXIMUM_SIZE] recently used signatures of its kind.
+ * Parsed signatures are immutable and may be shared between threads.
+ */
+object SignatureCache {
+
+  private const val MAXIMUM_SIZE = 4096
+
+  private val classSignatures = ParsedSignatures(SignatureParser::parseClassSignature)
+
+  private val methodSignatures = ParsedSignatures(SignatureParser::parseMethodSignature)
+
+  private val fieldSignatures = ParsedSignatures(SignatureParser::parseFieldSignature)
+
+  fun getClassSignature(signature: String): ClassSignature = classSignatures[signature]
+
+  fun getMethodSignature(signature: String): MethodSignature = methodSignatures[signature]
+
+  fun getFieldSignature(signature: String): FieldSignature = fieldSignatures[signature]
+
+  /**
+   * Least recently used signatures of one kind.
+   * Signatures are parsed outside the lock, so a signature may be parsed by several threads at once.
+   */
+  private class ParsedSignatures<T : Any>(private val parse: (String) -> T) {
+    private val signatures = object : LinkedHashMap<String, T>(16, 0.75f, true) {
+      override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, T>) = size > MAXIMUM_SIZE
+    }
+
+    operator fun get(signature: String): T {
+      val cached = synchronized(this) { signatures[signature] }
+      if (cached != null) {
+        return cached
+      }
+      val parsed = parse(signature)
+      synchronized(this) {
+        signatures[signature] = parsed
+      }
+      return parsed
+    }
+  }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.results.signatures
+
+/**
+ * Parser of JVM generic signatures into [FormattableSignature] nodes.
+ *
+ * Reads the signature in a single pass, without intermediate visitors,
+ * and throws [IllegalArgumentException] if the signature is invalid.
+ * Parsed signatures of presented locations are cached by [SignatureCache].
+ */
+object SignatureParser {
+
+  fun parseClassSignature(signature: String): ClassSignature =
+    with(SignatureCursor(signature)) {
+      val typeParameters = readTypeParameters()
+      val superclassSignature = readClassTypeSignature()
+      val superinterfaceSignatures = readList({ peek() == 'L' }) { readClassTypeSignature() }
+      readEnd()
+      ClassSignature(typeParameters, superclassSignature, superinterfaceSignatures)
+    }
+
+  fun parseMethodSignature(signature: String): MethodSignature =
+    with(SignatureCursor(signature)) {
+      val typeParameters = readTypeParameters()
+      read('(')
+      val parameterSignatures = readList({ peek() != ')' }) { readJavaTypeSignature() }
+      read(')')
+      val result = if (peek() == 'V') {
+        read('V')
+        Result.VoidDescriptor
+      } else {
+        Result.JavaType(readJavaTypeSignature())
+      }
+      val throwsSignatures = readList({ peek() == '^' }) {
+        read('^')
+        if (peek() == 'T') {
+          ThrowsSignature.TypeVar(readTypeVariableSignature())
+        } else {
+          ThrowsSignature.ClassType(readClassTypeSignature())
+        }
+      }
+      readEnd()
+      MethodSignature(typeParameters, parameterSignatures, result, throwsSignatures)
+    }
+
+  fun parseFieldSignature(signature: String): FieldSignature =
+    with(SignatureCursor(signature)) {
+      val referenceTypeSignature = readReferenceTypeSignature()
+      readEnd()
+      FieldSignature(referenceTypeSignature)
+    }
+}
+
+private const val END = '\u0000'
+
+private class SignatureCursor(private val signature: String) {
+
+  private var position = 0
+
+  fun peek(): Char = if (position < signature.length) signature[position] else END
+
+  fun read(char: Char) {
+    if (peek() != char) {
+      fail("'$char' is expected")
+    }
+    position++
+  }
+
+  fun readEnd() {
+    if (position != signature.length) {
+      fail("end of signature is expected")
+    }
+  }
+
+  /**
+   * Reads elements while [hasNext] returns `true`. No list is allocated if there are no elements.
+   */
+  inline fun <T> readList(hasNext: () -> Boolean, readNext: () -> T): List<T> {
+    if (!hasNext()) {
+      return emptyList()
+    }
+    val elements = arrayListOf<T>()
+    do {
+      elements += readNext()
+    } while (hasNext())
+    return elements
+  }
+
+  private fun fail(message: String): Nothing =
+    throw IllegalArgumentException("Invalid signature at position $position, $message: $signature")
+
+  /**
+   * Reads an identifier, or a fully qualified class name with `/` separators if [isClassName] is `true`.
+   */
+  private fun readIdentifier(isClassName: Boolean): Identifier {
+    val start = position
+    while (position < signature.length) {
+      val char = signature[position]
+      if (char == '.' || char == ';' || char == '<' || char == '>' || char == ':' || (char == '/' && !isClassName)) {
+        break
+      }
+      position++
+    }
+    if (position == start) {
+      fail("identifier is expected")
+    }
+    return signature.substring(start, position)
+  }
+
+  fun readTypeParameters(): TypeParameters? {
+    if (peek() != '<') {
+      return null
+    }
+    read('<')
+    if (peek() == '>') {
+      fail("type parameter is expected")
+    }
+    val typeParameters = readList({ peek() != '>' }) { readTypeParameter() }
+    read('>')
+    return TypeParameters(typeParameters)
+  }
+
+  private fun readTypeParameter(): TypeParameter {
+    val identifier = readIdentifier(false)
+    read(':')
+    val classBound = when (peek()) {
+      'L', 'T', '[' -> readReferenceTypeSignature()
+      else -> null
+    }
+    val interfaceBounds = readList({ peek() == ':' }) {
+      read(':')
+      readReferenceTypeSignature()
+    }
+    return TypeParameter(identifier, classBound, interfaceBounds)
+  }
+
+  fun readJavaTypeSignature(): JavaTypeSignature = readBaseType() ?: readReferenceTypeSignature()
+
+  private fun readBaseType(): BaseType? {
+    val baseType = when (peek()) {
+      'B' -> BaseType.B
+      'J' -> BaseType.J
+      'Z' -> BaseType.Z
+      'I' -> BaseType.I
+      'S' -> BaseType.S
+      'C' -> BaseType.C
+      'F' -> BaseType.F
+      'D' -> BaseType.D
+      else -> return null
+    }
+    position++
+    return baseType
+  }
+
+  fun readReferenceTypeSignature(): ReferenceTypeSignature =
+    when (peek()) {
+      'L' -> readClassTypeSignature()
+      'T' -> readTypeVariableSignature()
+      '[' -> readArrayTypeSignature()
+      else -> fail("reference type is expected")
+    }
+
+  private fun readArrayTypeSignature(): ArrayTypeSignature {
+    var dimensions = 0
+    while (peek() == '[') {
+      read('[')
+      dimensions++
+    }
+    val elementTypeSignature = readBaseType() ?: when (peek()) {
+      'L' -> readClassTypeSignature()
+      'T' -> readTypeVariableSignature()
+      else -> fail("array element type is expected")
+    }
+    return ArrayTypeSignature(elementTypeSignature, dimensions)
+  }
+
+  fun readTypeVariableSignature(): TypeVariableSignature {
+    read('T')
+    val identifier = readIdentifier(false)
+    read(';')
+    return TypeVariableSignature(identifier)
+  }
+
+  fun readClassTypeSignature(): ClassTypeSignature {
+    read('L')
+    val topClassTypeSignature = readSimpleClassTypeSignature(true)
+    val innerClassTypeSignatures = readList({ peek() == '.' }) {
+      read('.')
+      readSimpleClassTypeSignature(false)
+    }
+    read(';')
+    return ClassTypeSignature(topClassTypeSignature, innerClassTypeSignatures)
+  }
+
+  private fun readSimpleClassTypeSignature(isTopClass: Boolean): SimpleClassTypeSignature {
+    val identifier = readIdentifier(isTopClass)
+    return SimpleClassTypeSignature(identifier, readTypeArguments())
+  }
+
+  private fun readTypeArguments(): TypeArguments? {
+    if (peek() != '<') {
+      return null
+    }
+    read('<')
+    if (peek() == '>') {
+      fail("type argument is expected")
+    }
+    val typeArguments = readList({ peek() != '>' }) { readTypeArgument() }
+    read('>')
+    return TypeArguments(typeArguments)
+  }
+
+  private fun readTypeArgument(): TypeArgument =
+    when (peek()) {
+      '*' -> {
+        read('*')
+        TypeArgument.Any
+      }
+      '+' -> {
+        read('+')
+        TypeArgument.RefType(WildcardIndicator.PLUS, readReferenceTypeSignature())
+      }
+      '-' -> {
+        read('-')
+        TypeArgument.RefType(WildcardIndicator.MINUS, readReferenceTypeSignature())
+      }
+      else -> TypeArgument.RefType(null, readReferenceTypeSignature())
+    }
+}
@@ -4,24 +4,52 @@
 
 package com.jetbrains.pluginverifier.verifiers
 
+import com.jetbrains.plugin.structure.base.utils.ExecutorWithProgress
 import com.jetbrains.plugin.structure.base.utils.checkIfInterrupted
+import com.jetbrains.plugin.structure.classes.resolvers.InvalidClassCodeException
+import com.jetbrains.pluginverifier.results.problems.InvalidClassFileProblem
+import com.jetbrains.pluginverifier.results.reference.ClassReference
 import com.jetbrains.pluginverifier.verifiers.clazz.*
 import com.jetbrains.pluginverifier.verifiers.field.FieldTypeVerifier
 import com.jetbrains.pluginverifier.verifiers.field.FieldVerifier
 import com.jetbrains.pluginverifier.verifiers.filter.ClassFilter
+import com.jetbrains.pluginverifier.verifiers.incremental.ClassFingerprints
+import com.jetbrains.pluginverifier.verifiers.incremental.VerifiedClasses
 import com.jetbrains.pluginverifier.verifiers.instruction.*
 import com.jetbrains.pluginverifier.verifiers.method.*
 import com.jetbrains.pluginverifier.verifiers.resolution.ClassFile
 import com.jetbrains.pluginverifier.verifiers.resolution.resolveClassOrNull
+import org.objectweb.asm.tree.AbstractInsnNode
 
+/**
+ * Runs class, method, field and instruction verifiers against classes of a plugin.
+ *
+ * If [concurrentWorkers] is greater than 1, classes are split into chunks that are verified in parallel.
+ * In that case, the registrars of the [VerificationContext] and the additional verifiers must be thread-safe.
+ * Since registrars collect problems into sets, the result does not depend on the order in which classes are verified.
+ *
+ * If [verifiedClasses] are specified, classes that were clean in the previous verification and did not change since
+ * are skipped. To find clean classes, the [VerificationContext.findingsOnCurrentThread] must be counted by the context.
+ */
 class BytecodeVerifier(
   private val verificationFilters: List<ClassFilter> = emptyList(),
   additionalClassVerifiers: List<ClassVerifier> = emptyList(),
   additionalMethodVerifiers: List<MethodVerifier> = emptyList(),
   additionalFieldVerifiers: List<FieldVerifier> = emptyList(),
-  additionalInstructionVerifiers: List<InstructionVerifier> = emptyList()
+  additionalInstructionVerifiers: List<InstructionVerifier> = emptyList(),
+  private val concurrentWorkers: Int = 1,
+  private val verifiedClasses: VerifiedClasses? = null
 ) {
 
+  private companion object {
+    const val CLASSES_PER_TASK = 64
+
+    /**
+     * Number of instruction types, see [AbstractInsnNode.getType].
+     */
+    const val INSTRUCTION_TYPES = AbstractInsnNode.LINE + 1
+  }
+
   private val fieldVerifiers = listOf<FieldVerifier>(FieldTypeVerifier()) + additionalFieldVerifiers
 
   private val classVerifiers = listOf(
@@ -47,43 +75,96 @@ class BytecodeVerifier(
     MultiANewArrayInstructionVerifier()
   ) + additionalInstructionVerifiers
 
+  /**
+   * Instruction verifiers by the type of instructions they are interested in, so that the instructions of a method
+   * are walked once and each instruction is passed only to the verifiers interested in it.
+   * Labels, line numbers and frames, which make up a large part of instructions, usually go to none of them.
+   */
+  private val instructionVerifiersByType: Array<Array<InstructionVerifier>> = Array(INSTRUCTION_TYPES) { type ->
+    instructionVerifiers.filter { it.instructionTypes?.contains(type) ?: true }.toTypedArray()
+  }
+
+  private val allInstructionVerifiers = instructionVerifiers.toTypedArray()
+
   @Throws(InterruptedException::class)
   fun verify(
     classesToCheck: Set<String>,
     context: VerificationContext,
     progressIndicator: (Double) -> Unit
   ) {
-    if (classesToCheck.isNotEmpty()) {
+    val fingerprints = verifiedClasses?.let { ClassFingerprints(context.classResolver) }
+    if (concurrentWorkers > 1 && classesToCheck.size > CLASSES_PER_TASK) {
+      verifyConcurrently(classesToCheck, context, fingerprints, progressIndicator)
+    } else if (classesToCheck.isNotEmpty()) {
       for ((totalVerifiedClasses, className) in classesToCheck.withIndex()) {
         checkIfInterrupted()
-        verifyClass(className, context)
+        verifyClass(className, context, fingerprints)
         progressIndicator((totalVerifiedClasses + 1).toDouble() / classesToCheck.size)
       }
     }
   }
 
-  private fun verifyClass(className: String, context: VerificationContext) {
+  @Throws(InterruptedException::class)
+  private fun verifyConcurrently(
+    classesToCheck: Set<String>,
+    context: VerificationContext,
+    fingerprints: ClassFingerprints?,
+    progressIndicator: (Double) -> Unit
+  ) {
+    val tasks = classesToCheck.chunked(CLASSES_PER_TASK).map { chunk ->
+      ExecutorWithProgress.Task("${chunk.size} classes starting with ${chunk.first()}") {
+        for (className in chunk) {
+          checkIfInterrupted()
+          verifyClass(className, context, fingerprints)
+        }
+      }
+    }
+    ExecutorWithProgress<Unit>("bytecode-verifier", concurrentWorkers, true) { progressData ->
+      progressIndicator(progressData.finishedNumber.toDouble() / progressData.totalNumber)
+    }.use { executor ->
+      executor.executeTasks(tasks)
+    }
+  }
+
+  private fun verifyClass(className: String, context: VerificationContext, fingerprints: ClassFingerprints?) {
     val classFile = context.classResolver.resolveClassOrNull(className)
-    if (classFile != null && shouldVerify(classFile)) {
-      verifyClassFile(classFile, context)
+    if (classFile == null || !shouldVerify(classFile)) {
+      return
+    }
+    val fingerprint = fingerprints?.getFingerprint(className)
+    if (fingerprint == null || verifiedClasses == null) {
+      runVerifiers(classFile, context)
+      return
+    }
+    if (verifiedClasses.skipIfUnchanged(fingerprint)) {
+      return
+    }
+    val findingsBefore = context.findingsOnCurrentThread
+    runVerifiers(classFile, context)
+    if (findingsBefore != null && findingsBefore == context.findingsOnCurrentThread) {
+      verifiedClasses.markClean(fingerprint)
     }
   }
 
   private fun shouldVerify(classFile: ClassFile) = verificationFilters.all { it.shouldVerify(classFile) }
 
-  private fun verifyClassFile(classFile: ClassFile, context: VerificationContext) {
+  private fun runVerifiers(classFile: ClassFile, context: VerificationContext) {
     for (verifier in classVerifiers) {
       verifier.verify(classFile, context)
     }
 
-    for (method in classFile.methods) {
-      for (verifier in methodVerifiers) {
-        verifier.verify(method, context)
-      }
+    if (loadCode(classFile, context)) {
+      for (method in classFile.methods) {
+        for (verifier in methodVerifiers) {
+          verifier.verify(method, context)
+        }
 
-      method.instructions.forEach { instruction ->
-        for (verifier in instructionVerifiers) {
-          verifier.verify(method, instruction, context)
+        for (instruction in method.instructions) {
+          val type = instruction.type
+          val verifiers = if (type in 0 until INSTRUCTION_TYPES) instructionVerifiersByType[type] else allInstructionVerifiers
+          for (verifier in verifiers) {
+            verifier.verify(method, instruction, context)
+          }
         }
       }
     }
@@ -95,4 +176,21 @@ class BytecodeVerifier(
     }
   }
 
+  /**
+   * Loads the code of the methods of [classFile], or reports the class as invalid and returns `false` if the code cannot be read.
+   * Code of classes resolved in the [com.jetbrains.plugin.structure.classes.resolvers.Resolver.ReadMode.FULL_LAZY_CODE] mode
+   * is read on the first request, see [com.jetbrains.pluginverifier.verifiers.resolution.MethodAsm.asmNode].
+   * The verifiers read code only of the verified class, never of the classes it refers to.
+   */
+  private fun loadCode(classFile: ClassFile, context: VerificationContext): Boolean =
+    try {
+      classFile.methods.forEach { it.instructions }
+      true
+    } catch (e: InvalidClassCodeException) {
+      context.problemRegistrar.registerProblem(
+        InvalidClassFileProblem(ClassReference(e.className), classFile.location, e.message)
+      )
+      false
+    }
+
 }
\ No newline at end of file
@@ -5,6 +5,7 @@
 package com.jetbrains.pluginverifier.verifiers
 
 import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import com.jetbrains.pluginverifier.verifiers.hierarchy.ClassHierarchyCache
 import com.jetbrains.pluginverifier.verifiers.resolution.ClassFile
 import com.jetbrains.pluginverifier.verifiers.resolution.resolveClassOrNull
 import java.util.*
@@ -52,4 +53,21 @@ fun Resolver.isSubclassOf(child: ClassFile, parentName: String): Boolean {
   }
 
   return false
-}
\ No newline at end of file
+}
+
+/**
+ * Same as [Resolver.isSubclassOf] for [VerificationContext.classResolver],
+ * but answered from the [ClassHierarchyCache] of the context, if it has one.
+ */
+fun VerificationContext.isSubclassOf(child: ClassFile, parentName: String): Boolean =
+  classHierarchyCache?.isSubclassOf(child, parentName) ?: classResolver.isSubclassOf(child, parentName)
+
+fun VerificationContext.isSubclassOrSelf(childClassName: String, possibleParentName: String): Boolean {
+  if (childClassName == possibleParentName) {
+    return true
+  }
+  return isSubclassOf(childClassName, possibleParentName)
+}
+
+fun VerificationContext.isSubclassOf(childClassName: String, possibleParentName: String): Boolean =
+  classHierarchyCache?.isSubclassOf(childClassName, possibleParentName) ?: classResolver.isSubclassOf(childClassName, possibleParentName)
@@ -6,6 +6,11 @@ package com.jetbrains.pluginverifier.verifiers
 
 import com.jetbrains.pluginverifier.results.problems.CompatibilityProblem
 
+/**
+ * Collects compatibility problems found during verification.
+ *
+ * Implementations must be thread-safe if they are used by a [BytecodeVerifier] with several concurrent workers.
+ */
 interface ProblemRegistrar {
 
   fun registerProblem(problem: CompatibilityProblem)
@@ -6,7 +6,9 @@ package com.jetbrains.pluginverifier.verifiers
 
 import com.jetbrains.plugin.structure.classes.resolvers.Resolver
 import com.jetbrains.pluginverifier.usages.ApiUsageProcessor
+import com.jetbrains.pluginverifier.verifiers.hierarchy.ClassHierarchyCache
 import com.jetbrains.pluginverifier.verifiers.packages.PackageFilter
+import com.jetbrains.pluginverifier.verifiers.resolution.MemberResolutionCache
 import com.jetbrains.pluginverifier.warnings.WarningRegistrar
 
 interface VerificationContext {
@@ -19,4 +21,24 @@ interface VerificationContext {
   val warningRegistrar: WarningRegistrar
 
   val apiUsageProcessors: List<ApiUsageProcessor>
-}
\ No newline at end of file
+
+  /**
+   * Cache of method and field lookups, or `null` if members are looked up on every reference.
+   */
+  val memberResolutionCache: MemberResolutionCache?
+    get() = null
+
+  /**
+   * Cache of supertypes of classes resolved by [classResolver], or `null` if the hierarchy is walked on every check.
+   */
+  val classHierarchyCache: ClassHierarchyCache?
+    get() = null
+
+  /**
+   * Number of problems, warnings and API usages registered so far by the current thread,
+   * or `null` if the context does not count them. Classes verified without findings
+   * may be skipped by the next verification, see [com.jetbrains.pluginverifier.verifiers.incremental.VerifiedClasses].
+   */
+  val findingsOnCurrentThread: Long?
+    get() = null
+}
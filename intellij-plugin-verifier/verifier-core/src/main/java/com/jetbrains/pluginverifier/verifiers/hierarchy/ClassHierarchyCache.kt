@@ -0,0 +1,126 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.verifiers.hierarchy
+
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import com.jetbrains.pluginverifier.verifiers.VerificationContext
+import com.jetbrains.pluginverifier.verifiers.isSubclassOf
+import com.jetbrains.pluginverifier.verifiers.resolution.ClassFile
+import com.jetbrains.pluginverifier.verifiers.resolution.resolveClassOrNull
+import java.util.*
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Transitive super classes and super interfaces of classes resolved by [resolver],
+ * shared by all classes verified with one [VerificationContext].
+ *
+ * Each class name is assigned an integer id, and the supertypes of a class are kept as a [BitSet] of ids,
+ * so once the supertypes of a class are computed, a subtype check is a hash lookup and a bit test.
+ * Supertypes of a class are computed once, reusing the already computed supertypes of its parents.
+ *
+ * Like [Resolver.isSubclassOf], the cache skips parents that cannot be resolved and does not register problems,
+ * so it may be shared by contexts that register problems differently.
+ *
+ * The cache is thread-safe.
+ */
+class ClassHierarchyCache(private val resolver: Resolver) {
+
+  private val classIds = ConcurrentHashMap<String, Int>()
+
+  private val nextClassId = AtomicInteger()
+
+  /**
+   * Ids of all resolved supertypes of a class, or [UNRESOLVED] if the class itself cannot be resolved.
+   * Bit sets are not modified once they are put here.
+   */
+  private val supertypes = ConcurrentHashMap<String, BitSet>()
+
+  private companion object {
+    val UNRESOLVED = BitSet(0)
+  }
+
+  fun isSubclassOf(childClassName: String, possibleParentName: String): Boolean {
+    val childSupertypes = supertypes[childClassName] ?: computeSupertypes(childClassName, null)
+    if (childSupertypes === UNRESOLVED) {
+      return false
+    }
+    return possibleParentName == "java/lang/Object" || isSupertype(childSupertypes, possibleParentName)
+  }
+
+  /**
+   * Same as [isSubclassOf] for an already resolved [child].
+   */
+  fun isSubclassOf(child: ClassFile, parentName: String): Boolean {
+    if (parentName == "java/lang/Object") {
+      return true
+    }
+    val childSupertypes = supertypes[child.name] ?: computeSupertypes(child.name, child)
+    return isSupertype(childSupertypes, parentName)
+  }
+
+  private fun isSupertype(childSupertypes: BitSet, parentName: String): Boolean {
+    val parentId = classIds[parentName] ?: return false
+    return childSupertypes.get(parentId)
+  }
+
+  private fun getClassId(className: String): Int =
+    classIds.computeIfAbsent(className) { nextClassId.getAndIncrement() }
+
+  private fun computeSupertypes(className: String, classFile: ClassFile?): BitSet {
+    val computation = SupertypesComputation()
+    return computation.getSupertypes(className) { classFile ?: resolver.resolveClassOrNull(className) }.supertypes
+  }
+
+  private class Supertypes(val supertypes: BitSet, val lowestPendingDepth: Int)
+
+  /**
+   * Depth-first walk over the parents of one class.
+   *
+   * Hierarchies of invalid classes may have cycles. If the walk from a class reaches a class
+   * whose walk started earlier and is still in progress, the supertypes found so far are incomplete,
+   * so they are not cached. They are complete once the walk returns to the earliest such class.
+   */
+  private inner class SupertypesComputation {
+    private val pendingDepths = hashMapOf<String, Int>()
+
+    fun getSupertypes(className: String, resolveClass: () -> ClassFile?): Supertypes {
+      val cached = supertypes[className]
+      if (cached != null) {
+        return Supertypes(cached, Int.MAX_VALUE)
+      }
+      val pendingDepth = pendingDepths[className]
+      if (pendingDepth != null) {
+        return Supertypes(BitSet(0), pendingDepth)
+      }
+      val classFile = resolveClass()
+      if (classFile == null) {
+        supertypes.putIfAbsent(className, UNRESOLVED)
+        return Supertypes(UNRESOLVED, Int.MAX_VALUE)
+      }
+
+      val depth = pendingDepths.size
+      pendingDepths[className] = depth
+      val result = BitSet()
+      var lowestPendingDepth = Int.MAX_VALUE
+      val parentNames = listOfNotNull(classFile.superName) + classFile.interfaces
+      for (parentName in parentNames) {
+        val parentSupertypes = getSupertypes(parentName) { resolver.resolveClassOrNull(parentName) }
+        if (parentSupertypes.supertypes === UNRESOLVED) {
+          continue
+        }
+        result.set(getClassId(parentName))
+        result.or(parentSupertypes.supertypes)
+        lowestPendingDepth = minOf(lowestPendingDepth, parentSupertypes.lowestPendingDepth)
+      }
+      pendingDepths.remove(className)
+
+      if (lowestPendingDepth >= depth) {
+        return Supertypes(supertypes.putIfAbsent(className, result) ?: result, Int.MAX_VALUE)
+      }
+      return Supertypes(result, lowestPendingDepth)
+    }
+  }
+}
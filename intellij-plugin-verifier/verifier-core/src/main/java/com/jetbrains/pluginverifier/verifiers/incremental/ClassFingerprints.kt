@@ -0,0 +1,222 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.verifiers.incremental
+
+import com.jetbrains.plugin.structure.classes.resolvers.InvalidClassCodeException
+import com.jetbrains.plugin.structure.classes.resolvers.ResolutionResult
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import com.jetbrains.plugin.structure.classes.utils.LazyClassNode
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Handle
+import org.objectweb.asm.Type
+import org.objectweb.asm.tree.AnnotationNode
+import org.objectweb.asm.tree.ClassNode
+import org.objectweb.asm.tree.FieldInsnNode
+import org.objectweb.asm.tree.InvokeDynamicInsnNode
+import org.objectweb.asm.tree.LdcInsnNode
+import org.objectweb.asm.tree.MethodInsnNode
+import org.objectweb.asm.tree.MultiANewArrayInsnNode
+import org.objectweb.asm.tree.TypeInsnNode
+import java.security.MessageDigest
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Computes fingerprints of classes resolved by [resolver], which change whenever
+ * the verification result of a class may change.
+ *
+ * The fingerprint of a class covers its bytecode, including the code of its methods, and every class it references,
+ * where a referenced class is covered together with its supertypes and its enclosing class, as member lookups
+ * and usage checks read them. Each covered class is also covered together with the `package-info` class
+ * of its package, whose annotations apply to the class.
+ * Hashes of referenced classes are computed once per instance, so the instance is supposed
+ * to live as long as classes of [resolver] do not change, that is for a single verification.
+ *
+ * Classes that reference classes which cannot be resolved have no fingerprint, because whether such
+ * references are reported depends on the configuration of the verification rather than on the bytecode.
+ */
+class ClassFingerprints(private val resolver: Resolver) {
+
+  private companion object {
+    const val UNRESOLVED = ""
+
+    const val NO_PACKAGE_INFO = "-"
+  }
+
+  private val hierarchyHashes = ConcurrentHashMap<String, String>()
+
+  private val packageInfoHashes = ConcurrentHashMap<String, String>()
+
+  /**
+   * Returns the fingerprint of the class [className], or `null` if the class or some of its references cannot be resolved.
+   */
+  fun getFingerprint(className: String): String? {
+    val classNode = resolveClassNode(className) ?: return null
+    val digest = MessageDigest.getInstance("SHA-256")
+    digest.update(getBytecode(classNode))
+    digest.update(getPackageInfoHash(className).toByteArray())
+    for (referencedClass in collectReferencedClasses(classNode).sorted()) {
+      val hierarchyHash = getHierarchyHash(referencedClass, hashSetOf())
+      if (hierarchyHash == UNRESOLVED) {
+        return null
+      }
+      digest.update(referencedClass.toByteArray())
+      digest.update(hierarchyHash.toByteArray())
+    }
+    return digest.digest().toHexString()
+  }
+
+  private fun getHierarchyHash(className: String, visiting: MutableSet<String>): String {
+    hierarchyHashes[className]?.let { return it }
+    if (!visiting.add(className)) {
+      //Cyclic inheritance is reported as a problem, so the class must not be skipped.
+      return UNRESOLVED
+    }
+    val classNode = resolveClassNode(className)
+    val hash = if (classNode == null) {
+      UNRESOLVED
+    } else {
+      computeHierarchyHash(classNode, visiting)
+    }
+    visiting.remove(className)
+    hierarchyHashes[className] = hash
+    return hash
+  }
+
+  private fun computeHierarchyHash(classNode: ClassNode, visiting: MutableSet<String>): String {
+    val digest = MessageDigest.getInstance("SHA-256")
+    digest.update(getBytecode(classNode))
+    digest.update(getPackageInfoHash(classNode.name).toByteArray())
+    val enclosingClass = classNode.outerClass ?: classNode.innerClasses.find { it.name == classNode.name }?.outerName
+    val parents = listOfNotNull(classNode.superName, enclosingClass) + classNode.interfaces.orEmpty()
+    for (parent in parents) {
+      val parentHash = getHierarchyHash(parent, visiting)
+      if (parentHash == UNRESOLVED) {
+        return UNRESOLVED
+      }
+      digest.update(parentHash.toByteArray())
+    }
+    return digest.digest().toHexString()
+  }
+
+  private fun getPackageInfoHash(className: String): String {
+    val packageName = className.substringBeforeLast('/', "")
+    return packageInfoHashes.getOrPut(packageName) {
+      val packageInfo = resolveClassNode(if (packageName.isEmpty()) "package-info" else "$packageName/package-info")
+      if (packageInfo == null) {
+        NO_PACKAGE_INFO
+      } else {
+        MessageDigest.getInstance("SHA-256").digest(getBytecode(packageInfo)).toHexString()
+      }
+    }
+  }
+
+  private fun resolveClassNode(className: String): ClassNode? {
+    val classNode = (resolver.resolveClass(className) as? ResolutionResult.Found)?.value ?: return null
+    try {
+      //Methods of lazily read classes have no code until it is loaded.
+      classNode.methods.forEach { LazyClassNode.loadCode(it) }
+    } catch (e: InvalidClassCodeException) {
+      return null
+    }
+    return classNode
+  }
+
+  private fun getBytecode(classNode: ClassNode): ByteArray {
+    val classWriter = ClassWriter(0)
+    classNode.accept(classWriter)
+    return classWriter.toByteArray()
+  }
+
+  private fun collectReferencedClasses(classNode: ClassNode): Set<String> {
+    val references = hashSetOf<String>()
+    fun addType(type: Type) {
+      when (type.sort) {
+        Type.OBJECT -> references += type.internalName
+        Type.ARRAY -> addType(type.elementType)
+        Type.METHOD -> {
+          type.argumentTypes.forEach { addType(it) }
+          addType(type.returnType)
+        }
+      }
+    }
+
+    fun addDescriptor(descriptor: String?) {
+      if (descriptor != null) {
+        addType(Type.getType(descriptor))
+      }
+    }
+
+    fun addInternalName(internalName: String?) {
+      if (internalName != null) {
+        addType(Type.getObjectType(internalName))
+      }
+    }
+
+    fun addAnnotations(annotations: List<AnnotationNode>?) {
+      annotations?.forEach { addDescriptor(it.desc) }
+    }
+
+    fun addConstant(constant: Any?) {
+      when (constant) {
+        is Type -> addType(constant)
+        is Handle -> {
+          addInternalName(constant.owner)
+          addDescriptor(constant.desc)
+        }
+      }
+    }
+
+    addInternalName(classNode.superName)
+    classNode.interfaces?.forEach { addInternalName(it) }
+    addInternalName(classNode.outerClass)
+    addInternalName(classNode.nestHostClass)
+    classNode.nestMembers?.forEach { addInternalName(it) }
+    classNode.innerClasses?.forEach {
+      addInternalName(it.name)
+      addInternalName(it.outerName)
+    }
+    addAnnotations(classNode.visibleAnnotations)
+    addAnnotations(classNode.invisibleAnnotations)
+
+    for (field in classNode.fields.orEmpty()) {
+      addDescriptor(field.desc)
+      addAnnotations(field.visibleAnnotations)
+      addAnnotations(field.invisibleAnnotations)
+    }
+
+    for (method in classNode.methods.orEmpty()) {
+      addDescriptor(method.desc)
+      method.exceptions?.forEach { addInternalName(it) }
+      method.tryCatchBlocks?.forEach { addInternalName(it.type) }
+      method.localVariables?.forEach { addDescriptor(it.desc) }
+      addAnnotations(method.visibleAnnotations)
+      addAnnotations(method.invisibleAnnotations)
+      for (instruction in method.instructions) {
+        when (instruction) {
+          is MethodInsnNode -> {
+            addInternalName(instruction.owner)
+            addDescriptor(instruction.desc)
+          }
+          is FieldInsnNode -> {
+            addInternalName(instruction.owner)
+            addDescriptor(instruction.desc)
+          }
+          is TypeInsnNode -> addInternalName(instruction.desc)
+          is MultiANewArrayInsnNode -> addDescriptor(instruction.desc)
+          is LdcInsnNode -> addConstant(instruction.cst)
+          is InvokeDynamicInsnNode -> {
+            addDescriptor(instruction.desc)
+            addConstant(instruction.bsm)
+            instruction.bsmArgs?.forEach { addConstant(it) }
+          }
+        }
+      }
+    }
+    references -= classNode.name
+    return references
+  }
+
+  private fun ByteArray.toHexString(): String = joinToString("") { String.format("%02x", it) }
+}
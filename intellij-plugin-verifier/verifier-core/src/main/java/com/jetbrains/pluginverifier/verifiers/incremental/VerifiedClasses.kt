@@ -0,0 +1,49 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.verifiers.incremental
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * [Fingerprints][ClassFingerprints] of classes verified without problems, warnings and API usages.
+ *
+ * A class whose fingerprint is among [previouslyClean] ones is skipped by the
+ * [BytecodeVerifier][com.jetbrains.pluginverifier.verifiers.BytecodeVerifier], as verifying it again
+ * would register nothing. Classes with findings are verified every time, so the result of
+ * an incremental verification is the same as the result of a full one.
+ *
+ * Fingerprints of classes found clean by the current verification, whether skipped or verified,
+ * are collected to [clean], to be stored for the next verification.
+ */
+class VerifiedClasses(private val previouslyClean: Set<String>) {
+
+  private val currentlyClean: MutableSet<String> = ConcurrentHashMap.newKeySet()
+
+  private val skipped = AtomicInteger()
+
+  val clean: Set<String>
+    get() = currentlyClean
+
+  val skippedClasses: Int
+    get() = skipped.get()
+
+  /**
+   * Returns `true` and keeps the [fingerprint] if the class was clean
+   * in the previous verification, so it does not need to be verified again.
+   */
+  fun skipIfUnchanged(fingerprint: String): Boolean {
+    if (fingerprint !in previouslyClean) {
+      return false
+    }
+    currentlyClean += fingerprint
+    skipped.incrementAndGet()
+    return true
+  }
+
+  fun markClean(fingerprint: String) {
+    currentlyClean += fingerprint
+  }
+}
@@ -9,5 +9,13 @@ import com.jetbrains.pluginverifier.verifiers.resolution.Method
 import org.objectweb.asm.tree.AbstractInsnNode
 
 interface InstructionVerifier {
+
+  /**
+   * Types of instructions this verifier is interested in, see [AbstractInsnNode.getType],
+   * or `null` if every instruction must be passed to it.
+   */
+  val instructionTypes: Set<Int>?
+    get() = null
+
   fun verify(method: Method, instructionNode: AbstractInsnNode, context: VerificationContext)
 }
\ No newline at end of file
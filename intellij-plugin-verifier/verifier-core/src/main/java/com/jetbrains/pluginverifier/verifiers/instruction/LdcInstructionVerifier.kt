@@ -13,6 +13,9 @@ import org.objectweb.asm.tree.AbstractInsnNode
 import org.objectweb.asm.tree.LdcInsnNode
 
 class LdcInstructionVerifier : InstructionVerifier {
+
+  override val instructionTypes = setOf(AbstractInsnNode.LDC_INSN)
+
   override fun verify(method: Method, instructionNode: AbstractInsnNode, context: VerificationContext) {
     if (instructionNode !is LdcInsnNode) return
 
@@ -19,6 +19,9 @@ import org.objectweb.asm.tree.InvokeDynamicInsnNode
 import org.objectweb.asm.tree.MethodInsnNode
 
 class MemberAccessVerifier : InstructionVerifier {
+
+  override val instructionTypes = setOf(AbstractInsnNode.METHOD_INSN, AbstractInsnNode.FIELD_INSN, AbstractInsnNode.INVOKE_DYNAMIC_INSN)
+
   override fun verify(method: Method, instructionNode: AbstractInsnNode, context: VerificationContext) {
     if (instructionNode is MethodInsnNode) {
       val instruction = when (instructionNode.opcode) {
@@ -12,6 +12,9 @@ import org.objectweb.asm.tree.AbstractInsnNode
 import org.objectweb.asm.tree.MultiANewArrayInsnNode
 
 class MultiANewArrayInstructionVerifier : InstructionVerifier {
+
+  override val instructionTypes = setOf(AbstractInsnNode.MULTIANEWARRAY_INSN)
+
   override fun verify(method: Method, instructionNode: AbstractInsnNode, context: VerificationContext) {
     if (instructionNode !is MultiANewArrayInsnNode) return
 
@@ -18,6 +18,9 @@ import org.objectweb.asm.tree.TypeInsnNode
  * Processing of `new`, `anewarray`, `checkcast`, `instanceof` instructions.
  */
 class TypeInstructionVerifier : InstructionVerifier {
+
+  override val instructionTypes = setOf(AbstractInsnNode.TYPE_INSN)
+
   override fun verify(method: Method, instructionNode: AbstractInsnNode, context: VerificationContext) {
     if (instructionNode !is TypeInsnNode) return
 
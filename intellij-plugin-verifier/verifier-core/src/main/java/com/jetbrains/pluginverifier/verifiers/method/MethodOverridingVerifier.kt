@@ -10,6 +10,7 @@ import com.jetbrains.pluginverifier.results.problems.CompatibilityProblem
 import com.jetbrains.pluginverifier.verifiers.ProblemRegistrar
 import com.jetbrains.pluginverifier.verifiers.VerificationContext
 import com.jetbrains.pluginverifier.verifiers.resolution.ClassFile
+import com.jetbrains.pluginverifier.verifiers.resolution.MemberResolutionCache
 import com.jetbrains.pluginverifier.verifiers.resolution.Method
 import com.jetbrains.pluginverifier.verifiers.resolution.MethodResolver
 import com.jetbrains.pluginverifier.warnings.CompatibilityWarning
@@ -51,4 +52,7 @@ private class VerificationContextWithSilentProblemRegistrar(
   override val warningRegistrar: WarningRegistrar = object : WarningRegistrar {
     override fun registerCompatibilityWarning(warning: CompatibilityWarning) = Unit
   }
+
+  override val memberResolutionCache: MemberResolutionCache?
+    get() = null
 }
\ No newline at end of file
@@ -40,7 +40,7 @@ fun detectAccessProblem(callee: ClassFileMember, caller: ClassFileMember, contex
     }
     callee.isProtected ->
       if (caller.containingClassFile.packageName != callee.containingClassFile.packageName) {
-        if (!context.classResolver.isSubclassOf(caller.containingClassFile, callee.containingClassFile.name)) {
+        if (!context.isSubclassOf(caller.containingClassFile, callee.containingClassFile.name)) {
           return AccessType.PROTECTED
         }
       }
@@ -9,16 +9,37 @@ import com.jetbrains.pluginverifier.results.location.ClassLocation
 import com.jetbrains.pluginverifier.results.modifiers.Modifiers
 import com.jetbrains.pluginverifier.verifiers.getAccessType
 import org.objectweb.asm.Opcodes
+import org.objectweb.asm.tree.AnnotationNode
 import org.objectweb.asm.tree.ClassNode
 
+/**
+ * [ClassFile] backed by an ASM [ClassNode].
+ *
+ * Views of methods and fields are created once, on the first access to [methods] and [fields],
+ * and kept in arrays along with the location and annotations of the class,
+ * so that views of the same member are shared by all verifiers reading them.
+ */
 class ClassFileAsm(private val asmNode: ClassNode, override val classFileOrigin: FileOrigin) : ClassFile {
-  override val location
-    get() = ClassLocation(
+
+  @Volatile
+  private var cachedLocation: ClassLocation? = null
+
+  @Volatile
+  private var cachedAnnotations: MemberAnnotations? = null
+
+  @Volatile
+  private var cachedMethods: Array<MethodAsm>? = null
+
+  @Volatile
+  private var cachedFields: Array<FieldAsm>? = null
+
+  override val location: ClassLocation
+    get() = cachedLocation ?: ClassLocation(
       name,
       signature?.takeIf { it.isNotEmpty() },
       Modifiers(asmNode.access),
       classFileOrigin
-    )
+    ).also { cachedLocation = it }
 
   override val containingClassFile
     get() = this
@@ -32,11 +53,17 @@ class ClassFileAsm(private val asmNode: ClassNode, override val classFileOrigin:
   override val javaPackageName
     get() = packageName.replace('/', '.')
 
-  override val methods
-    get() = asmNode.methods.asSequence().map { MethodAsm(this, it) }
+  override val methods: Sequence<Method>
+    get() {
+      val methods = cachedMethods ?: Array(asmNode.methods.size) { MethodAsm(this, asmNode.methods[it]) }.also { cachedMethods = it }
+      return methods.asSequence()
+    }
 
-  override val fields
-    get() = asmNode.fields.asSequence().map { FieldAsm(this, it) }
+  override val fields: Sequence<Field>
+    get() {
+      val fields = cachedFields ?: Array(asmNode.fields.size) { FieldAsm(this, asmNode.fields[it]) }.also { cachedFields = it }
+      return fields.asSequence()
+    }
 
   override val interfaces
     get() = asmNode.interfaces.orEmpty()
@@ -66,8 +93,14 @@ class ClassFileAsm(private val asmNode: ClassNode, override val classFileOrigin:
       return asmNode.innerClasses.find { it.name == name }?.outerName
     }
 
-  override val annotations
-    get() = asmNode.invisibleAnnotations.orEmpty() + asmNode.visibleAnnotations.orEmpty()
+  private val memberAnnotations: MemberAnnotations
+    get() = cachedAnnotations
+      ?: MemberAnnotations(asmNode.invisibleAnnotations, asmNode.visibleAnnotations).also { cachedAnnotations = it }
+
+  override val annotations: List<AnnotationNode>
+    get() = memberAnnotations.annotations
+
+  override fun findAnnotation(className: String): AnnotationNode? = memberAnnotations.findAnnotation(className)
 
   override val isAbstract
     get() = asmNode.access and Opcodes.ACC_ABSTRACT != 0
@@ -6,6 +6,7 @@ package com.jetbrains.pluginverifier.verifiers.resolution
 
 import com.jetbrains.pluginverifier.results.access.AccessType
 import com.jetbrains.pluginverifier.results.location.Location
+import com.jetbrains.pluginverifier.verifiers.findAnnotation
 import org.objectweb.asm.tree.AnnotationNode
 
 interface ClassFileMember {
@@ -21,4 +22,9 @@ interface ClassFileMember {
   val isPackagePrivate: Boolean
 
   val isSynthetic: Boolean
+
+  /**
+   * Returns the annotation of this member whose class is [className], if any.
+   */
+  fun findAnnotation(className: String): AnnotationNode? = annotations.findAnnotation(className)
 }
\ No newline at end of file
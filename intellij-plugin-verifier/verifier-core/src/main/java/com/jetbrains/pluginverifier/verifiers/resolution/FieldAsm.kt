@@ -8,17 +8,30 @@ import com.jetbrains.pluginverifier.results.location.FieldLocation
 import com.jetbrains.pluginverifier.results.modifiers.Modifiers
 import com.jetbrains.pluginverifier.verifiers.getAccessType
 import org.objectweb.asm.Opcodes
+import org.objectweb.asm.tree.AnnotationNode
 import org.objectweb.asm.tree.FieldNode
 
+/**
+ * [Field] backed by an ASM [FieldNode].
+ *
+ * The location and annotations are computed on the first access and kept, like views of [MethodAsm] are.
+ */
 class FieldAsm(override val containingClassFile: ClassFile, private val asmNode: FieldNode) : Field {
-  override val location
-    get() = FieldLocation(
+
+  @Volatile
+  private var cachedLocation: FieldLocation? = null
+
+  @Volatile
+  private var cachedAnnotations: MemberAnnotations? = null
+
+  override val location: FieldLocation
+    get() = cachedLocation ?: FieldLocation(
       containingClassFile.location,
       name,
       descriptor,
       signature?.takeIf { it.isNotEmpty() },
       Modifiers(asmNode.access)
-    )
+    ).also { cachedLocation = it }
 
   override val name: String
     get() = asmNode.name
@@ -32,8 +45,14 @@ class FieldAsm(override val containingClassFile: ClassFile, private val asmNode:
   override val accessType
     get() = getAccessType(asmNode.access)
 
-  override val annotations
-    get() = asmNode.invisibleAnnotations.orEmpty() + asmNode.visibleAnnotations.orEmpty()
+  private val memberAnnotations: MemberAnnotations
+    get() = cachedAnnotations
+      ?: MemberAnnotations(asmNode.invisibleAnnotations, asmNode.visibleAnnotations).also { cachedAnnotations = it }
+
+  override val annotations: List<AnnotationNode>
+    get() = memberAnnotations.annotations
+
+  override fun findAnnotation(className: String): AnnotationNode? = memberAnnotations.findAnnotation(className)
 
   override val isStatic
     get() = asmNode.access and Opcodes.ACC_STATIC != 0
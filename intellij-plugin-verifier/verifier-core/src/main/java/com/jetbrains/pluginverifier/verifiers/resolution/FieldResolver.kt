@@ -36,15 +36,18 @@ class FieldResolver {
       }
     }
 
-  private sealed class FieldResolutionResult {
-    object Abort : FieldResolutionResult()
-
-    object NotFound : FieldResolutionResult()
-
-    data class Found(val field: Field) : FieldResolutionResult()
+  private fun doResolveField(
+    classFile: ClassFile,
+    fieldReference: FieldReference,
+    context: VerificationContext
+  ): FieldResolutionResult {
+    val cache = context.memberResolutionCache ?: return lookupField(classFile, fieldReference, context)
+    return cache.getOrLookupField(classFile.name, fieldReference.fieldName, fieldReference.fieldDescriptor, context) { lookupContext ->
+      lookupField(classFile, fieldReference, lookupContext)
+    }
   }
 
-  private fun doResolveField(
+  private fun lookupField(
     classFile: ClassFile,
     fieldReference: FieldReference,
     context: VerificationContext
@@ -52,7 +55,9 @@ class FieldResolver {
     /**
      * 1) Firstly, the field is searched in the class of the field reference.
      */
-    val matchingField = classFile.fields.firstOrNull { it.name == fieldReference.fieldName && it.descriptor == fieldReference.fieldDescriptor }
+    val declaredFields = context.memberResolutionCache?.getDeclaredFields(classFile, fieldReference.fieldName)
+      ?: classFile.fields.filter { it.name == fieldReference.fieldName }.toList()
+    val matchingField = declaredFields.firstOrNull { it.descriptor == fieldReference.fieldDescriptor }
     if (matchingField != null) {
       return FieldResolutionResult.Found(matchingField)
     }
@@ -126,4 +131,12 @@ class FieldResolver {
     }
   }
 
-}
\ No newline at end of file
+}
+
+internal sealed class FieldResolutionResult {
+  object Abort : FieldResolutionResult()
+
+  object NotFound : FieldResolutionResult()
+
+  data class Found(val field: Field) : FieldResolutionResult()
+}
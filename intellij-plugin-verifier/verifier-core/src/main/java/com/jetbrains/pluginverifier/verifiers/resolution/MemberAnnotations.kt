@@ -0,0 +1,36 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.verifiers.resolution
+
+import com.jetbrains.pluginverifier.verifiers.extractClassNameFromDescriptor
+import org.objectweb.asm.tree.AnnotationNode
+
+/**
+ * Invisible and visible annotations of a member together with a table
+ * to look them up by class name without parsing descriptors on every lookup.
+ */
+internal class MemberAnnotations(invisibleAnnotations: List<AnnotationNode>?, visibleAnnotations: List<AnnotationNode>?) {
+
+  val annotations: List<AnnotationNode> = when {
+    invisibleAnnotations.isNullOrEmpty() -> visibleAnnotations.orEmpty()
+    visibleAnnotations.isNullOrEmpty() -> invisibleAnnotations
+    else -> invisibleAnnotations + visibleAnnotations
+  }
+
+  private val annotationsByClassName: Map<String, AnnotationNode> =
+    if (annotations.isEmpty()) {
+      emptyMap()
+    } else {
+      val table = HashMap<String, AnnotationNode>()
+      for (annotation in annotations) {
+        val className = annotation.desc?.extractClassNameFromDescriptor() ?: continue
+        //The first annotation wins, like it does in List<AnnotationNode>.findAnnotation.
+        table.putIfAbsent(className, annotation)
+      }
+      table
+    }
+
+  fun findAnnotation(className: String): AnnotationNode? = annotationsByClassName[className]
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.verifiers.resolution
+
+import com.jetbrains.pluginverifier.results.problems.CompatibilityProblem
+import com.jetbrains.pluginverifier.results.reference.ClassReference
+import com.jetbrains.pluginverifier.results.reference.FieldReference
+import com.jetbrains.pluginverifier.results.reference.MethodReference
+import com.jetbrains.pluginverifier.usages.ApiUsageProcessor
+import com.jetbrains.pluginverifier.verifiers.ProblemRegistrar
+import com.jetbrains.pluginverifier.verifiers.VerificationContext
+import com.jetbrains.pluginverifier.warnings.CompatibilityWarning
+import com.jetbrains.pluginverifier.warnings.WarningRegistrar
+import org.objectweb.asm.tree.AbstractInsnNode
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Results of method and field lookups and tables of declared members,
+ * shared by all classes verified with one [VerificationContext].
+ *
+ * Lookup of a member in the hierarchy of a class depends only on the class and the member's name and descriptor.
+ * Problems and API usages registered while walking the hierarchy, such as missing super classes, do not depend
+ * on the call site either. They are recorded together with the result of the lookup and registered again
+ * every time the result is reused, so every referencing class gets the same findings as the first one.
+ * Problems that depend on the call site are registered by [MethodResolver] and [FieldResolver] every time.
+ *
+ * The cache is thread-safe.
+ */
+class MemberResolutionCache {
+
+  internal enum class MethodLookupKind {
+    CLASS_METHOD,
+    INTERFACE_METHOD
+  }
+
+  private data class MethodLookupKey(
+    val ownerClassName: String,
+    val methodName: String,
+    val methodDescriptor: String,
+    val lookupKind: MethodLookupKind
+  )
+
+  private data class FieldLookupKey(
+    val ownerClassName: String,
+    val fieldName: String,
+    val fieldDescriptor: String
+  )
+
+  private class Lookup<T>(val result: T, val registrations: List<(VerificationContext) -> Unit>)
+
+  private val methodLookups = ConcurrentHashMap<MethodLookupKey, Lookup<MethodResolutionResult>>()
+
+  private val fieldLookups = ConcurrentHashMap<FieldLookupKey, Lookup<FieldResolutionResult>>()
+
+  private val declaredMethods = ConcurrentHashMap<String, Map<String, List<Method>>>()
+
+  private val declaredFields = ConcurrentHashMap<String, Map<String, List<Field>>>()
+
+  internal fun getOrLookupMethod(
+    ownerClassName: String,
+    methodName: String,
+    methodDescriptor: String,
+    lookupKind: MethodLookupKind,
+    context: VerificationContext,
+    lookup: (VerificationContext) -> MethodResolutionResult
+  ): MethodResolutionResult =
+    methodLookups.getOrLookup(MethodLookupKey(ownerClassName, methodName, methodDescriptor, lookupKind), context, lookup)
+
+  internal fun getOrLookupField(
+    ownerClassName: String,
+    fieldName: String,
+    fieldDescriptor: String,
+    context: VerificationContext,
+    lookup: (VerificationContext) -> FieldResolutionResult
+  ): FieldResolutionResult =
+    fieldLookups.getOrLookup(FieldLookupKey(ownerClassName, fieldName, fieldDescriptor), context, lookup)
+
+  //Lookups are not run inside computeIfAbsent because they recursively look up other members.
+  private fun <K, T> ConcurrentHashMap<K, Lookup<T>>.getOrLookup(
+    key: K,
+    context: VerificationContext,
+    lookup: (VerificationContext) -> T
+  ): T {
+    val cached = this[key]
+    if (cached != null) {
+      cached.registrations.forEach { it(context) }
+      return cached.result
+    }
+    val recordingContext = RecordingVerificationContext(context)
+    val result = lookup(recordingContext)
+    putIfAbsent(key, Lookup(result, recordingContext.registrations))
+    return result
+  }
+
+  /**
+   * Returns methods declared in [classFile] with name [methodName].
+   */
+  internal fun getDeclaredMethods(classFile: ClassFile, methodName: String): List<Method> =
+    declaredMethods.computeIfAbsent(classFile.name) { classFile.methods.groupBy { it.name } }[methodName].orEmpty()
+
+  /**
+   * Returns fields declared in [classFile] with name [fieldName].
+   */
+  internal fun getDeclaredFields(classFile: ClassFile, fieldName: String): List<Field> =
+    declaredFields.computeIfAbsent(classFile.name) { classFile.fields.groupBy { it.name } }[fieldName].orEmpty()
+}
+
+/**
+ * Context that passes problems, warnings and API usages to the [delegate] and records them,
+ * so that they can be registered again in the context of another reference.
+ * API usage processors are called with the context they belong to, as they may depend on its type.
+ */
+private class RecordingVerificationContext(
+  private val delegate: VerificationContext
+) : VerificationContext by delegate, ProblemRegistrar, WarningRegistrar {
+
+  val registrations = arrayListOf<(VerificationContext) -> Unit>()
+
+  override val problemRegistrar
+    get() = this
+
+  override val warningRegistrar
+    get() = this
+
+  override val apiUsageProcessors: List<ApiUsageProcessor> = delegate.apiUsageProcessors.indices.map { RecordingApiUsageProcessor(it) }
+
+  private fun record(registration: (VerificationContext) -> Unit) {
+    registrations += registration
+    registration(delegate)
+  }
+
+  override fun registerProblem(problem: CompatibilityProblem) =
+    record { it.problemRegistrar.registerProblem(problem) }
+
+  override fun registerCompatibilityWarning(warning: CompatibilityWarning) =
+    record { it.warningRegistrar.registerCompatibilityWarning(warning) }
+
+  private inner class RecordingApiUsageProcessor(private val index: Int) : ApiUsageProcessor {
+    override fun processClassReference(
+      classReference: ClassReference,
+      resolvedClass: ClassFile,
+      context: VerificationContext,
+      referrer: ClassFileMember,
+      classUsageType: ClassUsageType
+    ) = record { it.apiUsageProcessors[index].processClassReference(classReference, resolvedClass, it, referrer, classUsageType) }
+
+    override fun processMethodInvocation(
+      methodReference: MethodReference,
+      resolvedMethod: Method,
+      instructionNode: AbstractInsnNode,
+      callerMethod: Method,
+      context: VerificationContext
+    ) = record { it.apiUsageProcessors[index].processMethodInvocation(methodReference, resolvedMethod, instructionNode, callerMethod, it) }
+
+    override fun processFieldAccess(
+      fieldReference: FieldReference,
+      resolvedField: Field,
+      context: VerificationContext,
+      callerMethod: Method
+    ) = record { it.apiUsageProcessors[index].processFieldAccess(fieldReference, resolvedField, it, callerMethod) }
+  }
+}
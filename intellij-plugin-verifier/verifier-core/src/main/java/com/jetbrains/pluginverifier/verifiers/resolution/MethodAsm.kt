@@ -4,7 +4,7 @@
 
 package com.jetbrains.pluginverifier.verifiers.resolution
 
-import com.jetbrains.plugin.structure.base.utils.toList
+import com.jetbrains.plugin.structure.classes.utils.LazyClassNode
 import com.jetbrains.pluginverifier.results.location.MethodLocation
 import com.jetbrains.pluginverifier.results.modifiers.Modifiers
 import com.jetbrains.pluginverifier.verifiers.getAccessType
@@ -15,115 +15,157 @@ import org.objectweb.asm.tree.AnnotationNode
 import org.objectweb.asm.tree.LocalVariableNode
 import org.objectweb.asm.tree.MethodNode
 
-class MethodAsm(override val containingClassFile: ClassFile, val asmNode: MethodNode) : Method {
-  override val location
-    get() = MethodLocation(
+/**
+ * [Method] backed by an ASM [MethodNode].
+ *
+ * Views of the method, such as its location, annotations, parameters and instructions,
+ * are computed on the first access and kept, as verifiers and usage processors read them many times.
+ * The views may be computed concurrently by several threads, which is harmless as they are equal.
+ */
+class MethodAsm(override val containingClassFile: ClassFile, private val methodNode: MethodNode) : Method {
+
+  @Volatile
+  private var cachedLocation: MethodLocation? = null
+
+  @Volatile
+  private var cachedAnnotations: MemberAnnotations? = null
+
+  @Volatile
+  private var cachedMethodParameters: List<MethodParameter>? = null
+
+  @Volatile
+  private var cachedInstructions: List<AbstractInsnNode>? = null
+
+  /**
+   * ASM node of this method with its code loaded.
+   *
+   * Code of classes read in the `FULL_LAZY_CODE` mode is loaded on the first access, see [LazyClassNode].
+   * If the code is invalid, [com.jetbrains.plugin.structure.classes.resolvers.InvalidClassCodeException] is thrown.
+   */
+  val asmNode: MethodNode
+    get() = methodNode.also { LazyClassNode.loadCode(it) }
+
+  override val location: MethodLocation
+    get() = cachedLocation ?: MethodLocation(
       containingClassFile.location,
       name,
       descriptor,
       methodParameters.map { it.name },
       signature?.takeIf { it.isNotEmpty() },
-      Modifiers(asmNode.access)
-    )
+      Modifiers(methodNode.access)
+    ).also { cachedLocation = it }
 
   override val name: String
-    get() = asmNode.name
+    get() = methodNode.name
 
   override val descriptor: String
-    get() = asmNode.desc
+    get() = methodNode.desc
 
   override val accessType
-    get() = getAccessType(asmNode.access)
+    get() = getAccessType(methodNode.access)
 
   override val signature: String?
-    get() = asmNode.signature
+    get() = methodNode.signature
+
+  private val memberAnnotations: MemberAnnotations
+    get() = cachedAnnotations
+      ?: MemberAnnotations(methodNode.invisibleAnnotations, methodNode.visibleAnnotations).also { cachedAnnotations = it }
 
   override val annotations: List<AnnotationNode>
-    get() = asmNode.invisibleAnnotations.orEmpty() + asmNode.visibleAnnotations.orEmpty()
+    get() = memberAnnotations.annotations
+
+  override fun findAnnotation(className: String): AnnotationNode? = memberAnnotations.findAnnotation(className)
 
   override val localVariables: List<LocalVariableNode>
     get() = asmNode.localVariables.orEmpty()
 
   override val methodParameters: List<MethodParameter>
-    get() {
-      val parameterNames = asmNode.getParameterNames()
-      val parameterAnnotations: Array<out MutableList<AnnotationNode>?> = asmNode.invisibleParameterAnnotations.orEmpty()
-
-      //The simplest case: just zip parameter names and annotations.
-      if (parameterNames.size == parameterAnnotations.size) {
-        return parameterNames.mapIndexed { index, parameterName ->
-          MethodParameter(parameterName, parameterAnnotations[index].orEmpty())
-        }
-      }
+    get() = cachedMethodParameters ?: computeMethodParameters().also { cachedMethodParameters = it }
+
+  private fun computeMethodParameters(): List<MethodParameter> {
+    val parameterNames = methodNode.getParameterNames()
+    val parameterAnnotations: Array<out MutableList<AnnotationNode>?> = methodNode.invisibleParameterAnnotations.orEmpty()
 
-      //The first parameter is a parameter of an inner class' constructor => ignore the first annotation.
-      if (name == "<init>" && containingClassFile.isInnerClass && parameterNames.size == parameterAnnotations.size + 1) {
-        return parameterNames.mapIndexed { index, parameterName ->
-          MethodParameter(parameterName, parameterAnnotations.getOrElse(index - 1) { emptyList<AnnotationNode>() }.orEmpty())
-        }
+    //The simplest case: just zip parameter names and annotations.
+    if (parameterNames.size == parameterAnnotations.size) {
+      return parameterNames.mapIndexed { index, parameterName ->
+        MethodParameter(parameterName, parameterAnnotations[index].orEmpty())
       }
+    }
 
-      //Fallback: we don't know how to zip parameter names and annotations.
-      return parameterNames.map { parameterName -> MethodParameter(parameterName, emptyList()) }
+    //The first parameter is a parameter of an inner class' constructor => ignore the first annotation.
+    if (name == "<init>" && containingClassFile.isInnerClass && parameterNames.size == parameterAnnotations.size + 1) {
+      return parameterNames.mapIndexed { index, parameterName ->
+        MethodParameter(parameterName, parameterAnnotations.getOrElse(index - 1) { emptyList<AnnotationNode>() }.orEmpty())
+      }
     }
 
+    //Fallback: we don't know how to zip parameter names and annotations.
+    return parameterNames.map { parameterName -> MethodParameter(parameterName, emptyList()) }
+  }
+
   override val exceptions
-    get() = asmNode.exceptions.orEmpty()
+    get() = methodNode.exceptions.orEmpty()
 
   override val tryCatchBlocks
     get() = asmNode.tryCatchBlocks.orEmpty()
 
   override val instructions: List<AbstractInsnNode>
-    get() = asmNode.instructions.iterator().toList()
+    get() = cachedInstructions ?: asmNode.instructions.toArray().asList().also { cachedInstructions = it }
 
 
   override val isAbstract
-    get() = asmNode.access and Opcodes.ACC_ABSTRACT != 0
+    get() = methodNode.access and Opcodes.ACC_ABSTRACT != 0
 
   override val isStatic
-    get() = asmNode.access and Opcodes.ACC_STATIC != 0
+    get() = methodNode.access and Opcodes.ACC_STATIC != 0
 
   override val isFinal
-    get() = asmNode.access and Opcodes.ACC_FINAL != 0
+    get() = methodNode.access and Opcodes.ACC_FINAL != 0
 
   override val isPublic
-    get() = asmNode.access and Opcodes.ACC_PUBLIC != 0
+    get() = methodNode.access and Opcodes.ACC_PUBLIC != 0
 
   override val isProtected
-    get() = asmNode.access and Opcodes.ACC_PROTECTED != 0
+    get() = methodNode.access and Opcodes.ACC_PROTECTED != 0
 
   override val isPrivate
-    get() = asmNode.access and Opcodes.ACC_PRIVATE != 0
+    get() = methodNode.access and Opcodes.ACC_PRIVATE != 0
 
   override val isPackagePrivate
-    get() = (asmNode.access and Opcodes.ACC_PUBLIC == 0) && (asmNode.access and Opcodes.ACC_PROTECTED == 0) && (asmNode.access and Opcodes.ACC_PRIVATE == 0)
+    get() = (methodNode.access and Opcodes.ACC_PUBLIC == 0) && (methodNode.access and Opcodes.ACC_PROTECTED == 0) && (methodNode.access and Opcodes.ACC_PRIVATE == 0)
 
   override val isDeprecated
-    get() = asmNode.access and Opcodes.ACC_DEPRECATED != 0
+    get() = methodNode.access and Opcodes.ACC_DEPRECATED != 0
 
   override val isVararg
-    get() = asmNode.access and Opcodes.ACC_VARARGS != 0
+    get() = methodNode.access and Opcodes.ACC_VARARGS != 0
 
   override val isConstructor: Boolean
-    get() = asmNode.name == "<init>"
+    get() = methodNode.name == "<init>"
 
   override val isClassInitializer: Boolean
-    get() = asmNode.name == "<clinit>"
+    get() = methodNode.name == "<clinit>"
 
   override val isNative
-    get() = asmNode.access and Opcodes.ACC_NATIVE != 0
+    get() = methodNode.access and Opcodes.ACC_NATIVE != 0
 
   override val isSynthetic
-    get() = asmNode.access and Opcodes.ACC_SYNTHETIC != 0
+    get() = methodNode.access and Opcodes.ACC_SYNTHETIC != 0
 
   override val isBridgeMethod
-    get() = asmNode.access and Opcodes.ACC_BRIDGE != 0
+    get() = methodNode.access and Opcodes.ACC_BRIDGE != 0
 
+  /**
+   * Names of parameters are taken from the local variables, or from the `MethodParameters` attribute.
+   * Local variables of lazily read classes are not used, because the code of such classes,
+   * usually platform classes referenced by the verified ones, must not be loaded just to present their methods.
+   */
   private fun MethodNode.getParameterNames(): List<String> {
     val descriptorArguments = Type.getArgumentTypes(desc)
     val descriptorArgumentsNumber = descriptorArguments.size
 
-    if (localVariables != null) {
+    if (localVariables != null && !LazyClassNode.isLazy(this)) {
       val allLocalVars = localVariables.sortedBy { it.index }
       val parameters = if (access and Opcodes.ACC_STATIC != 0) {
         allLocalVars.take(descriptorArgumentsNumber)
@@ -138,6 +180,11 @@ class MethodAsm(override val containingClassFile: ClassFile, val asmNode: Method
       }
     }
 
+    val methodParameters = parameters
+    if (methodParameters != null && methodParameters.size == descriptorArgumentsNumber && methodParameters.all { it.name != null }) {
+      return methodParameters.map { it.name }
+    }
+
     return (0 until descriptorArgumentsNumber).map { "arg$it" }
   }
 
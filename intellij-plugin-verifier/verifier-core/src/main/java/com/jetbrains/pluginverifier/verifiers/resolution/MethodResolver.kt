@@ -102,7 +102,7 @@ class MethodResolver {
 
 }
 
-private sealed class MethodResolutionResult {
+internal sealed class MethodResolutionResult {
   object Abort : MethodResolutionResult()
 
   object NotFound : MethodResolutionResult()
@@ -121,6 +121,28 @@ private class MethodResolveImpl(
 
   private val methodDescriptor = methodReference.methodDescriptor
 
+  /**
+   * Runs the [lookup] in a resolver whose context records the lookup's registrations, if lookups are cached.
+   */
+  private inline fun cachedLookup(
+    ownerClass: ClassFile,
+    lookupKind: MemberResolutionCache.MethodLookupKind,
+    crossinline lookup: MethodResolveImpl.() -> MethodResolutionResult
+  ): MethodResolutionResult {
+    val cache = context.memberResolutionCache ?: return this.lookup()
+    return cache.getOrLookupMethod(ownerClass.name, methodName, methodDescriptor, lookupKind, context) { lookupContext ->
+      MethodResolveImpl(methodReference, instruction, callerMethod, lookupContext).lookup()
+    }
+  }
+
+  private fun getDeclaredMethods(classFile: ClassFile, name: String): List<Method> {
+    val cache = context.memberResolutionCache ?: return classFile.methods.filter { it.name == name }.toList()
+    return cache.getDeclaredMethods(classFile, name)
+  }
+
+  private fun findDeclaredMethod(classFile: ClassFile, name: String, descriptor: String): Method? =
+    getDeclaredMethods(classFile, name).find { it.descriptor == descriptor }
+
   fun resolveMethod(ownerClass: ClassFile): MethodResolutionResult =
     when (instruction) {
       Instruction.INVOKE_VIRTUAL -> resolveClassMethod(ownerClass)
@@ -153,11 +175,15 @@ private class MethodResolveImpl(
       return MethodResolutionResult.Abort
     }
 
+    return cachedLookup(interfaceFile, MemberResolutionCache.MethodLookupKind.INTERFACE_METHOD) { lookupInterfaceMethod(interfaceFile) }
+  }
+
+  private fun lookupInterfaceMethod(interfaceFile: ClassFile): MethodResolutionResult {
     /*
     2) Otherwise, if C declares a method with the name and descriptor specified by
     the interface method reference, method lookup succeeds.
     */
-    val matching = interfaceFile.methods.firstOrNull { it.name == methodName && it.descriptor == methodDescriptor }
+    val matching = findDeclaredMethod(interfaceFile, methodName, methodDescriptor)
     if (matching != null) {
       return MethodResolutionResult.Found(matching)
     }
@@ -169,8 +195,8 @@ private class MethodResolveImpl(
     */
     val objectClass = context.classResolver.resolveClassChecked("java/lang/Object", interfaceFile, context)
       ?: return MethodResolutionResult.Abort
-    val objectMethod = objectClass.methods.firstOrNull { it.name == methodName && it.descriptor == methodDescriptor && it.isPublic && !it.isStatic }
-    if (objectMethod != null) {
+    val objectMethod = findDeclaredMethod(objectClass, methodName, methodDescriptor)
+    if (objectMethod != null && objectMethod.isPublic && !objectMethod.isStatic) {
       return MethodResolutionResult.Found(objectMethod)
     }
 
@@ -218,7 +244,7 @@ private class MethodResolveImpl(
     return allMatching.filter { method ->
       allMatching.none { otherMethod ->
         otherMethod.containingClassFile.name != method.containingClassFile.name
-          && context.classResolver.isSubclassOf(otherMethod.containingClassFile, method.containingClassFile.name)
+          && context.isSubclassOf(otherMethod.containingClassFile, method.containingClassFile.name)
       }
     }
   }
@@ -228,14 +254,14 @@ private class MethodResolveImpl(
    */
   private fun getSuperInterfaceMethods(start: ClassFile, predicate: (Method) -> Boolean): List<Method>? {
     //breadth-first-search
-    val queue: Queue<ClassFile> = LinkedList<ClassFile>()
+    val queue: Queue<ClassFile> = ArrayDeque()
     val visited = hashSetOf<String>()
     val result = arrayListOf<Method>()
     queue.add(start)
     visited.add(start.name)
     while (!queue.isEmpty()) {
       val cur = queue.remove()
-      cur.methods.filterTo(result, predicate)
+      getDeclaredMethods(cur, methodName).filterTo(result, predicate)
 
       cur.interfaces.forEach {
         if (it !in visited) {
@@ -285,6 +311,10 @@ private class MethodResolveImpl(
       }
     }
 
+    return cachedLookup(classFile, MemberResolutionCache.MethodLookupKind.CLASS_METHOD) { lookupClassMethod(classFile) }
+  }
+
+  private fun lookupClassMethod(classFile: ClassFile): MethodResolutionResult {
     /*
       2) Otherwise, method resolution attempts to locate the referenced method in C and its superclasses:
     */
@@ -332,18 +362,16 @@ private class MethodResolveImpl(
       The resolved method is the signature polymorphic method declaration. It is not necessary for C to declare
       a method with the descriptor specified by the method reference.
     */
-    val methods = currentClass.methods
-
-    val matchByName = methods.firstOrNull { it.name == methodName }
-    if (matchByName != null && isSignaturePolymorphic(matchByName) && methods.count { it.name == methodName } == 1) {
-      return MethodResolutionResult.Found(matchByName)
+    val matchesByName = getDeclaredMethods(currentClass, methodName)
+    if (matchesByName.size == 1 && isSignaturePolymorphic(matchesByName.first())) {
+      return MethodResolutionResult.Found(matchesByName.first())
     }
 
     /*
     2.2) Otherwise, if C declares a method with the name and descriptor
     specified by the method reference, method lookup succeeds.
      */
-    val matching = methods.find { methodName == it.name && methodDescriptor == it.descriptor }
+    val matching = matchesByName.find { methodDescriptor == it.descriptor }
     if (matching != null) {
       return MethodResolutionResult.Found(matching)
     }
@@ -405,7 +433,7 @@ private class MethodResolveImpl(
       1) If C contains a declaration for an instance method with the same name and descriptor as the resolved method,
       then it is the method to be invoked .
     */
-    val matching = classRef.methods.find { it.name == resolvedMethod.name && it.descriptor == resolvedMethod.descriptor }
+    val matching = findDeclaredMethod(classRef, resolvedMethod.name, resolvedMethod.descriptor)
     if (matching != null) {
       return 1 to matching
     }
@@ -420,7 +448,7 @@ private class MethodResolveImpl(
       var current: ClassFile = context.classResolver.resolveClassChecked(classRef.superName!!, classRef, context)
         ?: return null
       while (true) {
-        val match = current.methods.find { it.name == resolvedMethod.name && it.descriptor == resolvedMethod.descriptor }
+        val match = findDeclaredMethod(current, resolvedMethod.name, resolvedMethod.descriptor)
         if (match != null) {
           return 2 to match
         }
@@ -439,8 +467,8 @@ private class MethodResolveImpl(
     if (classRef.isInterface) {
       val objectClass = context.classResolver.resolveClassChecked("java/lang/Object", classRef, context)
         ?: return null
-      val match = objectClass.methods.find { it.name == resolvedMethod.name && it.descriptor == resolvedMethod.descriptor && it.isPublic }
-      if (match != null) {
+      val match = findDeclaredMethod(objectClass, resolvedMethod.name, resolvedMethod.descriptor)
+      if (match != null && match.isPublic) {
         return 3 to match
       }
     }
@@ -16,6 +16,14 @@ import com.jetbrains.pluginverifier.verifiers.VerificationContext
 
 fun Resolver.caching(): Resolver = CacheResolver(this)
 
+private const val SHARED_CACHE_SIZE = 8192
+
+/**
+ * Wraps this resolver with a cache that is big enough to be shared
+ * by all verifications against the same platform, and that counts hits and misses.
+ */
+fun Resolver.sharedCaching(): CacheResolver = CacheResolver(this, SHARED_CACHE_SIZE, true)
+
 fun Resolver.resolveClassOrNull(className: String): ClassFile? {
   val resolutionResult = resolveClass(className) as? ResolutionResult.Found ?: return null
   return ClassFileAsm(resolutionResult.value, resolutionResult.fileOrigin)
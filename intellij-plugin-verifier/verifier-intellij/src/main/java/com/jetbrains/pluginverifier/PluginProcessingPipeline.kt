@@ -0,0 +1,268 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier
+
+import com.jetbrains.plugin.structure.base.utils.MemoryAwareSemaphore
+import com.jetbrains.plugin.structure.base.utils.closeLogged
+import org.slf4j.LoggerFactory
+import java.io.Closeable
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.Semaphore
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Processes plugins in three stages, each with its own pool of workers:
+ * 1) download: the plugin file is fetched, which mostly waits for the network;
+ * 2) extraction: the plugin is extracted and its classes are indexed, which mostly waits for the disk;
+ * 3) processing: the plugin is verified, which mostly loads CPUs.
+ *
+ * So while some plugins are verified, the next ones are being downloaded and extracted.
+ * Stages are connected by bounded buffers: a download does not start while [StageSizes.downloadedBufferSize]
+ * downloaded plugins wait for extraction, and an extraction does not start while
+ * [StageSizes.extractedBufferSize] extracted plugins wait for processing. Memory and disk used by
+ * the pipeline are thereby bounded, and the slowest stage sets the pace of the others.
+ *
+ * Workers of each stage are platform threads. The number of processing workers is bounded by memory,
+ * see [getConcurrencyLevel], and extraction of a plugin starts only if [memoryPerItem] bytes of the heap
+ * are available for it and for each plugin being extracted, waiting for processing or processed,
+ * or no other plugin is past the download stage, see [MemoryAwareSemaphore].
+ *
+ * A resource passed between stages is owned by the worker that takes it from [openResources].
+ * When the pipeline is stopped, resources that no worker has taken yet are closed by the pipeline,
+ * and the others are closed by the workers owning them.
+ *
+ * [progress] is reported on the calling thread as soon as a plugin is processed.
+ */
+class PluginProcessingPipeline<T, R>(
+  private val pipelineName: String,
+  private val failFastOnException: Boolean,
+  private val stageSizes: StageSizes = StageSizes.fromSystemProperties(),
+  private val memoryPerItem: Long = 0,
+  private val progress: (ProgressData<T, R>) -> Unit
+) {
+
+  data class StageSizes(
+    val downloadWorkers: Int,
+    val downloadedBufferSize: Int,
+    val extractWorkers: Int,
+    val extractedBufferSize: Int,
+    val processWorkers: Int
+  ) {
+    init {
+      require(downloadWorkers > 0 && extractWorkers > 0 && processWorkers > 0) { "Invalid number of workers: $this" }
+      require(downloadedBufferSize >= 0 && extractedBufferSize >= 0) { "Invalid buffer size: $this" }
+    }
+
+    companion object {
+      private const val PROPERTY_PREFIX = "intellij.plugin.verifier.pipeline."
+
+      fun fromSystemProperties(): StageSizes {
+        val processWorkers = getProperty("process.workers") ?: getConcurrencyLevel()
+        val downloadWorkers = getProperty("download.workers") ?: 4
+        val extractWorkers = getProperty("extract.workers") ?: maxOf(1, Runtime.getRuntime().availableProcessors() / 4)
+        return StageSizes(
+          downloadWorkers,
+          getProperty("downloaded.buffer.size") ?: extractWorkers,
+          extractWorkers,
+          getProperty("extracted.buffer.size") ?: processWorkers,
+          processWorkers
+        )
+      }
+
+      private fun getProperty(name: String): Int? = System.getProperty(PROPERTY_PREFIX + name)?.toIntOrNull()
+    }
+  }
+
+  data class ProgressData<T, R>(
+    val item: T,
+    val finishedNumber: Int,
+    val totalNumber: Int,
+    val result: R?,
+    val exception: Throwable?,
+    val elapsedTime: Long
+  )
+
+  private class Finished<T, R>(val item: T, val result: R?, val exception: Throwable?, val elapsedTime: Long)
+
+  /**
+   * Processes [items] and returns the results in the order of completion.
+   *
+   * @param download fetches the plugin file and returns the lock keeping it, which is closed after [extract]
+   * @param extract extracts and indexes the plugin fetched by [download], the returned resource is closed after [process]
+   * @param process processes the extracted plugin
+   */
+  @Throws(InterruptedException::class)
+  fun <D : Closeable, E : Closeable> execute(
+    items: List<T>,
+    download: (T) -> D,
+    extract: (T, D) -> E,
+    process: (T, E) -> R
+  ): List<R> {
+    if (items.isEmpty()) {
+      return emptyList()
+    }
+    val downloadExecutor = createExecutor("download", stageSizes.downloadWorkers)
+    val extractExecutor = createExecutor("extract", stageSizes.extractWorkers)
+    val processExecutor = createExecutor("process", stageSizes.processWorkers)
+    val executors = listOf(downloadExecutor, extractExecutor, processExecutor)
+
+    //A permit is taken before a plugin enters a stage and returned after the plugin has passed the next stage.
+    val downloadPermits = Semaphore(stageSizes.downloadWorkers + stageSizes.downloadedBufferSize)
+    val extractPermits = MemoryAwareSemaphore(stageSizes.extractWorkers + stageSizes.extractedBufferSize, memoryPerItem)
+
+    val finishedItems = LinkedBlockingQueue<Finished<T, R>>()
+    val openResources = ConcurrentHashMap.newKeySet<Closeable>()
+
+    fun finish(item: T, startTime: Long, result: R?, exception: Throwable?) {
+      finishedItems.put(Finished(item, result, exception, (System.nanoTime() - startTime) / 1_000_000))
+    }
+
+    fun processStage(item: T, startTime: Long, extracted: E) {
+      if (!openResources.remove(extracted)) {
+        //The pipeline is being stopped and has closed the extracted plugin.
+        return
+      }
+      try {
+        val result = process(item, extracted)
+        finish(item, startTime, result, null)
+      } catch (e: Throwable) {
+        finish(item, startTime, null, e)
+      } finally {
+        extracted.closeLogged()
+        extractPermits.release()
+      }
+    }
+
+    fun extractStage(item: T, startTime: Long, fileLock: D) {
+      if (!openResources.remove(fileLock)) {
+        //The pipeline is being stopped and has closed the file lock.
+        return
+      }
+      val extracted = try {
+        extractPermits.acquire()
+        try {
+          extract(item, fileLock)
+        } catch (e: Throwable) {
+          extractPermits.release()
+          throw e
+        }
+      } catch (e: Throwable) {
+        finish(item, startTime, null, e)
+        return
+      } finally {
+        fileLock.closeLogged()
+        downloadPermits.release()
+      }
+      openResources += extracted
+      try {
+        processExecutor.execute { processStage(item, startTime, extracted) }
+      } catch (e: RejectedExecutionException) {
+        //The pipeline is being stopped.
+        if (openResources.remove(extracted)) {
+          extracted.closeLogged()
+        }
+      }
+    }
+
+    fun downloadStage(item: T) {
+      val startTime = System.nanoTime()
+      val fileLock = try {
+        download(item)
+      } catch (e: Throwable) {
+        downloadPermits.release()
+        finish(item, startTime, null, e)
+        return
+      }
+      openResources += fileLock
+      try {
+        extractExecutor.execute { extractStage(item, startTime, fileLock) }
+      } catch (e: RejectedExecutionException) {
+        //The pipeline is being stopped.
+        if (openResources.remove(fileLock)) {
+          fileLock.closeLogged()
+        }
+      }
+    }
+
+    val feeder = Thread({
+      try {
+        for (item in items) {
+          downloadPermits.acquire()
+          downloadExecutor.execute { downloadStage(item) }
+        }
+      } catch (e: InterruptedException) {
+        //The pipeline is being stopped.
+      } catch (e: RejectedExecutionException) {
+        //The pipeline is being stopped.
+      }
+    }, "$pipelineName-feeder")
+    feeder.isDaemon = true
+    feeder.start()
+
+    try {
+      return waitAll(items.size, finishedItems)
+    } finally {
+      //All plugins are processed by now, unless the pipeline is being stopped because of an error or interruption.
+      feeder.interrupt()
+      executors.forEach { it.shutdownNow() }
+      val terminated = executors.map { it.awaitTermination(1, TimeUnit.MINUTES) }
+      if (!terminated.all { it }) {
+        LOG.warn("Some workers of pipeline '$pipelineName' are still running, they will close their resources when they finish")
+      }
+      //Resources that no worker has taken are closed here. A worker starting later finds its resource taken and skips it.
+      for (resource in openResources) {
+        if (openResources.remove(resource)) {
+          resource.closeLogged()
+        }
+      }
+    }
+  }
+
+  private fun waitAll(totalNumber: Int, finishedItems: LinkedBlockingQueue<Finished<T, R>>): List<R> {
+    val results = arrayListOf<R>()
+    val exceptions = arrayListOf<Throwable>()
+    for (finishedNumber in 1..totalNumber) {
+      val finished = finishedItems.take()
+      val exception = finished.exception
+      if (exception != null) {
+        if (failFastOnException) {
+          throw RuntimeException("Worker '${finished.item}' finished with error", exception)
+        }
+        exceptions += exception
+        progress(ProgressData(finished.item, finishedNumber, totalNumber, null, exception, finished.elapsedTime))
+      } else {
+        @Suppress("UNCHECKED_CAST")
+        val result = finished.result as R
+        progress(ProgressData(finished.item, finishedNumber, totalNumber, result, null, finished.elapsedTime))
+        results += result
+      }
+    }
+    if (exceptions.isNotEmpty()) {
+      val error = RuntimeException("Some workers finished with error")
+      exceptions.forEach { error.addSuppressed(it) }
+      throw error
+    }
+    return results
+  }
+
+  private companion object {
+    private val LOG = LoggerFactory.getLogger(PluginProcessingPipeline::class.java)
+  }
+
+  private fun createExecutor(stageName: String, workers: Int): ExecutorService {
+    val counter = AtomicInteger()
+    return Executors.newFixedThreadPool(workers) { r ->
+      Thread(r).apply {
+        isDaemon = true
+        name = pipelineName + "_" + stageName + "_" + counter.incrementAndGet()
+      }
+    }
+  }
+}
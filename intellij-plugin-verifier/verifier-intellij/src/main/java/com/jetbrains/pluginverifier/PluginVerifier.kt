@@ -17,6 +17,7 @@ import com.jetbrains.pluginverifier.dymamic.DynamicPlugins
 import com.jetbrains.pluginverifier.filtering.ExternalBuildClassesSelector
 import com.jetbrains.pluginverifier.filtering.MainClassesSelector
 import com.jetbrains.pluginverifier.filtering.ProblemsFilter
+import com.jetbrains.pluginverifier.incremental.VerifiedClassesStorage
 import com.jetbrains.pluginverifier.plugin.PluginDetails
 import com.jetbrains.pluginverifier.plugin.PluginDetailsCache
 import com.jetbrains.pluginverifier.results.problems.ClassNotFoundProblem
@@ -48,27 +49,46 @@ class PluginVerifier(
   private val excludeExternalBuildClassesSelector: Boolean
 ) {
 
-  fun loadPluginAndVerify(): PluginVerificationResult {
-    pluginDetailsCache.getPluginDetailsCacheEntry(verificationDescriptor.checkedPlugin).use { cacheEntry ->
-      return when (cacheEntry) {
-        is PluginDetailsCache.Result.InvalidPlugin -> {
-          PluginVerificationResult.InvalidPlugin(
-            verificationDescriptor.checkedPlugin,
-            verificationDescriptor.toTarget(),
-            cacheEntry.pluginErrors
-              .filter { it.level == PluginProblem.Level.ERROR }
-              .mapTo(hashSetOf()) { PluginStructureError(it) }
-          )
-        }
-        is PluginDetailsCache.Result.FileNotFound -> {
-          PluginVerificationResult.NotFound(verificationDescriptor.checkedPlugin, verificationDescriptor.toTarget(), cacheEntry.reason)
-        }
-        is PluginDetailsCache.Result.Failed -> {
-          PluginVerificationResult.FailedToDownload(verificationDescriptor.checkedPlugin, verificationDescriptor.toTarget(), cacheEntry.reason)
-        }
-        is PluginDetailsCache.Result.Provided -> {
-          verify(cacheEntry.pluginDetails)
-        }
+  fun loadPluginAndVerify(): PluginVerificationResult =
+    loadPluginDetails().use { verify(it) }
+
+  /**
+   * Fetches the file of the checked plugin in advance, see [PluginDetailsCache.prefetchPluginFile].
+   */
+  fun prefetchPluginFile(): PluginDetailsCache.PrefetchResult =
+    pluginDetailsCache.prefetchPluginFile(verificationDescriptor.checkedPlugin)
+
+  /**
+   * Provides the details of the checked plugin. The result must be closed after [verify].
+   */
+  fun loadPluginDetails(): PluginDetailsCache.Result =
+    pluginDetailsCache.getPluginDetailsCacheEntry(verificationDescriptor.checkedPlugin)
+
+  /**
+   * Provides the details of the checked plugin fetched by [prefetchPluginFile]. The result must be closed after [verify].
+   */
+  fun loadPluginDetails(prefetchResult: PluginDetailsCache.PrefetchResult): PluginDetailsCache.Result =
+    pluginDetailsCache.getPluginDetailsCacheEntry(verificationDescriptor.checkedPlugin, prefetchResult)
+
+  fun verify(cacheEntry: PluginDetailsCache.Result): PluginVerificationResult {
+    return when (cacheEntry) {
+      is PluginDetailsCache.Result.InvalidPlugin -> {
+        PluginVerificationResult.InvalidPlugin(
+          verificationDescriptor.checkedPlugin,
+          verificationDescriptor.toTarget(),
+          cacheEntry.pluginErrors
+            .filter { it.level == PluginProblem.Level.ERROR }
+            .mapTo(hashSetOf()) { PluginStructureError(it) }
+        )
+      }
+      is PluginDetailsCache.Result.FileNotFound -> {
+        PluginVerificationResult.NotFound(verificationDescriptor.checkedPlugin, verificationDescriptor.toTarget(), cacheEntry.reason)
+      }
+      is PluginDetailsCache.Result.Failed -> {
+        PluginVerificationResult.FailedToDownload(verificationDescriptor.checkedPlugin, verificationDescriptor.toTarget(), cacheEntry.reason)
+      }
+      is PluginDetailsCache.Result.Provided -> {
+        verify(cacheEntry.pluginDetails)
       }
     }
   }
@@ -92,6 +112,10 @@ class PluginVerifier(
       context.findDependenciesCycles(dependenciesGraph)
 
       val classesToCheck = selectClassesForCheck(pluginDetails)
+      val verifiedClassesStorage = VerifiedClassesStorage.DEFAULT
+      val pluginId = verificationDescriptor.checkedPlugin.pluginId
+      val incrementalTarget = getIncrementalTarget()
+      val verifiedClasses = verifiedClassesStorage?.load(pluginId, incrementalTarget)
 
       BytecodeVerifier(
         classFilters,
@@ -105,8 +129,13 @@ class PluginVerifier(
               InternalMethodOverridingProcessor(context)
             )
           )
-        )
+        ),
+        concurrentWorkers = getClassesConcurrencyLevel(),
+        verifiedClasses = verifiedClasses
       ).verify(classesToCheck, context) {}
+      if (verifiedClassesStorage != null && verifiedClasses != null) {
+        verifiedClassesStorage.save(pluginId, incrementalTarget, verifiedClasses)
+      }
 
       analyzeMissingClassesCausedByMissingOptionalDependencies(
         context.compatibilityProblems,
@@ -137,6 +166,12 @@ class PluginVerifier(
     }
   }
 
+  private fun getIncrementalTarget(): String =
+    when (val target = verificationDescriptor.toTarget()) {
+      is PluginVerificationTarget.SonarPluginApi -> "${target.version.asString()} ${target.jdkVersion.javaVersion}"
+      is PluginVerificationTarget.Plugin -> "${target.plugin} ${target.jdkVersion.javaVersion}"
+    }
+
   private fun partitionReportAndIgnoredProblems(
     allProblems: Set<CompatibilityProblem>,
     verificationContext: VerificationContext
@@ -293,6 +328,8 @@ class PluginVerifier(
     return classesForCheck
   }
 
+  override fun toString() = verificationDescriptor.toString()
+
 }
 
 /**
@@ -4,15 +4,22 @@
 
 package com.jetbrains.pluginverifier
 
-import com.jetbrains.plugin.structure.base.utils.ExecutorWithProgress
 import com.jetbrains.pluginverifier.reporting.PluginVerificationReportage
 
+/**
+ * Runs [verifiers] in a [PluginProcessingPipeline], so that plugins are downloaded and extracted
+ * while other plugins are being verified.
+ */
 fun runSeveralVerifiers(reportage: PluginVerificationReportage, verifiers: List<PluginVerifier>): List<PluginVerificationResult> {
   if (verifiers.isEmpty()) {
     return emptyList()
   }
 
-  val executor = ExecutorWithProgress<PluginVerificationResult>("verifier", getConcurrencyLevel(), true) { progressData ->
+  val pipeline = PluginProcessingPipeline<PluginVerifier, PluginVerificationResult>(
+    "verifier",
+    true,
+    memoryPerItem = VERIFICATION_MEMORY_ESTIMATE
+  ) { progressData ->
     val result = progressData.result!!
     reportage.logVerificationStage(
       "Finished ${progressData.finishedNumber} of ${progressData.totalNumber} verifications (in ${String.format("%.1f", progressData.elapsedTime.toDouble() / 1000)} s): " +
@@ -20,16 +27,30 @@ fun runSeveralVerifiers(reportage: PluginVerificationReportage, verifiers: List<
     )
   }
 
-  val tasks = verifiers.map { verifier ->
-    ExecutorWithProgress.Task(verifier.verificationDescriptor.toString()) {
-      val verificationResult = verifier.loadPluginAndVerify()
+  return pipeline.execute(
+    verifiers,
+    { verifier -> verifier.prefetchPluginFile() },
+    { verifier, prefetchResult -> verifier.loadPluginDetails(prefetchResult) },
+    { verifier, cacheEntry ->
+      val verificationResult = verifier.verify(cacheEntry)
       reportage.reportVerificationResult(verificationResult)
       verificationResult
     }
-  }
-  return executor.executeTasks(tasks)
+  )
 }
 
+/**
+ * About 200 Mb is needed for an average verification.
+ */
+const val VERIFICATION_MEMORY_ESTIMATE = 200L * 1024 * 1024
+
+/**
+ * Number of plugins verified concurrently, that is the number of platform threads
+ * of the processing stage of [PluginProcessingPipeline].
+ *
+ * The level is limited by the memory estimate of a verification. Downloads and extractions
+ * run in their own stages, so verifications mostly load CPUs.
+ */
 fun getConcurrencyLevel(): Int {
   val fromProperty = System.getProperty("intellij.plugin.verifier.concurrency.level")?.toIntOrNull()
   if (fromProperty != null) {
@@ -39,7 +60,18 @@ fun getConcurrencyLevel(): Int {
 
   val availableMemory = Runtime.getRuntime().maxMemory()
   val availableCpu = Runtime.getRuntime().availableProcessors().toLong()
-  //About 200 Mb is needed for an average verification
-  val maxByMemory = availableMemory / 1024 / 1024 / 200
+  val maxByMemory = availableMemory / VERIFICATION_MEMORY_ESTIMATE
   return maxOf(8, minOf(maxByMemory, availableCpu)).toInt()
-}
\ No newline at end of file
+}
+
+/**
+ * Number of workers verifying classes of a single plugin, see [com.jetbrains.pluginverifier.verifiers.BytecodeVerifier].
+ *
+ * Classes are verified on one thread by default, because several plugins are usually verified concurrently.
+ * It makes sense to increase it when a single big plugin is verified.
+ */
+fun getClassesConcurrencyLevel(): Int {
+  val fromProperty = System.getProperty("intellij.plugin.verifier.classes.concurrency.level")?.toIntOrNull() ?: return 1
+  check(fromProperty > 0) { "Invalid classes concurrency level: $fromProperty" }
+  return fromProperty
+}
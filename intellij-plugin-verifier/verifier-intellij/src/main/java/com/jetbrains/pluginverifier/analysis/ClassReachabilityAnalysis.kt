@@ -15,18 +15,100 @@ import java.util.*
 
 private typealias ClassName = String
 
-class TypeGraph {
-
-  private val backTypeEdges: MutableMap<ClassName, MutableSet<ClassName>> = hashMapOf()
+/**
+ * Graph of type references between classes of a plugin.
+ *
+ * Classes are interned to dense integer ids, and edges are stored
+ * in compressed sparse row arrays: targets of class `id` are
+ * `edgeTargets[edgeOffsets[id] until edgeOffsets[id + 1]]`.
+ */
+class TypeGraph private constructor(
+  private val classIds: Map<ClassName, Int>,
+  private val edgeOffsets: IntArray,
+  private val edgeTargets: IntArray
+) {
+
+  val classesNumber: Int
+    get() = classIds.size
+
+  fun getClassId(className: ClassName): Int? = classIds[className]
+
+  /**
+   * Returns ids of classes reachable by at least one edge from any of the [sources].
+   */
+  fun getReachableClasses(sources: BitSet): BitSet {
+    val reachable = BitSet(classesNumber)
+    val queue = IntArray(classesNumber)
+    var queueSize = 0
+
+    fun visitEdgesFrom(classId: Int) {
+      for (edge in edgeOffsets[classId] until edgeOffsets[classId + 1]) {
+        val target = edgeTargets[edge]
+        if (!reachable.get(target)) {
+          reachable.set(target)
+          queue[queueSize++] = target
+        }
+      }
+    }
 
-  fun addEdge(from: ClassName, to: ClassName) {
-    backTypeEdges.getOrPut(to) { hashSetOf() } += from
+    var source = sources.nextSetBit(0)
+    while (source >= 0) {
+      visitEdgesFrom(source)
+      source = sources.nextSetBit(source + 1)
+    }
+    var head = 0
+    while (head < queueSize) {
+      visitEdgesFrom(queue[head++])
+    }
+    return reachable
   }
 
-  fun getEdgesTo(to: ClassName): Set<ClassName> =
-    backTypeEdges[to].orEmpty()
+  class Builder {
+    private val classIds = hashMapOf<ClassName, Int>()
+
+    private var edgeSources = IntArray(16)
+
+    private var edgeTargets = IntArray(16)
+
+    private var edgesNumber = 0
+
+    fun addClass(className: ClassName): Int = classIds.getOrPut(className) { classIds.size }
+
+    fun addEdge(from: ClassName, to: ClassName) {
+      if (edgesNumber == edgeSources.size) {
+        edgeSources = edgeSources.copyOf(edgesNumber * 2)
+        edgeTargets = edgeTargets.copyOf(edgesNumber * 2)
+      }
+      edgeSources[edgesNumber] = addClass(from)
+      edgeTargets[edgesNumber] = addClass(to)
+      edgesNumber++
+    }
+
+    fun build(): TypeGraph {
+      val classesNumber = classIds.size
+      val offsets = IntArray(classesNumber + 1)
+      for (edge in 0 until edgesNumber) {
+        offsets[edgeSources[edge] + 1]++
+      }
+      for (classId in 0 until classesNumber) {
+        offsets[classId + 1] += offsets[classId]
+      }
+      val positions = offsets.copyOf(classesNumber)
+      val targets = IntArray(edgesNumber)
+      for (edge in 0 until edgesNumber) {
+        targets[positions[edgeSources[edge]]++] = edgeTargets[edge]
+      }
+      return TypeGraph(classIds, offsets, targets)
+    }
+  }
 }
 
+/**
+ * Answers whether a class is referenced, directly or transitively, by classes marked with a [ReachabilityMark].
+ *
+ * Classes reachable from each mark are computed once in a single traversal of the [graph]
+ * and kept in a bitset, until classes are marked again.
+ */
 class ReachabilityGraph(private val graph: TypeGraph) {
 
   enum class ReachabilityMark {
@@ -34,44 +116,23 @@ class ReachabilityGraph(private val graph: TypeGraph) {
     OPTIONAL_PLUGIN
   }
 
-  private val classMarks: MutableMap<ClassName, EnumSet<ReachabilityMark>> = hashMapOf()
+  private val markedClasses = EnumMap<ReachabilityMark, BitSet>(ReachabilityMark::class.java)
+
+  private val reachableClasses = EnumMap<ReachabilityMark, BitSet>(ReachabilityMark::class.java)
 
   fun markClass(className: ClassName, mark: ReachabilityMark) {
-    classMarks.getOrPut(className) { EnumSet.noneOf(ReachabilityMark::class.java) } += mark
+    //Classes that are not in the graph do not reference other classes.
+    val classId = graph.getClassId(className) ?: return
+    markedClasses.getOrPut(mark) { BitSet(graph.classesNumber) }.set(classId)
+    reachableClasses.remove(mark)
   }
 
   fun isClassReachableFromMark(className: ClassName, mark: ReachabilityMark): Boolean {
-    val visitedClasses = hashSetOf<ClassName>()
-    val stack = LinkedList<ClassName>()
-    val way = LinkedList<ClassName>()
-
-    stack += className
-    while (stack.isNotEmpty()) {
-      val currentClass = stack.peekFirst()
-      if (!visitedClasses.add(currentClass)) {
-        //Second time visiting the same node => all node's children are visited => poll from the queue.
-        stack.pollFirst()
-        way.pollLast()
-        continue
-      }
-      way.addLast(currentClass)
-
-      val referencingTypes = graph.getEdgesTo(currentClass)
-      for (typeName in referencingTypes) {
-        if (classMarks[typeName]?.contains(mark) == true) {
-          //Mark all the classes on the way as memoization.
-          for (name in way) {
-            markClass(name, mark)
-          }
-          return true
-        }
-
-        if (typeName !in visitedClasses) {
-          stack.addFirst(typeName)
-        }
-      }
+    val classId = graph.getClassId(className) ?: return false
+    val reachable = reachableClasses.getOrPut(mark) {
+      graph.getReachableClasses(markedClasses[mark] ?: BitSet())
     }
-    return false
+    return reachable.get(classId)
   }
 }
 
@@ -104,13 +165,14 @@ fun buildClassReachabilityGraph(
 }
 
 private fun buildTypeGraph(pluginResolver: Resolver): TypeGraph {
-  val graph = TypeGraph()
+  val graph = TypeGraph.Builder()
 
   pluginResolver.processAllClasses { resolutionResult ->
     if (resolutionResult !is ResolutionResult.Found) {
       return@processAllClasses true
     }
     val classNode = resolutionResult.value
+    graph.addClass(classNode.name)
 
     val references = TypeReferences()
     classNode.accept(TypeReferencesClassVisitor(references))
@@ -123,7 +185,7 @@ private fun buildTypeGraph(pluginResolver: Resolver): TypeGraph {
     true
   }
 
-  return graph
+  return graph.build()
 }
 
 private class TypeReferences {
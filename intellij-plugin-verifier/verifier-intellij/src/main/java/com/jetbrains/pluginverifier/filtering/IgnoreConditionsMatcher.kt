@@ -0,0 +1,101 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.filtering
+
+import java.util.*
+
+/**
+ * Patterns of [IgnoreCondition]s compiled into a trie of their literal prefixes.
+ *
+ * A description can fully match a pattern only if it starts with the pattern's literal prefix,
+ * so one pass over the description along the trie selects the candidate conditions,
+ * and only their patterns are matched.
+ *
+ * Prefixes are compared ignoring case, as the patterns of [IgnoreCondition.parseCondition] are.
+ * Characters are folded the way Unicode-aware case-insensitive patterns compare them, so that, for example,
+ * the dotless `ı` matches `I` and the long `ſ` matches `S`.
+ */
+internal class IgnoreConditionsMatcher(
+  private val conditions: List<IgnoreCondition>,
+  private val conditionIndices: IntArray
+) {
+
+  private companion object {
+    const val METACHARACTERS = "\\^$.|?*+()[]{}"
+
+    const val OPTIONAL_QUANTIFIERS = "?*{"
+
+    /**
+     * Returns the literal string, which all strings fully matching [pattern] start with.
+     * Escaped metacharacters, such as `\.`, are literals too.
+     */
+    fun getLiteralPrefix(pattern: String): String {
+      if ('|' in pattern) {
+        //Alternatives may start with different strings.
+        return ""
+      }
+      val prefix = StringBuilder()
+      var offset = 0
+      while (offset < pattern.length) {
+        val char = pattern[offset]
+        val literalLength = when {
+          char == '\\' && offset + 1 < pattern.length && !pattern[offset + 1].isLetterOrDigit() -> 2
+          char !in METACHARACTERS -> 1
+          else -> break
+        }
+        val next = offset + literalLength
+        if (next < pattern.length && pattern[next] in OPTIONAL_QUANTIFIERS) {
+          //The literal may be absent, as in "abc?" or "abc*".
+          break
+        }
+        prefix.append(pattern[next - 1])
+        offset = next
+      }
+      return prefix.toString()
+    }
+
+    fun foldCase(char: Char): Char = Character.toLowerCase(Character.toUpperCase(char))
+  }
+
+  private class Node {
+    val children = hashMapOf<Char, Node>()
+
+    val conditions = arrayListOf<Int>()
+  }
+
+  private val root = Node()
+
+  init {
+    for ((position, condition) in conditions.withIndex()) {
+      var node = root
+      for (char in getLiteralPrefix(condition.pattern.pattern)) {
+        node = node.children.getOrPut(foldCase(char)) { Node() }
+      }
+      node.conditions += position
+    }
+  }
+
+  /**
+   * Returns the index of the first condition, which pattern fully matches [description], or -1 if there is no such condition.
+   * Indices are those passed in [conditionIndices], in the same order as [conditions].
+   */
+  fun findFirstMatchingCondition(description: String): Int {
+    val candidates = BitSet(conditions.size)
+    var node: Node? = root
+    var offset = 0
+    while (node != null) {
+      node.conditions.forEach { candidates.set(it) }
+      node = if (offset < description.length) node.children[foldCase(description[offset++])] else null
+    }
+    var position = candidates.nextSetBit(0)
+    while (position >= 0) {
+      if (description.matches(conditions[position].pattern)) {
+        return conditionIndices[position]
+      }
+      position = candidates.nextSetBit(position + 1)
+    }
+    return -1
+  }
+}
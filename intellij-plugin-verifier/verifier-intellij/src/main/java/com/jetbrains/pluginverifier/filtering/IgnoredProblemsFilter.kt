@@ -10,9 +10,20 @@ import com.jetbrains.pluginverifier.verifiers.VerificationContext
 
 /**
  * [ProblemsFilter] that ignores problems specified in [ignoreConditions].
+ *
+ * Conditions are grouped by the plugin ID and version they apply to,
+ * and each group is compiled into an [IgnoreConditionsMatcher] once.
+ * If several conditions match a problem, the first one in [ignoreConditions] is reported as the reason.
  */
 class IgnoredProblemsFilter(val ignoreConditions: List<IgnoreCondition>) : ProblemsFilter {
 
+  private data class Scope(val pluginId: String?, val version: String?)
+
+  private val matchers: Map<Scope, IgnoreConditionsMatcher> =
+    ignoreConditions.indices
+      .groupBy { Scope(ignoreConditions[it].pluginId, ignoreConditions[it].version) }
+      .mapValues { (_, indices) -> IgnoreConditionsMatcher(indices.map { ignoreConditions[it] }, indices.toIntArray()) }
+
   override fun shouldReportProblem(
     problem: CompatibilityProblem,
     context: VerificationContext
@@ -23,16 +34,27 @@ class IgnoredProblemsFilter(val ignoreConditions: List<IgnoreCondition>) : Probl
     val currentId = context.idePlugin.pluginId
     val currentVersion = context.idePlugin.pluginVersion
 
-    for ((pluginId, version, pattern) in ignoreConditions) {
-      if (pluginId == null || pluginId == currentId) {
-        if (version == null || version == currentVersion) {
-          if (problem.shortDescription.matches(pattern)) {
-            return ProblemsFilter.Result.Ignore("the problem is ignored by RegExp pattern: \"$pattern\"")
-          }
-        }
-      }
+    val ignoreCondition = findIgnoreCondition(problem.shortDescription, currentId, currentVersion)
+    if (ignoreCondition != null) {
+      return ProblemsFilter.Result.Ignore("the problem is ignored by RegExp pattern: \"${ignoreCondition.pattern}\"")
     }
     return ProblemsFilter.Result.Report
   }
 
-}
\ No newline at end of file
+  /**
+   * Returns the first of [ignoreConditions] that ignores a problem with [shortDescription]
+   * of plugin [pluginId] of [pluginVersion], or `null` if the problem is not ignored.
+   */
+  fun findIgnoreCondition(shortDescription: String, pluginId: String?, pluginVersion: String?): IgnoreCondition? {
+    var firstIndex = -1
+    for (scope in listOf(Scope(null, null), Scope(pluginId, null), Scope(null, pluginVersion), Scope(pluginId, pluginVersion))) {
+      val matcher = matchers[scope] ?: continue
+      val index = matcher.findFirstMatchingCondition(shortDescription)
+      if (index >= 0 && (firstIndex < 0 || index < firstIndex)) {
+        firstIndex = index
+      }
+    }
+    return if (firstIndex >= 0) ignoreConditions[firstIndex] else null
+  }
+
+}
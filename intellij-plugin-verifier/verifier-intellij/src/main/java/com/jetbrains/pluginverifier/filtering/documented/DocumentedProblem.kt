@@ -47,7 +47,7 @@ data class DocMethodRemoved(val hostClass: String, val methodName: String) : Doc
   override fun isDocumenting(problem: CompatibilityProblem, context: VerificationContext): Boolean =
     problem is MethodNotFoundProblem
       && problem.unresolvedMethod.methodName == methodName
-      && context.classResolver.isSubclassOrSelf(problem.unresolvedMethod.hostClass.className, hostClass)
+      && context.isSubclassOrSelf(problem.unresolvedMethod.hostClass.className, hostClass)
 }
 
 /**
@@ -60,7 +60,7 @@ data class DocMethodReturnTypeChanged(val hostClass: String, val methodName: Str
   override fun isDocumenting(problem: CompatibilityProblem, context: VerificationContext): Boolean =
     problem is MethodNotFoundProblem
       && problem.unresolvedMethod.methodName == methodName
-      && context.classResolver.isSubclassOrSelf(problem.unresolvedMethod.hostClass.className, hostClass)
+      && context.isSubclassOrSelf(problem.unresolvedMethod.hostClass.className, hostClass)
       ||
       problem is MethodNotImplementedProblem
       && problem.abstractMethod.methodName == methodName
@@ -91,8 +91,8 @@ data class DocFinalMethodInherited(val changedClass: String, val newParent: Stri
     problem is OverridingFinalMethodProblem
       && problem.finalMethod.methodName == methodName
       && problem.finalMethod.hostClass.className == newParent
-      && context.classResolver.isSubclassOrSelf(problem.invalidClass.className, changedClass)
-      && context.classResolver.isSubclassOf(changedClass, newParent)
+      && context.isSubclassOrSelf(problem.invalidClass.className, changedClass)
+      && context.isSubclassOf(changedClass, newParent)
 }
 
 /**
@@ -105,7 +105,7 @@ data class DocMethodParameterTypeChanged(val hostClass: String, val methodName:
   override fun isDocumenting(problem: CompatibilityProblem, context: VerificationContext): Boolean =
     problem is MethodNotFoundProblem
       && problem.unresolvedMethod.methodName == methodName
-      && context.classResolver.isSubclassOrSelf(problem.unresolvedMethod.hostClass.className, hostClass)
+      && context.isSubclassOrSelf(problem.unresolvedMethod.hostClass.className, hostClass)
       ||
       problem is MethodNotImplementedProblem
       && problem.abstractMethod.methodName == methodName
@@ -122,7 +122,7 @@ data class DocFieldRemoved(val hostClass: String, val fieldName: String) : Docum
   override fun isDocumenting(problem: CompatibilityProblem, context: VerificationContext): Boolean =
     problem is FieldNotFoundProblem
       && problem.unresolvedField.fieldName == fieldName
-      && context.classResolver.isSubclassOrSelf(problem.unresolvedField.hostClass.className, hostClass)
+      && context.isSubclassOrSelf(problem.unresolvedField.hostClass.className, hostClass)
 }
 
 /**
@@ -145,7 +145,7 @@ data class DocFieldTypeChanged(val hostClass: String, val fieldName: String) : D
   override fun isDocumenting(problem: CompatibilityProblem, context: VerificationContext): Boolean =
     problem is FieldNotFoundProblem
       && problem.unresolvedField.fieldName == fieldName
-      && context.classResolver.isSubclassOrSelf(problem.unresolvedField.hostClass.className, hostClass)
+      && context.isSubclassOrSelf(problem.unresolvedField.hostClass.className, hostClass)
 }
 
 /**
@@ -184,7 +184,7 @@ data class DocAbstractMethodAdded(val hostClass: String, val methodName: String)
   override fun isDocumenting(problem: CompatibilityProblem, context: VerificationContext): Boolean =
     problem is MethodNotImplementedProblem
       && problem.abstractMethod.methodName == methodName
-      && context.classResolver.isSubclassOrSelf(problem.incompleteClass.className, hostClass)
+      && context.isSubclassOrSelf(problem.incompleteClass.className, hostClass)
 }
 
 /**
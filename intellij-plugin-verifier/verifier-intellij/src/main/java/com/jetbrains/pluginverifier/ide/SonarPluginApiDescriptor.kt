@@ -7,13 +7,19 @@ package com.jetbrains.pluginverifier.ide
 import com.jetbrains.plugin.structure.base.utils.closeLogged
 import com.jetbrains.plugin.structure.base.utils.closeOnException
 import com.jetbrains.plugin.structure.base.utils.isDirectory
+import com.jetbrains.plugin.structure.classes.resolvers.CacheResolver
+import com.jetbrains.plugin.structure.classes.resolvers.ClassesSnapshot
 import com.jetbrains.plugin.structure.classes.resolvers.Resolver
 import com.jetbrains.plugin.structure.ide.SonarPluginApi
 import com.jetbrains.plugin.structure.ide.SonarPluginApiManager
+import com.jetbrains.plugin.structure.ide.InvalidSonarPluginApiException
 import com.jetbrains.plugin.structure.ide.classes.IdeResolverCreator
+import com.jetbrains.plugin.structure.intellij.version.VersionImpl
 import com.jetbrains.pluginverifier.jdk.JdkDescriptor
 import com.jetbrains.pluginverifier.jdk.JdkDescriptorCreator
 import com.jetbrains.pluginverifier.repository.files.FileLock
+import com.jetbrains.pluginverifier.verifiers.resolution.sharedCaching
+import org.slf4j.LoggerFactory
 import java.io.Closeable
 import java.nio.file.Path
 import java.nio.file.Paths
@@ -26,6 +32,8 @@ import java.nio.file.Paths
  * - [jdkDescriptor] - JDK used to run the IDE: a bundled JDK if available or a specified default JDK
  * - [ideFileLock] - a lock to protect the IDE file from deletion.
  * It will be closed along with `this` descriptor.
+ * - [sharedIdeResolver] - caching [ideResolver] shared by all verifications against this sonar-plugin-api,
+ * so that each platform class is read once per process.
  */
 data class SonarPluginApiDescriptor(
   val sonarPluginApi: SonarPluginApi,
@@ -34,6 +42,10 @@ data class SonarPluginApiDescriptor(
   val ideFileLock: FileLock?
 ) : Closeable {
 
+  private val sharedIdeResolverLazy = lazy { ideResolver.sharedCaching() }
+
+  val sharedIdeResolver: CacheResolver by sharedIdeResolverLazy
+
   val version get() = sonarPluginApi.version
 
   val jdkVersion get() = jdkDescriptor.jdkVersion
@@ -41,14 +53,29 @@ data class SonarPluginApiDescriptor(
   override fun toString() = version.toString()
 
   override fun close() {
+    if (LOG.isDebugEnabled) {
+      //Shared resolvers that have not been used are not created just to log their statistics.
+      if (sharedIdeResolverLazy.isInitialized()) {
+        LOG.debug("Classes cache of sonar-plugin-api $version: ${sharedIdeResolver.statistics}")
+      }
+      val jdkStatistics = jdkDescriptor.sharedJdkResolverStatistics
+      if (jdkStatistics != null) {
+        LOG.debug("Classes cache of JDK $jdkDescriptor: $jdkStatistics")
+      }
+    }
     ideResolver.closeLogged()
     jdkDescriptor.closeLogged()
     ideFileLock.closeLogged()
   }
 
   companion object {
+    private val LOG = LoggerFactory.getLogger(SonarPluginApiDescriptor::class.java)
+
+    private const val SONAR_API_VERSION_FILE = "sonar-api-version.txt"
+
     /**
-     * Creates [SonarPluginApiDescriptor] for specified [sonarPluginApiFilePath].
+     * Creates [SonarPluginApiDescriptor] for specified [sonarPluginApiFilePath],
+     * which is either a sonar-plugin-api jar or its [ClassesSnapshot].
      * [ideFileLock] will be released when this [SonarPluginApiDescriptor] is closed.
      */
     fun create(
@@ -56,15 +83,26 @@ data class SonarPluginApiDescriptor(
       defaultJdkPath: Path?,
       ideFileLock: FileLock?
     ): SonarPluginApiDescriptor {
-      val ide = SonarPluginApiManager.createManager().createSonarPluginApi(sonarPluginApiFilePath)
-      val ideResolver = IdeResolverCreator.createIdeResolver(ide)
+      val ide = createSonarPluginApi(sonarPluginApiFilePath)
+      //Code of platform classes is rarely needed, so it is read only when requested.
+      val ideResolver = IdeResolverCreator.createIdeResolver(ide, Resolver.ReadMode.FULL_LAZY_CODE)
       ideResolver.closeOnException {
-        val jdkDescriptor = JdkDescriptorCreator.createBundledJdkDescriptor(ide)
+        val jdkDescriptor = JdkDescriptorCreator.createBundledJdkDescriptor(ide, Resolver.ReadMode.FULL_LAZY_CODE)
           ?: createDefaultJdkDescriptor(defaultJdkPath)
         return SonarPluginApiDescriptor(ide, ideResolver, jdkDescriptor, ideFileLock)
       }
     }
 
+    private fun createSonarPluginApi(sonarPluginApiFilePath: Path): SonarPluginApi {
+      if (!ClassesSnapshot.isSnapshot(sonarPluginApiFilePath)) {
+        return SonarPluginApiManager.createManager().createSonarPluginApi(sonarPluginApiFilePath)
+      }
+      val versionBytes = ClassesSnapshot.readResource(sonarPluginApiFilePath, SONAR_API_VERSION_FILE)
+        ?: throw InvalidSonarPluginApiException(sonarPluginApiFilePath, "Missing \"$SONAR_API_VERSION_FILE\" file in the sonar-plugin-api snapshot")
+      val version = VersionImpl.fromString(String(versionBytes, Charsets.UTF_8).trim())
+      return SonarPluginApiManager.createManager().createSonarPluginApi(sonarPluginApiFilePath, version)
+    }
+
     private fun createDefaultJdkDescriptor(defaultJdkPath: Path?): JdkDescriptor {
       val jdkPath = defaultJdkPath ?: run {
         val javaHome = System.getenv("JAVA_HOME")
@@ -73,7 +111,7 @@ data class SonarPluginApiDescriptor(
         Paths.get(javaHome)
       }
       require(jdkPath.isDirectory) { "Invalid JDK path: $jdkPath" }
-      return JdkDescriptorCreator.createJdkDescriptor(jdkPath)
+      return JdkDescriptorCreator.createJdkDescriptor(jdkPath, Resolver.ReadMode.FULL_LAZY_CODE)
     }
 
   }
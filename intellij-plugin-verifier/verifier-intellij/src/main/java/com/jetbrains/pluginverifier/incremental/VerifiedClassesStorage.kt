@@ -0,0 +1,134 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.incremental
+
+import com.jetbrains.plugin.structure.base.utils.createDir
+import com.jetbrains.plugin.structure.base.utils.deleteLogged
+import com.jetbrains.plugin.structure.base.utils.exists
+import com.jetbrains.plugin.structure.base.utils.inputStream
+import com.jetbrains.plugin.structure.base.utils.outputStream
+import com.jetbrains.plugin.structure.base.utils.rethrowIfInterrupted
+import com.jetbrains.pluginverifier.verifiers.BytecodeVerifier
+import com.jetbrains.pluginverifier.verifiers.incremental.VerifiedClasses
+import org.slf4j.LoggerFactory
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.IOException
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.nio.file.StandardCopyOption
+import java.security.MessageDigest
+
+/**
+ * Persistent storage of [VerifiedClasses], so that the next verification of a plugin
+ * against the same target verifies only classes that changed, or whose dependencies did.
+ *
+ * Classes are stored per plugin ID and verification target. Stored classes are dropped
+ * when [verifierVersion] changes, as checks of the verifier may have changed.
+ */
+class VerifiedClassesStorage(private val directory: Path, private val verifierVersion: String) {
+
+  companion object {
+    private val LOG = LoggerFactory.getLogger(VerifiedClassesStorage::class.java)
+
+    private const val MAGIC = 0x56434C53 // "VCLS"
+
+    private const val FORMAT_VERSION = 1
+
+    private const val CLASSES_SUFFIX = ".classes"
+
+    /**
+     * Storage located in the `intellij.plugin.verifier.incremental.dir` directory,
+     * or `null` if incremental verification is not enabled.
+     *
+     * Incremental verification is also disabled if the version of the verifier is unknown,
+     * as for a development build, because then stored classes could not be dropped after changes of the verifier.
+     */
+    @JvmStatic
+    val DEFAULT: VerifiedClassesStorage? by lazy {
+      val directory = System.getProperty("intellij.plugin.verifier.incremental.dir")
+      val verifierVersion = BytecodeVerifier::class.java.`package`?.implementationVersion
+      when {
+        directory.isNullOrBlank() -> null
+        verifierVersion.isNullOrBlank() -> {
+          LOG.warn("Incremental verification is disabled because the version of the verifier is unknown")
+          null
+        }
+        else -> VerifiedClassesStorage(Paths.get(directory), verifierVersion)
+      }
+    }
+  }
+
+  /**
+   * Loads classes verified for [pluginId] against [target].
+   * Failures of the storage never fail the caller: all classes are verified instead.
+   */
+  fun load(pluginId: String, target: String): VerifiedClasses {
+    val classesFile = getClassesFile(pluginId, target)
+    if (!classesFile.exists()) {
+      return VerifiedClasses(emptySet())
+    }
+    return try {
+      DataInputStream(classesFile.inputStream().buffered()).use { input ->
+        if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) {
+          throw IOException("File is of unsupported format")
+        }
+        if (input.readUTF() != verifierVersion) {
+          return VerifiedClasses(emptySet())
+        }
+        val fingerprints = HashSet<String>()
+        repeat(input.readInt()) {
+          fingerprints += input.readUTF()
+        }
+        if (input.read() != -1) {
+          throw IOException("Unexpected number of classes")
+        }
+        VerifiedClasses(fingerprints)
+      }
+    } catch (e: Exception) {
+      e.rethrowIfInterrupted()
+      LOG.info("Verified classes $classesFile are corrupted and will be verified again: ${e.message}")
+      classesFile.deleteLogged()
+      VerifiedClasses(emptySet())
+    }
+  }
+
+  /**
+   * Saves classes that were clean in the verification of [pluginId] against [target],
+   * replacing classes of the previous verification.
+   */
+  fun save(pluginId: String, target: String, verifiedClasses: VerifiedClasses) {
+    val classesFile = getClassesFile(pluginId, target)
+    try {
+      directory.createDir()
+      val tempFile = Files.createTempFile(directory, classesFile.fileName.toString(), ".tmp")
+      try {
+        val fingerprints = verifiedClasses.clean.toList()
+        DataOutputStream(tempFile.outputStream().buffered()).use { output ->
+          output.writeInt(MAGIC)
+          output.writeInt(FORMAT_VERSION)
+          output.writeUTF(verifierVersion)
+          output.writeInt(fingerprints.size)
+          fingerprints.forEach { output.writeUTF(it) }
+        }
+        Files.move(tempFile, classesFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+      } finally {
+        Files.deleteIfExists(tempFile)
+      }
+    } catch (e: Exception) {
+      e.rethrowIfInterrupted()
+      LOG.warn("Unable to save verified classes $classesFile", e)
+    }
+  }
+
+  private fun getClassesFile(pluginId: String, target: String): Path {
+    val digest = MessageDigest.getInstance("SHA-256")
+    digest.update(pluginId.toByteArray())
+    digest.update(0)
+    digest.update(target.toByteArray())
+    return directory.resolve(digest.digest().joinToString("") { String.format("%02x", it) } + CLASSES_SUFFIX)
+  }
+}
@@ -4,18 +4,34 @@
 
 package com.jetbrains.pluginverifier.jdk
 
+import com.jetbrains.plugin.structure.classes.resolvers.CacheResolver
 import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import com.jetbrains.pluginverifier.verifiers.resolution.sharedCaching
 import java.io.Closeable
 import java.nio.file.Path
 
 /**
  * Holder of class files of the JDK.
+ *
+ * [sharedJdkResolver] caches classes of [jdkResolver] for all verifications using this JDK,
+ * so that each JDK class is read once per process.
  */
 data class JdkDescriptor(
   val jdkPath: Path,
   val jdkResolver: Resolver,
   val jdkVersion: JdkVersion
 ) : Closeable {
+
+  private val sharedJdkResolverLazy = lazy { jdkResolver.sharedCaching() }
+
+  val sharedJdkResolver: CacheResolver by sharedJdkResolverLazy
+
+  /**
+   * Statistics of [sharedJdkResolver], or `null` if it has not been created.
+   */
+  val sharedJdkResolverStatistics: CacheResolver.Statistics?
+    get() = if (sharedJdkResolverLazy.isInitialized()) sharedJdkResolver.statistics else null
+
   override fun toString(): String = jdkPath.toAbsolutePath().toString()
 
   override fun close() = jdkResolver.close()
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.jdk
+
+import com.jetbrains.plugin.structure.base.plugin.Settings
+import com.jetbrains.plugin.structure.base.utils.createDir
+import com.jetbrains.plugin.structure.base.utils.deleteLogged
+import com.jetbrains.plugin.structure.base.utils.exists
+import com.jetbrains.plugin.structure.base.utils.inputStream
+import com.jetbrains.plugin.structure.base.utils.outputStream
+import com.jetbrains.plugin.structure.base.utils.readBytes
+import com.jetbrains.plugin.structure.base.utils.rethrowIfInterrupted
+import org.slf4j.LoggerFactory
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.IOException
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+import java.security.MessageDigest
+
+/**
+ * Persistent storage of the class name to module name indexes of JDK images,
+ * so that [JdkJImageResolver] does not need to walk `/modules` of the same JDK on every start.
+ *
+ * Indexes are keyed by SHA-256 of the JDK's `release` file, which contains the version and the build of the JDK,
+ * together with the size and the modification time of the `lib/modules` image.
+ * JDKs without a `release` file are not stored.
+ */
+class JdkImageIndexStorage(private val directory: Path) {
+
+  companion object {
+    private val LOG = LoggerFactory.getLogger(JdkImageIndexStorage::class.java)
+
+    private const val MAGIC = 0x4A444958 // "JDIX"
+
+    private const val FORMAT_VERSION = 1
+
+    private const val INDEX_SUFFIX = ".idx"
+
+    /**
+     * Storage located in [Settings.JDK_IMAGE_INDEX_DIRECTORY], or `null` if the directory is not set.
+     *
+     * Persistent indexes are disabled by default, as are persistent indexes of jar files.
+     */
+    @JvmStatic
+    val DEFAULT: JdkImageIndexStorage? by lazy {
+      val directory = Settings.JDK_IMAGE_INDEX_DIRECTORY.get()
+      if (directory.isBlank()) null else JdkImageIndexStorage(Settings.JDK_IMAGE_INDEX_DIRECTORY.getAsPath())
+    }
+  }
+
+  /**
+   * Loads the index of the JDK [jdkPath] from the storage, or builds it with [builder] and saves it.
+   * Failures of the storage never fail the caller: the index is built from the JDK image instead.
+   */
+  fun getOrBuild(jdkPath: Path, builder: () -> Map<String, String>): Map<String, String> {
+    val key = try {
+      getKey(jdkPath)
+    } catch (e: Exception) {
+      e.rethrowIfInterrupted()
+      LOG.warn("Unable to compute the index key of JDK $jdkPath", e)
+      null
+    } ?: return builder()
+    val indexFile = directory.resolve(key + INDEX_SUFFIX)
+    val loaded = load(indexFile, key)
+    if (loaded != null) {
+      return loaded
+    }
+    val index = builder()
+    save(indexFile, key, index)
+    return index
+  }
+
+  private fun getKey(jdkPath: Path): String? {
+    val jdkHome = listOf(jdkPath, jdkPath.resolve("Contents").resolve("Home")).find { it.resolve("release").exists() }
+      ?: return null
+    val modulesImage = jdkHome.resolve("lib").resolve("modules")
+    val digest = MessageDigest.getInstance("SHA-256")
+    digest.update(jdkHome.resolve("release").readBytes())
+    if (modulesImage.exists()) {
+      digest.update("${Files.size(modulesImage)}:${Files.getLastModifiedTime(modulesImage).toMillis()}".toByteArray())
+    }
+    return digest.digest().joinToString("") { String.format("%02x", it) }
+  }
+
+  private fun load(indexFile: Path, key: String): Map<String, String>? {
+    if (!indexFile.exists()) {
+      return null
+    }
+    return try {
+      DataInputStream(indexFile.inputStream().buffered()).use { input ->
+        if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION || input.readUTF() != key) {
+          throw IOException("Index file is of unsupported format or belongs to another JDK")
+        }
+        val classesNumber = input.readInt()
+        val classNameToModuleName = HashMap<String, String>(classesNumber * 2)
+        repeat(input.readInt()) {
+          val moduleName = input.readUTF()
+          repeat(input.readInt()) {
+            classNameToModuleName[input.readUTF()] = moduleName
+          }
+        }
+        if (classNameToModuleName.size != classesNumber || input.read() != -1) {
+          throw IOException("Unexpected number of classes")
+        }
+        classNameToModuleName
+      }
+    } catch (e: Exception) {
+      e.rethrowIfInterrupted()
+      LOG.info("JDK index $indexFile is corrupted and will be rebuilt: ${e.message}")
+      indexFile.deleteLogged()
+      null
+    }
+  }
+
+  private fun save(indexFile: Path, key: String, classNameToModuleName: Map<String, String>) {
+    try {
+      directory.createDir()
+      val tempFile = Files.createTempFile(directory, key, ".tmp")
+      try {
+        val moduleToClasses = classNameToModuleName.entries.groupBy({ it.value }, { it.key })
+        DataOutputStream(tempFile.outputStream().buffered()).use { output ->
+          output.writeInt(MAGIC)
+          output.writeInt(FORMAT_VERSION)
+          output.writeUTF(key)
+          output.writeInt(classNameToModuleName.size)
+          output.writeInt(moduleToClasses.size)
+          for ((moduleName, classNames) in moduleToClasses) {
+            output.writeUTF(moduleName)
+            output.writeInt(classNames.size)
+            classNames.forEach { output.writeUTF(it) }
+          }
+        }
+        Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+      } finally {
+        Files.deleteIfExists(tempFile)
+      }
+    } catch (e: Exception) {
+      e.rethrowIfInterrupted()
+      LOG.warn("Unable to save JDK index $indexFile", e)
+    }
+  }
+}
@@ -4,6 +4,7 @@
 
 package com.jetbrains.pluginverifier.jdk
 
+import com.jetbrains.plugin.structure.base.plugin.Settings
 import com.jetbrains.plugin.structure.base.utils.closeAll
 import com.jetbrains.plugin.structure.base.utils.closeLogged
 import com.jetbrains.plugin.structure.base.utils.exists
@@ -20,8 +21,17 @@ import java.util.stream.Collectors
 
 /**
  * [Resolver] that reads class files from JImage corresponding to `<JDK>/lib/modules` file of JDK 9 and later.
+ *
+ * The index of classes is loaded from [indexStorage] when possible, in which case
+ * the `jrt:/` file system is opened only when the first class is read.
+ * Bytes of the read classes are kept in a cache bounded by [Settings.JDK_CLASS_CACHE_SIZE] bytes,
+ * so that classes evicted from caching resolvers are not read through the file system again.
  */
-class JdkJImageResolver(jdkPath: Path, override val readMode: ReadMode) : Resolver() {
+class JdkJImageResolver @JvmOverloads constructor(
+  private val jdkPath: Path,
+  override val readMode: ReadMode,
+  indexStorage: JdkImageIndexStorage? = JdkImageIndexStorage.DEFAULT
+) : Resolver() {
   private companion object {
 
     val JRT_SCHEME_URI: URI = URI.create("jrt:/")
@@ -31,26 +41,37 @@ class JdkJImageResolver(jdkPath: Path, override val readMode: ReadMode) : Resolv
 
   private val classNameToModuleName: Map<String, String>
 
-  private val packageSet = PackageSet()
-
-  private val nameSeparator: String
-
-  private val modulesPath: Path
+  private val packages: SortedNameSet
 
   private val closeableResources = arrayListOf<Closeable>()
 
-  init {
+  private val modulesPath: Path by lazy {
     val fileSystem = try {
       getOrCreateJrtFileSystem(jdkPath)
     } catch (e: Exception) {
       throw RuntimeException("Unable to read content from jrt:/ file system.", e)
     }
+    fileSystem.getPath("/modules")
+  }
 
-    nameSeparator = fileSystem.separator
+  private val classBytesCache = ClassBytesCache(Settings.JDK_CLASS_CACHE_SIZE.getAsLong())
 
-    modulesPath = fileSystem.getPath("/modules")
+  init {
+    classNameToModuleName = if (indexStorage != null) {
+      indexStorage.getOrBuild(jdkPath) { buildClassNameToModuleName() }
+    } else {
+      buildClassNameToModuleName()
+    }
+
+    val packageSet = PackageSet()
+    for (className in classNameToModuleName.keys) {
+      packageSet.addPackagesOfClass(className)
+    }
+    packages = SortedNameSet.of(packageSet.getAllPackages())
+  }
 
-    classNameToModuleName = Files.walk(modulesPath).use { stream ->
+  private fun buildClassNameToModuleName(): Map<String, String> =
+    Files.walk(modulesPath).use { stream ->
       stream
         .filter { p -> p.fileName.toString().endsWith(".class") }
         .collect(
@@ -62,11 +83,6 @@ class JdkJImageResolver(jdkPath: Path, override val readMode: ReadMode) : Resolv
         )
     }
 
-    for (className in classNameToModuleName.keys) {
-      packageSet.addPackagesOfClass(className)
-    }
-  }
-
   private fun getOrCreateJrtFileSystem(jdkPath: Path): FileSystem {
     val javaVersion = System.getProperty("java.version")?.substringBefore(".")?.toIntOrNull()
     val jrtFsJars = listOf(
@@ -107,30 +123,27 @@ class JdkJImageResolver(jdkPath: Path, override val readMode: ReadMode) : Resolv
     val relative = modulesPath.relativize(classPath)
     return relative
       .subpath(1, relative.nameCount).toString()
-      .substringBeforeLast(".class").replace(nameSeparator, "/")
+      .substringBeforeLast(".class").replace(modulesPath.fileSystem.separator, "/")
   }
 
   override val allClasses
     get() = classNameToModuleName.keys
 
   override val allPackages
-    get() = packageSet.getAllPackages()
+    get() = packages
 
   override val allBundleNameSet
     get() = ResourceBundleNameSet(emptyMap())
 
   override fun resolveClass(className: String): ResolutionResult<ClassNode> {
-    val moduleName = classNameToModuleName[className]
-    if (moduleName != null) {
-      val classPath = modulesPath.resolve(moduleName).resolve(className.replace("/", nameSeparator) + ".class")
-      return readClass(className, classPath)
-    }
-    return ResolutionResult.NotFound
+    val moduleName = classNameToModuleName[className] ?: return ResolutionResult.NotFound
+    return readClass(className, moduleName)
   }
 
-  private fun readClass(className: String, classPath: Path): ResolutionResult<ClassNode> =
+  private fun readClass(className: String, moduleName: String): ResolutionResult<ClassNode> =
     try {
-      val classNode = readClassNode(className, classPath)
+      val classBytes = readClassBytes(className, moduleName)
+      val classNode = AsmUtil.readClassNode(className, classBytes, classBytes.size, readMode)
       ResolutionResult.Found(classNode, fileOrigin)
     } catch (e: InvalidClassFileException) {
       ResolutionResult.Invalid(e.message)
@@ -139,31 +152,70 @@ class JdkJImageResolver(jdkPath: Path, override val readMode: ReadMode) : Resolv
       ResolutionResult.FailedToRead(e.localizedMessage ?: e.javaClass.name)
     }
 
-  override fun resolveExactPropertyResourceBundle(baseName: String, locale: Locale) = ResolutionResult.NotFound
-
-  private fun readClassNode(className: String, classFilePath: Path): ClassNode =
-    Files.newInputStream(classFilePath, StandardOpenOption.READ).use { inputStream ->
-      AsmUtil.readClassNode(className, inputStream, readMode == ReadMode.FULL)
+  /**
+   * Reads the whole class file with a single call instead of streaming it through the `jrt:/` provider.
+   */
+  private fun readClassBytes(className: String, moduleName: String): ByteArray {
+    val cached = classBytesCache[className]
+    if (cached != null) {
+      return cached
     }
+    val separator = modulesPath.fileSystem.separator
+    val classPath = modulesPath.resolve(moduleName).resolve(className.replace("/", separator) + ".class")
+    val classBytes = Files.readAllBytes(classPath)
+    classBytesCache.put(className, classBytes)
+    return classBytes
+  }
+
+  override fun resolveExactPropertyResourceBundle(baseName: String, locale: Locale) = ResolutionResult.NotFound
 
   override fun containsClass(className: String) = className in classNameToModuleName
 
-  override fun containsPackage(packageName: String) = packageSet.containsPackage(packageName)
+  override fun containsPackage(packageName: String) = packageName in packages
 
   override fun processAllClasses(processor: (ResolutionResult<ClassNode>) -> Boolean): Boolean {
-    Files.walk(modulesPath).use { stream ->
-      for (classPath in stream.filter { it.fileName.toString().endsWith(".class") }) {
-        val className = getClassName(classPath)
-        val result = readClass(className, classPath)
-        if (!processor(result)) {
-          return false
-        }
+    for ((className, moduleName) in classNameToModuleName) {
+      if (!processor(readClass(className, moduleName))) {
+        return false
       }
     }
     return true
   }
 
   override fun close() {
+    classBytesCache.clear()
     closeableResources.closeAll()
   }
+
+  /**
+   * Least recently used class files, with the total size limited by [maximumSize] bytes.
+   */
+  private class ClassBytesCache(private val maximumSize: Long) {
+    private val classes = LinkedHashMap<String, ByteArray>(16, 0.75f, true)
+
+    private var size = 0L
+
+    @Synchronized
+    operator fun get(className: String): ByteArray? = classes[className]
+
+    @Synchronized
+    fun put(className: String, classBytes: ByteArray) {
+      if (classBytes.size > maximumSize) {
+        return
+      }
+      val previous = classes.put(className, classBytes)
+      size += classBytes.size - (previous?.size ?: 0)
+      val iterator = classes.values.iterator()
+      while (size > maximumSize && iterator.hasNext()) {
+        size -= iterator.next().size
+        iterator.remove()
+      }
+    }
+
+    @Synchronized
+    fun clear() {
+      classes.clear()
+      size = 0
+    }
+  }
 }
\ No newline at end of file
@@ -38,8 +38,8 @@ class DefaultClassResolverProvider(
 
       val resolver = CompositeResolver.create(
         pluginResolver,
-        ideDescriptor.jdkDescriptor.jdkResolver,
-        ideDescriptor.ideResolver,
+        ideDescriptor.jdkDescriptor.sharedJdkResolver,
+        ideDescriptor.sharedIdeResolver,
         dependenciesClassResolver
       ).caching()
       return ClassResolverProvider.Result(pluginResolver, resolver, dependenciesGraph, closeableResources)
@@ -43,7 +43,7 @@ class PluginApiClassResolverProvider(
        * For instance, if the class is expected to reside in the base plugin and is not resolved among its classes,
        * a "Class not found" problem will be reported.
        */
-      val resolver = CompositeResolver.create(checkedPluginClassResolver, basePluginResolver, jdkDescriptor.jdkResolver).caching()
+      val resolver = CompositeResolver.create(checkedPluginClassResolver, basePluginResolver, jdkDescriptor.sharedJdkResolver).caching()
 
       val checkedPluginNode = DependencyNode(
         checkedPluginDetails.pluginInfo.pluginId,
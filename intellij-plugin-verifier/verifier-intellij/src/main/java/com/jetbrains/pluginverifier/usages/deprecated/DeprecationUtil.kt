@@ -4,7 +4,6 @@
 
 package com.jetbrains.pluginverifier.usages.deprecated
 
-import com.jetbrains.pluginverifier.verifiers.findAnnotation
 import com.jetbrains.pluginverifier.verifiers.getAnnotationValue
 import com.jetbrains.pluginverifier.verifiers.resolution.ClassFileMember
 
@@ -18,14 +17,13 @@ import com.jetbrains.pluginverifier.verifiers.resolution.ClassFileMember
  */
 val ClassFileMember.deprecationInfo: DeprecationInfo?
   get() {
-    val annotations = annotations
-    val scheduledForRemoval = annotations.findAnnotation("org/jetbrains/annotations/ApiStatus\$ScheduledForRemoval")
+    val scheduledForRemoval = findAnnotation("org/jetbrains/annotations/ApiStatus\$ScheduledForRemoval")
     if (scheduledForRemoval != null) {
       val inVersion = scheduledForRemoval.getAnnotationValue("inVersion") as? String
       return DeprecationInfo(true, inVersion)
     }
 
-    val deprecated = annotations.findAnnotation("java/lang/Deprecated")
+    val deprecated = findAnnotation("java/lang/Deprecated")
     if (deprecated != null) {
       val forRemoval = deprecated.getAnnotationValue("forRemoval") as? Boolean ?: false
       return DeprecationInfo(forRemoval, null)
@@ -6,8 +6,10 @@ package com.jetbrains.pluginverifier.usages.experimental
 
 import com.jetbrains.plugin.structure.classes.resolvers.Resolver
 import com.jetbrains.pluginverifier.usages.ApiUsage
+import com.jetbrains.pluginverifier.usages.util.EffectiveAnnotationsCache
 import com.jetbrains.pluginverifier.usages.util.MemberAnnotation
 import com.jetbrains.pluginverifier.usages.util.findEffectiveMemberAnnotation
+import com.jetbrains.pluginverifier.verifiers.VerificationContext
 import com.jetbrains.pluginverifier.verifiers.resolution.ClassFileMember
 
 /**
@@ -19,4 +21,7 @@ fun ClassFileMember.isExperimentalApi(resolver: Resolver): Boolean =
   findEffectiveExperimentalAnnotation(resolver) != null
 
 fun ClassFileMember.findEffectiveExperimentalAnnotation(resolver: Resolver): MemberAnnotation? =
-  findEffectiveMemberAnnotation("org/jetbrains/annotations/ApiStatus\$Experimental", resolver)
\ No newline at end of file
+  findEffectiveMemberAnnotation(EffectiveAnnotationsCache.EXPERIMENTAL_API, resolver)
+
+fun ClassFileMember.isExperimentalApi(context: VerificationContext): Boolean =
+  findEffectiveMemberAnnotation(EffectiveAnnotationsCache.EXPERIMENTAL_API, context) != null
\ No newline at end of file
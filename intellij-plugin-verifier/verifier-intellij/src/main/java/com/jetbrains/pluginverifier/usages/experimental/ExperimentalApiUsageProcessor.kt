@@ -20,7 +20,7 @@ class ExperimentalApiUsageProcessor(private val experimentalApiRegistrar: Experi
     resolvedMember: ClassFileMember,
     context: VerificationContext,
     usageLocation: Location
-  ) = resolvedMember.isExperimentalApi(context.classResolver)
+  ) = resolvedMember.isExperimentalApi(context)
     && resolvedMember.containingClassFile.classFileOrigin != usageLocation.containingClass.classFileOrigin
 
   override fun processClassReference(
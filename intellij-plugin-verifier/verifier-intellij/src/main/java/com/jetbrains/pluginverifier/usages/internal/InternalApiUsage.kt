@@ -6,7 +6,9 @@ package com.jetbrains.pluginverifier.usages.internal
 
 import com.jetbrains.plugin.structure.classes.resolvers.Resolver
 import com.jetbrains.pluginverifier.usages.ApiUsage
+import com.jetbrains.pluginverifier.usages.util.EffectiveAnnotationsCache
 import com.jetbrains.pluginverifier.usages.util.isMemberEffectivelyAnnotatedWith
+import com.jetbrains.pluginverifier.verifiers.VerificationContext
 import com.jetbrains.pluginverifier.verifiers.resolution.ClassFileMember
 
 /**
@@ -15,5 +17,9 @@ import com.jetbrains.pluginverifier.verifiers.resolution.ClassFileMember
 abstract class InternalApiUsage : ApiUsage()
 
 fun ClassFileMember.isInternalApi(resolver: Resolver): Boolean =
-  isMemberEffectivelyAnnotatedWith("org/jetbrains/annotations/ApiStatus\$Internal", resolver) ||
-    isMemberEffectivelyAnnotatedWith("com/intellij/openapi/util/IntellijInternalApi", resolver)
\ No newline at end of file
+  isMemberEffectivelyAnnotatedWith(EffectiveAnnotationsCache.INTERNAL_API, resolver) ||
+    isMemberEffectivelyAnnotatedWith(EffectiveAnnotationsCache.INTELLIJ_INTERNAL_API, resolver)
+
+fun ClassFileMember.isInternalApi(context: VerificationContext): Boolean =
+  isMemberEffectivelyAnnotatedWith(EffectiveAnnotationsCache.INTERNAL_API, context) ||
+    isMemberEffectivelyAnnotatedWith(EffectiveAnnotationsCache.INTELLIJ_INTERNAL_API, context)
\ No newline at end of file
@@ -28,7 +28,7 @@ class InternalApiUsageProcessor(private val pluginVerificationContext: PluginVer
     resolvedMember: ClassFileMember,
     context: VerificationContext,
     usageLocation: Location
-  ): Boolean = resolvedMember.isInternalApi(context.classResolver)
+  ): Boolean = resolvedMember.isInternalApi(context)
     && resolvedMember.containingClassFile.classFileOrigin != usageLocation.containingClass.classFileOrigin
 
   override fun processClassReference(
@@ -92,6 +92,9 @@ class InternalApiUsageProcessor(private val pluginVerificationContext: PluginVer
     override val warningRegistrar: WarningRegistrar = object : WarningRegistrar {
       override fun registerCompatibilityWarning(warning: CompatibilityWarning) = Unit
     }
+
+    override val memberResolutionCache: MemberResolutionCache?
+      get() = null
   }
 
   override fun processFieldAccess(
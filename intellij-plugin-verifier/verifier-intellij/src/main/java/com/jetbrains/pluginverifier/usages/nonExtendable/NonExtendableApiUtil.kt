@@ -4,8 +4,7 @@
 
 package com.jetbrains.pluginverifier.usages.nonExtendable
 
-import com.jetbrains.pluginverifier.verifiers.findAnnotation
 import com.jetbrains.pluginverifier.verifiers.resolution.ClassFileMember
 
 fun ClassFileMember.isNonExtendable(): Boolean =
-  annotations.findAnnotation("org/jetbrains/annotations/ApiStatus\$NonExtendable") != null
\ No newline at end of file
+  findAnnotation("org/jetbrains/annotations/ApiStatus\$NonExtendable") != null
\ No newline at end of file
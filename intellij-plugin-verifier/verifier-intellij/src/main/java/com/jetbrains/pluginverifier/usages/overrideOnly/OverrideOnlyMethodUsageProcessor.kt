@@ -7,7 +7,6 @@ package com.jetbrains.pluginverifier.usages.overrideOnly
 import com.jetbrains.pluginverifier.results.reference.MethodReference
 import com.jetbrains.pluginverifier.usages.ApiUsageProcessor
 import com.jetbrains.pluginverifier.verifiers.VerificationContext
-import com.jetbrains.pluginverifier.verifiers.findAnnotation
 import com.jetbrains.pluginverifier.verifiers.resolution.Method
 import org.objectweb.asm.tree.AbstractInsnNode
 
@@ -33,8 +32,8 @@ class OverrideOnlyMethodUsageProcessor(private val overrideOnlyRegistrar: Overri
       && callerMethod.containingClassFile.superName == resolvedMethod.containingClassFile.name
 
   private fun Method.isOverrideOnlyMethod(): Boolean =
-    annotations.findAnnotation(overrideOnlyAnnotationName) != null
-      || containingClassFile.annotations.findAnnotation(overrideOnlyAnnotationName) != null
+    findAnnotation(overrideOnlyAnnotationName) != null
+      || containingClassFile.findAnnotation(overrideOnlyAnnotationName) != null
 
   private companion object {
     const val overrideOnlyAnnotationName = "org/jetbrains/annotations/ApiStatus\$OverrideOnly"
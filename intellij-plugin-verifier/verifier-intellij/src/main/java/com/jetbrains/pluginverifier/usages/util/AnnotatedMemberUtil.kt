@@ -5,7 +5,8 @@
 package com.jetbrains.pluginverifier.usages.util
 
 import com.jetbrains.plugin.structure.classes.resolvers.Resolver
-import com.jetbrains.pluginverifier.verifiers.findAnnotation
+import com.jetbrains.pluginverifier.verifiers.PluginVerificationContext
+import com.jetbrains.pluginverifier.verifiers.VerificationContext
 import com.jetbrains.pluginverifier.verifiers.resolution.ClassFile
 import com.jetbrains.pluginverifier.verifiers.resolution.ClassFileMember
 import com.jetbrains.pluginverifier.verifiers.resolution.resolveClassOrNull
@@ -37,6 +38,20 @@ sealed class MemberAnnotation {
 fun ClassFileMember.isMemberEffectivelyAnnotatedWith(annotationName: String, resolver: Resolver): Boolean =
   findEffectiveMemberAnnotation(annotationName, resolver) != null
 
+fun ClassFileMember.isMemberEffectivelyAnnotatedWith(annotationName: String, context: VerificationContext): Boolean =
+  findEffectiveMemberAnnotation(annotationName, context) != null
+
+/**
+ * Finds the effective annotation like [findEffectiveMemberAnnotation] does with the class resolver of the [context],
+ * but reuses annotations of classes found by previous lookups of the same verification, see [EffectiveAnnotationsCache].
+ */
+fun ClassFileMember.findEffectiveMemberAnnotation(annotationName: String, context: VerificationContext): MemberAnnotation? =
+  if (context is PluginVerificationContext) {
+    context.effectiveAnnotationsCache.findEffectiveMemberAnnotation(this, annotationName)
+  } else {
+    findEffectiveMemberAnnotation(annotationName, context.classResolver)
+  }
+
 fun ClassFileMember.findEffectiveMemberAnnotation(annotationName: String, resolver: Resolver): MemberAnnotation? {
   if (isDirectlyAnnotatedWith(annotationName)) {
     return MemberAnnotation.AnnotatedDirectly(this, annotationName)
@@ -76,4 +91,4 @@ fun ClassFileMember.findEffectiveMemberAnnotation(annotationName: String, resolv
 }
 
 private fun ClassFileMember.isDirectlyAnnotatedWith(annotationName: String): Boolean =
-  annotations.findAnnotation(annotationName) != null
\ No newline at end of file
+  findAnnotation(annotationName) != null
\ No newline at end of file
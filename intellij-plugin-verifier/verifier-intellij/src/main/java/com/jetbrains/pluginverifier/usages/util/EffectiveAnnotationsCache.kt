@@ -0,0 +1,137 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.usages.util
+
+import com.jetbrains.plugin.structure.classes.resolvers.FileOrigin
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import com.jetbrains.pluginverifier.verifiers.resolution.ClassFile
+import com.jetbrains.pluginverifier.verifiers.resolution.ClassFileMember
+import com.jetbrains.pluginverifier.verifiers.resolution.resolveClassOrNull
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Cache of effective annotations of classes resolved by [resolver], to be shared by API usage processors
+ * during a verification. Answers the same as [findEffectiveMemberAnnotation].
+ *
+ * Effective [trackedAnnotations] of a class are found together, in a single walk over the class,
+ * its enclosing classes and its package, and are kept by class name. Members are checked for direct annotations
+ * and then take the effective annotations of their classes, so that the walk is not repeated at every reference.
+ */
+class EffectiveAnnotationsCache(
+  private val resolver: Resolver,
+  private val trackedAnnotations: List<String> = TRACKED_ANNOTATIONS
+) {
+
+  companion object {
+    const val EXPERIMENTAL_API = "org/jetbrains/annotations/ApiStatus\$Experimental"
+
+    const val INTERNAL_API = "org/jetbrains/annotations/ApiStatus\$Internal"
+
+    const val INTELLIJ_INTERNAL_API = "com/intellij/openapi/util/IntellijInternalApi"
+
+    val TRACKED_ANNOTATIONS = listOf(EXPERIMENTAL_API, INTERNAL_API, INTELLIJ_INTERNAL_API)
+  }
+
+  /**
+   * Where a class gets a tracked annotation from.
+   */
+  private sealed class AnnotationSource {
+    object Directly : AnnotationSource()
+
+    class ViaEnclosingClass(val enclosingClass: ClassFile) : AnnotationSource()
+
+    class ViaPackage(val packageName: String) : AnnotationSource()
+  }
+
+  /**
+   * Sources of tracked annotations of a class, in the order of [trackedAnnotations].
+   * The origin tells apart classes of the same name from different files.
+   */
+  private class ClassAnnotations(val classFileOrigin: FileOrigin, val sources: Array<AnnotationSource?>)
+
+  private val classAnnotations = ConcurrentHashMap<String, ClassAnnotations>()
+
+  /**
+   * Returns the effective annotation [annotationName] of the [member], or `null` if the member is not annotated.
+   */
+  fun findEffectiveMemberAnnotation(member: ClassFileMember, annotationName: String): MemberAnnotation? {
+    val index = trackedAnnotations.indexOf(annotationName)
+    if (index < 0) {
+      return member.findEffectiveMemberAnnotation(annotationName, resolver)
+    }
+    if (member.findAnnotation(annotationName) != null) {
+      return MemberAnnotation.AnnotatedDirectly(member, annotationName)
+    }
+    val classFile = member.containingClassFile
+    val source = getClassAnnotations(classFile, hashSetOf())?.sources?.get(index) ?: return null
+    if (member !is ClassFile) {
+      return MemberAnnotation.AnnotatedViaContainingClass(classFile, member, annotationName)
+    }
+    return when (source) {
+      AnnotationSource.Directly -> MemberAnnotation.AnnotatedDirectly(member, annotationName)
+      is AnnotationSource.ViaEnclosingClass -> MemberAnnotation.AnnotatedViaContainingClass(source.enclosingClass, member, annotationName)
+      is AnnotationSource.ViaPackage -> MemberAnnotation.AnnotatedViaPackage(source.packageName, member, annotationName)
+    }
+  }
+
+  private fun getClassAnnotations(classFile: ClassFile, visiting: MutableSet<String>): ClassAnnotations? {
+    val cached = classAnnotations[classFile.name]
+    if (cached != null && cached.classFileOrigin == classFile.classFileOrigin) {
+      return cached
+    }
+    if (!visiting.add(classFile.name)) {
+      //Enclosing classes of invalid bytecode form a cycle.
+      return null
+    }
+    val computed = computeClassAnnotations(classFile, visiting)
+    visiting.remove(classFile.name)
+    if (cached == null) {
+      classAnnotations[classFile.name] = computed
+    }
+    return computed
+  }
+
+  private fun computeClassAnnotations(classFile: ClassFile, visiting: MutableSet<String>): ClassAnnotations {
+    val sources = arrayOfNulls<AnnotationSource>(trackedAnnotations.size)
+    var allDirect = true
+    for ((index, annotationName) in trackedAnnotations.withIndex()) {
+      if (classFile.findAnnotation(annotationName) != null) {
+        sources[index] = AnnotationSource.Directly
+      } else {
+        allDirect = false
+      }
+    }
+    if (allDirect || classFile.name.endsWith("package-info")) {
+      return ClassAnnotations(classFile.classFileOrigin, sources)
+    }
+
+    val enclosingClassName = classFile.enclosingClassName
+    if (enclosingClassName != null && enclosingClassName != classFile.name) {
+      val enclosingClass = resolver.resolveClassOrNull(enclosingClassName)
+      val enclosingSources = enclosingClass?.let { getClassAnnotations(it, visiting) }?.sources
+      if (enclosingClass != null && enclosingSources != null) {
+        for (index in sources.indices) {
+          if (sources[index] == null && enclosingSources[index] != null) {
+            sources[index] = AnnotationSource.ViaEnclosingClass(enclosingClass)
+          }
+        }
+      }
+      return ClassAnnotations(classFile.classFileOrigin, sources)
+    }
+
+    val packageName = classFile.packageName
+    if (packageName.isNotEmpty()) {
+      val packageInfoClass = resolver.resolveClassOrNull("$packageName/package-info")
+      if (packageInfoClass != null) {
+        for ((index, annotationName) in trackedAnnotations.withIndex()) {
+          if (sources[index] == null && packageInfoClass.findAnnotation(annotationName) != null) {
+            sources[index] = AnnotationSource.ViaPackage(packageName)
+          }
+        }
+      }
+    }
+    return ClassAnnotations(classFile.classFileOrigin, sources)
+  }
+}
@@ -35,12 +35,20 @@ import com.jetbrains.pluginverifier.usages.overrideOnly.OverrideOnlyMethodUsage
 import com.jetbrains.pluginverifier.usages.overrideOnly.OverrideOnlyMethodUsageProcessor
 import com.jetbrains.pluginverifier.usages.overrideOnly.OverrideOnlyRegistrar
 import com.jetbrains.pluginverifier.usages.properties.PropertyUsageProcessor
+import com.jetbrains.pluginverifier.usages.util.EffectiveAnnotationsCache
+import com.jetbrains.pluginverifier.verifiers.hierarchy.ClassHierarchyCache
 import com.jetbrains.pluginverifier.verifiers.packages.PackageFilter
+import com.jetbrains.pluginverifier.verifiers.resolution.MemberResolutionCache
 import com.jetbrains.pluginverifier.warnings.CompatibilityWarning
 import com.jetbrains.pluginverifier.warnings.NoExplicitDependencyOnJavaPluginWarning
 import com.jetbrains.pluginverifier.warnings.PluginStructureWarning
 import com.jetbrains.pluginverifier.warnings.WarningRegistrar
 
+/**
+ * Context of a plugin verification that collects its problems, warnings and API usages.
+ *
+ * Registration methods are synchronized, so classes of the plugin may be verified concurrently.
+ */
 data class PluginVerificationContext(
   val idePlugin: IdePlugin,
   val verificationDescriptor: PluginVerificationDescriptor,
@@ -81,17 +89,32 @@ data class PluginVerificationContext(
   val overrideOnlyMethodUsages = hashSetOf<OverrideOnlyMethodUsage>()
   val pluginStructureWarnings = hashSetOf<PluginStructureWarning>()
 
+  override val memberResolutionCache = MemberResolutionCache()
+
+  override val classHierarchyCache = ClassHierarchyCache(allResolver)
+
+  val effectiveAnnotationsCache = EffectiveAnnotationsCache(allResolver)
+
+  private val registeredFindings = ThreadLocal.withInitial { LongArray(1) }
+
+  override val findingsOnCurrentThread: Long
+    get() = registeredFindings.get()[0]
+
   override val problemRegistrar
     get() = this
 
   override val warningRegistrar
     get() = this
 
+  @Synchronized
   override fun registerProblem(problem: CompatibilityProblem) {
+    countFinding()
     compatibilityProblems += problem
   }
 
+  @Synchronized
   override fun registerDeprecatedUsage(deprecatedApiUsage: DeprecatedApiUsage) {
+    countFinding()
     val deprecatedElementHost = deprecatedApiUsage.apiElement.containingClass
     val usageHostClass = deprecatedApiUsage.usageLocation.containingClass
     if (deprecatedApiUsage is DiscouragingJdkClassUsage || shouldIndexDeprecatedClass(usageHostClass, deprecatedElementHost)) {
@@ -99,7 +122,9 @@ data class PluginVerificationContext(
     }
   }
 
+  @Synchronized
   override fun registerExperimentalApiUsage(experimentalApiUsage: ExperimentalApiUsage) {
+    countFinding()
     val elementHostClass = experimentalApiUsage.apiElement.containingClass
     val usageHostClass = experimentalApiUsage.usageLocation.containingClass
     if (shouldIndexDeprecatedClass(usageHostClass, elementHostClass)) {
@@ -107,19 +132,27 @@ data class PluginVerificationContext(
     }
   }
 
+  @Synchronized
   override fun registerInternalApiUsage(internalApiUsage: InternalApiUsage) {
+    countFinding()
     internalApiUsages += internalApiUsage
   }
 
+  @Synchronized
   override fun registerNonExtendableApiUsage(nonExtendableApiUsage: NonExtendableApiUsage) {
+    countFinding()
     nonExtendableApiUsages += nonExtendableApiUsage
   }
 
+  @Synchronized
   override fun registerOverrideOnlyMethodUsage(overrideOnlyMethodUsage: OverrideOnlyMethodUsage) {
+    countFinding()
     overrideOnlyMethodUsages += overrideOnlyMethodUsage
   }
 
+  @Synchronized
   override fun registerJavaPluginClassUsage(javaPluginClassUsage: JavaPluginClassUsage) {
+    countFinding()
     if (idePlugin.dependencies.none { it.id == "com.intellij.modules.java" || it.id == "com.intellij.java" }) {
       val noJavaDependencyWarning = compatibilityWarnings.filterIsInstance<NoExplicitDependencyOnJavaPluginWarning>().firstOrNull()
         ?: NoExplicitDependencyOnJavaPluginWarning().also { compatibilityWarnings += it }
@@ -127,14 +160,21 @@ data class PluginVerificationContext(
     }
   }
 
+  @Synchronized
   override fun registerCompatibilityWarning(warning: CompatibilityWarning) {
+    countFinding()
     compatibilityWarnings += warning
   }
 
+  @Synchronized
   fun registerPluginStructureWarning(warning: PluginStructureWarning) {
     pluginStructureWarnings += warning
   }
 
+  private fun countFinding() {
+    registeredFindings.get()[0]++
+  }
+
   private fun shouldIndexDeprecatedClass(usageHostClass: ClassLocation, apiHostClass: ClassLocation): Boolean {
     val usageHostOrigin = usageHostClass.classFileOrigin
     if (idePlugin == usageHostOrigin.findOriginOfType<PluginFileOrigin>()?.idePlugin) {
@@ -4,7 +4,6 @@
 
 package com.jetbrains.pluginverifier.verifiers.filter
 
-import com.jetbrains.pluginverifier.verifiers.findAnnotation
 import com.jetbrains.pluginverifier.verifiers.resolution.ClassFile
 
 /**
@@ -19,6 +18,6 @@ class DynamicallyLoadedFilter : ClassFilter {
   }
 
   override fun shouldVerify(classFile: ClassFile) =
-    classFile.annotations.findAnnotation(DYNAMICALLY_LOADED) == null
+    classFile.findAnnotation(DYNAMICALLY_LOADED) == null
 
 }
\ No newline at end of file
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.response
+
+import com.google.gson.Gson
+import com.google.gson.stream.JsonWriter
+import com.jetbrains.pluginverifier.PluginVerificationResult
+import com.jetbrains.pluginverifier.PluginVerificationTarget
+import java.io.Writer
+
+/**
+ * Writes the same JSON as serialization of [prepareResponse] with [gson],
+ * without building the [FullVerificationResultDto] of the whole result.
+ *
+ * Problems and API usages are converted to DTOs and written one by one,
+ * so memory used for reporting does not depend on the number of problems.
+ */
+fun PluginVerificationResult.writeResponse(updateId: Int, Version: String, writer: Writer, gson: Gson = Gson()) {
+  val sonarPluginApiTarget = verificationTarget as PluginVerificationTarget.SonarPluginApi
+  val json = gson.newJsonWriter(writer)
+  json.beginObject()
+  json.name("updateId").value(updateId.toLong())
+  json.name("Version")
+  gson.toJson(AvailableIdeDto(Version, null, null), AvailableIdeDto::class.java, json)
+  json.name("javaVersion").value(sonarPluginApiTarget.jdkVersion.javaVersion)
+  json.name("resultType")
+  gson.toJson(convertResultTypeDto(), VerificationResultTypeDto::class.java, json)
+  json.name("verificationVerdict").value(verificationVerdict)
+
+  val verified = this as? PluginVerificationResult.Verified
+  if (verified != null) {
+    json.name("dependenciesGraph")
+    gson.toJson(verified.dependenciesGraph.convert(), DependenciesGraphDto::class.java, json)
+  } else if (gson.serializeNulls()) {
+    json.name("dependenciesGraph").nullValue()
+  }
+
+  json.name("pluginStructureWarnings").writeArray(gson, verified?.pluginStructureWarnings.orEmpty().asSequence().map { it.convert() })
+  val pluginStructureErrors = (this as? PluginVerificationResult.InvalidPlugin)?.pluginStructureErrors.orEmpty()
+  json.name("pluginStructureErrors").writeArray(gson, pluginStructureErrors.asSequence().map { it.convert() })
+  json.name("compatibilityWarnings").writeArray(gson, verified?.compatibilityWarnings.orEmpty().asSequence().map { it.convert() })
+  json.name("compatibilityProblems").writeArray(gson, verified?.compatibilityProblems.orEmpty().asSequence().map { it.convert() })
+  json.name("deprecatedApiUsages").writeArray(gson, verified?.deprecatedUsages.orEmpty().asSequence().map { it.convert() })
+  json.name("experimentalApiUsages").writeArray(gson, verified?.experimentalApiUsages.orEmpty().asSequence().map { it.convert() })
+  json.name("internalApiUsages").writeArray(gson, verified?.internalApiUsages.orEmpty().asSequence().map { it.convert() })
+  json.name("overrideOnlyApiUsages").writeArray(gson, verified?.overrideOnlyMethodUsages.orEmpty().asSequence().map { it.convert() })
+  json.name("nonExtendableApiUsages").writeArray(gson, verified?.nonExtendableApiUsages.orEmpty().asSequence().map { it.convert() })
+
+  val dynamicPluginStatus = if (verified != null) verified.dynamicPluginStatus!!.convert() else DynamicPluginStatusDto(false, emptyList())
+  json.name("dynamicPluginStatus")
+  gson.toJson(dynamicPluginStatus, DynamicPluginStatusDto::class.java, json)
+  json.endObject()
+  json.flush()
+}
+
+private fun PluginVerificationResult.convertResultTypeDto() = when (this) {
+  is PluginVerificationResult.Verified -> convertResultType()
+  is PluginVerificationResult.InvalidPlugin -> VerificationResultTypeDto.INVALID_PLUGIN
+  is PluginVerificationResult.NotFound, is PluginVerificationResult.FailedToDownload -> VerificationResultTypeDto.NON_DOWNLOADABLE
+}
+
+/**
+ * Writes [elements] as a JSON array, serializing each element with [gson] as soon as it is produced.
+ */
+internal fun <T : Any> JsonWriter.writeArray(gson: Gson, elements: Sequence<T>) {
+  beginArray()
+  for (element in elements) {
+    gson.toJson(element, element.javaClass, this)
+  }
+  endArray()
+}
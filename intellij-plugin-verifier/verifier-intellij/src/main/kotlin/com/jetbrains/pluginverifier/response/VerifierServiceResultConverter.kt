@@ -141,17 +141,17 @@ private fun PluginDependency.convert() =
     isModule
   )
 
-private fun CompatibilityProblem.convert() =
+internal fun CompatibilityProblem.convert() =
   CompatibilityProblemDto(
     shortDescription,
     fullDescription,
     problemType
   )
 
-private fun CompatibilityWarning.convert() =
+internal fun CompatibilityWarning.convert() =
   CompatibilityWarningDto(fullDescription)
 
-private fun DeprecatedApiUsage.convert() =
+internal fun DeprecatedApiUsage.convert() =
   DeprecatedApiUsageDto(
     apiElement.fullyQualifiedLocation(),
     usageLocation.presentableUsageLocation(),
@@ -164,7 +164,7 @@ private fun DeprecatedApiUsage.convert() =
 private fun DeprecationInfo.convert() =
   DeprecationInfoDto(forRemoval, untilVersion)
 
-private fun ExperimentalApiUsage.convert() =
+internal fun ExperimentalApiUsage.convert() =
   ExperimentalApiUsageDto(
     apiElement.fullyQualifiedLocation(),
     usageLocation.presentableUsageLocation(),
@@ -173,7 +173,7 @@ private fun ExperimentalApiUsage.convert() =
     fullDescription
   )
 
-private fun InternalApiUsage.convert() =
+internal fun InternalApiUsage.convert() =
   InternalApiUsageDto(
     apiElement.fullyQualifiedLocation(),
     usageLocation.presentableUsageLocation(),
@@ -182,7 +182,7 @@ private fun InternalApiUsage.convert() =
     fullDescription
   )
 
-private fun OverrideOnlyMethodUsage.convert() =
+internal fun OverrideOnlyMethodUsage.convert() =
   OverrideOnlyApiUsageDto(
     apiElement.fullyQualifiedLocation(),
     usageLocation.presentableUsageLocation(),
@@ -191,7 +191,7 @@ private fun OverrideOnlyMethodUsage.convert() =
     fullDescription
   )
 
-private fun NonExtendableApiUsage.convert() =
+internal fun NonExtendableApiUsage.convert() =
   NonExtendableApiUsageDto(
     apiElement.fullyQualifiedLocation(),
     usageLocation.presentableUsageLocation(),
@@ -244,8 +244,8 @@ private fun Location.presentableUsageLocation() = when (this) {
   )
 }
 
-private fun PluginStructureWarning.convert() =
+internal fun PluginStructureWarning.convert() =
   PluginStructureWarningDto(message)
 
-private fun PluginStructureError.convert() =
+internal fun PluginStructureError.convert() =
   PluginStructureErrorDto(message)
\ No newline at end of file
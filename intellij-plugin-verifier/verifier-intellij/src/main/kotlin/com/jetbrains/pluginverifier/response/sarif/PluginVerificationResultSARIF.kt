@@ -6,13 +6,19 @@ import com.jetbrains.pluginverifier.response.VerificationResultTypeDto
 import com.jetbrains.pluginverifier.results.problems.CompatibilityProblem
 import java.util.*
 
+internal const val SARIF_VERSION = "2.1.0"
+
+internal const val SARIF_LANGUAGE = "en-US"
+
+internal const val DRIVER_NAME = "Intellij Plugin Verifier"
+
 /**
  * SARIF format for Plugin Verifier Tool
  * @param version - format version
  * @param runs - tools to run inspections. It always contains one element.
  */
 data class PluginVerificationResultSARIF(
-  val version: String = "2.1.0",
+  val version: String = SARIF_VERSION,
   val runs: List<Runner>,
 )
 
@@ -20,7 +26,7 @@ data class Runner(
   val tool: Tool,
   val results: List<InspectionResult>,
   val automationDetails: AutomationDetails,
-  val language: String = "en-US",
+  val language: String = SARIF_LANGUAGE,
   val invocations: List<InvocationStatus>,
   val versionControlProvenance: List<VersionControlProvenance>,
   val properties: PluginVerifierPropertiesBag,
@@ -80,7 +86,7 @@ data class Tool(val driver: Driver)
  * @param rules - all the errors from service. Subclasses of [CompatibilityProblem].
  */
 data class Driver(
-  val name: String = "Intellij Plugin Verifier",
+  val name: String = DRIVER_NAME,
   val rules: List<Rule>,
 )
 
@@ -42,7 +42,7 @@ private fun PluginVerificationResult.generateReport(
   )
 }
 
-private fun PluginVerificationResult.toInvocationStatus(): List<InvocationStatus> {
+internal fun PluginVerificationResult.toInvocationStatus(): List<InvocationStatus> {
   val code = when (this) {
     is PluginVerificationResult.NotFound, is PluginVerificationResult.FailedToDownload -> 127
     is PluginVerificationResult.InvalidPlugin -> 1
@@ -60,12 +60,12 @@ private fun PluginVerificationResult.toInvocationStatus(): List<InvocationStatus
   )
 }
 
-private fun PluginVerificationResult.toAutomationDetails(): AutomationDetails {
+internal fun PluginVerificationResult.toAutomationDetails(): AutomationDetails {
   val plugin = this.plugin
   return AutomationDetails(id = plugin.presentableName + " " + plugin.presentableSinceUntilRange)
 }
 
-private fun PluginVerificationResult.toPluginVerifierPropertiesBag(): PluginVerifierPropertiesBag {
+internal fun PluginVerificationResult.toPluginVerifierPropertiesBag(): PluginVerifierPropertiesBag {
   val dependenciesGraph = if (this is PluginVerificationResult.Verified) dependenciesGraph.convert() else null
   val dynamicPluginStatus = if (this is PluginVerificationResult.Verified) dynamicPluginStatus?.convert() else null
   val sonarPluginApi = verificationTarget as PluginVerificationTarget.SonarPluginApi
@@ -84,7 +84,7 @@ private fun PluginVerificationResult.toPluginVerifierPropertiesBag(): PluginVeri
   )
 }
 
-private fun toVersionControlProvenance(): List<VersionControlProvenance> {
+internal fun toVersionControlProvenance(): List<VersionControlProvenance> {
   return listOf(
     VersionControlProvenance(
       repositoryUri = "TODO()" // TODO()
@@ -1,9 +1,16 @@
 package com.jetbrains.pluginverifier.response.sarif
 
 import com.jetbrains.pluginverifier.PluginVerificationResult
+import com.jetbrains.pluginverifier.usages.ApiUsage
 
 
-internal fun PluginVerificationResult.Verified.buildVerifiedInspections(): List<InspectionResult> {
+internal fun PluginVerificationResult.Verified.buildVerifiedInspections(): List<InspectionResult> =
+  verifiedInspections().toList()
+
+/**
+ * Inspections of the verified plugin, converted one by one when the sequence is iterated.
+ */
+internal fun PluginVerificationResult.Verified.verifiedInspections(): Sequence<InspectionResult> {
   val pluginStructureWarningsInspection = buildPluginStructureWarningsInspection()
   val compatibilityWarningsInspection = buildCompatibilityWarningsInspection()
   val compatibilityProblemsInspection = buildCompatibilityProblemInspection()
@@ -12,8 +19,11 @@ internal fun PluginVerificationResult.Verified.buildVerifiedInspections(): List<
 }
 
 
-internal fun PluginVerificationResult.InvalidPlugin.buildPluginStructureInspections(): List<InspectionResult> {
-  return pluginStructureErrors.map {
+internal fun PluginVerificationResult.InvalidPlugin.buildPluginStructureInspections(): List<InspectionResult> =
+  pluginStructureInspections().toList()
+
+internal fun PluginVerificationResult.InvalidPlugin.pluginStructureInspections(): Sequence<InspectionResult> {
+  return pluginStructureErrors.asSequence().map {
     InspectionResult(
       ruleId = it.javaClass.simpleName,
       level = SeverityValue.ERROR.id,
@@ -35,9 +45,8 @@ internal fun PluginVerificationResult.buildSingleInvocation(): List<InspectionRe
 }
 
 
-private fun PluginVerificationResult.Verified.buildApiUsageInspection(): List<InspectionResult> {
-  val apiUsages = deprecatedUsages + experimentalApiUsages + internalApiUsages + nonExtendableApiUsages + overrideOnlyMethodUsages
-  return apiUsages.map {
+private fun PluginVerificationResult.Verified.buildApiUsageInspection(): Sequence<InspectionResult> {
+  return apiUsages().map {
     InspectionResult(
       ruleId = it.javaClass.simpleName,
       level = SeverityValue.ERROR.id,
@@ -47,8 +56,8 @@ private fun PluginVerificationResult.Verified.buildApiUsageInspection(): List<In
   }
 }
 
-private fun PluginVerificationResult.Verified.buildCompatibilityProblemInspection(): List<InspectionResult> {
-  return compatibilityProblems.map {
+private fun PluginVerificationResult.Verified.buildCompatibilityProblemInspection(): Sequence<InspectionResult> {
+  return compatibilityProblems.asSequence().map {
     InspectionResult(
       ruleId = it.javaClass.simpleName,
       level = SeverityValue.ERROR.id,
@@ -58,8 +67,8 @@ private fun PluginVerificationResult.Verified.buildCompatibilityProblemInspectio
   }
 }
 
-private fun PluginVerificationResult.Verified.buildCompatibilityWarningsInspection(): List<InspectionResult> {
-  return compatibilityWarnings.map {
+private fun PluginVerificationResult.Verified.buildCompatibilityWarningsInspection(): Sequence<InspectionResult> {
+  return compatibilityWarnings.asSequence().map {
     InspectionResult(
       ruleId = it.javaClass.simpleName,
       level = SeverityValue.WARNING.id,
@@ -69,8 +78,8 @@ private fun PluginVerificationResult.Verified.buildCompatibilityWarningsInspecti
   }
 }
 
-private fun PluginVerificationResult.Verified.buildPluginStructureWarningsInspection(): List<InspectionResult> {
-  return pluginStructureWarnings.map {
+private fun PluginVerificationResult.Verified.buildPluginStructureWarningsInspection(): Sequence<InspectionResult> {
+  return pluginStructureWarnings.asSequence().map {
     InspectionResult(
       ruleId = it.javaClass.simpleName,
       level = SeverityValue.WARNING.id,
@@ -80,3 +89,8 @@ private fun PluginVerificationResult.Verified.buildPluginStructureWarningsInspec
   }
 }
 
+/**
+ * All API usages of the plugin, without copying them into a new collection.
+ */
+internal fun PluginVerificationResult.Verified.apiUsages(): Sequence<ApiUsage> =
+  sequenceOf<Set<ApiUsage>>(deprecatedUsages, experimentalApiUsages, internalApiUsages, nonExtendableApiUsages, overrideOnlyMethodUsages).flatten()
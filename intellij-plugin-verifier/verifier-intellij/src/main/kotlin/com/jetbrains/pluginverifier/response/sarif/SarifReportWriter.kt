@@ -0,0 +1,58 @@
+package com.jetbrains.pluginverifier.response.sarif
+
+import com.google.gson.Gson
+import com.jetbrains.pluginverifier.PluginVerificationResult
+import com.jetbrains.pluginverifier.response.writeArray
+import java.io.Writer
+
+/**
+ * Writes the same SARIF report as serialization of [toSarif] with [gson],
+ * without building the [PluginVerificationResultSARIF] of the whole result.
+ *
+ * Rules and results are converted and written one by one,
+ * so memory used for reporting does not depend on the number of problems.
+ */
+fun PluginVerificationResult.writeSarif(writer: Writer, gson: Gson = Gson()) {
+  val rules: Sequence<Rule>
+  val results: Sequence<InspectionResult>
+  when (this) {
+    is PluginVerificationResult.Verified -> {
+      rules = verifiedRules()
+      results = verifiedInspections()
+    }
+    is PluginVerificationResult.InvalidPlugin -> {
+      rules = buildPluginStructureRules().asSequence()
+      results = pluginStructureInspections()
+    }
+    else -> {
+      rules = buildSingleRule().asSequence()
+      results = buildSingleInvocation().asSequence()
+    }
+  }
+
+  val json = gson.newJsonWriter(writer)
+  json.beginObject()
+  json.name("version").value(SARIF_VERSION)
+  json.name("runs").beginArray()
+
+  json.beginObject()
+  json.name("tool").beginObject()
+  json.name("driver").beginObject()
+  json.name("name").value(DRIVER_NAME)
+  json.name("rules").writeArray(gson, rules)
+  json.endObject()
+  json.endObject()
+  json.name("results").writeArray(gson, results)
+  json.name("automationDetails")
+  gson.toJson(toAutomationDetails(), AutomationDetails::class.java, json)
+  json.name("language").value(SARIF_LANGUAGE)
+  json.name("invocations").writeArray(gson, toInvocationStatus().asSequence())
+  json.name("versionControlProvenance").writeArray(gson, toVersionControlProvenance().asSequence())
+  json.name("properties")
+  gson.toJson(toPluginVerifierPropertiesBag(), PluginVerifierPropertiesBag::class.java, json)
+  json.endObject()
+
+  json.endArray()
+  json.endObject()
+  json.flush()
+}
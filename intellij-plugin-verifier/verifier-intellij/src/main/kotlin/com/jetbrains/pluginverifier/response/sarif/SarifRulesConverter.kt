@@ -2,7 +2,13 @@ package com.jetbrains.pluginverifier.response.sarif
 
 import com.jetbrains.pluginverifier.PluginVerificationResult
 
-internal fun PluginVerificationResult.Verified.buildRules(): List<Rule> {
+internal fun PluginVerificationResult.Verified.buildRules(): List<Rule> = verifiedRules().toList()
+
+/**
+ * Rules of the verified plugin. Each kind of problems is converted lazily,
+ * keeping only the identifiers of already seen rules.
+ */
+internal fun PluginVerificationResult.Verified.verifiedRules(): Sequence<Rule> {
   val warningsStructureRules = buildPluginStructureWarningsRules()
   val compatibilityWarningsRules = buildCompatibilityWarningsRules()
   val compatibilityProblemsRules = buildCompatibilityProblemRules()
@@ -44,9 +50,8 @@ internal fun PluginVerificationResult.buildSingleRule(): List<Rule> {
   )
 }
 
-private fun PluginVerificationResult.Verified.buildApiUsageRules(): List<Rule> {
-  val apiUsages = deprecatedUsages + experimentalApiUsages + internalApiUsages + nonExtendableApiUsages + overrideOnlyMethodUsages
-  return apiUsages.map {
+private fun PluginVerificationResult.Verified.buildApiUsageRules(): Sequence<Rule> {
+  return apiUsages().map {
     Rule(
       id = it.javaClass.simpleName,
       shortDescription = Message(it.problemType),
@@ -61,8 +66,8 @@ private fun PluginVerificationResult.Verified.buildApiUsageRules(): List<Rule> {
   }.distinctBy { it.id }
 }
 
-private fun PluginVerificationResult.Verified.buildCompatibilityProblemRules(): List<Rule> {
-  return compatibilityProblems.map {
+private fun PluginVerificationResult.Verified.buildCompatibilityProblemRules(): Sequence<Rule> {
+  return compatibilityProblems.asSequence().map {
     Rule(
       id = it.javaClass.simpleName,
       shortDescription = Message(it.problemType),
@@ -77,8 +82,8 @@ private fun PluginVerificationResult.Verified.buildCompatibilityProblemRules():
   }.distinctBy { it.id }
 }
 
-private fun PluginVerificationResult.Verified.buildCompatibilityWarningsRules(): List<Rule> {
-  return compatibilityWarnings.map {
+private fun PluginVerificationResult.Verified.buildCompatibilityWarningsRules(): Sequence<Rule> {
+  return compatibilityWarnings.asSequence().map {
     Rule(
       id = it.javaClass.simpleName,
       shortDescription = Message(it.problemType),
@@ -93,10 +98,10 @@ private fun PluginVerificationResult.Verified.buildCompatibilityWarningsRules():
   }.distinctBy { it.id }
 }
 
-private fun PluginVerificationResult.Verified.buildPluginStructureWarningsRules(): List<Rule> {
-  if (pluginStructureWarnings.isEmpty()) return emptyList()
+private fun PluginVerificationResult.Verified.buildPluginStructureWarningsRules(): Sequence<Rule> {
+  if (pluginStructureWarnings.isEmpty()) return emptySequence()
   val defaultWarning = pluginStructureWarnings.first()
-  return listOf(
+  return sequenceOf(
     Rule(
       id = defaultWarning.javaClass.simpleName,
       shortDescription = Message(defaultWarning.problemType),
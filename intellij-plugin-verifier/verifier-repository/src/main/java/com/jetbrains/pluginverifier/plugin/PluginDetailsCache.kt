@@ -19,6 +19,47 @@ interface PluginDetailsCache : Closeable {
    */
   fun getPluginDetailsCacheEntry(pluginInfo: PluginInfo): Result
 
+  /**
+   * Fetches the file of the plugin [pluginInfo] in advance, so that the following
+   * [getPluginDetailsCacheEntry] doesn't have to wait for the download.
+   *
+   * The returned [PrefetchResult] keeps the file available and must be closed after
+   * [getPluginDetailsCacheEntry] returns. Failures to fetch the file are not reported here:
+   * they are passed to [getPluginDetailsCacheEntry] along with the [PrefetchResult].
+   */
+  fun prefetchPluginFile(pluginInfo: PluginInfo): PrefetchResult = PrefetchResult.Fetched(Closeable { })
+
+  /**
+   * Provides the [PluginDetails] of the plugin [pluginInfo] whose file has been fetched by [prefetchPluginFile].
+   * If the fetch has failed, the failure is returned without fetching the file again.
+   */
+  fun getPluginDetailsCacheEntry(pluginInfo: PluginInfo, prefetchResult: PrefetchResult): Result =
+    when (prefetchResult) {
+      is PrefetchResult.Fetched -> getPluginDetailsCacheEntry(pluginInfo)
+      is PrefetchResult.NotFetched -> prefetchResult.failure
+    }
+
+  /**
+   * Represents possible results of the [prefetchPluginFile].
+   * It **must be** closed after [getPluginDetailsCacheEntry] returns.
+   */
+  sealed class PrefetchResult : Closeable {
+
+    /**
+     * The file is available until [fileLock] is closed.
+     */
+    class Fetched(private val fileLock: Closeable) : PrefetchResult() {
+      override fun close() = fileLock.close()
+    }
+
+    /**
+     * The file could not be fetched, [failure] is either [Result.FileNotFound] or [Result.Failed].
+     */
+    class NotFetched(val failure: Result) : PrefetchResult() {
+      override fun close() = Unit
+    }
+  }
+
   /**
    * Represents possible results of the [getPluginDetailsCacheEntry].
    * It **must be** closed after usage.
@@ -23,7 +23,12 @@ interface PluginFileProvider {
    */
   sealed class Result {
 
-    data class Found(val pluginFileLock: FileLock) : Result()
+    /**
+     * The plugin file is found and locked with [pluginFileLock].
+     * [contentHash] is SHA-256 of the file's content, if it is known to the provider,
+     * which may be used as a key of caches of data derived from the file.
+     */
+    data class Found(val pluginFileLock: FileLock, val contentHash: String? = null) : Result()
 
     data class NotFound(val reason: String) : Result()
 
@@ -8,6 +8,8 @@ import com.jetbrains.plugin.structure.base.utils.deleteLogged
 import com.jetbrains.plugin.structure.base.utils.listFiles
 import com.jetbrains.plugin.structure.base.utils.nameWithoutExtension
 import com.jetbrains.plugin.structure.base.utils.replaceInvalidFileNameCharacters
+import com.jetbrains.plugin.structure.base.utils.rethrowIfInterrupted
+import com.jetbrains.plugin.structure.base.utils.simpleName
 import com.jetbrains.pluginverifier.repository.Downloadable
 import com.jetbrains.pluginverifier.repository.PluginInfo
 import com.jetbrains.pluginverifier.repository.PluginRepository
@@ -16,12 +18,16 @@ import com.jetbrains.pluginverifier.repository.cleanup.LruFileSizeSweepPolicy
 import com.jetbrains.pluginverifier.repository.downloader.DownloadProvider
 import com.jetbrains.pluginverifier.repository.downloader.DownloadStatistics
 import com.jetbrains.pluginverifier.repository.downloader.UrlDownloader
+import com.jetbrains.pluginverifier.repository.files.ContentAddressableStore
+import com.jetbrains.pluginverifier.repository.files.FileLock
 import com.jetbrains.pluginverifier.repository.files.FileRepository
 import com.jetbrains.pluginverifier.repository.files.FileRepositoryResult
 import com.jetbrains.pluginverifier.repository.files.IdleFileLock
 import com.jetbrains.pluginverifier.repository.repositories.artifactory.ArtifactoryRepository
 import com.jetbrains.pluginverifier.repository.repositories.artifactory.PluginArtifact
 import org.apache.commons.io.FileUtils
+import org.slf4j.LoggerFactory
+import java.io.IOException
 import java.net.URL
 import java.nio.file.Path
 
@@ -35,10 +41,18 @@ import java.nio.file.Path
 class PluginFilesBank(
   private val fileRepository: FileRepository<PluginInfo>,
   private val urlProvider: (PluginInfo) -> URL?,
-  private val downloadProvider: DownloadProvider<PluginInfo>
+  private val downloadProvider: DownloadProvider<PluginInfo>,
+  private val contentStore: ContentAddressableStore? = null
 ) : PluginFileProvider {
 
   companion object {
+    private val LOG = LoggerFactory.getLogger(PluginFilesBank::class.java)
+
+    /**
+     * Directory inside the plugins directory, where the content of the downloaded files is stored.
+     */
+    private const val CONTENT_DIRECTORY = ".content"
+
     fun create(
       pluginRepository: PluginRepository,
       pluginsDir: Path,
@@ -49,7 +63,9 @@ class PluginFilesBank(
       val urlProvider: (PluginInfo) -> URL? = { (it as? Downloadable)?.downloadUrl }
       val urlDownloader = UrlDownloader(urlProvider)
 
-      val downloadProvider = DownloadProvider(pluginsDir, urlDownloader) { key ->
+      val contentStore = ContentAddressableStore(pluginsDir.resolve(CONTENT_DIRECTORY))
+
+      val downloadProvider = DownloadProvider(pluginsDir, urlDownloader, contentStore) { key ->
         when (key) {
           is PluginArtifact -> getFileNameForArtifactoryPlugin(key)
           else -> (key.pluginId + "-" + key.version).replaceInvalidFileNameCharacters()
@@ -59,14 +75,16 @@ class PluginFilesBank(
       val fileRepository = FileRepository(
         downloadProvider,
         sweepPolicy,
-        "downloaded-plugins"
+        "downloaded-plugins",
+        fileDisposer = { contentStore.release(it) }
       )
 
       if (pluginRepository is ArtifactoryRepository) {
         addAlreadyDownloadedPlugins(pluginsDir, pluginRepository, fileRepository)
       }
+      contentStore.removeUnreferenced()
 
-      return PluginFilesBank(fileRepository, urlProvider, downloadProvider)
+      return PluginFilesBank(fileRepository, urlProvider, downloadProvider, contentStore)
     }
 
     private fun getFileNameForArtifactoryPlugin(pluginInfo: PluginArtifact): String =
@@ -86,6 +104,10 @@ class PluginFilesBank(
     ) {
       val pathToPluginIdAndUpdateId = hashMapOf<Path, Pair<Int, Int>>()
       for (path in pluginsDir.listFiles()) {
+        if (path.simpleName.startsWith(".")) {
+          //Service directories of the download provider and the content store.
+          continue
+        }
         val pluginIdAndUpdateId = getPluginIdAndUpdateIdByPath(path)
         if (pluginIdAndUpdateId != null) {
           pathToPluginIdAndUpdateId[path] = pluginIdAndUpdateId
@@ -136,13 +158,48 @@ class PluginFilesBank(
     }
     return with(fileRepository.getFile(pluginInfo)) {
       when (this) {
-        is FileRepositoryResult.Found -> PluginFileProvider.Result.Found(lockedFile)
+        is FileRepositoryResult.Found -> getVerifiedPluginFile(pluginInfo, lockedFile)
         is FileRepositoryResult.NotFound -> PluginFileProvider.Result.NotFound(reason)
         is FileRepositoryResult.Failed -> PluginFileProvider.Result.Failed(reason, error)
       }
     }
   }
 
+  /**
+   * Checks that the cached plugin file has not been changed or truncated since it was stored,
+   * and downloads the file again if it has. If the corrupted file cannot be removed, because it is in use,
+   * the fetching fails.
+   */
+  private fun getVerifiedPluginFile(pluginInfo: PluginInfo, lockedFile: FileLock): PluginFileProvider.Result {
+    if (contentStore == null) {
+      return PluginFileProvider.Result.Found(lockedFile)
+    }
+    if (!contentStore.isIntact(lockedFile.file)) {
+      LOG.info("Cached file of $pluginInfo ${lockedFile.file} is corrupted and will be downloaded again")
+      lockedFile.release()
+      if (!fileRepository.remove(pluginInfo)) {
+        //The file is used by another verification, so it is removed later, and must not be used meanwhile.
+        val reason = "Cached file of $pluginInfo is corrupted and cannot be downloaded again while it is in use"
+        return PluginFileProvider.Result.Failed(reason, IOException(reason))
+      }
+      return when (val result = fileRepository.getFile(pluginInfo)) {
+        is FileRepositoryResult.Found -> PluginFileProvider.Result.Found(result.lockedFile, getContentHash(result.lockedFile))
+        is FileRepositoryResult.NotFound -> PluginFileProvider.Result.NotFound(result.reason)
+        is FileRepositoryResult.Failed -> PluginFileProvider.Result.Failed(result.reason, result.error)
+      }
+    }
+    return PluginFileProvider.Result.Found(lockedFile, getContentHash(lockedFile))
+  }
+
+  private fun getContentHash(lockedFile: FileLock): String? =
+    try {
+      contentStore?.getContentHash(lockedFile.file)
+    } catch (e: Exception) {
+      e.rethrowIfInterrupted()
+      LOG.warn("Unable to compute content hash of ${lockedFile.file}", e)
+      null
+    }
+
   /**
    * Returns a set of plugins available locally at the moment.
    */
@@ -13,6 +13,7 @@ import com.jetbrains.pluginverifier.repository.provider.ProvideResult
 import com.jetbrains.pluginverifier.repository.provider.ResourceProvider
 import com.jetbrains.pluginverifier.repository.repositories.bundled.BundledPluginInfo
 import com.jetbrains.pluginverifier.repository.repositories.local.LocalPluginInfo
+import java.io.Closeable
 
 /**
  * This cache is intended to open and cache [PluginDetails] for
@@ -60,6 +61,17 @@ class SizeLimitedPluginDetailsCache(
     }
   }
 
+  override fun prefetchPluginFile(pluginInfo: PluginInfo): PluginDetailsCache.PrefetchResult {
+    if (pluginInfo is LocalPluginInfo || pluginInfo is BundledPluginInfo) {
+      return PluginDetailsCache.PrefetchResult.Fetched(Closeable { })
+    }
+    return when (val fileResult = pluginFileProvider.getPluginFile(pluginInfo)) {
+      is PluginFileProvider.Result.Found -> PluginDetailsCache.PrefetchResult.Fetched(fileResult.pluginFileLock)
+      is PluginFileProvider.Result.NotFound -> PluginDetailsCache.PrefetchResult.NotFetched(PluginDetailsCache.Result.FileNotFound(fileResult.reason))
+      is PluginFileProvider.Result.Failed -> PluginDetailsCache.PrefetchResult.NotFetched(PluginDetailsCache.Result.Failed(fileResult.reason, fileResult.error))
+    }
+  }
+
   override fun close() = internalCache.close()
 
 }
@@ -6,6 +6,7 @@ package com.jetbrains.pluginverifier.repository.downloader
 
 import com.jetbrains.plugin.structure.base.utils.*
 import com.jetbrains.pluginverifier.repository.cleanup.fileSize
+import com.jetbrains.pluginverifier.repository.files.ContentAddressableStore
 import com.jetbrains.pluginverifier.repository.provider.ProvideResult
 import com.jetbrains.pluginverifier.repository.provider.ResourceProvider
 import org.apache.commons.io.FileUtils
@@ -17,10 +18,14 @@ import java.nio.file.Path
  * [ResourceProvider] responsible for downloading files and directories
  * using provided [downloader] and saving them to the [destinationDirectory]
  * using the [fileNameWithoutExtensionMapper].
+ *
+ * If [contentStore] is specified, downloaded files are saved to it
+ * and the files in the [destinationDirectory] are aliases of the stored content.
  */
 class DownloadProvider<in K>(
   private val destinationDirectory: Path,
   private val downloader: Downloader<K>,
+  private val contentStore: ContentAddressableStore? = null,
   private val fileNameWithoutExtensionMapper: (K) -> String
 ) : ResourceProvider<K, Path> {
   private companion object {
@@ -65,7 +70,11 @@ class DownloadProvider<in K>(
   ): ProvideResult<Path> {
     val destination = getDestinationFile(key, isDirectory, extension)
     try {
-      moveFileOrDirectory(tempDownloadedFile, destination)
+      if (contentStore != null && !isDirectory) {
+        contentStore.add(tempDownloadedFile, destination)
+      } else {
+        moveFileOrDirectory(tempDownloadedFile, destination)
+      }
     } catch (e: Exception) {
       e.rethrowIfInterrupted()
       return ProvideResult.Failed("Unable to download $key", e)
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.repository.files
+
+import com.google.common.hash.Hashing
+import com.google.common.io.MoreFiles
+import com.jetbrains.plugin.structure.base.utils.createDir
+import com.jetbrains.plugin.structure.base.utils.deleteLogged
+import com.jetbrains.plugin.structure.base.utils.exists
+import com.jetbrains.plugin.structure.base.utils.isDirectory
+import com.jetbrains.plugin.structure.base.utils.listFiles
+import com.jetbrains.plugin.structure.base.utils.rethrowIfInterrupted
+import org.slf4j.LoggerFactory
+import java.io.IOException
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+
+/**
+ * Storage of files keyed by SHA-256 of their content.
+ *
+ * Every distinct content is stored once in the [directory], and files of repositories
+ * are aliases of the stored content: hard links where the file system supports them, copies otherwise.
+ * The same plugin file downloaded under several coordinates or from several repositories
+ * therefore occupies the disk once, and its [content hash] [getContentHash] is a stable key
+ * for caches of data derived from the file.
+ *
+ * Stored content is deleted when its last alias is [released] [release].
+ */
+class ContentAddressableStore(private val directory: Path) {
+
+  private companion object {
+    private val LOG = LoggerFactory.getLogger(ContentAddressableStore::class.java)
+
+    private const val TEMP_SUFFIX = ".tmp"
+  }
+
+  private class Alias(val contentHash: String, val size: Long)
+
+  private val aliases = hashMapOf<Path, Alias>()
+
+  private val aliasesCount = hashMapOf<String, Int>()
+
+  init {
+    directory.createDir()
+  }
+
+  /**
+   * Moves [file] to the store and creates [alias] for its content.
+   * If the same content is already stored, [file] is deleted.
+   *
+   * The file is hashed before the store is locked, so adding big files does not block other callers.
+   *
+   * @return SHA-256 of the content
+   */
+  fun add(file: Path, alias: Path): String {
+    val contentHash = hash(file)
+    synchronized(this) {
+      val contentFile = getContentFile(contentHash)
+      if (contentFile.exists() && Files.size(contentFile) == Files.size(file)) {
+        file.deleteLogged()
+      } else {
+        contentFile.parent.createDir()
+        Files.move(file, contentFile, StandardCopyOption.REPLACE_EXISTING)
+      }
+      createAlias(contentFile, alias)
+      registerAlias(alias.toAbsolutePath(), contentHash, Files.size(contentFile))
+    }
+    return contentHash
+  }
+
+  /**
+   * Returns SHA-256 of the content of [file].
+   *
+   * The hash of an alias created by this store is returned without reading the file, if the file was not changed.
+   * Other files, such as files downloaded before the store was used, are hashed without locking the store
+   * and replaced with aliases.
+   */
+  fun getContentHash(file: Path): String {
+    val absolutePath = file.toAbsolutePath()
+    synchronized(this) {
+      val alias = aliases[absolutePath]
+      if (alias != null && isIntact(absolutePath, alias)) {
+        return alias.contentHash
+      }
+      if (alias != null) {
+        LOG.info("File $file was modified after it had been stored. It will be hashed again.")
+        unregisterAlias(absolutePath)
+      }
+    }
+    val contentHash = hash(file)
+    synchronized(this) {
+      val contentFile = getContentFile(contentHash)
+      if (!contentFile.exists()) {
+        contentFile.parent.createDir()
+        createAlias(file, contentFile)
+      } else if (!Files.isSameFile(file, contentFile) && Files.size(file) == Files.size(contentFile)) {
+        createAlias(contentFile, file)
+      }
+      registerAlias(absolutePath, contentHash, Files.size(file))
+    }
+    return contentHash
+  }
+
+  /**
+   * Checks that the [file] still has the size of the content it was stored with,
+   * without reading the file. Files unknown to the store are considered intact.
+   */
+  @Synchronized
+  fun isIntact(file: Path): Boolean {
+    val absolutePath = file.toAbsolutePath()
+    val alias = aliases[absolutePath] ?: return true
+    return isIntact(absolutePath, alias)
+  }
+
+  private fun isIntact(file: Path, alias: Alias): Boolean =
+    try {
+      Files.size(file) == alias.size
+    } catch (e: IOException) {
+      false
+    }
+
+  /**
+   * Deletes the alias [file], and the stored content if no other alias refers to it.
+   */
+  @Synchronized
+  fun release(file: Path) {
+    file.deleteLogged()
+    val contentHash = unregisterAlias(file.toAbsolutePath()) ?: return
+    if (contentHash !in aliasesCount) {
+      getContentFile(contentHash).deleteLogged()
+    }
+  }
+
+  /**
+   * Deletes the stored content that is not referenced by aliases known to this store,
+   * for example, content of files deleted by previous runs.
+   * Content, which hard links are still used by other files, is kept if the file system reports the number of links.
+   * Otherwise, only the aliases known to this store are taken into account. Files of previous runs
+   * are then stored again when their [content hash] [getContentHash] is requested.
+   */
+  @Synchronized
+  fun removeUnreferenced() {
+    for (prefixDirectory in directory.listFiles()) {
+      if (!prefixDirectory.isDirectory) {
+        continue
+      }
+      for (contentFile in prefixDirectory.listFiles()) {
+        val contentHash = contentFile.fileName.toString()
+        if (contentHash.endsWith(TEMP_SUFFIX) || contentHash !in aliasesCount && (getLinksCount(contentFile) ?: 1) <= 1) {
+          contentFile.deleteLogged()
+        }
+      }
+    }
+  }
+
+  private fun registerAlias(absolutePath: Path, contentHash: String, size: Long) {
+    unregisterAlias(absolutePath)
+    aliases[absolutePath] = Alias(contentHash, size)
+    aliasesCount[contentHash] = (aliasesCount[contentHash] ?: 0) + 1
+  }
+
+  private fun unregisterAlias(absolutePath: Path): String? {
+    val alias = aliases.remove(absolutePath) ?: return null
+    val count = aliasesCount.getValue(alias.contentHash) - 1
+    if (count == 0) {
+      aliasesCount.remove(alias.contentHash)
+    } else {
+      aliasesCount[alias.contentHash] = count
+    }
+    return alias.contentHash
+  }
+
+  /**
+   * Returns the number of hard links of [file], or `null` if the file system does not report it, as on Windows.
+   */
+  private fun getLinksCount(file: Path): Int? =
+    try {
+      Files.getAttribute(file, "unix:nlink") as Int
+    } catch (e: Exception) {
+      e.rethrowIfInterrupted()
+      null
+    }
+
+  /**
+   * Makes [alias] a hard link to [target], or a copy of [target] if hard links are not supported.
+   */
+  private fun createAlias(target: Path, alias: Path) {
+    val tempAlias = alias.resolveSibling(alias.fileName.toString() + TEMP_SUFFIX)
+    Files.deleteIfExists(tempAlias)
+    try {
+      Files.createLink(tempAlias, target)
+    } catch (e: Exception) {
+      e.rethrowIfInterrupted()
+      if (e !is IOException && e !is UnsupportedOperationException) {
+        throw e
+      }
+      LOG.debug("Unable to create hard link $alias to $target. The file will be copied.", e)
+      Files.copy(target, tempAlias, StandardCopyOption.REPLACE_EXISTING)
+    }
+    Files.move(tempAlias, alias, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+  }
+
+  private fun getContentFile(contentHash: String): Path =
+    directory.resolve(contentHash.substring(0, 2)).resolve(contentHash)
+
+  private fun hash(file: Path): String = MoreFiles.asByteSource(file).hash(Hashing.sha256()).toString()
+}
@@ -21,12 +21,15 @@ import java.time.Clock
 /**
  * File repository is the refinement of the
  * [resource repository] [ResourceRepository] for files.
+ *
+ * Files removed from the repository are deleted with [fileDisposer].
  */
 class FileRepository<K>(
   resourceProvider: ResourceProvider<K, Path> = EmptyResourceProvider(),
   sweepPolicy: SweepPolicy<K> = IdleSweepPolicy(),
   presentableName: String = "FileRepository",
-  clock: Clock = Clock.systemUTC()
+  clock: Clock = Clock.systemUTC(),
+  fileDisposer: (Path) -> Unit = { path -> path.deleteLogged() }
 ) {
   private val resourceRepository = ResourceRepositoryImpl(
     sweepPolicy,
@@ -34,7 +37,7 @@ class FileRepository<K>(
     resourceProvider,
     SpaceWeight(SpaceAmount.ZERO_SPACE),
     { SpaceWeight(it.fileSize) },
-    { path -> path.deleteLogged() },
+    fileDisposer,
     presentableName
   )
 
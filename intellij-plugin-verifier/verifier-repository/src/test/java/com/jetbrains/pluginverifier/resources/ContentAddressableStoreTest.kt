@@ -0,0 +1,91 @@
+package com.jetbrains.pluginverifier.resources
+
+import com.jetbrains.plugin.structure.base.utils.exists
+import com.jetbrains.plugin.structure.base.utils.listFiles
+import com.jetbrains.plugin.structure.base.utils.readText
+import com.jetbrains.plugin.structure.base.utils.writeText
+import com.jetbrains.pluginverifier.repository.files.ContentAddressableStore
+import org.junit.Assert.*
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.nio.file.Path
+import java.nio.file.Paths
+
+class ContentAddressableStoreTest {
+
+  @JvmField
+  @Rule
+  var tempFolder: TemporaryFolder = TemporaryFolder()
+
+  private fun TemporaryFolder.newFolderPath(): Path = newFolder().toPath()
+
+  private fun Path.countStoredFiles(): Int = listFiles().sumOf { it.listFiles().size }
+
+  @Test
+  fun `same content added under two aliases is stored once`() {
+    val storeDir = tempFolder.newFolderPath()
+    val filesDir = tempFolder.newFolderPath()
+    val store = ContentAddressableStore(storeDir)
+
+    val first = filesDir.resolve("first.download").also { it.writeText("content") }
+    val second = filesDir.resolve("second.download").also { it.writeText("content") }
+    val firstAlias = filesDir.resolve("first.zip")
+    val secondAlias = filesDir.resolve("second.zip")
+
+    val firstHash = store.add(first, firstAlias)
+    val secondHash = store.add(second, secondAlias)
+    assertEquals(firstHash, secondHash)
+    assertEquals(firstHash, store.getContentHash(secondAlias))
+    assertEquals("content", firstAlias.readText())
+    assertEquals("content", secondAlias.readText())
+    assertFalse(first.exists())
+    assertFalse(second.exists())
+    assertEquals(1, storeDir.countStoredFiles())
+
+    store.release(firstAlias)
+    assertFalse(firstAlias.exists())
+    assertEquals(1, storeDir.countStoredFiles())
+
+    store.release(secondAlias)
+    assertFalse(secondAlias.exists())
+    assertEquals(0, storeDir.countStoredFiles())
+  }
+
+  @Test
+  fun `aliases in a relative directory are released`() {
+    val workingDirectory = Paths.get("").toAbsolutePath()
+    val storeDir = workingDirectory.relativize(tempFolder.newFolderPath())
+    val filesDir = workingDirectory.relativize(tempFolder.newFolderPath())
+    assertFalse(storeDir.isAbsolute)
+    val store = ContentAddressableStore(storeDir)
+
+    val download = filesDir.resolve("plugin.download").also { it.writeText("content") }
+    val alias = filesDir.resolve("plugin.zip")
+    val hash = store.add(download, alias)
+    assertEquals(hash, store.getContentHash(alias))
+    assertEquals(hash, store.getContentHash(alias.toAbsolutePath()))
+    assertTrue(store.isIntact(alias))
+
+    store.release(alias)
+    assertFalse(alias.exists())
+    assertEquals(0, storeDir.countStoredFiles())
+  }
+
+  @Test
+  fun `files created before the store are adopted`() {
+    val storeDir = tempFolder.newFolderPath()
+    val filesDir = tempFolder.newFolderPath()
+    val existing = filesDir.resolve("existing.zip").also { it.writeText("content") }
+
+    val store = ContentAddressableStore(storeDir)
+    val hash = store.getContentHash(existing)
+    assertEquals(64, hash.length)
+    assertEquals("content", existing.readText())
+    assertEquals(1, storeDir.countStoredFiles())
+    assertTrue(store.isIntact(existing))
+
+    existing.writeText("truncated")
+    assertFalse(store.isIntact(existing))
+  }
+}
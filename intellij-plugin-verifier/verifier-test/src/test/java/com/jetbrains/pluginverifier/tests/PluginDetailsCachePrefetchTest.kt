@@ -0,0 +1,58 @@
+package com.jetbrains.pluginverifier.tests
+
+import com.jetbrains.plugin.structure.intellij.plugin.IdePlugin
+import com.jetbrains.pluginverifier.plugin.PluginDetailsCache
+import com.jetbrains.pluginverifier.plugin.PluginDetailsProvider
+import com.jetbrains.pluginverifier.plugin.PluginFileProvider
+import com.jetbrains.pluginverifier.plugin.SizeLimitedPluginDetailsCache
+import com.jetbrains.pluginverifier.repository.PluginInfo
+import com.jetbrains.pluginverifier.repository.files.FileLock
+import com.jetbrains.pluginverifier.tests.mocks.createMockPluginInfo
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.concurrent.atomic.AtomicInteger
+
+class PluginDetailsCachePrefetchTest {
+
+  private val fetches = AtomicInteger()
+
+  private val pluginFileProvider = object : PluginFileProvider {
+    override fun getPluginFile(pluginInfo: PluginInfo): PluginFileProvider.Result {
+      fetches.incrementAndGet()
+      return if (pluginInfo.pluginId == "missing") {
+        PluginFileProvider.Result.NotFound("Plugin is not found")
+      } else {
+        PluginFileProvider.Result.Failed("Failed to fetch plugin", Exception())
+      }
+    }
+  }
+
+  private val pluginDetailsProvider = object : PluginDetailsProvider {
+    override fun providePluginDetails(pluginInfo: PluginInfo, pluginFileLock: FileLock) = throw IllegalArgumentException()
+
+    override fun providePluginDetails(pluginInfo: PluginInfo, idePlugin: IdePlugin) = throw IllegalArgumentException()
+  }
+
+  private fun prefetchAndGet(pluginId: String): PluginDetailsCache.Result =
+    SizeLimitedPluginDetailsCache(10, pluginFileProvider, pluginDetailsProvider).use { cache ->
+      val pluginInfo = createMockPluginInfo(pluginId, "1.0")
+      cache.prefetchPluginFile(pluginInfo).use { prefetchResult ->
+        cache.getPluginDetailsCacheEntry(pluginInfo, prefetchResult)
+      }
+    }
+
+  @Test
+  fun `plugin file that is not found is not fetched again`() {
+    val result = prefetchAndGet("missing")
+    assertTrue(result is PluginDetailsCache.Result.FileNotFound)
+    assertEquals(1, fetches.get())
+  }
+
+  @Test
+  fun `plugin file that failed to be fetched is not fetched again`() {
+    val result = prefetchAndGet("failing")
+    assertEquals("Failed to fetch plugin", (result as PluginDetailsCache.Result.Failed).reason)
+    assertEquals(1, fetches.get())
+  }
+}
@@ -0,0 +1,80 @@
+package com.jetbrains.pluginverifier.tests
+
+import com.jetbrains.pluginverifier.PluginProcessingPipeline
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.io.Closeable
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.atomic.AtomicInteger
+
+class PluginProcessingPipelineTest {
+
+  private class CountingResource(private val opened: AtomicInteger, private val maxOpened: AtomicInteger) : Closeable {
+    init {
+      maxOpened.accumulateAndGet(opened.incrementAndGet()) { a, b -> maxOf(a, b) }
+    }
+
+    override fun close() {
+      opened.decrementAndGet()
+    }
+  }
+
+  private val sizes = PluginProcessingPipeline.StageSizes(
+    downloadWorkers = 3,
+    downloadedBufferSize = 1,
+    extractWorkers = 2,
+    extractedBufferSize = 1,
+    processWorkers = 2
+  )
+
+  @Test
+  fun `all plugins pass all stages and resources are closed`() {
+    val openedFiles = AtomicInteger()
+    val maxOpenedFiles = AtomicInteger()
+    val openedDetails = AtomicInteger()
+    val maxOpenedDetails = AtomicInteger()
+    val finishedNumbers = arrayListOf<Int>()
+
+    val pipeline = PluginProcessingPipeline<Int, Int>("test", true, sizes) { progressData ->
+      finishedNumbers += progressData.finishedNumber
+    }
+    val results = pipeline.execute(
+      (1..30).toList(),
+      { CountingResource(openedFiles, maxOpenedFiles) },
+      { _, _ -> Thread.sleep(2); CountingResource(openedDetails, maxOpenedDetails) },
+      { item, _ -> Thread.sleep(5); item * 2 }
+    )
+
+    assertEquals((1..30).map { it * 2 }.toSet(), results.toSet())
+    assertEquals((1..30).toList(), finishedNumbers)
+    assertEquals(0, openedFiles.get())
+    assertEquals(0, openedDetails.get())
+    //Buffers between stages are bounded.
+    assertTrue(maxOpenedFiles.get() <= sizes.downloadWorkers + sizes.downloadedBufferSize)
+    assertTrue(maxOpenedDetails.get() <= sizes.extractWorkers + sizes.extractedBufferSize)
+  }
+
+  @Test
+  fun `failures of stages are reported`() {
+    val failed = ConcurrentLinkedQueue<Int>()
+    val pipeline = PluginProcessingPipeline<Int, Int>("test", false, sizes) { progressData ->
+      if (progressData.exception != null) {
+        failed += progressData.item
+      }
+    }
+    val error = try {
+      pipeline.execute(
+        (1..9).toList(),
+        { item -> if (item % 3 == 0) throw IllegalStateException("download") else Closeable { } },
+        { item, _ -> if (item % 3 == 1) throw IllegalStateException("extract") else Closeable { } },
+        { item, _ -> item }
+      )
+      null
+    } catch (e: RuntimeException) {
+      e
+    }
+    assertEquals(6, error!!.suppressed.size)
+    assertEquals(setOf(1, 3, 4, 6, 7, 9), failed.toSet())
+  }
+}
@@ -0,0 +1,49 @@
+package com.jetbrains.pluginverifier.tests.analysis
+
+import com.jetbrains.pluginverifier.analysis.ReachabilityGraph
+import com.jetbrains.pluginverifier.analysis.ReachabilityGraph.ReachabilityMark.MAIN_PLUGIN
+import com.jetbrains.pluginverifier.analysis.ReachabilityGraph.ReachabilityMark.OPTIONAL_PLUGIN
+import com.jetbrains.pluginverifier.analysis.TypeGraph
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class ReachabilityGraphTest {
+
+  /**
+   * Main -> A -> B -> C -> B (cycle)
+   * Optional -> D -> C
+   * E -> F
+   */
+  private fun createGraph(): ReachabilityGraph {
+    val builder = TypeGraph.Builder()
+    builder.addEdge("Main", "A")
+    builder.addEdge("A", "B")
+    builder.addEdge("B", "C")
+    builder.addEdge("C", "B")
+    builder.addEdge("Optional", "D")
+    builder.addEdge("D", "C")
+    builder.addEdge("E", "F")
+    builder.addClass("G")
+    val graph = ReachabilityGraph(builder.build())
+    graph.markClass("Main", MAIN_PLUGIN)
+    graph.markClass("Optional", OPTIONAL_PLUGIN)
+    graph.markClass("Unknown", OPTIONAL_PLUGIN)
+    return graph
+  }
+
+  @Test
+  fun `classes are reachable only through references`() {
+    val graph = createGraph()
+    val classNames = listOf("Main", "Optional", "A", "B", "C", "D", "E", "F", "G", "Unknown")
+    assertEquals(listOf("A", "B", "C"), classNames.filter { graph.isClassReachableFromMark(it, MAIN_PLUGIN) })
+    assertEquals(listOf("B", "C", "D"), classNames.filter { graph.isClassReachableFromMark(it, OPTIONAL_PLUGIN) })
+  }
+
+  @Test
+  fun `marking more classes updates reachability`() {
+    val graph = createGraph()
+    assertEquals(false, graph.isClassReachableFromMark("F", MAIN_PLUGIN))
+    graph.markClass("E", MAIN_PLUGIN)
+    assertEquals(true, graph.isClassReachableFromMark("F", MAIN_PLUGIN))
+  }
+}
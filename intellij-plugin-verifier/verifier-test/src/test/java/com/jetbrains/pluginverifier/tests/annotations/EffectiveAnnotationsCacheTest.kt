@@ -0,0 +1,109 @@
+package com.jetbrains.pluginverifier.tests.annotations
+
+import com.jetbrains.plugin.structure.classes.resolvers.FileOrigin
+import com.jetbrains.plugin.structure.classes.resolvers.FixedClassesResolver
+import com.jetbrains.pluginverifier.usages.util.EffectiveAnnotationsCache
+import com.jetbrains.pluginverifier.usages.util.MemberAnnotation
+import com.jetbrains.pluginverifier.usages.util.findEffectiveMemberAnnotation
+import com.jetbrains.pluginverifier.verifiers.resolution.ClassFile
+import com.jetbrains.pluginverifier.verifiers.resolution.ClassFileMember
+import com.jetbrains.pluginverifier.verifiers.resolution.resolveClassOrNull
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Test
+import org.objectweb.asm.Opcodes
+import org.objectweb.asm.tree.AnnotationNode
+import org.objectweb.asm.tree.ClassNode
+import org.objectweb.asm.tree.InnerClassNode
+import org.objectweb.asm.tree.MethodNode
+
+class EffectiveAnnotationsCacheTest {
+
+  private object SomeFileOrigin : FileOrigin {
+    override val parent: FileOrigin? = null
+  }
+
+  private fun classNode(name: String, vararg annotations: String, outerName: String? = null): ClassNode {
+    val node = ClassNode()
+    node.visit(Opcodes.V11, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null)
+    node.invisibleAnnotations = annotations.map { AnnotationNode("L$it;") }
+    if (outerName != null) {
+      node.innerClasses.add(InnerClassNode(name, outerName, name.substringAfterLast('$'), Opcodes.ACC_PUBLIC))
+    }
+    node.methods.add(MethodNode(Opcodes.ACC_PUBLIC, "plain", "()V", null, null))
+    node.methods.add(
+      MethodNode(Opcodes.ACC_PUBLIC, "internal", "()V", null, null).apply {
+        invisibleAnnotations = listOf(AnnotationNode("L${EffectiveAnnotationsCache.INTERNAL_API};"))
+      }
+    )
+    return node
+  }
+
+  /**
+   * Package `internal` is internal, `experimental/Outer` is experimental, and so are its nested classes.
+   */
+  private val resolver = FixedClassesResolver.create(
+    listOf(
+      classNode("internal/package-info", EffectiveAnnotationsCache.INTERNAL_API),
+      classNode("internal/Some"),
+      classNode("internal/Some\$Nested", outerName = "internal/Some"),
+      classNode("experimental/Outer", EffectiveAnnotationsCache.EXPERIMENTAL_API),
+      classNode("experimental/Outer\$Inner", outerName = "experimental/Outer"),
+      classNode("experimental/Outer\$Inner\$Deeper", EffectiveAnnotationsCache.INTELLIJ_INTERNAL_API, outerName = "experimental/Outer\$Inner"),
+      classNode("experimental/Orphan\$Nested", outerName = "experimental/Orphan"),
+      classNode("plain/Plain")
+    ),
+    SomeFileOrigin
+  )
+
+  private val classNames = listOf(
+    "internal/package-info",
+    "internal/Some",
+    "internal/Some\$Nested",
+    "experimental/Outer",
+    "experimental/Outer\$Inner",
+    "experimental/Outer\$Inner\$Deeper",
+    "experimental/Orphan\$Nested",
+    "plain/Plain"
+  )
+
+  private fun MemberAnnotation?.describe(): String = when (this) {
+    null -> "none"
+    is MemberAnnotation.AnnotatedDirectly -> "directly $annotationName on ${member.location}"
+    is MemberAnnotation.AnnotatedViaContainingClass -> "via ${containingClass.location} $annotationName on ${member.location}"
+    is MemberAnnotation.AnnotatedViaPackage -> "via package $packageName $annotationName on ${member.location}"
+  }
+
+  @Test
+  fun `cache answers the same as the walk`() {
+    val cache = EffectiveAnnotationsCache(resolver)
+    val annotationNames = EffectiveAnnotationsCache.TRACKED_ANNOTATIONS + "some/Untracked"
+    //Query in both orders, so that classes are cached starting from different ones.
+    for (names in listOf(classNames, classNames.reversed())) {
+      for (className in names) {
+        val classFile = resolver.resolveClassOrNull(className)
+        assertNotNull(className, classFile)
+        val members = listOf<ClassFileMember>(classFile!!) + classFile.methods
+        for (member in members) {
+          for (annotationName in annotationNames) {
+            val expected = member.findEffectiveMemberAnnotation(annotationName, resolver)
+            val actual = cache.findEffectiveMemberAnnotation(member, annotationName)
+            assertEquals("${member.location} $annotationName", expected.describe(), actual.describe())
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  fun `nested classes take annotations of enclosing classes`() {
+    val cache = EffectiveAnnotationsCache(resolver)
+    val deeper: ClassFile = resolver.resolveClassOrNull("experimental/Outer\$Inner\$Deeper")!!
+    val experimental = cache.findEffectiveMemberAnnotation(deeper, EffectiveAnnotationsCache.EXPERIMENTAL_API)
+    assertEquals("experimental/Outer\$Inner", (experimental as MemberAnnotation.AnnotatedViaContainingClass).containingClass.containingClassFile.name)
+
+    val nested: ClassFile = resolver.resolveClassOrNull("internal/Some\$Nested")!!
+    val internal = cache.findEffectiveMemberAnnotation(nested, EffectiveAnnotationsCache.INTERNAL_API)
+    assertEquals("internal/Some", (internal as MemberAnnotation.AnnotatedViaContainingClass).containingClass.containingClassFile.name)
+  }
+}
@@ -0,0 +1,149 @@
+package com.jetbrains.pluginverifier.tests.bytecode
+
+import com.jetbrains.plugin.structure.classes.resolvers.FileOrigin
+import com.jetbrains.plugin.structure.classes.resolvers.FixedClassesResolver
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import com.jetbrains.pluginverifier.results.location.Location
+import com.jetbrains.pluginverifier.results.problems.CompatibilityProblem
+import com.jetbrains.pluginverifier.results.reference.ClassReference
+import com.jetbrains.pluginverifier.results.reference.FieldReference
+import com.jetbrains.pluginverifier.results.reference.MethodReference
+import com.jetbrains.pluginverifier.usages.ApiUsageProcessor
+import com.jetbrains.pluginverifier.verifiers.BytecodeVerifier
+import com.jetbrains.pluginverifier.verifiers.ProblemRegistrar
+import com.jetbrains.pluginverifier.verifiers.VerificationContext
+import com.jetbrains.pluginverifier.verifiers.packages.PackageFilter
+import com.jetbrains.pluginverifier.verifiers.resolution.ClassFile
+import com.jetbrains.pluginverifier.verifiers.resolution.ClassFileMember
+import com.jetbrains.pluginverifier.verifiers.resolution.ClassUsageType
+import com.jetbrains.pluginverifier.verifiers.resolution.Field
+import com.jetbrains.pluginverifier.verifiers.resolution.Method
+import com.jetbrains.pluginverifier.warnings.CompatibilityWarning
+import com.jetbrains.pluginverifier.warnings.WarningRegistrar
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.objectweb.asm.Opcodes
+import org.objectweb.asm.tree.AbstractInsnNode
+import org.objectweb.asm.tree.ClassNode
+
+/**
+ * Tests that verification of classes of a plugin by several workers gives the same problems
+ * and API usages as the verification by a single worker.
+ */
+class ConcurrentVerificationTest {
+
+  private object SomeFileOrigin : FileOrigin {
+    override val parent: FileOrigin? = null
+  }
+
+  private class RecordingContext(override val classResolver: Resolver) : VerificationContext, ProblemRegistrar, WarningRegistrar {
+    val problems = hashSetOf<CompatibilityProblem>()
+
+    val usages = hashSetOf<Pair<Location, Location>>()
+
+    override val externalClassesPackageFilter = object : PackageFilter {
+      override fun acceptPackageOfClass(binaryClassName: String) = false
+    }
+
+    override val problemRegistrar
+      get() = this
+
+    override val warningRegistrar
+      get() = this
+
+    override val apiUsageProcessors = listOf(object : ApiUsageProcessor {
+      override fun processClassReference(
+        classReference: ClassReference,
+        resolvedClass: ClassFile,
+        context: VerificationContext,
+        referrer: ClassFileMember,
+        classUsageType: ClassUsageType
+      ) = registerUsage(referrer.location, resolvedClass.location)
+
+      override fun processMethodInvocation(
+        methodReference: MethodReference,
+        resolvedMethod: Method,
+        instructionNode: AbstractInsnNode,
+        callerMethod: Method,
+        context: VerificationContext
+      ) = registerUsage(callerMethod.location, resolvedMethod.location)
+
+      override fun processFieldAccess(
+        fieldReference: FieldReference,
+        resolvedField: Field,
+        context: VerificationContext,
+        callerMethod: Method
+      ) = registerUsage(callerMethod.location, resolvedField.location)
+    })
+
+    @Synchronized
+    fun registerUsage(usageLocation: Location, apiLocation: Location) {
+      usages += usageLocation to apiLocation
+    }
+
+    @Synchronized
+    override fun registerProblem(problem: CompatibilityProblem) {
+      problems += problem
+    }
+
+    override fun registerCompatibilityWarning(warning: CompatibilityWarning) = Unit
+  }
+
+  private fun apiClass(): ClassNode {
+    val node = ClassNode()
+    node.visit(Opcodes.V11, Opcodes.ACC_PUBLIC, "api/Api", null, "java/lang/Object", null)
+    node.visitField(Opcodes.ACC_PUBLIC or Opcodes.ACC_STATIC, "field", "I", null, null).visitEnd()
+    val method = node.visitMethod(Opcodes.ACC_PUBLIC or Opcodes.ACC_STATIC, "foo", "()V", null, null)
+    method.visitCode()
+    method.visitInsn(Opcodes.RETURN)
+    method.visitMaxs(0, 0)
+    method.visitEnd()
+    return node
+  }
+
+  /**
+   * Class that uses the API and, for some indices, members missing in it.
+   */
+  private fun pluginClass(index: Int): ClassNode {
+    val node = ClassNode()
+    node.visit(Opcodes.V11, Opcodes.ACC_PUBLIC, "plugin/Class$index", null, "java/lang/Object", null)
+    val method = node.visitMethod(Opcodes.ACC_PUBLIC or Opcodes.ACC_STATIC, "run", "()V", null, null)
+    method.visitCode()
+    method.visitMethodInsn(Opcodes.INVOKESTATIC, "api/Api", if (index % 3 == 0) "missing" else "foo", "()V", false)
+    method.visitFieldInsn(Opcodes.GETSTATIC, "api/Api", if (index % 5 == 0) "missingField" else "field", "I")
+    method.visitInsn(Opcodes.POP)
+    if (index % 7 == 0) {
+      method.visitMethodInsn(Opcodes.INVOKESTATIC, "api/Missing", "foo", "()V", false)
+    }
+    method.visitInsn(Opcodes.RETURN)
+    method.visitMaxs(1, 0)
+    method.visitEnd()
+    return node
+  }
+
+  @Test
+  fun `concurrent verification gives the same problems and usages as sequential one`() {
+    val pluginClasses = (0 until 500).map { pluginClass(it) }
+    val resolver = FixedClassesResolver.create(
+      listOf(ClassNode().apply { visit(Opcodes.V11, Opcodes.ACC_PUBLIC, "java/lang/Object", null, null, null) }, apiClass()) + pluginClasses,
+      SomeFileOrigin
+    )
+    val pluginClassNames = pluginClasses.map { it.name }.toSet()
+
+    fun verify(workers: Int): RecordingContext {
+      val context = RecordingContext(resolver)
+      BytecodeVerifier(concurrentWorkers = workers).verify(pluginClassNames, context) {}
+      return context
+    }
+
+    val sequentialContext = verify(1)
+    assertTrue(sequentialContext.problems.isNotEmpty())
+    assertTrue(sequentialContext.usages.isNotEmpty())
+    repeat(3) {
+      val concurrentContext = verify(4)
+      assertEquals(sequentialContext.problems, concurrentContext.problems)
+      assertEquals(sequentialContext.usages, concurrentContext.usages)
+    }
+  }
+}
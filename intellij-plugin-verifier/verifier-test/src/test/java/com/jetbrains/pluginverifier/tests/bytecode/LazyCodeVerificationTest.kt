@@ -0,0 +1,152 @@
+package com.jetbrains.pluginverifier.tests.bytecode
+
+import com.jetbrains.plugin.structure.classes.resolvers.CompositeResolver
+import com.jetbrains.plugin.structure.classes.resolvers.FileOrigin
+import com.jetbrains.plugin.structure.classes.resolvers.FixedClassesResolver
+import com.jetbrains.plugin.structure.classes.resolvers.JarFileResolver
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import com.jetbrains.pluginverifier.results.problems.CompatibilityProblem
+import com.jetbrains.pluginverifier.results.problems.InvalidClassFileProblem
+import com.jetbrains.pluginverifier.usages.ApiUsageProcessor
+import com.jetbrains.pluginverifier.verifiers.BytecodeVerifier
+import com.jetbrains.pluginverifier.verifiers.ProblemRegistrar
+import com.jetbrains.pluginverifier.verifiers.VerificationContext
+import com.jetbrains.pluginverifier.verifiers.packages.PackageFilter
+import com.jetbrains.pluginverifier.verifiers.resolution.resolveClassOrNull
+import com.jetbrains.pluginverifier.warnings.CompatibilityWarning
+import com.jetbrains.pluginverifier.warnings.WarningRegistrar
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Opcodes
+import org.objectweb.asm.tree.ClassNode
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+/**
+ * Tests that code of platform classes read in the [Resolver.ReadMode.FULL_LAZY_CODE] mode
+ * is loaded only when such classes are verified themselves.
+ */
+class LazyCodeVerificationTest {
+
+  @Rule
+  @JvmField
+  val temporaryFolder = TemporaryFolder()
+
+  private object SomeFileOrigin : FileOrigin {
+    override val parent: FileOrigin? = null
+  }
+
+  private class SimpleContext(override val classResolver: Resolver) : VerificationContext, ProblemRegistrar, WarningRegistrar {
+    val problems = hashSetOf<CompatibilityProblem>()
+
+    override val externalClassesPackageFilter = object : PackageFilter {
+      override fun acceptPackageOfClass(binaryClassName: String) = false
+    }
+
+    override val problemRegistrar
+      get() = this
+
+    override val warningRegistrar
+      get() = this
+
+    override val apiUsageProcessors = emptyList<ApiUsageProcessor>()
+
+    @Synchronized
+    override fun registerProblem(problem: CompatibilityProblem) {
+      problems += problem
+    }
+
+    override fun registerCompatibilityWarning(warning: CompatibilityWarning) = Unit
+  }
+
+  /**
+   * Class `api/Broken` with a valid method `foo(int count)` and a method with an unknown opcode instead of `sipush`.
+   */
+  private fun classWithInvalidCode(): ByteArray {
+    val writer = ClassWriter(0)
+    writer.visit(Opcodes.V11, Opcodes.ACC_PUBLIC, "api/Broken", null, "java/lang/Object", null)
+    val foo = writer.visitMethod(Opcodes.ACC_PUBLIC or Opcodes.ACC_STATIC, "foo", "(I)V", null, null)
+    foo.visitParameter("count", 0)
+    foo.visitCode()
+    foo.visitInsn(Opcodes.RETURN)
+    foo.visitMaxs(0, 1)
+    foo.visitEnd()
+    val broken = writer.visitMethod(Opcodes.ACC_PUBLIC or Opcodes.ACC_STATIC, "broken", "()V", null, null)
+    broken.visitCode()
+    broken.visitIntInsn(Opcodes.SIPUSH, 0x1234)
+    broken.visitInsn(Opcodes.POP)
+    broken.visitInsn(Opcodes.RETURN)
+    broken.visitMaxs(1, 0)
+    broken.visitEnd()
+    writer.visitEnd()
+    val bytes = writer.toByteArray()
+    val offset = (0 until bytes.size - 2).first {
+      bytes[it] == Opcodes.SIPUSH.toByte() && bytes[it + 1] == 0x12.toByte() && bytes[it + 2] == 0x34.toByte()
+    }
+    bytes[offset] = 0xFF.toByte()
+    return bytes
+  }
+
+  private fun createPlatformJar(): Path {
+    val jar = temporaryFolder.newFolder().toPath().resolve("platform.jar")
+    ZipOutputStream(Files.newOutputStream(jar)).use { zip ->
+      zip.putNextEntry(ZipEntry("api/Broken.class"))
+      zip.write(classWithInvalidCode())
+      zip.closeEntry()
+    }
+    return jar
+  }
+
+  private fun pluginClass(): ClassNode {
+    val node = ClassNode()
+    node.visit(Opcodes.V11, Opcodes.ACC_PUBLIC, "plugin/User", null, "java/lang/Object", null)
+    val method = node.visitMethod(Opcodes.ACC_PUBLIC or Opcodes.ACC_STATIC, "callFoo", "()V", null, null)
+    method.visitCode()
+    method.visitInsn(Opcodes.ICONST_0)
+    method.visitMethodInsn(Opcodes.INVOKESTATIC, "api/Broken", "foo", "(I)V", false)
+    method.visitInsn(Opcodes.RETURN)
+    method.visitMaxs(1, 0)
+    method.visitEnd()
+    return node
+  }
+
+  private fun verify(className: String): Set<CompatibilityProblem> =
+    JarFileResolver(createPlatformJar(), Resolver.ReadMode.FULL_LAZY_CODE, SomeFileOrigin, null).use { platformResolver ->
+      val pluginResolver = FixedClassesResolver.create(
+        listOf(
+          ClassNode().apply { visit(Opcodes.V11, Opcodes.ACC_PUBLIC, "java/lang/Object", null, null, null) },
+          pluginClass()
+        ),
+        SomeFileOrigin
+      )
+      val context = SimpleContext(CompositeResolver.create(pluginResolver, platformResolver))
+      BytecodeVerifier().verify(setOf(className), context) {}
+      context.problems
+    }
+
+  @Test
+  fun `class referencing a platform class with invalid code is not reported`() {
+    assertTrue(verify("plugin/User").isEmpty())
+  }
+
+  @Test
+  fun `class with invalid code is reported`() {
+    val problem = verify("api/Broken").single()
+    assertTrue(problem is InvalidClassFileProblem)
+  }
+
+  @Test
+  fun `parameter names of lazily read methods are taken without loading the code`() {
+    JarFileResolver(createPlatformJar(), Resolver.ReadMode.FULL_LAZY_CODE, SomeFileOrigin, null).use { platformResolver ->
+      val classFile = platformResolver.resolveClassOrNull("api/Broken")!!
+      val method = classFile.methods.single { it.name == "foo" }
+      assertEquals(listOf("count"), method.location.parameterNames)
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package com.jetbrains.pluginverifier.tests.filter
+
+import com.jetbrains.pluginverifier.filtering.IgnoreCondition
+import com.jetbrains.pluginverifier.filtering.IgnoredProblemsFilter
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class IgnoredProblemsFilterTest {
+
+  private val ignoreConditions = listOf(
+    "access to unresolved class org.foo.Foo.*",
+    "org.some.plugin:3.4.0:access to unresolved class org.bar.*",
+    "org.some.plugin::Illegal invocation of .*",
+    ":3.4.0:Abstract method org.foo.Foo.bar.*",
+    "ACCESS TO UNRESOLVED CLASS ORG.FOO.*",
+    "access to unresolved classe?s? org.baz.*",
+    "(?i)invocation of unresolved method .*",
+    "missing method|invocation of unresolved constructor org.baz.*",
+    "[Aa]bstract method .*",
+    "access to unresolved class org\\.qux\\.Qux\\$?Inner",
+    ".*deprecated.*",
+    "ınvalid field .*",
+    "unused ſymbol .*"
+  ).map { IgnoreCondition.parseCondition(it) }
+
+  private val descriptions = listOf(
+    "Access to unresolved class org.foo.Foo",
+    "access to unresolved class org.foo.Bar",
+    "access to unresolved class org.bar.Baz",
+    "access to unresolved clas org.baz.Baz",
+    "access to unresolved classes org.baz.Baz",
+    "Illegal invocation of private method",
+    "Abstract method org.foo.Foo.bar() is not implemented",
+    "abstract method org.foo.Baz.bar() is not implemented",
+    "Invocation of unresolved method org.foo.Foo.bar()",
+    "invocation of unresolved constructor org.baz.Baz.<init>()",
+    "missing method",
+    "access to unresolved class org.qux.Qux\$Inner",
+    "access to unresolved class org.qux.QuxInner",
+    "access to unresolved class org-qux.QuxInner",
+    "usage of deprecated class",
+    "Invalid field foo",
+    "invalid field foo",
+    "UNUSED SYMBOL foo",
+    "unused symbol foo",
+    "Unknown problem",
+    ""
+  )
+
+  private fun findIgnoreConditionLinearly(description: String, pluginId: String?, pluginVersion: String?): IgnoreCondition? =
+    ignoreConditions.find { (id, version, pattern) ->
+      (id == null || id == pluginId) && (version == null || version == pluginVersion) && description.matches(pattern)
+    }
+
+  @Test
+  fun `compiled conditions find the same condition as checking them one by one`() {
+    val filter = IgnoredProblemsFilter(ignoreConditions)
+    for (pluginId in listOf("org.some.plugin", "org.other.plugin")) {
+      for (pluginVersion in listOf("3.4.0", "1.0")) {
+        for (description in descriptions) {
+          assertEquals(
+            "$pluginId:$pluginVersion: $description",
+            findIgnoreConditionLinearly(description, pluginId, pluginVersion),
+            filter.findIgnoreCondition(description, pluginId, pluginVersion)
+          )
+        }
+      }
+    }
+  }
+}
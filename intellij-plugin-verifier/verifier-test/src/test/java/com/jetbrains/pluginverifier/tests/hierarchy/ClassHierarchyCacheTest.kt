@@ -0,0 +1,80 @@
+package com.jetbrains.pluginverifier.tests.hierarchy
+
+import com.jetbrains.plugin.structure.classes.resolvers.FileOrigin
+import com.jetbrains.plugin.structure.classes.resolvers.FixedClassesResolver
+import com.jetbrains.pluginverifier.verifiers.hierarchy.ClassHierarchyCache
+import com.jetbrains.pluginverifier.verifiers.isSubclassOf
+import com.jetbrains.pluginverifier.verifiers.resolution.resolveClassOrNull
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.objectweb.asm.Opcodes
+import org.objectweb.asm.tree.ClassNode
+
+class ClassHierarchyCacheTest {
+
+  private object SomeFileOrigin : FileOrigin {
+    override val parent: FileOrigin? = null
+  }
+
+  private fun classNode(name: String, superName: String?, vararg interfaces: String): ClassNode {
+    val node = ClassNode()
+    node.visit(Opcodes.V11, Opcodes.ACC_PUBLIC, name, null, superName, interfaces)
+    return node
+  }
+
+  /**
+   * I, J extends I, K (missing parent)
+   * A implements J, B extends A, C extends B implements K
+   * D extends E, E extends F, F extends D (invalid cycle), G extends E
+   */
+  private val resolver = FixedClassesResolver.create(
+    listOf(
+      classNode("java/lang/Object", null),
+      classNode("org/test/I", "java/lang/Object"),
+      classNode("org/test/J", "java/lang/Object", "org/test/I"),
+      classNode("org/test/K", "java/lang/Object", "org/test/Missing"),
+      classNode("org/test/A", "java/lang/Object", "org/test/J"),
+      classNode("org/test/B", "org/test/A"),
+      classNode("org/test/C", "org/test/B", "org/test/K"),
+      classNode("org/test/D", "org/test/E"),
+      classNode("org/test/E", "org/test/F"),
+      classNode("org/test/F", "org/test/D"),
+      classNode("org/test/G", "org/test/E")
+    ),
+    SomeFileOrigin
+  )
+
+  private val classNames = listOf("I", "J", "K", "A", "B", "C", "D", "E", "F", "G", "Missing").map { "org/test/$it" } + "java/lang/Object"
+
+  @Test
+  fun `cache answers the same as the hierarchy walk`() {
+    val cache = ClassHierarchyCache(resolver)
+    //Query in both orders, so that supertypes are computed starting from different classes.
+    for (children in listOf(classNames, classNames.reversed())) {
+      for (child in children) {
+        for (parent in classNames) {
+          val expected = resolver.isSubclassOf(child, parent)
+          assertEquals("$child -> $parent", expected, cache.isSubclassOf(child, parent))
+          val childClass = resolver.resolveClassOrNull(child) ?: continue
+          assertEquals("$child -> $parent", resolver.isSubclassOf(childClass, parent), cache.isSubclassOf(childClass, parent))
+        }
+      }
+    }
+  }
+
+  @Test
+  fun `supertypes of classes with cyclic hierarchy are complete`() {
+    for (start in listOf("org/test/G", "org/test/D", "org/test/E", "org/test/F")) {
+      val cache = ClassHierarchyCache(resolver)
+      assertTrue(cache.isSubclassOf(start, "org/test/E"))
+      for (child in listOf("org/test/D", "org/test/E", "org/test/F", "org/test/G")) {
+        for (parent in listOf("org/test/D", "org/test/E", "org/test/F")) {
+          assertTrue("$start: $child -> $parent", cache.isSubclassOf(child, parent))
+        }
+        assertFalse(cache.isSubclassOf(child, "org/test/G"))
+      }
+    }
+  }
+}
@@ -0,0 +1,340 @@
+package com.jetbrains.pluginverifier.tests.incremental
+
+import com.jetbrains.plugin.structure.classes.resolvers.CompositeResolver
+import com.jetbrains.plugin.structure.classes.resolvers.FileOrigin
+import com.jetbrains.plugin.structure.classes.resolvers.FixedClassesResolver
+import com.jetbrains.plugin.structure.classes.resolvers.JarFileResolver
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import com.jetbrains.pluginverifier.incremental.VerifiedClassesStorage
+import com.jetbrains.pluginverifier.results.problems.CompatibilityProblem
+import com.jetbrains.pluginverifier.results.reference.ClassReference
+import com.jetbrains.pluginverifier.usages.ApiUsageProcessor
+import com.jetbrains.pluginverifier.verifiers.BytecodeVerifier
+import com.jetbrains.pluginverifier.verifiers.ProblemRegistrar
+import com.jetbrains.pluginverifier.verifiers.VerificationContext
+import com.jetbrains.pluginverifier.verifiers.incremental.ClassFingerprints
+import com.jetbrains.pluginverifier.verifiers.incremental.VerifiedClasses
+import com.jetbrains.pluginverifier.verifiers.packages.PackageFilter
+import com.jetbrains.pluginverifier.verifiers.resolution.ClassFile
+import com.jetbrains.pluginverifier.verifiers.resolution.ClassFileMember
+import com.jetbrains.pluginverifier.verifiers.resolution.ClassUsageType
+import com.jetbrains.pluginverifier.verifiers.resolution.MemberResolutionCache
+import com.jetbrains.pluginverifier.warnings.CompatibilityWarning
+import com.jetbrains.pluginverifier.warnings.WarningRegistrar
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNotEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Opcodes
+import org.objectweb.asm.tree.ClassNode
+import org.objectweb.asm.tree.MethodInsnNode
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+class IncrementalVerificationTest {
+
+  @Rule
+  @JvmField
+  val temporaryFolder = TemporaryFolder()
+
+  private object SomeFileOrigin : FileOrigin {
+    override val parent: FileOrigin? = null
+  }
+
+  private class CountingContext(
+    override val classResolver: Resolver,
+    private val usedClasses: Set<String> = emptySet()
+  ) : VerificationContext, ProblemRegistrar, WarningRegistrar {
+    private val findings = ThreadLocal.withInitial { LongArray(1) }
+
+    val problems = hashSetOf<CompatibilityProblem>()
+
+    override val externalClassesPackageFilter = object : PackageFilter {
+      override fun acceptPackageOfClass(binaryClassName: String) = false
+    }
+
+    override val problemRegistrar
+      get() = this
+
+    override val warningRegistrar
+      get() = this
+
+    override val apiUsageProcessors = listOf(object : ApiUsageProcessor {
+      override fun processClassReference(
+        classReference: ClassReference,
+        resolvedClass: ClassFile,
+        context: VerificationContext,
+        referrer: ClassFileMember,
+        classUsageType: ClassUsageType
+      ) {
+        if (resolvedClass.name in usedClasses) {
+          registerUsage()
+        }
+      }
+    })
+
+    override val memberResolutionCache = MemberResolutionCache()
+
+    override val findingsOnCurrentThread: Long
+      get() = findings.get()[0]
+
+    @Synchronized
+    override fun registerProblem(problem: CompatibilityProblem) {
+      findings.get()[0]++
+      problems += problem
+    }
+
+    @Synchronized
+    override fun registerCompatibilityWarning(warning: CompatibilityWarning) {
+      findings.get()[0]++
+    }
+
+    fun registerUsage() {
+      findings.get()[0]++
+    }
+  }
+
+  private fun classNode(name: String, superName: String, vararg invokedMethods: String): ClassNode {
+    val node = ClassNode()
+    node.visit(Opcodes.V11, Opcodes.ACC_PUBLIC, name, null, superName, null)
+    for (invokedMethod in invokedMethods) {
+      val method = node.visitMethod(Opcodes.ACC_PUBLIC, "call" + invokedMethod.substringAfter('.'), "()V", null, null)
+      method.visitCode()
+      method.visitVarInsn(Opcodes.ALOAD, 0)
+      method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, invokedMethod.substringBefore('.'), invokedMethod.substringAfter('.'), "()V", false)
+      method.visitInsn(Opcodes.RETURN)
+      method.visitMaxs(1, 1)
+      method.visitEnd()
+    }
+    return node
+  }
+
+  private fun baseClass(vararg methods: String): ClassNode {
+    val node = classNode("api/Base", "java/lang/Object")
+    for (methodName in methods) {
+      val method = node.visitMethod(Opcodes.ACC_PUBLIC, methodName, "()V", null, null)
+      method.visitCode()
+      method.visitInsn(Opcodes.RETURN)
+      method.visitMaxs(0, 1)
+      method.visitEnd()
+    }
+    return node
+  }
+
+  private fun createResolver(base: ClassNode) = FixedClassesResolver.create(
+    listOf(
+      ClassNode().apply { visit(Opcodes.V11, Opcodes.ACC_PUBLIC, "java/lang/Object", null, null, null) },
+      base,
+      classNode("plugin/Clean", "api/Base", "api/Base.foo"),
+      classNode("plugin/Broken", "api/Base", "api/Base.missing"),
+      classNode("plugin/Unresolved", "java/lang/Object", "api/Missing.foo")
+    ),
+    SomeFileOrigin
+  )
+
+  private val classesToCheck = setOf("plugin/Clean", "plugin/Broken", "plugin/Unresolved")
+
+  private fun verify(resolver: Resolver, verifiedClasses: VerifiedClasses): CountingContext {
+    val context = CountingContext(resolver)
+    BytecodeVerifier(verifiedClasses = verifiedClasses).verify(classesToCheck, context) {}
+    return context
+  }
+
+  @Test
+  fun `unchanged clean classes are skipped and the result is the same`() {
+    val resolver = createResolver(baseClass("foo"))
+    val fullRun = VerifiedClasses(emptySet())
+    val fullContext = verify(resolver, fullRun)
+    assertEquals(setOf(ClassFingerprints(resolver).getFingerprint("plugin/Clean")), fullRun.clean)
+    assertEquals(0, fullRun.skippedClasses)
+
+    val incrementalRun = VerifiedClasses(fullRun.clean)
+    val incrementalContext = verify(resolver, incrementalRun)
+    assertEquals(1, incrementalRun.skippedClasses)
+    assertEquals(fullRun.clean, incrementalRun.clean)
+    assertEquals(fullContext.problems, incrementalContext.problems)
+    assertTrue(fullContext.problems.isNotEmpty())
+  }
+
+  @Test
+  fun `classes are verified again when referenced classes change`() {
+    val resolver = createResolver(baseClass("foo"))
+    val fullRun = VerifiedClasses(emptySet())
+    verify(resolver, fullRun)
+
+    val changedResolver = createResolver(baseClass("foo", "bar"))
+    val incrementalRun = VerifiedClasses(fullRun.clean)
+    verify(changedResolver, incrementalRun)
+    assertEquals(0, incrementalRun.skippedClasses)
+    assertNotEquals(fullRun.clean, incrementalRun.clean)
+  }
+
+  @Test
+  fun `classes referencing unresolved classes have no fingerprint`() {
+    val fingerprints = ClassFingerprints(createResolver(baseClass("foo")))
+    assertNull(fingerprints.getFingerprint("plugin/Unresolved"))
+    assertNull(fingerprints.getFingerprint("plugin/Missing"))
+  }
+
+  @Test
+  fun `concurrent verification gives the same result as sequential one`() {
+    val pluginClasses = (0 until 100).map { index ->
+      classNode("plugin/Class$index", "api/Base", if (index % 2 == 0) "api/Base.foo" else "api/Base.missing")
+    }
+    val resolver = FixedClassesResolver.create(
+      listOf(ClassNode().apply { visit(Opcodes.V11, Opcodes.ACC_PUBLIC, "java/lang/Object", null, null, null) }, baseClass("foo")) + pluginClasses,
+      SomeFileOrigin
+    )
+    val pluginClassNames = pluginClasses.map { it.name }.toSet()
+
+    fun verify(workers: Int, verifiedClasses: VerifiedClasses): CountingContext {
+      val context = CountingContext(resolver)
+      BytecodeVerifier(concurrentWorkers = workers, verifiedClasses = verifiedClasses).verify(pluginClassNames, context) {}
+      return context
+    }
+
+    val sequentialRun = VerifiedClasses(emptySet())
+    val sequentialContext = verify(1, sequentialRun)
+    val concurrentRun = VerifiedClasses(emptySet())
+    val concurrentContext = verify(4, concurrentRun)
+    assertEquals(sequentialContext.problems, concurrentContext.problems)
+    assertEquals(50, sequentialRun.clean.size)
+    assertEquals(sequentialRun.clean, concurrentRun.clean)
+
+    val incrementalRun = VerifiedClasses(concurrentRun.clean)
+    val incrementalContext = verify(4, incrementalRun)
+    assertEquals(50, incrementalRun.skippedClasses)
+    assertEquals(sequentialContext.problems, incrementalContext.problems)
+  }
+
+  @Test
+  fun `classes referencing the same missing method are not stored as clean`() {
+    val resolver = FixedClassesResolver.create(
+      listOf(
+        ClassNode().apply { visit(Opcodes.V11, Opcodes.ACC_PUBLIC, "java/lang/Object", null, null, null) },
+        baseClass("foo"),
+        classNode("plugin/First", "java/lang/Object", "api/Base.missing"),
+        classNode("plugin/Second", "java/lang/Object", "api/Base.missing")
+      ),
+      SomeFileOrigin
+    )
+    val verifiedClasses = VerifiedClasses(emptySet())
+    val context = CountingContext(resolver)
+    BytecodeVerifier(verifiedClasses = verifiedClasses).verify(setOf("plugin/First", "plugin/Second"), context) {}
+    assertEquals(2, context.problems.size)
+    assertTrue(verifiedClasses.clean.isEmpty())
+  }
+
+  @Test
+  fun `classes reusing a cached member lookup with findings are not stored as clean`() {
+    val resolver = FixedClassesResolver.create(
+      listOf(
+        ClassNode().apply { visit(Opcodes.V11, Opcodes.ACC_PUBLIC, "java/lang/Object", null, null, null) },
+        baseClass("foo"),
+        classNode("api/Derived", "api/Base"),
+        classNode("plugin/First", "java/lang/Object", "api/Derived.foo"),
+        classNode("plugin/Second", "java/lang/Object", "api/Derived.foo")
+      ),
+      SomeFileOrigin
+    )
+    val verifiedClasses = VerifiedClasses(emptySet())
+    val context = CountingContext(resolver, setOf("api/Base"))
+    BytecodeVerifier(verifiedClasses = verifiedClasses).verify(setOf("plugin/First", "plugin/Second"), context) {}
+    assertTrue(context.problems.isEmpty())
+    assertTrue(verifiedClasses.clean.isEmpty())
+  }
+
+  private fun createJar(vararg classes: ClassNode): Path {
+    val jar = temporaryFolder.newFolder().toPath().resolve("classes.jar")
+    ZipOutputStream(Files.newOutputStream(jar)).use { zip ->
+      for (classNode in classes) {
+        zip.putNextEntry(ZipEntry(classNode.name + ".class"))
+        zip.write(ClassWriter(0).also { classNode.accept(it) }.toByteArray())
+        zip.closeEntry()
+      }
+    }
+    return jar
+  }
+
+  private fun getJarFingerprint(readMode: Resolver.ReadMode, vararg classes: ClassNode): String? {
+    val jar = createJar(ClassNode().apply { visit(Opcodes.V11, Opcodes.ACC_PUBLIC, "java/lang/Object", null, null, null) }, *classes)
+    return JarFileResolver(jar, readMode, SomeFileOrigin, null).use { resolver ->
+      ClassFingerprints(resolver).getFingerprint("plugin/Clean")
+    }
+  }
+
+  @Test
+  fun `fingerprint of a class read from a jar changes with the code of its methods`() {
+    for (readMode in listOf(Resolver.ReadMode.FULL, Resolver.ReadMode.FULL_LAZY_CODE)) {
+      val fingerprint = getJarFingerprint(readMode, baseClass("foo", "bar"), classNode("plugin/Clean", "api/Base", "api/Base.foo"))
+      val changedBodyFingerprint = getJarFingerprint(readMode, baseClass("foo", "bar"), classNode("plugin/Clean", "api/Base", "api/Base.foo").apply {
+        val method = methods.single()
+        val invocation = method.instructions.toArray().filterIsInstance<MethodInsnNode>().single()
+        invocation.name = "bar"
+      })
+      assertNotEquals(readMode.name, fingerprint, changedBodyFingerprint)
+      assertEquals(readMode.name, fingerprint, getJarFingerprint(readMode, baseClass("foo", "bar"), classNode("plugin/Clean", "api/Base", "api/Base.foo")))
+    }
+  }
+
+  @Test
+  fun `fingerprint changes with annotations of the package`() {
+    fun packageInfo(annotation: String) = ClassNode().apply {
+      visit(Opcodes.V11, Opcodes.ACC_INTERFACE or Opcodes.ACC_ABSTRACT or Opcodes.ACC_SYNTHETIC, "plugin/package-info", null, "java/lang/Object", null)
+      visitAnnotation(annotation, false)
+    }
+
+    val resolver = createResolver(baseClass("foo"))
+    val fingerprint = ClassFingerprints(resolver).getFingerprint("plugin/Clean")
+    val annotatedFingerprint = ClassFingerprints(CompositeResolver.create(FixedClassesResolver.create(listOf(packageInfo("Lapi/First;")), SomeFileOrigin), resolver))
+      .getFingerprint("plugin/Clean")
+    val otherAnnotationFingerprint = ClassFingerprints(CompositeResolver.create(FixedClassesResolver.create(listOf(packageInfo("Lapi/Second;")), SomeFileOrigin), resolver))
+      .getFingerprint("plugin/Clean")
+    assertNotEquals(fingerprint, annotatedFingerprint)
+    assertNotEquals(annotatedFingerprint, otherAnnotationFingerprint)
+  }
+
+  @Test
+  fun `verified classes are stored per plugin and target`() {
+    val storage = VerifiedClassesStorage(temporaryFolder.newFolder().toPath(), "1.0")
+    val verifiedClasses = VerifiedClasses(emptySet())
+    verifiedClasses.markClean("first")
+    verifiedClasses.markClean("second")
+    storage.save("plugin", "9.0", verifiedClasses)
+
+    val loaded = storage.load("plugin", "9.0")
+    assertTrue(loaded.skipIfUnchanged("first"))
+    assertTrue(loaded.skipIfUnchanged("second"))
+    assertEquals(setOf("first", "second"), loaded.clean)
+    assertTrue(storage.load("plugin", "10.0").clean.isEmpty())
+    assertEquals(0, storage.load("other", "9.0").apply { skipIfUnchanged("first") }.skippedClasses)
+  }
+
+  @Test
+  fun `corrupted storage is ignored`() {
+    val directory = temporaryFolder.newFolder().toPath()
+    val storage = VerifiedClassesStorage(directory, "1.0")
+    storage.save("plugin", "9.0", VerifiedClasses(setOf("first")).apply { markClean("first") })
+    Files.list(directory).use { files -> files.forEach { Files.write(it, byteArrayOf(1, 2, 3)) } }
+
+    val loaded = storage.load("plugin", "9.0")
+    assertEquals(0, loaded.apply { skipIfUnchanged("first") }.skippedClasses)
+    assertEquals(0, Files.list(directory).use { it.count() })
+  }
+
+  @Test
+  fun `verified classes of another verifier version are dropped`() {
+    val directory = temporaryFolder.newFolder().toPath()
+    VerifiedClassesStorage(directory, "1.0").save("plugin", "9.0", VerifiedClasses(setOf("first")).apply { markClean("first") })
+
+    assertTrue(VerifiedClassesStorage(directory, "1.0").load("plugin", "9.0").skipIfUnchanged("first"))
+    assertFalse(VerifiedClassesStorage(directory, "1.1").load("plugin", "9.0").skipIfUnchanged("first"))
+  }
+}
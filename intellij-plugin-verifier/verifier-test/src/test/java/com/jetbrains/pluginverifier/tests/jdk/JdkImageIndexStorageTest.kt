@@ -0,0 +1,57 @@
+package com.jetbrains.pluginverifier.tests.jdk
+
+import com.jetbrains.plugin.structure.base.utils.writeText
+import com.jetbrains.pluginverifier.jdk.JdkImageIndexStorage
+import org.junit.Assert.assertEquals
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+
+class JdkImageIndexStorageTest {
+
+  @Rule
+  @JvmField
+  val temporaryFolder = TemporaryFolder()
+
+  private val index = mapOf(
+    "java/lang/Object" to "java.base",
+    "java/lang/String" to "java.base",
+    "java/sql/Driver" to "java.sql"
+  )
+
+  @Test
+  fun `index is built once per JDK release`() {
+    val jdkPath = temporaryFolder.newFolder("jdk").toPath()
+    val releaseFile = jdkPath.resolve("release")
+    releaseFile.writeText("JAVA_VERSION=\"11.0.2\"\nJAVA_RUNTIME_VERSION=\"11.0.2+9\"")
+    val storage = JdkImageIndexStorage(temporaryFolder.newFolder("indexes").toPath())
+
+    var builds = 0
+    val builder = {
+      builds++
+      index
+    }
+    assertEquals(index, storage.getOrBuild(jdkPath, builder))
+    assertEquals(index, storage.getOrBuild(jdkPath, builder))
+    assertEquals(1, builds)
+
+    releaseFile.writeText("JAVA_VERSION=\"11.0.2\"\nJAVA_RUNTIME_VERSION=\"11.0.2+10\"")
+    assertEquals(index, storage.getOrBuild(jdkPath, builder))
+    assertEquals(2, builds)
+  }
+
+  @Test
+  fun `JDK without release file is not stored`() {
+    val jdkPath = temporaryFolder.newFolder("jdk").toPath()
+    val storage = JdkImageIndexStorage(temporaryFolder.newFolder("indexes").toPath())
+
+    var builds = 0
+    repeat(2) {
+      storage.getOrBuild(jdkPath) {
+        builds++
+        index
+      }
+    }
+    assertEquals(2, builds)
+  }
+}
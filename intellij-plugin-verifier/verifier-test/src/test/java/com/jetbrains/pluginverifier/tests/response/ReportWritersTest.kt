@@ -0,0 +1,79 @@
+package com.jetbrains.pluginverifier.tests.response
+
+import com.google.gson.Gson
+import com.google.gson.JsonElement
+import com.google.gson.JsonParser
+import com.jetbrains.plugin.structure.base.plugin.PluginProblem
+import com.jetbrains.plugin.structure.intellij.version.Version
+import com.jetbrains.pluginverifier.PluginVerificationResult
+import com.jetbrains.pluginverifier.PluginVerificationTarget
+import com.jetbrains.pluginverifier.dependencies.DependenciesGraph
+import com.jetbrains.pluginverifier.dependencies.DependencyNode
+import com.jetbrains.pluginverifier.dymamic.DynamicPluginStatus
+import com.jetbrains.pluginverifier.jdk.JdkVersion
+import com.jetbrains.pluginverifier.response.prepareResponse
+import com.jetbrains.pluginverifier.response.sarif.toSarif
+import com.jetbrains.pluginverifier.response.sarif.writeSarif
+import com.jetbrains.pluginverifier.response.writeResponse
+import com.jetbrains.pluginverifier.tests.mocks.createMockPluginInfo
+import com.jetbrains.pluginverifier.warnings.PluginStructureError
+import com.jetbrains.pluginverifier.warnings.PluginStructureWarning
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import java.io.StringWriter
+
+class ReportWritersTest {
+
+  private val gson = Gson()
+
+  private val plugin = createMockPluginInfo("somePlugin", "1.0")
+
+  private val verificationTarget = PluginVerificationTarget.SonarPluginApi(Version.createIdeVersion("IU-145"), JdkVersion("11", null))
+
+  private class SomeProblem(override val level: Level, override val message: String) : PluginProblem()
+
+  private val results = listOf(
+    PluginVerificationResult.Verified(
+      plugin,
+      verificationTarget,
+      DependenciesGraph(DependencyNode("somePlugin", "1.0"), listOf(DependencyNode("somePlugin", "1.0")), emptyList(), emptyMap()),
+      pluginStructureWarnings = setOf(
+        PluginStructureWarning(SomeProblem(PluginProblem.Level.WARNING, "first warning")),
+        PluginStructureWarning(SomeProblem(PluginProblem.Level.WARNING, "second warning"))
+      ),
+      dynamicPluginStatus = DynamicPluginStatus.NotDynamic(setOf("reason"))
+    ),
+    PluginVerificationResult.InvalidPlugin(
+      plugin,
+      verificationTarget,
+      setOf(PluginStructureError(SomeProblem(PluginProblem.Level.ERROR, "broken descriptor")))
+    ),
+    PluginVerificationResult.NotFound(plugin, verificationTarget, "Repository is off")
+  )
+
+  @Test
+  fun `streamed SARIF report is the same as serialized report`() {
+    for (result in results) {
+      val expected = gson.toJsonTree(result.toSarif()).withoutGuid()
+      val actual = StringWriter().also { result.writeSarif(it, gson) }.toString()
+      assertEquals(expected, JsonParser.parseString(actual).withoutGuid())
+    }
+  }
+
+  @Test
+  fun `streamed response is the same as serialized response`() {
+    for (result in results) {
+      val expected = gson.toJsonTree(result.prepareResponse(42, "IU-145"))
+      val actual = StringWriter().also { result.writeResponse(42, "IU-145", it, gson) }.toString()
+      assertEquals(expected, JsonParser.parseString(actual))
+    }
+  }
+
+  /**
+   * GUID of the SARIF report is random.
+   */
+  private fun JsonElement.withoutGuid(): JsonElement {
+    asJsonObject["runs"].asJsonArray.forEach { it.asJsonObject["automationDetails"].asJsonObject.remove("guid") }
+    return this
+  }
+}
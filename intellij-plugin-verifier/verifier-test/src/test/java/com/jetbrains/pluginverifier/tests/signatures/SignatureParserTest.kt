@@ -0,0 +1,130 @@
+package com.jetbrains.pluginverifier.tests.signatures
+
+import com.jetbrains.pluginverifier.results.presentation.toFullJavaClassName
+import com.jetbrains.pluginverifier.results.signatures.*
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotEquals
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.signature.SignatureReader
+import org.objectweb.asm.tree.ClassNode
+
+/**
+ * Asserts that [SignatureParser] parses signatures of JDK classes the same way as [SigVisitor].
+ */
+class SignatureParserTest {
+
+  private val fullOptions = FormatOptions(
+    superClass = true,
+    superInterfaces = true,
+    formalTypeParameters = true,
+    formalTypeParametersBounds = true,
+    typeArguments = true,
+    internalNameConverter = toFullJavaClassName,
+    methodThrows = true
+  )
+
+  private val jdkClasses = listOf(
+    "java/lang/Class",
+    "java/lang/Enum",
+    "java/lang/ThreadLocal",
+    "java/util/Arrays",
+    "java/util/Collections",
+    "java/util/HashMap",
+    "java/util/Map",
+    "java/util/Optional",
+    "java/util/concurrent/CompletableFuture",
+    "java/util/concurrent/ConcurrentHashMap",
+    "java/util/stream/Collectors",
+    "java/util/stream/Stream"
+  )
+
+  private fun readJdkClasses(): List<ClassNode> =
+    jdkClasses.map { className -> ClassNode().also { ClassReader(className).accept(it, ClassReader.SKIP_CODE) } }
+
+  @Test
+  fun `class signatures are parsed as by the visitor`() {
+    val signatures = readJdkClasses().mapNotNull { it.signature }
+    assertTrue(signatures.isNotEmpty())
+    for (signature in signatures) {
+      val expected = SigVisitor().also { SignatureReader(signature).accept(it) }.getClassSignature()
+      val actual = SignatureParser.parseClassSignature(signature)
+      assertEquals(signature, expected, actual)
+      assertEquals(signature, actual.toString())
+      assertEquals(expected.format(fullOptions), actual.format(fullOptions))
+    }
+  }
+
+  @Test
+  fun `method signatures are parsed as by the visitor`() {
+    val signatures = readJdkClasses().flatMap { classNode -> classNode.methods.mapNotNull { it.signature } }
+    assertTrue(signatures.size > 100)
+    for (signature in signatures) {
+      val expected = SigVisitor().also { SignatureReader(signature).accept(it) }.getMethodSignature()
+      val actual = SignatureParser.parseMethodSignature(signature)
+      assertEquals(signature, actual.toString())
+      //The visitor drops dimensions of arrays of primitive types in parameters and return types, unlike the parser.
+      assertEquals(signature, expected, actual.withoutPrimitiveArrays())
+    }
+  }
+
+  private fun MethodSignature.withoutPrimitiveArrays(): MethodSignature {
+    fun JavaTypeSignature.withoutPrimitiveArray(): JavaTypeSignature =
+      if (this is ArrayTypeSignature && javaTypeSignature is BaseType) javaTypeSignature else this
+
+    val resultSignature = when (val result = result) {
+      is Result.JavaType -> Result.JavaType(result.javaTypeSignature.withoutPrimitiveArray())
+      Result.VoidDescriptor -> result
+    }
+    return copy(parameterSignatures = parameterSignatures.map { it.withoutPrimitiveArray() }, result = resultSignature)
+  }
+
+  @Test
+  fun `field signatures are parsed as by the visitor`() {
+    val signatures = readJdkClasses().flatMap { classNode -> classNode.fields.mapNotNull { it.signature } }
+    assertTrue(signatures.isNotEmpty())
+    for (signature in signatures) {
+      val expected = SigVisitor().also { SignatureReader(signature).acceptType(it) }.getFieldSignature()
+      val actual = SignatureParser.parseFieldSignature(signature)
+      assertEquals(signature, expected, actual)
+      assertEquals(signature, actual.toString())
+      assertEquals(expected.format(fullOptions), actual.format(fullOptions))
+    }
+  }
+
+  @Test
+  fun `arrays of primitive types in method signatures`() {
+    val signature = "<T:Ljava/lang/Object;>([ITT;[[J)[B"
+    val methodSignature = SignatureParser.parseMethodSignature(signature)
+    assertEquals(signature, methodSignature.toString())
+    assertEquals("<T> byte[](int[], T, long[][])", methodSignature.format(fullOptions))
+  }
+
+  @Test
+  fun `nested classes and wildcards`() {
+    val signature = "Ljava/util/Map<+Ljava/lang/Number;*>.Entry<-TK;[[TV;>;"
+    val expected = SigVisitor().also { SignatureReader(signature).acceptType(it) }.getFieldSignature()
+    assertEquals(expected, SignatureParser.parseFieldSignature(signature))
+  }
+
+  @Test
+  fun `invalid signatures are rejected`() {
+    val invalidSignatures = listOf("", "L", "Ljava/lang/Object", "TT", "<T>Ljava/lang/Object;", "Ljava/util/List<>;", "Ljava/lang/Object;;")
+    for (signature in invalidSignatures) {
+      val failure = runCatching { SignatureParser.parseFieldSignature(signature) }.exceptionOrNull()
+      assertTrue(signature, failure is IllegalArgumentException)
+    }
+    val failure = runCatching { SignatureParser.parseMethodSignature("(I") }.exceptionOrNull()
+    assertTrue(failure is IllegalArgumentException)
+  }
+
+  @Test
+  fun `parsed signatures are cached`() {
+    val signature = "<K:Ljava/lang/Object;V:Ljava/lang/Object;>Ljava/util/AbstractMap<TK;TV;>;Ljava/util/Map<TK;TV;>;"
+    val classSignature = SignatureCache.getClassSignature(signature)
+    assertSame(classSignature, SignatureCache.getClassSignature(signature))
+    assertNotEquals(classSignature, SignatureCache.getClassSignature("<K:Ljava/lang/Object;>Ljava/lang/Object;"))
+  }
+}
@@ -45,6 +45,15 @@ class TestSignatures {
     )
   }
 
+  @Test
+  fun assertMalformedClassSignature() {
+    assertClass(
+      "org/some/Class",
+      "<T:Ljava/lang/Object;>Ljava/lang/Object",
+      "org.some.Class"
+    )
+  }
+
   @Test
   fun assertNonGenericClass() {
     assertClass(
@@ -103,6 +112,19 @@ class TestSignatures {
     )
   }
 
+  @Test
+  fun assertMalformedMethodSignature() {
+    assertMethod(
+      "name",
+      "(ILjava/lang/Object;)Ljava/lang/String;",
+      "org/some/Class",
+      "<T:Ljava/lang/Object;>Ljava/lang/Object",
+      listOf("myInt", "myObject"),
+      "(ITT)Ljava/lang/String;",
+      "org.some.Class.name(int myInt, Object myObject) : String"
+    )
+  }
+
   private fun assertMethod(
     methodName: String,
     methodDescriptor: String,
@@ -129,4 +151,16 @@ class TestSignatures {
     )
     Assert.assertEquals("some.Class.field : T", fieldLocation.presentableLocation)
   }
+
+  @Test
+  fun assertMalformedFieldSignature() {
+    val fieldLocation = FieldLocation(
+      genSomeClassLocation("some/Class", null),
+      "field",
+      "Ljava/util/List;",
+      "Ljava/util/List<TT>;",
+      Modifiers(0)
+    )
+    Assert.assertEquals("some.Class.field : List", fieldLocation.presentableLocation)
+  }
 }
\ No newline at end of file